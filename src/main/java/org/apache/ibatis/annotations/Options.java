@@ -41,6 +41,8 @@ public @interface Options {
 
   int timeout() default -1;
 
+  int maxRows() default -1;
+
   boolean useGeneratedKeys() default false;
 
   String keyProperty() default "id";
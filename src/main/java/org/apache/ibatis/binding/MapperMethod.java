@@ -21,6 +21,8 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetPage;
+import org.apache.ibatis.session.PageToken;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
@@ -66,6 +68,9 @@ public class MapperMethod {
         //如果有结果处理器
         executeWithResultHandler(sqlSession, args);
         result = null;
+      } else if (method.returnsKeysetPage()) {
+        //键集分页
+        result = executeForKeysetPage(sqlSession, args);
       } else if (method.returnsMany()) {
         //如果结果有多条记录
         result = executeForMany(sqlSession, args);
@@ -124,6 +129,20 @@ public class MapperMethod {
     }
   }
 
+  //键集分页，要带一个PageToken参数
+  private <E> KeysetPage<E> executeForKeysetPage(SqlSession sqlSession, Object[] args) {
+    RowBounds rowBounds = method.extractRowBounds(args);
+    if (!(rowBounds instanceof PageToken)) {
+      throw new BindingException("Mapper method '" + command.getName() + "' returns KeysetPage and needs a non-null PageToken parameter.");
+    }
+    PageToken pageToken = (PageToken) rowBounds;
+    Object param = method.convertArgsToSqlCommandParam(args);
+    List<E> items = sqlSession.<E>selectList(command.getName(), param, pageToken);
+    Configuration configuration = sqlSession.getConfiguration();
+    PageToken nextPageToken = configuration.getPaginationSupport().getNextPageToken(configuration.getMappedStatement(command.getName()), items, pageToken);
+    return new KeysetPage<E>(items, nextPageToken);
+  }
+
   //多条记录
   private <E> Object executeForMany(SqlSession sqlSession, Object[] args) {
     List<E> result;
@@ -229,6 +248,7 @@ public class MapperMethod {
 
     private final boolean returnsMany;
     private final boolean returnsMap;
+    private final boolean returnsKeysetPage;
     private final boolean returnsVoid;
     private final Class<?> returnType;
     private final String mapKey;
@@ -243,6 +263,7 @@ public class MapperMethod {
       this.returnsMany = (configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray());
       this.mapKey = getMapKey(method);
       this.returnsMap = (this.mapKey != null);
+      this.returnsKeysetPage = KeysetPage.class.equals(this.returnType);
       this.hasNamedParameters = hasNamedParams(method);
       //以下重复循环2遍调用getUniqueParamIndex，是不是降低效率了
       //记下RowBounds是第几个参数
@@ -314,6 +335,10 @@ public class MapperMethod {
       return returnsMap;
     }
 
+    public boolean returnsKeysetPage() {
+      return returnsKeysetPage;
+    }
+
     public boolean returnsVoid() {
       return returnsVoid;
     }
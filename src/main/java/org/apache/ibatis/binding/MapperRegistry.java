@@ -16,6 +16,7 @@
 package org.apache.ibatis.binding;
 
 import org.apache.ibatis.builder.annotation.MapperAnnotationBuilder;
+import org.apache.ibatis.io.PackageIndex;
 import org.apache.ibatis.io.ResolverUtil;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
@@ -102,7 +103,7 @@ public class MapperRegistry {
   public void addMappers(String packageName, Class<?> superType) {
     //查找包下所有是superType的类
     ResolverUtil<Class<?>> resolverUtil = new ResolverUtil<Class<?>>();
-    resolverUtil.find(new ResolverUtil.IsA(superType), packageName);
+    resolverUtil.find(new MapperTest(superType), packageName);
     Set<Class<? extends Class<?>>> mapperSet = resolverUtil.getClasses();
     for (Class<?> mapperClass : mapperSet) {
       addMapper(mapperClass);
@@ -116,5 +117,17 @@ public class MapperRegistry {
   public void addMappers(String packageName) {
     addMappers(packageName, Object.class);
   }
-  
+
+  //只有接口才会作为映射器，有构建期索引时不用加载其他类
+  private static class MapperTest extends ResolverUtil.IsA implements ResolverUtil.IndexedTest {
+    MapperTest(Class<?> superType) {
+      super(superType);
+    }
+
+    @Override
+    public boolean mayMatch(PackageIndex.Entry entry) {
+      return entry.isInterface();
+    }
+  }
+
 }
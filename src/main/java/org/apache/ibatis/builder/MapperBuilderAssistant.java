@@ -138,17 +138,18 @@ public class MapperBuilderAssistant extends BaseBuilder {
     typeClass = valueOrDefault(typeClass, PerpetualCache.class);
     evictionClass = valueOrDefault(evictionClass, LruCache.class);
     //调用CacheBuilder构建cache,id=currentNamespace
-    Cache cache = new CacheBuilder(currentNamespace)
+    CacheBuilder cacheBuilder = new CacheBuilder(currentNamespace)
         .implementation(typeClass)
         .addDecorator(evictionClass)
         .clearInterval(flushInterval)
         .size(size)
         .readWrite(readWrite)
         .blocking(blocking)
-        .properties(props)
-        .build();
-    //加入缓存
+        .properties(props);
+    Cache cache = cacheBuilder.build();
+    //加入缓存，同时记下缓存的定义
     configuration.addCache(cache);
+    configuration.addCacheDefinition(cache.getId(), cacheBuilder);
     //当前的缓存
     currentCache = cache;
     return cache;
@@ -283,7 +284,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String keyColumn,
       String databaseId,
       LanguageDriver lang,
-      String resultSets) {
+      String resultSets,
+      Integer maxRows) {
     
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -306,6 +308,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
     statementBuilder.lang(lang);
     statementBuilder.resultOrdered(resultOrdered);
     statementBuilder.resulSets(resultSets);
+    statementBuilder.maxRows(maxRows);
     setStatementTimeout(timeout, statementBuilder);
 
     //1.参数映射
@@ -541,6 +544,36 @@ public class MapperBuilderAssistant extends BaseBuilder {
     return configuration.getLanguageRegistry().getDriver(langClass);
   }
 
+  /** Backward compatibility signature */
+  //向后兼容方法
+  public MappedStatement addMappedStatement(
+    String id,
+    SqlSource sqlSource,
+    StatementType statementType,
+    SqlCommandType sqlCommandType,
+    Integer fetchSize,
+    Integer timeout,
+    String parameterMap,
+    Class<?> parameterType,
+    String resultMap,
+    Class<?> resultType,
+    ResultSetType resultSetType,
+    boolean flushCache,
+    boolean useCache,
+    boolean resultOrdered,
+    KeyGenerator keyGenerator,
+    String keyProperty,
+    String keyColumn,
+    String databaseId,
+    LanguageDriver lang,
+    String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout, 
+      parameterMap, parameterType, resultMap, resultType, resultSetType, 
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty, 
+      keyColumn, databaseId, lang, resultSets, null);
+  }
+
   /** Backward compatibility signature */
   //向后兼容方法
   public MappedStatement addMappedStatement(
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.builder;
 
+import java.io.Serializable;
 import java.util.List;
 
 import org.apache.ibatis.mapping.BoundSql;
@@ -29,7 +30,9 @@ import org.apache.ibatis.session.Configuration;
  * 静态SQL源码
  * 
  */
-public class StaticSqlSource implements SqlSource {
+public class StaticSqlSource implements SqlSource, Serializable {
+
+  private static final long serialVersionUID = 3755657504110325990L;
 
   private String sql;
   private List<ParameterMapping> parameterMappings;
@@ -128,7 +128,14 @@ public class MapperAnnotationBuilder {
         try {
           // issue #237
           if (!method.isBridge()) {
-            parseStatement(method);
+            if (configuration.isLazyStatementBuilding()) {
+              //延迟构建，有SQL注解的方法先登记，第一次查找时再解析
+              if (getSqlAnnotationType(method) != null || getSqlProviderAnnotationType(method) != null) {
+                configuration.addPendingStatement(type.getName() + "." + method.getName(), new MethodResolver(this, method));
+              }
+            } else {
+              parseStatement(method);
+            }
           }
         } catch (IncompleteElementException e) {
           configuration.addIncompleteMethod(new MethodResolver(this, method));
@@ -261,6 +268,7 @@ public class MapperAnnotationBuilder {
       final String mappedStatementId = type.getName() + "." + method.getName();
       Integer fetchSize = null;
       Integer timeout = null;
+      Integer maxRows = null;
       StatementType statementType = StatementType.PREPARED;
       ResultSetType resultSetType = ResultSetType.FORWARD_ONLY;
       SqlCommandType sqlCommandType = getSqlCommandType(method);
@@ -293,6 +301,7 @@ public class MapperAnnotationBuilder {
         useCache = options.useCache();
         fetchSize = options.fetchSize() > -1 || options.fetchSize() == Integer.MIN_VALUE ? options.fetchSize() : null; //issue #348
         timeout = options.timeout() > -1 ? options.timeout() : null;
+        maxRows = options.maxRows() > -1 ? options.maxRows() : null;
         statementType = options.statementType();
         resultSetType = options.resultSetType();
       }
@@ -337,7 +346,8 @@ public class MapperAnnotationBuilder {
           null,
           languageDriver,
           // ResultSets
-          null);
+          null,
+          maxRows);
     }
   }
   
@@ -17,10 +17,12 @@ package org.apache.ibatis.builder.annotation;
 
 import java.lang.reflect.Method;
 
+import org.apache.ibatis.builder.StatementResolver;
+
 /**
  * @author Eduardo Macarron
  */
-public class MethodResolver {
+public class MethodResolver implements StatementResolver {
   private final MapperAnnotationBuilder annotationBuilder;
   private Method method;
 
@@ -29,6 +31,7 @@ public class MethodResolver {
     this.method = method;
   }
 
+  @Override
   public void resolve() {
     annotationBuilder.parseStatement(method);
   }
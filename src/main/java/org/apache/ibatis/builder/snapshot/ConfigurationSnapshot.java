@@ -0,0 +1,353 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMap;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * 映射器元数据快照
+ * 把构建好的语句、结果映射、参数映射、主键生成器、SqlNode树和缓存定义序列化成二进制文件，
+ * 下次启动时校验和一致就直接读回，省掉解析XML和扫描注解的时间
+ * <p>
+ * 设置、别名、类型处理器、插件和环境仍由配置文件构建，快照只代替&lt;mappers&gt;这一步。
+ * &lt;sql&gt;片段只在解析时使用，不写入快照。
+ * 快照头里记录了写入时用到的所有类(元数据类、结果类、参数类、别名和类型处理器)的类文件摘要，
+ * 任何一个类文件变了(比如升级了MyBatis或改了实体类)，旧快照就作废并回退到XML。
+ * 读回时只实例化这份清单里的类和java.*下的类，清单以外的类让快照作废。
+ * 快照文件应放在只有应用自己能写的位置。
+ *
+ */
+public class ConfigurationSnapshot {
+
+  private static final String MAGIC = "MyBatis mapper snapshot";
+  private static final int VERSION = 2;
+
+  private final Configuration configuration;
+
+  public ConfigurationSnapshot(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  //写快照，语句都解析完成后才能写
+  public void write(OutputStream out, String checksum) throws IOException {
+    if (!configuration.getIncompleteStatements().isEmpty()
+        || !configuration.getIncompleteResultMaps().isEmpty()
+        || !configuration.getIncompleteCacheRefs().isEmpty()
+        || !configuration.getIncompleteMethods().isEmpty()) {
+      throw new BuilderException("Cannot write a snapshot of a configuration with unresolved elements.");
+    }
+    Map<String, CacheBuilder> cacheDefinitions = new LinkedHashMap<String, CacheBuilder>();
+    for (Cache cache : configuration.getCaches()) {
+      CacheBuilder cacheBuilder = configuration.getCacheDefinition(cache.getId());
+      if (cacheBuilder == null) {
+        throw new NotSerializableException("Cache " + cache.getId() + " was not built by a CacheBuilder (" + cache.getClass().getName() + ")");
+      }
+      cacheDefinitions.put(cache.getId(), cacheBuilder);
+    }
+    List<String> mapperTypes = new ArrayList<String>();
+    for (Class<?> mapperType : configuration.getMapperRegistry().getMappers()) {
+      mapperTypes.add(mapperType.getName());
+    }
+
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    SnapshotObjectOutputStream output = new SnapshotObjectOutputStream(payload, configuration);
+    //缓存定义必须在语句前面，读回时语句引用的缓存要先建好
+    output.writeObject(cacheDefinitions);
+    output.writeObject(distinctValues(configuration.getResultMaps(), ResultMap.class));
+    output.writeObject(distinctValues(configuration.getParameterMaps(), ParameterMap.class));
+    output.writeObject(distinctEntries(configuration.getKeyGeneratorNames(), KeyGenerator.class));
+    output.writeObject(distinctValues(configuration.getMappedStatements(), MappedStatement.class));
+    output.writeObject(new LinkedHashMap<String, String>(configuration.getCacheRefs()));
+    output.writeObject(new ArrayList<String>(configuration.getLoadedResources()));
+    output.writeObject(mapperTypes);
+    output.close();
+
+    Set<String> dependencies = new TreeSet<String>();
+    for (Class<?> type : output.getWrittenClasses()) {
+      addDependency(dependencies, type);
+    }
+    addDomainDependencies(dependencies);
+
+    DataOutputStream header = new DataOutputStream(out);
+    header.writeUTF(MAGIC);
+    header.writeInt(VERSION);
+    header.writeUTF(checksum);
+    header.writeInt(dependencies.size());
+    for (String dependency : dependencies) {
+      header.writeUTF(dependency);
+      header.writeUTF(classFileDigest(dependency));
+    }
+    payload.writeTo(header);
+    header.flush();
+  }
+
+  //读快照，校验和不一致或快照已过时返回false，这时Configuration不会被改动
+  @SuppressWarnings("unchecked")
+  public boolean read(InputStream in, String checksum) throws IOException {
+    DataInputStream header = new DataInputStream(in);
+    Set<String> dependencies = new HashSet<String>();
+    try {
+      if (!MAGIC.equals(header.readUTF()) || header.readInt() != VERSION || !checksum.equals(header.readUTF())) {
+        return false;
+      }
+      //依赖的类文件有一个变了，快照就过时了
+      for (int i = header.readInt(); i > 0; i--) {
+        String dependency = header.readUTF();
+        if (!header.readUTF().equals(classFileDigest(dependency))) {
+          return false;
+        }
+        dependencies.add(dependency);
+      }
+    } catch (EOFException e) {
+      return false;
+    } catch (UTFDataFormatException e) {
+      return false;
+    }
+    Map<String, Cache> caches = new LinkedHashMap<String, Cache>();
+    SnapshotObjectInputStream input;
+    try {
+      input = new SnapshotObjectInputStream(in, configuration, caches, dependencies);
+    } catch (StreamCorruptedException e) {
+      return false;
+    }
+
+    Map<String, CacheBuilder> cacheDefinitions;
+    List<ResultMap> resultMaps;
+    List<ParameterMap> parameterMaps;
+    Map<String, KeyGenerator> keyGenerators;
+    List<MappedStatement> mappedStatements;
+    Map<String, String> cacheRefs;
+    List<String> loadedResources;
+    List<String> mapperTypes;
+    try {
+      cacheDefinitions = (Map<String, CacheBuilder>) input.readObject();
+      for (Map.Entry<String, CacheBuilder> entry : cacheDefinitions.entrySet()) {
+        caches.put(entry.getKey(), entry.getValue().build());
+      }
+      resultMaps = (List<ResultMap>) input.readObject();
+      parameterMaps = (List<ParameterMap>) input.readObject();
+      keyGenerators = (Map<String, KeyGenerator>) input.readObject();
+      mappedStatements = (List<MappedStatement>) input.readObject();
+      cacheRefs = (Map<String, String>) input.readObject();
+      loadedResources = (List<String>) input.readObject();
+      mapperTypes = (List<String>) input.readObject();
+    } catch (ClassNotFoundException e) {
+      //映射用到的类已经不存在了
+      return false;
+    } catch (InvalidClassException e) {
+      //类结构变了(比如升级了MyBatis)，或者用到了快照头里没有列出的类
+      return false;
+    }
+
+    //全部读完才写进Configuration，中途失败不会留下一半的元数据
+    for (Map.Entry<String, Cache> entry : caches.entrySet()) {
+      configuration.addCache(entry.getValue());
+      configuration.addCacheDefinition(entry.getKey(), cacheDefinitions.get(entry.getKey()));
+    }
+    for (ResultMap resultMap : resultMaps) {
+      configuration.addResultMap(resultMap);
+    }
+    for (ParameterMap parameterMap : parameterMaps) {
+      configuration.addParameterMap(parameterMap);
+    }
+    for (Map.Entry<String, KeyGenerator> entry : keyGenerators.entrySet()) {
+      configuration.addKeyGenerator(entry.getKey(), entry.getValue());
+    }
+    for (MappedStatement mappedStatement : mappedStatements) {
+      configuration.addMappedStatement(mappedStatement);
+    }
+    for (Map.Entry<String, String> entry : cacheRefs.entrySet()) {
+      configuration.addCacheRef(entry.getKey(), entry.getValue());
+    }
+    //先标记资源已加载，addMapper就不会再去解析注解和XML
+    for (String resource : loadedResources) {
+      configuration.addLoadedResource(resource);
+    }
+    for (String mapperType : mapperTypes) {
+      Class<?> type;
+      try {
+        type = Resources.classForName(mapperType);
+      } catch (ClassNotFoundException e) {
+        throw new BuilderException("Mapper type " + mapperType + " disappeared while loading the snapshot. Cause: " + e, e);
+      }
+      if (!configuration.hasMapper(type)) {
+        configuration.addMapper(type);
+      }
+    }
+    return true;
+  }
+
+  public boolean read(File file, String checksum) throws IOException {
+    if (!file.isFile()) {
+      return false;
+    }
+    InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      return read(in, checksum);
+    } finally {
+      in.close();
+    }
+  }
+
+  //先写到同目录的临时文件再改名，其他进程不会读到写了一半的快照
+  public void write(File file, String checksum) throws IOException {
+    File directory = file.getAbsoluteFile().getParentFile();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Could not create directory " + directory);
+    }
+    File temp = File.createTempFile(file.getName(), ".tmp", directory);
+    boolean written = false;
+    try {
+      OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+      try {
+        write(out, checksum);
+      } finally {
+        out.close();
+      }
+      if (!temp.renameTo(file)) {
+        //有的平台不能覆盖已存在的文件
+        if (!file.delete() || !temp.renameTo(file)) {
+          throw new IOException("Could not move " + temp + " to " + file);
+        }
+      }
+      written = true;
+    } finally {
+      if (!written) {
+        temp.delete();
+      }
+    }
+  }
+
+  //结果类、参数类及其属性类型、类型处理器、别名(包括扫描包注册的)，这些类变了映射也可能跟着变
+  private void addDomainDependencies(Set<String> dependencies) {
+    for (ResultMap resultMap : distinctValues(configuration.getResultMaps(), ResultMap.class)) {
+      addDependency(dependencies, resultMap.getType());
+      addResultMappingDependencies(dependencies, resultMap.getResultMappings());
+    }
+    for (ParameterMap parameterMap : distinctValues(configuration.getParameterMaps(), ParameterMap.class)) {
+      addDependency(dependencies, parameterMap.getType());
+      for (ParameterMapping parameterMapping : parameterMap.getParameterMappings()) {
+        addDependency(dependencies, parameterMapping.getJavaType());
+        if (parameterMapping.getTypeHandler() != null) {
+          addDependency(dependencies, parameterMapping.getTypeHandler().getClass());
+        }
+      }
+    }
+    for (Class<?> type : configuration.getTypeAliasRegistry().getTypeAliases().values()) {
+      addDependency(dependencies, type);
+    }
+    for (TypeHandler<?> typeHandler : configuration.getTypeHandlerRegistry().getTypeHandlers()) {
+      addDependency(dependencies, typeHandler.getClass());
+    }
+  }
+
+  private void addResultMappingDependencies(Set<String> dependencies, List<ResultMapping> resultMappings) {
+    for (ResultMapping resultMapping : resultMappings) {
+      addDependency(dependencies, resultMapping.getJavaType());
+      if (resultMapping.getTypeHandler() != null) {
+        addDependency(dependencies, resultMapping.getTypeHandler().getClass());
+      }
+      if (resultMapping.getComposites() != null) {
+        addResultMappingDependencies(dependencies, resultMapping.getComposites());
+      }
+    }
+  }
+
+  //JDK自带的类不用校验
+  private static void addDependency(Set<String> dependencies, Class<?> type) {
+    while (type != null && type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type != null && !type.isPrimitive() && type.getClassLoader() != null && !type.getName().startsWith("java.")) {
+      dependencies.add(type.getName());
+    }
+  }
+
+  private static String classFileDigest(String className) throws IOException {
+    return new SnapshotChecksum().updateClassFile(className).getValue();
+  }
+
+  //StrictMap里同一个对象会以全名和短名各存一份，短名冲突时还有Ambiguity占位，只取全名那一份
+  private static <V> List<V> distinctValues(Iterable<?> values, Class<V> type) {
+    Map<Object, Boolean> seen = new IdentityHashMap<Object, Boolean>();
+    List<V> result = new ArrayList<V>();
+    for (Object value : values) {
+      if (type.isInstance(value) && seen.put(value, Boolean.TRUE) == null) {
+        result.add(type.cast(value));
+      }
+    }
+    return result;
+  }
+
+  private <V> Map<String, V> distinctEntries(Iterable<String> keys, Class<V> type) {
+    Map<Object, String> longestKeys = new IdentityHashMap<Object, String>();
+    for (String key : keys) {
+      Object value;
+      try {
+        value = configuration.getKeyGenerator(key);
+      } catch (IllegalArgumentException e) {
+        //有歧义的短名，全名那一份会被取到
+        continue;
+      }
+      String current = longestKeys.get(value);
+      if (type.isInstance(value) && (current == null || key.length() > current.length())) {
+        longestKeys.put(value, key);
+      }
+    }
+    Map<String, V> result = new LinkedHashMap<String, V>();
+    for (Map.Entry<Object, String> entry : longestKeys.entrySet()) {
+      result.put(entry.getValue(), type.cast(entry.getKey()));
+    }
+    return result;
+  }
+
+}
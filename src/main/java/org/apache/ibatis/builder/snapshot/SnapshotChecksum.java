@@ -0,0 +1,152 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.snapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.io.VFS;
+
+/**
+ * 快照的校验和，由配置内容和所有映射器源文件的内容算出
+ * 任何一个源文件变了，校验和就对不上，启动时回退到解析XML
+ *
+ */
+public class SnapshotChecksum {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final MessageDigest digest;
+
+  public SnapshotChecksum() {
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new BuilderException("SHA-1 is not available. Cause: " + e, e);
+    }
+  }
+
+  public SnapshotChecksum update(String value) {
+    try {
+      digest.update(String.valueOf(value).getBytes("UTF-8"));
+      //加一个分隔符，免得相邻的两段拼起来和别的组合一样
+      digest.update((byte) 0);
+    } catch (UnsupportedEncodingException e) {
+      throw new BuilderException("UTF-8 is not available. Cause: " + e, e);
+    }
+    return this;
+  }
+
+  public SnapshotChecksum update(Map<?, ?> values) {
+    Map<String, String> sorted = new TreeMap<String, String>();
+    if (values != null) {
+      for (Map.Entry<?, ?> entry : values.entrySet()) {
+        sorted.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+      }
+    }
+    for (Map.Entry<String, String> entry : sorted.entrySet()) {
+      update(entry.getKey());
+      update(entry.getValue());
+    }
+    return this;
+  }
+
+  public SnapshotChecksum update(InputStream inputStream) throws IOException {
+    try {
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = inputStream.read(buffer)) != -1) {
+        digest.update(buffer, 0, n);
+      }
+      digest.update((byte) 0);
+    } finally {
+      inputStream.close();
+    }
+    return this;
+  }
+
+  public SnapshotChecksum updateResource(String resource) throws IOException {
+    update(resource);
+    return update(Resources.getResourceAsStream(resource));
+  }
+
+  public SnapshotChecksum updateUrl(String url) throws IOException {
+    update(url);
+    return update(Resources.getUrlAsStream(url));
+  }
+
+  //映射器接口：类文件本身，以及同名的XML(MapperAnnotationBuilder会去加载它)
+  public SnapshotChecksum updateMapperClass(String className) throws IOException {
+    update(className);
+    String path = className.replace('.', '/');
+    updateOptionalResource(path + ".class");
+    updateOptionalResource(path + ".xml");
+    return this;
+  }
+
+  //只读类文件的字节，不加载类
+  public SnapshotChecksum updateClassFile(String className) throws IOException {
+    update(className);
+    updateOptionalResource(className.replace('.', '/') + ".class");
+    return this;
+  }
+
+  //<package>下(包括子包)所有的类文件和XML，按路径排序，不加载类
+  public SnapshotChecksum updatePackage(String packageName) throws IOException {
+    update(packageName);
+    List<String> children = new ArrayList<String>(VFS.getInstance().list(packageName.replace('.', '/')));
+    Collections.sort(children);
+    for (String child : children) {
+      if (child.endsWith(".class") || child.endsWith(".xml")) {
+        update(child);
+        updateOptionalResource(child);
+      }
+    }
+    return this;
+  }
+
+  private void updateOptionalResource(String resource) throws IOException {
+    InputStream inputStream;
+    try {
+      inputStream = Resources.getResourceAsStream(resource);
+    } catch (IOException e) {
+      update("-");
+      return;
+    }
+    update(inputStream);
+  }
+
+  public String getValue() {
+    byte[] bytes = digest.digest();
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+      chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+    }
+    return new String(chars);
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.snapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.LanguageDriverRegistry;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * 读快照的对象流，把SnapshotReference换回当前Configuration里的对象
+ * 只接受快照头里列出的类(写快照时用到的元数据类和映射用到的类，类文件摘要已经校验过)、
+ * java.*下的类和基本类型，不接受动态代理，别的类在加载之前就拒绝
+ *
+ */
+class SnapshotObjectInputStream extends ObjectInputStream {
+
+  //int.class这样的基本类型按名字出现
+  private static final Set<String> PRIMITIVE_TYPES = new HashSet<String>(Arrays.asList(
+      "boolean", "byte", "char", "short", "int", "long", "float", "double", "void"));
+
+  private final Configuration configuration;
+  private final Map<String, Cache> caches;
+  private final Set<String> allowedClasses;
+
+  SnapshotObjectInputStream(InputStream in, Configuration configuration, Map<String, Cache> caches, Set<String> allowedClasses) throws IOException {
+    super(in);
+    this.configuration = configuration;
+    this.caches = caches;
+    this.allowedClasses = allowedClasses;
+    enableResolveObject(true);
+  }
+
+  @Override
+  protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+    String name = desc.getName();
+    if (!isAllowed(name)) {
+      throw new InvalidClassException(name, "Class is not listed in the configuration snapshot");
+    }
+    //先用MyBatis的类加载顺序(包括线程上下文类加载器)，基本类型等再交给父类
+    try {
+      return Resources.classForName(name);
+    } catch (ClassNotFoundException e) {
+      return super.resolveClass(desc);
+    }
+  }
+
+  @Override
+  protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+    throw new InvalidClassException("Dynamic proxies are not allowed in a configuration snapshot");
+  }
+
+  //数组看元素类型，[I这样的基本类型数组直接放行
+  private boolean isAllowed(String name) {
+    int dimensions = 0;
+    while (dimensions < name.length() && name.charAt(dimensions) == '[') {
+      dimensions++;
+    }
+    if (dimensions > 0) {
+      if (name.length() == dimensions + 1) {
+        return true;
+      }
+      if (name.charAt(dimensions) != 'L' || !name.endsWith(";")) {
+        return false;
+      }
+      name = name.substring(dimensions + 1, name.length() - 1);
+    }
+    //java.*下的类不能由应用定义
+    return name.startsWith("java.") || PRIMITIVE_TYPES.contains(name) || allowedClasses.contains(name);
+  }
+
+  @Override
+  protected Object resolveObject(Object obj) throws IOException {
+    if (!(obj instanceof SnapshotReference)) {
+      return obj;
+    }
+    SnapshotReference reference = (SnapshotReference) obj;
+    switch (reference.getKind()) {
+      case CONFIGURATION:
+        return configuration;
+      case CACHE:
+        Cache cache = caches.get(reference.getId());
+        if (cache == null) {
+          throw new InvalidObjectException("Snapshot refers to undefined cache " + reference.getId());
+        }
+        return cache;
+      default:
+        LanguageDriverRegistry languageRegistry = configuration.getLanguageRegistry();
+        LanguageDriver driver = languageRegistry.getDriver(reference.getType());
+        if (driver == null) {
+          languageRegistry.register(reference.getType());
+          driver = languageRegistry.getDriver(reference.getType());
+        }
+        return driver;
+    }
+  }
+
+}
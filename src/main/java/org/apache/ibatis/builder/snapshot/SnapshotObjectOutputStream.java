@@ -0,0 +1,74 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.snapshot;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * 写快照的对象流，把运行时对象换成SnapshotReference
+ *
+ */
+class SnapshotObjectOutputStream extends ObjectOutputStream {
+
+  private final Configuration configuration;
+  //写进快照的所有类，读回前要校验它们的类文件没变
+  private final Set<Class<?>> writtenClasses = new LinkedHashSet<Class<?>>();
+
+  SnapshotObjectOutputStream(OutputStream out, Configuration configuration) throws IOException {
+    super(out);
+    this.configuration = configuration;
+    enableReplaceObject(true);
+  }
+
+  Set<Class<?>> getWrittenClasses() {
+    return writtenClasses;
+  }
+
+  @Override
+  protected void annotateClass(Class<?> cl) throws IOException {
+    writtenClasses.add(cl);
+  }
+
+  @Override
+  protected Object replaceObject(Object obj) throws IOException {
+    if (obj instanceof Configuration) {
+      if (obj != configuration) {
+        throw new NotSerializableException("Snapshot references a foreign " + obj.getClass().getName());
+      }
+      return new SnapshotReference(SnapshotReference.Kind.CONFIGURATION, null, null);
+    } else if (obj instanceof Cache) {
+      String id = ((Cache) obj).getId();
+      //只有用CacheBuilder建的缓存才能在读回时重建
+      if (configuration.getCacheDefinition(id) == null) {
+        throw new NotSerializableException("Cache " + id + " was not built by a CacheBuilder (" + obj.getClass().getName() + ")");
+      }
+      return new SnapshotReference(SnapshotReference.Kind.CACHE, id, null);
+    } else if (obj instanceof LanguageDriver) {
+      return new SnapshotReference(SnapshotReference.Kind.LANGUAGE_DRIVER, null, obj.getClass());
+    }
+    return obj;
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.snapshot;
+
+import java.io.Serializable;
+
+/**
+ * 快照里代替运行时对象的引用，读回时换成当前Configuration里的对象
+ * Configuration、缓存和脚本语言驱动本身都不能(也不应该)序列化
+ *
+ */
+final class SnapshotReference implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  enum Kind {
+    CONFIGURATION, CACHE, LANGUAGE_DRIVER
+  }
+
+  private final Kind kind;
+  //缓存id
+  private final String id;
+  //脚本语言驱动的类型
+  private final Class<?> type;
+
+  SnapshotReference(Kind kind, String id, Class<?> type) {
+    this.kind = kind;
+    this.id = id;
+    this.type = type;
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  String getId() {
+    return id;
+  }
+
+  Class<?> getType() {
+    return type;
+  }
+
+}
@@ -15,18 +15,37 @@
  */
 package org.apache.ibatis.builder.xml;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.snapshot.ConfigurationSnapshot;
+import org.apache.ibatis.builder.snapshot.SnapshotChecksum;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
+import org.apache.ibatis.executor.pagination.Dialect;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.DatabaseIdProvider;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.parsing.XNode;
@@ -39,8 +58,10 @@ import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.MaxRowsExceededBehavior;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
 
 /**
  * @author Clinton Begin
@@ -51,6 +72,8 @@ import org.apache.ibatis.type.JdbcType;
  */
 public class XMLConfigBuilder extends BaseBuilder {
 
+  private static final Log log = LogFactory.getLog(XMLConfigBuilder.class);
+
   //是否已解析，XPath解析器,环境
   private boolean parsed;
   private XPathParser parser;
@@ -336,6 +359,13 @@ public class XMLConfigBuilder extends BaseBuilder {
       configuration.setDefaultExecutorType(ExecutorType.valueOf(props.getProperty("defaultExecutorType", "SIMPLE")));
       //超时时间
       configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
+      //默认每次读取的行数
+      configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
+      //默认最多读取的行数，以及超过时怎么处理
+      configuration.setDefaultMaxRows(integerValueOf(props.getProperty("defaultMaxRows"), null));
+      configuration.setMaxRowsExceededBehavior(MaxRowsExceededBehavior.valueOf(props.getProperty("maxRowsExceededBehavior", "FAIL")));
+      //慢语句阈值(毫秒)
+      configuration.setSlowStatementThreshold(integerValueOf(props.getProperty("slowStatementThreshold"), null));
       //是否将DB字段自动映射到驼峰式Java属性（A_COLUMN-->aColumn）
       configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
       //嵌套语句上使用RowBounds
@@ -358,6 +388,31 @@ public class XMLConfigBuilder extends BaseBuilder {
       configuration.setLogImpl(resolveClass(props.getProperty("logImpl")));
       //配置工厂
       configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
+      //统计每条语句的执行情况
+      configuration.setStatementMetricsEnabled(booleanValueOf(props.getProperty("statementMetricsEnabled"), false));
+      //每N次执行计时一次
+      configuration.setStatementMetricsSampleInterval(integerValueOf(props.getProperty("statementMetricsSampleInterval"), 1));
+      //RowBounds改写为数据库分页SQL，以及所用的方言
+      configuration.setDatabasePagination(booleanValueOf(props.getProperty("databasePagination"), false));
+      configuration.setPaginationDialect((Dialect) createInstance(props.getProperty("paginationDialect")));
+      //简单结果映射并行映射
+      configuration.setParallelResultMapping(booleanValueOf(props.getProperty("parallelResultMapping"), false));
+      configuration.setParallelResultMappingThreads(integerValueOf(props.getProperty("parallelResultMappingThreads"), Runtime.getRuntime().availableProcessors()));
+      configuration.setParallelResultMappingBatchSize(integerValueOf(props.getProperty("parallelResultMappingBatchSize"), 256));
+      //并行解析映射器XML
+      configuration.setParallelMapperParsing(booleanValueOf(props.getProperty("parallelMapperParsing"), false));
+      //映射器元数据快照文件
+      configuration.setConfigurationSnapshot(props.getProperty("configurationSnapshot"));
+      //延迟构建语句
+      configuration.setLazyStatementBuilding(booleanValueOf(props.getProperty("lazyStatementBuilding"), false));
+      //拍平拦截器链
+      configuration.setFlatInterceptorChain(booleanValueOf(props.getProperty("flatInterceptorChain"), false));
+      //异步SQL日志
+      configuration.setAsyncSqlLog(booleanValueOf(props.getProperty("asyncSqlLog"), false));
+      configuration.setAsyncSqlLogBufferSize(integerValueOf(props.getProperty("asyncSqlLogBufferSize"), 8192));
+      configuration.setAsyncSqlLogSampleRate(integerValueOf(props.getProperty("asyncSqlLogSampleRate"), 1));
+      configuration.setScatterGatherThreads(integerValueOf(props.getProperty("scatterGatherThreads"), 8));
+      configuration.setBulkLoadBatchSize(integerValueOf(props.getProperty("bulkLoadBatchSize"), 1000));
     }
   }
   
@@ -531,7 +586,17 @@ public class XMLConfigBuilder extends BaseBuilder {
 //	  <package name="org.mybatis.builder"/>
 //	</mappers>
   private void mapperElement(XNode parent) throws Exception {
-    if (parent != null) {
+    if (parent != null && configuration.getConfigurationSnapshot() != null) {
+      snapshotMapperElement(parent);
+    } else {
+      parseMapperElement(parent);
+    }
+  }
+
+  private void parseMapperElement(XNode parent) throws Exception {
+    if (parent != null && configuration.isParallelMapperParsing()) {
+      parallelMapperElement(parent);
+    } else if (parent != null) {
       for (XNode child : parent.getChildren()) {
         if ("package".equals(child.getName())) {
           //10.4自动扫描包下所有映射器
@@ -568,6 +633,147 @@ public class XMLConfigBuilder extends BaseBuilder {
       }
     }
   }
+  //10.5并行加载映射器
+  //线程池里把XML映射文件读成DOM，并展开文件内的SQL片段，这一步只碰各自的DOM，不往Configuration里注册
+  //然后在调用线程上按声明顺序注册，和串行加载的结果一样
+  private void parallelMapperElement(XNode parent) throws Exception {
+    List<XNode> children = parent.getChildren();
+    Map<String, Future<XMLMapperBuilder>> mappers = new HashMap<String, Future<XMLMapperBuilder>>();
+    ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+      private final AtomicInteger threadNumber = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mybatis-mapper-parser-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try {
+      for (XNode child : children) {
+        final String resource = child.getStringAttribute("resource");
+        final String url = child.getStringAttribute("url");
+        String mapperClass = child.getStringAttribute("class");
+        if (resource != null && url == null && mapperClass == null && !mappers.containsKey(resource)) {
+          mappers.put(resource, executor.submit(new Callable<XMLMapperBuilder>() {
+            @Override
+            public XMLMapperBuilder call() throws Exception {
+              return prepareMapper(resource, Resources.getResourceAsStream(resource));
+            }
+          }));
+        } else if (resource == null && url != null && mapperClass == null && !mappers.containsKey(url)) {
+          mappers.put(url, executor.submit(new Callable<XMLMapperBuilder>() {
+            @Override
+            public XMLMapperBuilder call() throws Exception {
+              return prepareMapper(url, Resources.getUrlAsStream(url));
+            }
+          }));
+        }
+      }
+      for (XNode child : children) {
+        if ("package".equals(child.getName())) {
+          configuration.addMappers(child.getStringAttribute("name"));
+        } else {
+          String resource = child.getStringAttribute("resource");
+          String url = child.getStringAttribute("url");
+          String mapperClass = child.getStringAttribute("class");
+          if ((resource != null && url == null && mapperClass == null) || (resource == null && url != null && mapperClass == null)) {
+            String location = resource != null ? resource : url;
+            ErrorContext.instance().resource(location);
+            awaitMapper(mappers.get(location)).parse();
+          } else if (resource == null && url == null && mapperClass != null) {
+            configuration.addMapper(Resources.classForName(mapperClass));
+          } else {
+            throw new BuilderException("A mapper element may only specify a url, resource or class, but not more than one.");
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  //在线程池里调用
+  private XMLMapperBuilder prepareMapper(String location, InputStream inputStream) {
+    try {
+      XMLMapperBuilder mapperParser = new XMLMapperBuilder(new XPathParser(inputStream, true, configuration.getVariables(), new XMLMapperEntityResolver()),
+          configuration, location, configuration.getSqlFragments());
+      mapperParser.applyLocalIncludes();
+      return mapperParser;
+    } catch (RuntimeException e) {
+      throw new BuilderException("Error parsing Mapper XML " + location + ". Cause: " + e, e);
+    }
+  }
+
+  private XMLMapperBuilder awaitMapper(Future<XMLMapperBuilder> mapper) throws Exception {
+    try {
+      return mapper.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw (Error) cause;
+    }
+  }
+
+  //10.6映射器元数据快照
+  //校验和一致就从快照读回，否则解析映射器后重新写快照，读写失败都不影响启动
+  private void snapshotMapperElement(XNode parent) throws Exception {
+    File file = new File(configuration.getConfigurationSnapshot());
+    String checksum = mapperChecksum(parent);
+    ConfigurationSnapshot snapshot = new ConfigurationSnapshot(configuration);
+    try {
+      if (snapshot.read(file, checksum)) {
+        return;
+      }
+    } catch (IOException e) {
+      log.warn("Could not read configuration snapshot " + file + ", parsing mappers instead. Cause: " + e);
+    }
+    parseMapperElement(parent);
+    try {
+      snapshot.write(file, checksum);
+    } catch (IOException e) {
+      log.warn("Could not write configuration snapshot " + file + ". Cause: " + e);
+    } catch (BuilderException e) {
+      log.warn("Could not write configuration snapshot " + file + ". Cause: " + e);
+    }
+  }
+
+  //配置文件本身、属性、databaseId、注册好的别名和类型处理器(包括扫描包得到的)，以及所有映射器源文件
+  //结果类、参数类等依赖的类文件由快照自己记录并在读回前校验
+  private String mapperChecksum(XNode parent) throws Exception {
+    SnapshotChecksum checksum = new SnapshotChecksum();
+    checksum.update(parent.getParent().toString());
+    checksum.update(configuration.getVariables());
+    checksum.update(configuration.getDatabaseId());
+    checksum.update(configuration.getTypeAliasRegistry().getTypeAliases());
+    Set<String> typeHandlers = new TreeSet<String>();
+    for (TypeHandler<?> typeHandler : configuration.getTypeHandlerRegistry().getTypeHandlers()) {
+      typeHandlers.add(typeHandler.getClass().getName());
+    }
+    for (String typeHandler : typeHandlers) {
+      checksum.update(typeHandler);
+    }
+    for (XNode child : parent.getChildren()) {
+      if ("package".equals(child.getName())) {
+        checksum.updatePackage(child.getStringAttribute("name"));
+      } else {
+        String resource = child.getStringAttribute("resource");
+        String url = child.getStringAttribute("url");
+        String mapperClass = child.getStringAttribute("class");
+        if (resource != null) {
+          checksum.updateResource(resource);
+        } else if (url != null) {
+          checksum.updateUrl(url);
+        } else if (mapperClass != null) {
+          checksum.updateMapperClass(mapperClass);
+        }
+      }
+    }
+    return checksum.getValue();
+  }
+
 
 	//比较id和environment是否相等
   private boolean isSpecifiedEnvironment(String id) {
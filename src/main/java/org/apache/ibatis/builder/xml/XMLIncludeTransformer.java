@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.builder.xml;
 
+import java.util.Map;
+
 import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.parsing.PropertyParser;
@@ -52,15 +54,7 @@ public class XMLIncludeTransformer {
       Node toInclude = findSqlFragment(getStringAttribute(source, "refid"));
       //递归调用自己,应用上?
       applyIncludes(toInclude);
-      //总之下面就是将字符串拼接进来，看不懂。。。
-      if (toInclude.getOwnerDocument() != source.getOwnerDocument()) {
-        toInclude = source.getOwnerDocument().importNode(toInclude, true);
-      }
-      source.getParentNode().replaceChild(toInclude, source);
-      while (toInclude.hasChildNodes()) {
-        toInclude.getParentNode().insertBefore(toInclude.getFirstChild(), toInclude);
-      }
-      toInclude.getParentNode().removeChild(toInclude);
+      inline(source, toInclude);
     } else if (source.getNodeType() == Node.ELEMENT_NODE) {
         //一开始会走这段，取得所有儿子
       NodeList children = source.getChildNodes();
@@ -71,9 +65,30 @@ public class XMLIncludeTransformer {
     }
   }
 
-  private Node findSqlFragment(String refid) {
+  //只展开fragments里有的片段，找不到的include原样留下
+  void applyIncludes(Node source, Map<String, XNode> fragments) {
+    if (source.getNodeName().equals("include")) {
+      XNode fragment = fragments.get(resolveRefid(getStringAttribute(source, "refid")));
+      if (fragment != null) {
+        Node toInclude = fragment.getNode().cloneNode(true);
+        applyIncludes(toInclude, fragments);
+        inline(source, toInclude);
+      }
+    } else if (source.getNodeType() == Node.ELEMENT_NODE) {
+      NodeList children = source.getChildNodes();
+      for (int i = 0; i < children.getLength(); i++) {
+        applyIncludes(children.item(i), fragments);
+      }
+    }
+  }
+
+  private String resolveRefid(String refid) {
     refid = PropertyParser.parse(refid, configuration.getVariables());
-    refid = builderAssistant.applyCurrentNamespace(refid, true);
+    return builderAssistant.applyCurrentNamespace(refid, true);
+  }
+
+  private Node findSqlFragment(String refid) {
+    refid = resolveRefid(refid);
     try {
       //去之前存到内存map的SQL片段中寻找
       XNode nodeToInclude = configuration.getSqlFragments().get(refid);
@@ -84,6 +99,18 @@ public class XMLIncludeTransformer {
     }
   }
 
+  //总之下面就是将字符串拼接进来，看不懂。。。
+  private void inline(Node source, Node toInclude) {
+    if (toInclude.getOwnerDocument() != source.getOwnerDocument()) {
+      toInclude = source.getOwnerDocument().importNode(toInclude, true);
+    }
+    source.getParentNode().replaceChild(toInclude, source);
+    while (toInclude.hasChildNodes()) {
+      toInclude.getParentNode().insertBefore(toInclude.getFirstChild(), toInclude);
+    }
+    toInclude.getParentNode().removeChild(toInclude);
+  }
+
   private String getStringAttribute(Node node, String name) {
     return node.getAttributes().getNamedItem(name).getNodeValue();
   }
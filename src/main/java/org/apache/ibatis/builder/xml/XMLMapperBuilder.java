@@ -85,7 +85,8 @@ public class XMLMapperBuilder extends BaseBuilder {
         configuration, resource, sqlFragments);
   }
 
-  private XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
+  //XML已经解析成DOM的情况，并行加载映射器时用
+  XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
     super(configuration);
     this.builderAssistant = new MapperBuilderAssistant(configuration, resource);
     this.parser = parser;
@@ -111,6 +112,34 @@ public class XMLMapperBuilder extends BaseBuilder {
     parsePendingStatements();
   }
 
+  //并行加载映射器时在线程池里调用，只改本文件的DOM，不往Configuration里注册
+  //注册时一定会选中的本文件SQL片段先展开到语句里：databaseId和当前数据库完全一致的片段(重复定义注册时照样报错)
+  //其他片段(比如没有databaseId、而别的文件可能有同名的数据库专用片段)留到构建语句时再展开
+  void applyLocalIncludes() {
+    XNode context = parser.evalNode("/mapper");
+    String namespace = context.getStringAttribute("namespace");
+    if (namespace == null || namespace.equals("")) {
+      //注册时报错
+      return;
+    }
+    builderAssistant.setCurrentNamespace(namespace);
+    String currentDatabaseId = configuration.getDatabaseId();
+    Map<String, XNode> localFragments = new HashMap<String, XNode>();
+    for (XNode fragment : context.evalNodes("/mapper/sql")) {
+      String databaseId = fragment.getStringAttribute("databaseId");
+      if (currentDatabaseId == null ? databaseId == null : currentDatabaseId.equals(databaseId)) {
+        localFragments.put(builderAssistant.applyCurrentNamespace(fragment.getStringAttribute("id"), false), fragment);
+      }
+    }
+    if (localFragments.isEmpty()) {
+      return;
+    }
+    XMLIncludeTransformer includeParser = new XMLIncludeTransformer(configuration, builderAssistant);
+    for (XNode statement : context.evalNodes("select|insert|update|delete")) {
+      includeParser.applyIncludes(statement.getNode(), localFragments);
+    }
+  }
+
   public XNode getSqlFragment(String refid) {
     return sqlFragments.get(refid);
   }
@@ -161,6 +190,14 @@ public class XMLMapperBuilder extends BaseBuilder {
       //构建所有语句,一个mapper下可以有很多select
       //语句比较复杂，核心都在这里面，所以调用XMLStatementBuilder
       final XMLStatementBuilder statementParser = new XMLStatementBuilder(configuration, builderAssistant, context, requiredDatabaseId);
+      //延迟构建，先登记，第一次查找时再解析
+      if (configuration.isLazyStatementBuilding()) {
+        String statementId = statementParser.getPendingStatementId();
+        if (statementId != null) {
+          configuration.addPendingStatement(statementId, statementParser);
+        }
+        continue;
+      }
       try {
           //核心XMLStatementBuilder.parseStatementNode
         statementParser.parseStatementNode();
@@ -20,6 +20,7 @@ import java.util.Locale;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.apache.ibatis.builder.StatementResolver;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
@@ -40,7 +41,7 @@ import org.apache.ibatis.session.Configuration;
  * XML语句构建器，建造者模式,继承BaseBuilder
  *
  */
-public class XMLStatementBuilder extends BaseBuilder {
+public class XMLStatementBuilder extends BaseBuilder implements StatementResolver {
 
   private MapperBuilderAssistant builderAssistant;
   private XNode context;
@@ -68,10 +69,31 @@ public class XMLStatementBuilder extends BaseBuilder {
 //  useCache="true"
 //  timeout="10000"
 //  fetchSize="256"
+//  maxRows="10000"
 //  statementType="PREPARED"
 //  resultSetType="FORWARD_ONLY">
 //  SELECT * FROM PERSON WHERE ID = #{id}
 //</select>
+  //延迟构建时第一次查找语句才会调到这里
+  @Override
+  public void resolve() {
+    parseStatementNode();
+  }
+
+  //延迟构建时登记用，只判断databaseId，匹配则返回语句全名，否则返回null
+  public String getPendingStatementId() {
+    String id = context.getStringAttribute("id");
+    String databaseId = context.getStringAttribute("databaseId");
+    if (!databaseIdMatchesCurrent(id, databaseId, this.requiredDatabaseId)) {
+      return null;
+    }
+    return builderAssistant.applyCurrentNamespace(id, false);
+  }
+
+  public String getDatabaseId() {
+    return context.getStringAttribute("databaseId");
+  }
+
   public void parseStatementNode() {
     String id = context.getStringAttribute("id");
     String databaseId = context.getStringAttribute("databaseId");
@@ -85,6 +107,8 @@ public class XMLStatementBuilder extends BaseBuilder {
     Integer fetchSize = context.getIntAttribute("fetchSize");
     //超时时间
     Integer timeout = context.getIntAttribute("timeout");
+    //最多读取的行数
+    Integer maxRows = context.getIntAttribute("maxRows");
     //引用外部 parameterMap,已废弃
     String parameterMap = context.getStringAttribute("parameterMap");
     //参数类型
@@ -149,7 +173,7 @@ public class XMLStatementBuilder extends BaseBuilder {
     builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
         fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
         resultSetTypeEnum, flushCache, useCache, resultOrdered, 
-        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, maxRows);
   }
 
   private void processSelectKeyNodes(String id, Class<?> parameterTypeClass, LanguageDriver langDriver) {
@@ -221,6 +245,11 @@ public class XMLStatementBuilder extends BaseBuilder {
       }
       // skip this statement if there is a previous one with a not null databaseId
       id = builderAssistant.applyCurrentNamespace(id, false);
+      //还没构建的同名语句也算
+      StatementResolver pending = this.configuration.getPendingStatement(id);
+      if (pending instanceof XMLStatementBuilder && ((XMLStatementBuilder) pending).getDatabaseId() != null) {
+        return false;
+      }
       if (this.configuration.hasStatement(id, false)) {
         MappedStatement previous = this.configuration.getMappedStatement(id, false); // issue #2
         if (previous.getDatabaseId() != null) {
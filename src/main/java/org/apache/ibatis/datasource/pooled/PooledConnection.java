@@ -15,31 +15,25 @@
  */
 package org.apache.ibatis.datasource.pooled;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.sql.Connection;
-import java.sql.SQLException;
-
-import org.apache.ibatis.reflection.ExceptionUtil;
 
 /**
  * @author Clinton Begin
  */
 /**
  * 池化的连接
+ * 归还和回收时不再new一个新的，而是代数加一，之前借出去的句柄就失效了
  */
-class PooledConnection implements InvocationHandler {
-
-  private static final String CLOSE = "close";
-  private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
+class PooledConnection {
 
   private int hashCode = 0;
   private PooledDataSource dataSource;
   //真正的连接
   private Connection realConnection;
-  //代理的连接
-  private Connection proxyConnection;
+  //借出去的句柄，每一代一个
+  private volatile PooledConnectionHandle proxyConnection;
+  //代数，归还、回收、作废时加一(只在持有PoolState锁时修改)
+  private volatile int generation;
   private long checkoutTimestamp;
   private long createdTimestamp;
   private long lastUsedTimestamp;
@@ -59,7 +53,7 @@ class PooledConnection implements InvocationHandler {
     this.createdTimestamp = System.currentTimeMillis();
     this.lastUsedTimestamp = System.currentTimeMillis();
     this.valid = true;
-    this.proxyConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, this);
+    this.proxyConnection = new PooledConnectionHandle(this, generation);
   }
 
   /*
@@ -68,6 +62,31 @@ class PooledConnection implements InvocationHandler {
    */
   public void invalidate() {
     valid = false;
+    generation++;
+  }
+
+  /*
+   * Takes the connection back from whoever checked it out, so it can be handed out again
+   * 收回连接，之前的句柄失效，下次借出用新的句柄
+   */
+  public void recycle() {
+    generation++;
+    proxyConnection = new PooledConnectionHandle(this, generation);
+  }
+
+  /*
+   * Whether a handle of the given generation may still use the connection
+   */
+  public boolean isCurrent(int generation) {
+    return valid && this.generation == generation;
+  }
+
+  public int getGeneration() {
+    return generation;
+  }
+
+  public PooledDataSource getDataSource() {
+    return dataSource;
   }
 
   /*
@@ -227,41 +246,4 @@ class PooledConnection implements InvocationHandler {
     }
   }
 
-  /*
-   * Required for InvocationHandler implementation.
-   *
-   * @param proxy  - not used
-   * @param method - the method to be executed
-   * @param args   - the parameters to be passed to the method
-   * @see java.lang.reflect.InvocationHandler#invoke(Object, java.lang.reflect.Method, Object[])
-   */
-  @Override
-  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-    String methodName = method.getName();
-    //如果调用close的话，忽略它，反而将这个connection加入到池中
-    if (CLOSE.hashCode() == methodName.hashCode() && CLOSE.equals(methodName)) {
-      dataSource.pushConnection(this);
-      return null;
-    } else {
-      try {
-        if (!Object.class.equals(method.getDeclaringClass())) {
-          // issue #579 toString() should never fail
-          // throw an SQLException instead of a Runtime
-        	//除了toString()方法，其他方法调用之前要检查connection是否还是合法的,不合法要抛出SQLException
-          checkConnection();
-        }
-        //其他的方法，则交给真正的connection去调用
-        return method.invoke(realConnection, args);
-      } catch (Throwable t) {
-        throw ExceptionUtil.unwrapThrowable(t);
-      }
-    }
-  }
-
-  private void checkConnection() throws SQLException {
-    if (!valid) {
-      throw new SQLException("Error accessing PooledConnection. Connection is invalid.");
-    }
-  }
-
 }
@@ -0,0 +1,379 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.Method;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * The connection handed out by {@link PooledDataSource}. It delegates straight to the real connection
+ * instead of going through a dynamic proxy, and carries the generation of its {@link PooledConnection} at
+ * checkout: once the pooled connection is returned, reclaimed or invalidated the generation moves on and
+ * every call on this handle fails, while the pooled connection itself is reused for the next checkout.
+ * 池化连接借出去的句柄，不用动态代理，按代数判断是否还有效
+ *
+ */
+class PooledConnectionHandle implements Connection {
+
+  private final PooledConnection pooledConnection;
+  private final int generation;
+
+  PooledConnectionHandle(PooledConnection pooledConnection, int generation) {
+    this.pooledConnection = pooledConnection;
+    this.generation = generation;
+  }
+
+  PooledConnection getPooledConnection() {
+    return pooledConnection;
+  }
+
+  //除了toString()等Object的方法，其他方法调用之前要检查连接是否还属于这个句柄
+  private Connection connection() throws SQLException {
+    if (!pooledConnection.isCurrent(generation)) {
+      throw new SQLException("Error accessing PooledConnection. Connection is invalid.");
+    }
+    return pooledConnection.getRealConnection();
+  }
+
+  private Connection clientInfoConnection() throws SQLClientInfoException {
+    if (!pooledConnection.isCurrent(generation)) {
+      throw new SQLClientInfoException("Error accessing PooledConnection. Connection is invalid.", null);
+    }
+    return pooledConnection.getRealConnection();
+  }
+
+  //调用close的话，不关真正的连接，而是放回池里
+  @Override
+  public void close() throws SQLException {
+    pooledConnection.getDataSource().pushConnection(pooledConnection, generation);
+  }
+
+  @Override
+  public Statement createStatement() throws SQLException {
+    return connection().createStatement();
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql) throws SQLException {
+    return connection().prepareStatement(sql);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql) throws SQLException {
+    return connection().prepareCall(sql);
+  }
+
+  @Override
+  public String nativeSQL(String sql) throws SQLException {
+    return connection().nativeSQL(sql);
+  }
+
+  @Override
+  public void setAutoCommit(boolean autoCommit) throws SQLException {
+    connection().setAutoCommit(autoCommit);
+  }
+
+  @Override
+  public boolean getAutoCommit() throws SQLException {
+    return connection().getAutoCommit();
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    connection().commit();
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    connection().rollback();
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    return connection().isClosed();
+  }
+
+  @Override
+  public DatabaseMetaData getMetaData() throws SQLException {
+    return connection().getMetaData();
+  }
+
+  @Override
+  public void setReadOnly(boolean readOnly) throws SQLException {
+    connection().setReadOnly(readOnly);
+  }
+
+  @Override
+  public boolean isReadOnly() throws SQLException {
+    return connection().isReadOnly();
+  }
+
+  @Override
+  public void setCatalog(String catalog) throws SQLException {
+    connection().setCatalog(catalog);
+  }
+
+  @Override
+  public String getCatalog() throws SQLException {
+    return connection().getCatalog();
+  }
+
+  @Override
+  public void setTransactionIsolation(int level) throws SQLException {
+    connection().setTransactionIsolation(level);
+  }
+
+  @Override
+  public int getTransactionIsolation() throws SQLException {
+    return connection().getTransactionIsolation();
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    return connection().getWarnings();
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    connection().clearWarnings();
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+    return connection().createStatement(resultSetType, resultSetConcurrency);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    return connection().prepareStatement(sql, resultSetType, resultSetConcurrency);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    return connection().prepareCall(sql, resultSetType, resultSetConcurrency);
+  }
+
+  @Override
+  public Map<String, Class<?>> getTypeMap() throws SQLException {
+    return connection().getTypeMap();
+  }
+
+  @Override
+  public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+    connection().setTypeMap(map);
+  }
+
+  @Override
+  public void setHoldability(int holdability) throws SQLException {
+    connection().setHoldability(holdability);
+  }
+
+  @Override
+  public int getHoldability() throws SQLException {
+    return connection().getHoldability();
+  }
+
+  @Override
+  public Savepoint setSavepoint() throws SQLException {
+    return connection().setSavepoint();
+  }
+
+  @Override
+  public Savepoint setSavepoint(String name) throws SQLException {
+    return connection().setSavepoint(name);
+  }
+
+  @Override
+  public void rollback(Savepoint savepoint) throws SQLException {
+    connection().rollback(savepoint);
+  }
+
+  @Override
+  public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+    connection().releaseSavepoint(savepoint);
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    return connection().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    return connection().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    return connection().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+    return connection().prepareStatement(sql, autoGeneratedKeys);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+    return connection().prepareStatement(sql, columnIndexes);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+    return connection().prepareStatement(sql, columnNames);
+  }
+
+  @Override
+  public Clob createClob() throws SQLException {
+    return connection().createClob();
+  }
+
+  @Override
+  public Blob createBlob() throws SQLException {
+    return connection().createBlob();
+  }
+
+  @Override
+  public NClob createNClob() throws SQLException {
+    return connection().createNClob();
+  }
+
+  @Override
+  public SQLXML createSQLXML() throws SQLException {
+    return connection().createSQLXML();
+  }
+
+  @Override
+  public boolean isValid(int timeout) throws SQLException {
+    return connection().isValid(timeout);
+  }
+
+  @Override
+  public void setClientInfo(String name, String value) throws SQLClientInfoException {
+    clientInfoConnection().setClientInfo(name, value);
+  }
+
+  @Override
+  public void setClientInfo(Properties properties) throws SQLClientInfoException {
+    clientInfoConnection().setClientInfo(properties);
+  }
+
+  @Override
+  public String getClientInfo(String name) throws SQLException {
+    return connection().getClientInfo(name);
+  }
+
+  @Override
+  public Properties getClientInfo() throws SQLException {
+    return connection().getClientInfo();
+  }
+
+  @Override
+  public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+    return connection().createArrayOf(typeName, elements);
+  }
+
+  @Override
+  public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+    return connection().createStruct(typeName, attributes);
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    return connection().unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return connection().isWrapperFor(iface);
+  }
+
+  // JDBC 4.1的方法，Java 6的Connection里没有，只能反射调用
+
+  public void setSchema(String schema) throws SQLException {
+    invokeJdbc41("setSchema", new Class<?>[] { String.class }, schema);
+  }
+
+  public String getSchema() throws SQLException {
+    return (String) invokeJdbc41("getSchema", new Class<?>[0]);
+  }
+
+  public void abort(Executor executor) throws SQLException {
+    invokeJdbc41("abort", new Class<?>[] { Executor.class }, executor);
+  }
+
+  public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+    invokeJdbc41("setNetworkTimeout", new Class<?>[] { Executor.class, int.class }, executor, milliseconds);
+  }
+
+  public int getNetworkTimeout() throws SQLException {
+    return (Integer) invokeJdbc41("getNetworkTimeout", new Class<?>[0]);
+  }
+
+  private Object invokeJdbc41(String name, Class<?>[] parameterTypes, Object... args) throws SQLException {
+    final Connection connection = connection();
+    try {
+      Method method = Connection.class.getMethod(name, parameterTypes);
+      return method.invoke(connection, args);
+    } catch (NoSuchMethodException e) {
+      throw new SQLException("Connection." + name + " is not supported by this JDBC version.", e);
+    } catch (Exception e) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(e);
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new SQLException("Error calling Connection." + name + ". Cause: " + cause, cause);
+    }
+  }
+
+  // issue #579 toString() should never fail
+  @Override
+  public String toString() {
+    return pooledConnection.getRealConnection().toString();
+  }
+
+  @Override
+  public int hashCode() {
+    return pooledConnection.getRealConnection().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return pooledConnection.getRealConnection().equals(obj);
+  }
+
+}
@@ -16,14 +16,15 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -294,36 +295,31 @@ public class PooledDataSource implements DataSource {
    * Closes all active and idle connections in the pool
    */
   public void forceCloseAll() {
-    synchronized (state) {
+    List<PooledConnection> connections = new ArrayList<PooledConnection>();
+    state.lock.lock();
+    try {
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
-      //关闭所有的activeConnections和idleConnections
-      for (int i = state.activeConnections.size(); i > 0; i--) {
-        try {
-          PooledConnection conn = state.activeConnections.remove(i - 1);
-          conn.invalidate();
-
-          Connection realConn = conn.getRealConnection();
-          if (!realConn.getAutoCommit()) {
-            realConn.rollback();
-          }
-          realConn.close();
-        } catch (Exception e) {
-          // ignore
-        }
+      //关闭所有的activeConnections和idleConnections，锁里只摘下来并作废，真正关闭在锁外
+      connections.addAll(state.activeConnections);
+      connections.addAll(state.idleConnections);
+      state.activeConnections.clear();
+      state.idleConnections.clear();
+      for (PooledConnection conn : connections) {
+        conn.invalidate();
       }
-      for (int i = state.idleConnections.size(); i > 0; i--) {
-        try {
-          PooledConnection conn = state.idleConnections.remove(i - 1);
-          conn.invalidate();
-
-          Connection realConn = conn.getRealConnection();
-          if (!realConn.getAutoCommit()) {
-            realConn.rollback();
-          }
-          realConn.close();
-        } catch (Exception e) {
-          // ignore
+      state.connectionAvailable.signalAll();
+    } finally {
+      state.lock.unlock();
+    }
+    for (PooledConnection conn : connections) {
+      try {
+        Connection realConn = conn.getRealConnection();
+        if (!realConn.getAutoCommit()) {
+          realConn.rollback();
         }
+        realConn.close();
+      } catch (Exception e) {
+        // ignore
       }
     }
     if (log.isDebugEnabled()) {
@@ -340,46 +336,89 @@ public class PooledDataSource implements DataSource {
   }
 
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    pushConnection(conn, conn.getGeneration());
+  }
 
-    synchronized (state) {
-      //先从activeConnections中删除此connection
-      state.activeConnections.remove(conn);
-      if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-      	  //如果空闲的连接太少，
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
-          //new一个新的Connection，加入到idle列表
-          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
-          state.idleConnections.add(newConn);
-          newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
-          newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
-          conn.invalidate();
-          if (log.isDebugEnabled()) {
-            log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
-          }
-          //通知其他线程可以来抢connection了
-          state.notifyAll();
-        } else {
-        	//否则，即空闲的连接已经足够了
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
-          //那就将connection关闭就可以了
-          conn.getRealConnection().close();
-          if (log.isDebugEnabled()) {
-            log.debug("Closed connection " + conn.getRealHashCode() + ".");
-          }
-          conn.invalidate();
+  //generation是归还的句柄借出时的代数，已经被收回过的句柄重复close不能把别人正在用的连接放回来
+  //ping、回滚、关闭这些网络操作都在锁外做，锁里只动列表和统计
+  protected void pushConnection(PooledConnection conn, int generation) throws SQLException {
+    state.lock.lock();
+    try {
+      if (!conn.isCurrent(generation)) {
+        //句柄已经还过(或者被收回)，重复close不是坏连接，不计数
+        if (log.isDebugEnabled()) {
+          log.debug("A stale handle of connection " + conn.getRealHashCode() + " was closed again, ignoring.");
         }
-      } else {
+        return;
+      }
+      if (!state.activeConnections.remove(conn)) {
         if (log.isDebugEnabled()) {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
         state.badConnectionCount++;
+        return;
+      }
+      //先收回(之前的句柄失效)，同一个句柄并发close时只有一个能走到这里
+      conn.recycle();
+      state.accumulatedCheckoutTime += conn.getCheckoutTime();
+      //在锁外检查回滚期间还占着名额
+      state.pendingConnectionCount++;
+    } finally {
+      state.lock.unlock();
+    }
+    final boolean valid = conn.isValid();
+    //回滚成功才能再给别人用，回滚抛异常时连接里可能还留着没提交的事务
+    boolean rolledBack = false;
+    boolean idle = false;
+    try {
+      if (valid && !conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+      rolledBack = valid;
+    } finally {
+      state.lock.lock();
+      try {
+        state.pendingConnectionCount--;
+        if (!rolledBack) {
+          state.badConnectionCount++;
+        } else if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+          //如果空闲的连接太少，加入到idle列表，不再new一个新的
+          state.idleConnections.add(conn);
+          idle = true;
+        }
+        if (!idle) {
+          //代数只在锁里改，不进idle列表的连接在这里作废，锁外只关真正的连接
+          conn.invalidate();
+        }
+        //通知其他线程可以来抢connection了，不进idle列表也空出了一个名额
+        state.connectionAvailable.signal();
+      } finally {
+        state.lock.unlock();
+      }
+      if (valid && !rolledBack) {
+        try {
+          conn.getRealConnection().close();
+        } catch (SQLException e) {
+          // ignore, the rollback failure is what the caller gets
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Rollback of connection " + conn.getRealHashCode() + " failed, discarding connection.");
+        }
+      }
+    }
+    if (idle) {
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+      }
+    } else if (rolledBack) {
+      //否则，即空闲的连接已经足够了，那就将connection关闭就可以了
+      conn.getRealConnection().close();
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
+      }
+    } else {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
       }
     }
   }
@@ -392,75 +431,85 @@ public class PooledDataSource implements DataSource {
 
     //最外面是while死循环，如果一直拿不到connection，则不断尝试
     while (conn == null) {
-      synchronized (state) {
+      //锁里只决定从哪拿连接；拿到的连接在锁外新建、检查，期间算在pendingConnectionCount里
+      boolean create = false;
+      state.lock.lock();
+      try {
         if (!state.idleConnections.isEmpty()) {
           //如果有空闲的连接的话
           // Pool has available connection
           //删除空闲列表里第一个，返回
           conn = state.idleConnections.remove(0);
+          state.pendingConnectionCount++;
           if (log.isDebugEnabled()) {
             log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
           }
+        } else if (state.activeConnections.size() + state.pendingConnectionCount < poolMaximumActiveConnections) {
+          //如果activeConnections太少,那就new一个PooledConnection
+          // Can create new connection
+          state.pendingConnectionCount++;
+          create = true;
+        } else if (!state.activeConnections.isEmpty()
+            && state.activeConnections.get(0).getCheckoutTime() > poolMaximumCheckoutTime) {
+          //取得activeConnections列表的第一个（最老的），如果checkout时间过长，则这个connection标记为overdue（过期）
+          // Can claim overdue connection
+          PooledConnection oldestActiveConnection = state.activeConnections.remove(0);
+          long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+          state.claimedOverdueConnectionCount++;
+          state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
+          state.accumulatedCheckoutTime += longestCheckoutTime;
+          //收回最老的连接，原来的使用者手上的句柄失效
+          oldestActiveConnection.recycle();
+          conn = oldestActiveConnection;
+          state.pendingConnectionCount++;
+          if (log.isDebugEnabled()) {
+            log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+          }
         } else {
-        	//如果没有空闲的连接
-          // Pool does not have available connection
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
-        	  //如果activeConnections太少,那就new一个PooledConnection
-            // Can create new connection
-            conn = new PooledConnection(dataSource.getConnection(), this);
-            if (log.isDebugEnabled()) {
-              log.debug("Created connection " + conn.getRealHashCode() + ".");
+          //如果checkout时间不够长，等待吧，await会放开锁
+          // Must wait
+          try {
+            if (!countedWait) {
+              //统计信息：等待+1
+              state.hadToWaitCount++;
+              countedWait = true;
             }
-          } else {
-        	  //如果activeConnections已经很多了，那不能再new了
-            // Cannot create new connection
-        	  //取得activeConnections列表的第一个（最老的）
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
-            	//如果checkout时间过长，则这个connection标记为overdue（过期）
-              // Can claim overdue connection
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
-              state.activeConnections.remove(oldestActiveConnection);
-              if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
-                oldestActiveConnection.getRealConnection().rollback();
-              }
-              //删掉最老的连接，然后再new一个新连接
-              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
-              oldestActiveConnection.invalidate();
-              if (log.isDebugEnabled()) {
-                log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
-              }
-            } else {
-            	//如果checkout时间不够长，等待吧
-              // Must wait
-              try {
-                if (!countedWait) {
-                	//统计信息：等待+1
-                  state.hadToWaitCount++;
-                  countedWait = true;
-                }
-                if (log.isDebugEnabled()) {
-                  log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
-                }
-                long wt = System.currentTimeMillis();
-                //睡一会儿吧
-                state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
-              } catch (InterruptedException e) {
-                break;
-              }
+            if (log.isDebugEnabled()) {
+              log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
             }
+            long wt = System.currentTimeMillis();
+            state.connectionAvailable.await(poolTimeToWait, TimeUnit.MILLISECONDS);
+            state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
           }
+          continue;
         }
-        if (conn != null) {
-        	//如果已经拿到connection，则返回
-          if (conn.isValid()) {
-            if (!conn.getRealConnection().getAutoCommit()) {
-              conn.getRealConnection().rollback();
-            }
+      } finally {
+        state.lock.unlock();
+      }
+
+      //以下在锁外：连数据库、ping、回滚都可能很慢
+      boolean valid = false;
+      try {
+        if (create) {
+          conn = new PooledConnection(dataSource.getConnection(), this);
+          if (log.isDebugEnabled()) {
+            log.debug("Created connection " + conn.getRealHashCode() + ".");
+          }
+        }
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          valid = true;
+        }
+      } finally {
+        state.lock.lock();
+        try {
+          state.pendingConnectionCount--;
+          if (valid) {
             conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
             //记录checkout时间
             conn.setCheckoutTimestamp(System.currentTimeMillis());
@@ -469,24 +518,31 @@ public class PooledDataSource implements DataSource {
             state.requestCount++;
             state.accumulatedRequestTime += System.currentTimeMillis() - t;
           } else {
-            if (log.isDebugEnabled()) {
-              log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
-            }
-            //如果没拿到，统计信息：坏连接+1
-            state.badConnectionCount++;
-            localBadConnectionCount++;
-            conn = null;
-            if (localBadConnectionCount > (poolMaximumIdleConnections + 3)) {
-            	//如果好几次都拿不到，就放弃了，抛出异常
-              if (log.isDebugEnabled()) {
-                log.debug("PooledDataSource: Could not get a good connection to the database.");
-              }
-              throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+            //新建失败或者连接坏了，名额空出来了
+            state.connectionAvailable.signal();
+            if (conn != null) {
+              //如果没拿到，统计信息：坏连接+1
+              state.badConnectionCount++;
             }
           }
+        } finally {
+          state.lock.unlock();
+        }
+      }
+      if (!valid) {
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+        }
+        conn = null;
+        localBadConnectionCount++;
+        if (localBadConnectionCount > (poolMaximumIdleConnections + 3)) {
+          //如果好几次都拿不到，就放弃了，抛出异常
+          if (log.isDebugEnabled()) {
+            log.debug("PooledDataSource: Could not get a good connection to the database.");
+          }
+          throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
         }
       }
-
     }
 
     if (conn == null) {
@@ -561,11 +617,8 @@ public class PooledDataSource implements DataSource {
    * @return The 'real' connection
    */
   public static Connection unwrapConnection(Connection conn) {
-    if (Proxy.isProxyClass(conn.getClass())) {
-      InvocationHandler handler = Proxy.getInvocationHandler(conn);
-      if (handler instanceof PooledConnection) {
-        return ((PooledConnection) handler).getRealConnection();
-      }
+    if (conn instanceof PooledConnectionHandle) {
+      return ((PooledConnectionHandle) conn).getPooledConnection().getRealConnection();
     }
     return conn;
   }
@@ -0,0 +1,90 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+
+/**
+ * Reads the shard key from the first of the given properties the parameter has, and takes it modulo the
+ * number of shards: numbers by value, anything else by hash code. Properties are {@link MetaObject} paths
+ * such as <code>order.customerId</code>; with several <code>@Param</code> arguments they start with the
+ * parameter name. A single simple parameter (one with a type handler of its own) is the shard key only when the
+ * statement binds it under one of the key property names, e.g. <code>#{customerId}</code>; otherwise the
+ * statement has no shard key and a select runs on every shard.
+ * 取模分片：分片键按属性路径从参数里取，数字按值取模，其他按hashCode取模
+ *
+ */
+public class ModuloShardStrategy implements ShardStrategy {
+
+  private final List<String> keyProperties;
+
+  public ModuloShardStrategy(String... keyProperties) {
+    if (keyProperties.length == 0) {
+      throw new IllegalArgumentException("At least one shard key property is required");
+    }
+    this.keyProperties = Arrays.asList(keyProperties);
+  }
+
+  public List<String> getKeyProperties() {
+    return keyProperties;
+  }
+
+  @Override
+  public Integer getShard(MappedStatement ms, Object parameter, BoundSql boundSql, int shardCount) {
+    Object key = getShardKey(ms, parameter, boundSql);
+    if (key == null) {
+      return null;
+    }
+    long value = key instanceof Number ? ((Number) key).longValue() : key.hashCode();
+    //负数取模也要落在0到shardCount-1
+    int shard = (int) (value % shardCount);
+    return shard < 0 ? shard + shardCount : shard;
+  }
+
+  protected Object getShardKey(MappedStatement ms, Object parameter, BoundSql boundSql) {
+    if (parameter == null) {
+      return null;
+    }
+    if (ms.getConfiguration().getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+      //简单参数只有在SQL里用分片键的名字引用时才是分片键
+      final List<ParameterMapping> parameterMappings = (boundSql != null ? boundSql : ms.getBoundSql(parameter)).getParameterMappings();
+      for (ParameterMapping parameterMapping : parameterMappings) {
+        if (keyProperties.contains(parameterMapping.getProperty())) {
+          return parameter;
+        }
+      }
+      return null;
+    }
+    MetaObject metaObject = ms.getConfiguration().newMetaObject(parameter);
+    for (String property : keyProperties) {
+      //ParamMap取不存在的键会报错，先问hasGetter
+      if (metaObject.hasGetter(property)) {
+        Object value = metaObject.getValue(property);
+        if (value != null) {
+          return value;
+        }
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,260 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+
+/**
+ * A primary data source with read replicas. Used as the data source of an
+ * {@link org.apache.ibatis.mapping.Environment}, it makes sessions send selects to a replica as long as the
+ * session has not written anything in its current transaction, and everything else to the primary.
+ * Used as a plain DataSource it is the primary.
+ * <p>
+ * Only auto-commit sessions read from replicas; in a session with a transaction every statement runs on the
+ * primary. Selects that flush the cache or lock rows (FOR UPDATE, FOR SHARE, LOCK IN SHARE MODE) always do.
+ * <p>
+ * A replica that fails to hand out a connection is skipped for {@link #setFailoverCooldown(long) failoverCooldown}
+ * milliseconds; when no replica is usable reads go to the primary.
+ * 读写分离数据源：写和事务里的读走主库，其他的读按负载均衡走从库
+ *
+ */
+public class ReadWriteDataSource implements DataSource, RoutingDataSource {
+
+  private static final Log log = LogFactory.getLog(ReadWriteDataSource.class);
+
+  private static final Pattern LOCKING_READ = Pattern.compile("\\bFOR\\s+(UPDATE|SHARE)\\b|\\bLOCK\\s+IN\\s+SHARE\\s+MODE\\b",
+      Pattern.CASE_INSENSITIVE);
+
+  private final DataSource primary;
+  private final List<DataSource> replicas;
+  private LoadBalance loadBalance = LoadBalance.ROUND_ROBIN;
+  private long failoverCooldown = 30000;
+  //一定要走主库的语句，可以是语句全名或者命名空间
+  private final Set<String> primaryStatements = new CopyOnWriteArraySet<String>();
+
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  //从库不可用到什么时候
+  private final AtomicLongArray downUntil;
+  //SQL不随参数变的语句是不是加锁读，只看一次
+  private final ConcurrentMap<MappedStatement, Boolean> lockingReads = new ConcurrentHashMap<MappedStatement, Boolean>();
+
+  public ReadWriteDataSource(DataSource primary, List<DataSource> replicas) {
+    if (primary == null) {
+      throw new IllegalArgumentException("Parameter 'primary' must not be null");
+    }
+    this.primary = primary;
+    this.replicas = Collections.unmodifiableList(new ArrayList<DataSource>(replicas));
+    this.downUntil = new AtomicLongArray(this.replicas.size());
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  public List<DataSource> getReplicas() {
+    return replicas;
+  }
+
+  public LoadBalance getLoadBalance() {
+    return loadBalance;
+  }
+
+  public void setLoadBalance(LoadBalance loadBalance) {
+    this.loadBalance = loadBalance;
+  }
+
+  public long getFailoverCooldown() {
+    return failoverCooldown;
+  }
+
+  public void setFailoverCooldown(long failoverCooldown) {
+    this.failoverCooldown = failoverCooldown;
+  }
+
+  /**
+   * Statements (by full id) or namespaces whose selects always run on the primary.
+   */
+  public void setPrimaryStatements(Collection<String> statementsOrNamespaces) {
+    primaryStatements.clear();
+    primaryStatements.addAll(statementsOrNamespaces);
+  }
+
+  public Set<String> getPrimaryStatements() {
+    return Collections.unmodifiableSet(primaryStatements);
+  }
+
+  @Override
+  public Transaction newTransaction(TransactionFactory transactionFactory, TransactionIsolationLevel level, boolean autoCommit) {
+    return new ReadWriteTransaction(this, transactionFactory, level, autoCommit);
+  }
+
+  //能不能走从库：只有不清缓存的SELECT，并且没有被指定走主库
+  public boolean isReplicaReadable(MappedStatement ms) {
+    if (replicas.isEmpty() || ms.getSqlCommandType() != SqlCommandType.SELECT || ms.isFlushCacheRequired()) {
+      return false;
+    }
+    if (primaryStatements.isEmpty()) {
+      return true;
+    }
+    final String id = ms.getId();
+    if (primaryStatements.contains(id)) {
+      return false;
+    }
+    final int dot = id.lastIndexOf('.');
+    return dot < 0 || !primaryStatements.contains(id.substring(0, dot));
+  }
+
+  /**
+   * Same as {@link #isReplicaReadable(MappedStatement)}, and the SQL for this parameter does not lock rows.
+   * The boundSql may be null, then it is built from the parameter when the SQL is dynamic.
+   */
+  public boolean isReplicaReadable(MappedStatement ms, Object parameter, BoundSql boundSql) {
+    return isReplicaReadable(ms) && !isLockingRead(ms, parameter, boundSql);
+  }
+
+  private boolean isLockingRead(MappedStatement ms, Object parameter, BoundSql boundSql) {
+    //动态SQL每次生成的语句可能不一样，用执行器已经生成的BoundSql，不再生成一次
+    if (!(ms.getSqlSource() instanceof RawSqlSource) && !(ms.getSqlSource() instanceof StaticSqlSource)) {
+      return LOCKING_READ.matcher((boundSql != null ? boundSql : ms.getBoundSql(parameter)).getSql()).find();
+    }
+    Boolean locking = lockingReads.get(ms);
+    if (locking == null) {
+      locking = LOCKING_READ.matcher((boundSql != null ? boundSql : ms.getBoundSql(parameter)).getSql()).find();
+      lockingReads.put(ms, locking);
+    }
+    return locking;
+  }
+
+  /**
+   * Picks a usable replica, or returns null if there is none.
+   */
+  public DataSource selectReplica() {
+    final int size = replicas.size();
+    if (size == 0) {
+      return null;
+    }
+    final long now = System.currentTimeMillis();
+    //从轮询的位置开始找，LEAST_ACTIVE活动连接一样多时也轮着来
+    final int start = (nextReplica.getAndIncrement() & Integer.MAX_VALUE) % size;
+    DataSource selected = null;
+    int selectedActive = Integer.MAX_VALUE;
+    for (int k = 0; k < size; k++) {
+      final int i = (start + k) % size;
+      if (!isUsable(i, now)) {
+        continue;
+      }
+      final DataSource replica = replicas.get(i);
+      if (loadBalance != LoadBalance.LEAST_ACTIVE || !(replica instanceof PooledDataSource)) {
+        return replica;
+      }
+      final int active = ((PooledDataSource) replica).getPoolState().getActiveConnectionCount();
+      if (active < selectedActive) {
+        selected = replica;
+        selectedActive = active;
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Takes a replica out of rotation for the failover cooldown.
+   */
+  public void markDown(DataSource replica) {
+    final int i = replicas.indexOf(replica);
+    if (i >= 0) {
+      downUntil.set(i, System.currentTimeMillis() + failoverCooldown);
+      if (log.isDebugEnabled()) {
+        log.debug("Replica " + i + " is skipped for " + failoverCooldown + " ms.");
+      }
+    }
+  }
+
+  //取连接失败的从库由事务markDown，冷却期内不用
+  private boolean isUsable(int i, long now) {
+    return downUntil.get(i) <= now;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return primary.getConnection(username, password);
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return primary.getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    primary.setLogWriter(out);
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    primary.setLoginTimeout(seconds);
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return primary.getLoginTimeout();
+  }
+
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException(getClass().getName() + " is not a wrapper.");
+  }
+
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return false;
+  }
+
+  public Logger getParentLogger() {
+    return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME); // requires JDK version 1.6
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.RoutingTransaction;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+
+/**
+ * Session transaction of a {@link ReadWriteDataSource}. A session that is not auto-commit runs everything on the
+ * primary, so its reads see its own writes and its locks. In an auto-commit session selects run on one replica
+ * picked for the session, except after a write until the next commit or rollback.
+ * 读写分离事务：主库一个事务，从库第一次读时才选一个并开事务
+ *
+ */
+public class ReadWriteTransaction implements RoutingTransaction {
+
+  private static final Log log = LogFactory.getLog(ReadWriteTransaction.class);
+
+  private static final String PRIMARY = "primary";
+  private static final String REPLICA = "replica";
+
+  private final ReadWriteDataSource dataSource;
+  private final TransactionFactory transactionFactory;
+  private final TransactionIsolationLevel level;
+  private final boolean autoCommit;
+  private final Transaction primary;
+  private Transaction replica;
+  private DataSource replicaDataSource;
+  //当前事务里写过，之后的读也走主库，才能读到自己写的
+  private boolean writing;
+  //当前语句走从库
+  private boolean readFromReplica;
+
+  public ReadWriteTransaction(ReadWriteDataSource dataSource, TransactionFactory transactionFactory, TransactionIsolationLevel level, boolean autoCommit) {
+    this.dataSource = dataSource;
+    this.transactionFactory = transactionFactory;
+    this.level = level;
+    this.autoCommit = autoCommit;
+    this.primary = transactionFactory.newTransaction(dataSource.getPrimary(), level, autoCommit);
+  }
+
+  @Override
+  public void route(MappedStatement ms, Object parameter, BoundSql boundSql) {
+    //有事务的会话全部走主库
+    if (autoCommit && dataSource.isReplicaReadable(ms, parameter, boundSql)) {
+      readFromReplica = !writing;
+    } else {
+      if (ms.getSqlCommandType() != SqlCommandType.SELECT) {
+        writing = true;
+      }
+      readFromReplica = false;
+    }
+  }
+
+  @Override
+  public String getRouteId() {
+    return readFromReplica ? REPLICA : PRIMARY;
+  }
+
+  @Override
+  public Object getRouteKey(MappedStatement ms, Object parameter, BoundSql boundSql) {
+    //从库和主库是同一份数据
+    return null;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (readFromReplica) {
+      Connection connection = getReplicaConnection();
+      if (connection != null) {
+        return connection;
+      }
+      //没有能用的从库，读主库
+      readFromReplica = false;
+    }
+    return primary.getConnection();
+  }
+
+  //从库取不到连接就换一个，都不行返回null
+  private Connection getReplicaConnection() {
+    for (int attempt = 0; attempt <= dataSource.getReplicas().size(); attempt++) {
+      if (replica == null) {
+        replicaDataSource = dataSource.selectReplica();
+        if (replicaDataSource == null) {
+          return null;
+        }
+        replica = transactionFactory.newTransaction(replicaDataSource, level, autoCommit);
+      }
+      try {
+        return replica.getConnection();
+      } catch (SQLException e) {
+        if (log.isDebugEnabled()) {
+          log.debug("Could not get a connection from replica, failing over. Cause: " + e);
+        }
+        dataSource.markDown(replicaDataSource);
+        closeReplica();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    try {
+      primary.commit();
+      if (replica != null) {
+        replica.commit();
+      }
+    } finally {
+      writing = false;
+    }
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    try {
+      primary.rollback();
+      if (replica != null) {
+        replica.rollback();
+      }
+    } finally {
+      writing = false;
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    try {
+      primary.close();
+    } finally {
+      if (replica != null) {
+        replica.close();
+      }
+    }
+  }
+
+  private void closeReplica() {
+    try {
+      replica.close();
+    } catch (Exception e) {
+      // ignore
+    }
+    replica = null;
+    replicaDataSource = null;
+  }
+
+}
@@ -0,0 +1,37 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+
+/**
+ * A data source that routes statements itself. When the environment's data source implements it,
+ * {@link org.apache.ibatis.session.defaults.DefaultSqlSessionFactory} opens sessions on the transaction
+ * it creates instead of a single-connection one.
+ * 路由数据源
+ *
+ */
+public interface RoutingDataSource {
+
+  /**
+   * Creates the transaction of a new session. The given factory creates the transactions of the
+   * underlying data sources.
+   */
+  Transaction newTransaction(TransactionFactory transactionFactory, TransactionIsolationLevel level, boolean autoCommit);
+
+}
@@ -0,0 +1,35 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Picks the shard of a {@link ShardingDataSource} a statement runs on.
+ * 分片策略：从参数里取分片键，算出分片号
+ *
+ */
+public interface ShardStrategy {
+
+  /**
+   * Returns the index of the shard, from 0 to shardCount - 1, or null if the parameter carries no shard key.
+   * Selects without a shard key run on every shard. The boundSql is the one the executor already built for the
+   * statement, or null when it has not built one yet.
+   */
+  Integer getShard(MappedStatement ms, Object parameter, BoundSql boundSql, int shardCount);
+
+}
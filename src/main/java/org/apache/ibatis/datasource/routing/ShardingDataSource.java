@@ -0,0 +1,146 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+
+/**
+ * Data sources holding one shard each of horizontally partitioned tables. Used as the data source of an
+ * {@link org.apache.ibatis.mapping.Environment}, it makes sessions run each statement on the shard its
+ * {@link ShardStrategy} picks from the parameter. Selects without a shard key run on every shard and return
+ * the rows of all of them; other statements without a shard key fail.
+ * Used as a plain DataSource it is the first shard.
+ * 分片数据源：按分片键把语句路由到对应的分片上，没有分片键的查询查所有分片
+ *
+ */
+public class ShardingDataSource implements DataSource, RoutingDataSource {
+
+  private final List<DataSource> shards;
+  private final ShardStrategy shardStrategy;
+  //没有分片键的查询是否并行查各分片
+  private boolean parallelScatter;
+
+  public ShardingDataSource(List<DataSource> shards, ShardStrategy shardStrategy) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+    if (shardStrategy == null) {
+      throw new IllegalArgumentException("Parameter 'shardStrategy' must not be null");
+    }
+    this.shards = Collections.unmodifiableList(new ArrayList<DataSource>(shards));
+    this.shardStrategy = shardStrategy;
+  }
+
+  public List<DataSource> getShards() {
+    return shards;
+  }
+
+  public ShardStrategy getShardStrategy() {
+    return shardStrategy;
+  }
+
+  public boolean isParallelScatter() {
+    return parallelScatter;
+  }
+
+  /**
+   * Runs selects without a shard key on all shards at once through a
+   * {@link org.apache.ibatis.executor.scatter.ScatterGatherExecutor}. The shards are then read on connections of
+   * their own, outside the session's transaction, so rows the session has not committed yet are not seen.
+   */
+  public void setParallelScatter(boolean parallelScatter) {
+    this.parallelScatter = parallelScatter;
+  }
+
+  @Override
+  public Transaction newTransaction(TransactionFactory transactionFactory, TransactionIsolationLevel level, boolean autoCommit) {
+    return new ShardingTransaction(this, transactionFactory, level, autoCommit);
+  }
+
+  /**
+   * Returns the shard of the statement, or null if the parameter carries no shard key.
+   */
+  public Integer getShard(MappedStatement ms, Object parameter, BoundSql boundSql) {
+    Integer shard = shardStrategy.getShard(ms, parameter, boundSql, shards.size());
+    if (shard != null && (shard < 0 || shard >= shards.size())) {
+      throw new DataSourceException("Shard strategy returned shard " + shard + " for statement '" + ms.getId()
+          + "' but there are " + shards.size() + " shards.");
+    }
+    return shard;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return shards.get(0).getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return shards.get(0).getConnection(username, password);
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return shards.get(0).getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    for (DataSource shard : shards) {
+      shard.setLogWriter(out);
+    }
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    for (DataSource shard : shards) {
+      shard.setLoginTimeout(seconds);
+    }
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return shards.get(0).getLoginTimeout();
+  }
+
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException(getClass().getName() + " is not a wrapper.");
+  }
+
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return false;
+  }
+
+  public Logger getParentLogger() {
+    return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME); // requires JDK version 1.6
+  }
+
+}
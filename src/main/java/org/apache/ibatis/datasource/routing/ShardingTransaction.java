@@ -0,0 +1,174 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.RoutingTransaction;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+
+/**
+ * Session transaction of a {@link ShardingDataSource}: one transaction per shard, begun when the session first
+ * uses the shard. Commit, rollback and close go to every shard begun, one after the other, so a failure on one
+ * shard does not undo what another already committed.
+ * 分片事务：每个分片一个事务，用到时才开
+ *
+ */
+public class ShardingTransaction implements RoutingTransaction {
+
+  //没有分片键，查所有分片
+  private static final String ALL_SHARDS = "*";
+
+  private final ShardingDataSource dataSource;
+  private final TransactionFactory transactionFactory;
+  private final TransactionIsolationLevel level;
+  private final boolean autoCommit;
+  private final Transaction[] transactions;
+  private int shard;
+  private boolean scatter;
+
+  public ShardingTransaction(ShardingDataSource dataSource, TransactionFactory transactionFactory, TransactionIsolationLevel level, boolean autoCommit) {
+    this.dataSource = dataSource;
+    this.transactionFactory = transactionFactory;
+    this.level = level;
+    this.autoCommit = autoCommit;
+    this.transactions = new Transaction[dataSource.getShards().size()];
+  }
+
+  public ShardingDataSource getDataSource() {
+    return dataSource;
+  }
+
+  @Override
+  public void route(MappedStatement ms, Object parameter, BoundSql boundSql) {
+    Integer selected = dataSource.getShard(ms, parameter, boundSql);
+    if (selected != null) {
+      shard = selected;
+      scatter = false;
+    } else if (ms.getSqlCommandType() == SqlCommandType.SELECT) {
+      shard = 0;
+      scatter = true;
+    } else {
+      throw new DataSourceException("Statement '" + ms.getId() + "' has no shard key; only selects can run on all shards.");
+    }
+  }
+
+  @Override
+  public String getRouteId() {
+    return "shard-" + shard;
+  }
+
+  @Override
+  public Object getRouteKey(MappedStatement ms, Object parameter, BoundSql boundSql) {
+    Integer selected = dataSource.getShard(ms, parameter, boundSql);
+    return selected != null ? selected : ALL_SHARDS;
+  }
+
+  /**
+   * Whether the routed select has no shard key and has to run on every shard.
+   */
+  public boolean isScatter() {
+    return scatter;
+  }
+
+  public int getShardCount() {
+    return transactions.length;
+  }
+
+  /**
+   * Selects the shard {@link #getConnection()} returns, while a select runs on every shard.
+   */
+  public void setShard(int shard) {
+    if (shard < 0 || shard >= transactions.length) {
+      throw new IllegalArgumentException("No shard " + shard);
+    }
+    this.shard = shard;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (transactions[shard] == null) {
+      transactions[shard] = transactionFactory.newTransaction(dataSource.getShards().get(shard), level, autoCommit);
+    }
+    return transactions[shard].getConnection();
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    SQLException failure = null;
+    for (Transaction transaction : transactions) {
+      if (transaction != null) {
+        try {
+          transaction.commit();
+        } catch (SQLException e) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    SQLException failure = null;
+    for (Transaction transaction : transactions) {
+      if (transaction != null) {
+        try {
+          transaction.rollback();
+        } catch (SQLException e) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    SQLException failure = null;
+    for (int i = 0; i < transactions.length; i++) {
+      if (transactions[i] != null) {
+        try {
+          transactions[i].close();
+        } catch (SQLException e) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+        transactions[i] = null;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+}
@@ -20,14 +20,24 @@ import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOL
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import javax.sql.DataSource;
+
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.datasource.routing.ShardingTransaction;
+import org.apache.ibatis.executor.pagination.PaginationSupport;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.executor.scatter.MergeOrder;
+import org.apache.ibatis.executor.scatter.ScatterGatherExecutor;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.logging.jdbc.ConnectionLogger;
+import org.apache.ibatis.logging.jdbc.SqlEventLog;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
@@ -37,8 +47,10 @@ import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.PageToken;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.RoutingTransaction;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
@@ -64,6 +76,8 @@ public abstract class BaseExecutor implements Executor {
   //本地输出参数缓存
   protected PerpetualCache localOutputParameterCache;
   protected Configuration configuration;
+  //异步SQL日志，没打开时为null，打开了就不再包装ConnectionLogger
+  private final SqlEventLog sqlEventLog;
 
   //查询堆栈
   protected int queryStack = 0;
@@ -77,6 +91,7 @@ public abstract class BaseExecutor implements Executor {
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
+    this.sqlEventLog = configuration.isAsyncSqlLog() ? configuration.getSqlEventLog() : null;
   }
 
   @Override
@@ -123,7 +138,28 @@ public abstract class BaseExecutor implements Executor {
     }
     //先清局部缓存，再更新，如何更新交由子类，模板方法模式
     clearLocalCache();
-    return doUpdate(ms, parameter);
+    long start = System.currentTimeMillis();
+    long startNanos = sqlEventLog != null ? System.nanoTime() : 0;
+    //更新的BoundSql在StatementHandler里才生成
+    route(ms, parameter, null);
+    int rows = -1;
+    Throwable failure = null;
+    try {
+      rows = doUpdate(ms, parameter);
+    } catch (SQLException e) {
+      failure = e;
+      throw e;
+    } catch (RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      publishSqlEvent(ms, startNanos, null, parameter, rows, failure);
+    }
+    //批处理时doUpdate只是加进批里，真正执行在flushStatements，由BatchExecutor在那里计时
+    if (rows != BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+      checkSlowStatement(ms, start, null, parameter);
+    }
+    return rows;
   }
 
   @Override
@@ -146,6 +182,8 @@ public abstract class BaseExecutor implements Executor {
     BoundSql boundSql = ms.getBoundSql(parameter);
     //创建缓存Key
     CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+    //PageRowBounds要先查总行数
+    configuration.getPaginationSupport().count(this, ms, parameter, rowBounds);
     //查询
     return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
  }
@@ -224,6 +262,18 @@ public abstract class BaseExecutor implements Executor {
     cacheKey.update(Integer.valueOf(rowBounds.getOffset()));
     cacheKey.update(Integer.valueOf(rowBounds.getLimit()));
     cacheKey.update(boundSql.getSql());
+    //键集分页时，SQL和offset,limit一样，只有页标记里的键值不同
+    if (rowBounds instanceof PageToken) {
+      PageToken pageToken = (PageToken) rowBounds;
+      cacheKey.update(PageToken.class.getName());
+      cacheKey.update(Boolean.valueOf(pageToken.isDescending()));
+      Object[] keyValues = pageToken.getKeyValues();
+      if (keyValues != null) {
+        for (Object keyValue : keyValues) {
+          cacheKey.update(keyValue);
+        }
+      }
+    }
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
@@ -250,6 +300,13 @@ public abstract class BaseExecutor implements Executor {
       // issue #176
       cacheKey.update(configuration.getEnvironment().getId());
     }
+    //分片时分片键不一定出现在SQL里，分片号也要算进缓存key
+    if (transaction instanceof RoutingTransaction) {
+      Object routeKey = ((RoutingTransaction) transaction).getRouteKey(ms, parameterObject, boundSql);
+      if (routeKey != null) {
+        cacheKey.update(routeKey);
+      }
+    }
     return cacheKey;
   }    
 
@@ -292,6 +349,11 @@ public abstract class BaseExecutor implements Executor {
     }
   }
 
+  //二级缓存在CachingExecutor里，这里没有要清的
+  @Override
+  public void flushCacheIfRequired(MappedStatement ms) {
+  }
+
   protected abstract int doUpdate(MappedStatement ms, Object parameter)
       throws SQLException;
 
@@ -332,11 +394,43 @@ public abstract class BaseExecutor implements Executor {
 
   //从数据库查
   private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
-    List<E> list;
+    List<E> list = null;
     //先向缓存中放入占位符？？？
     localCache.putObject(key, EXECUTION_PLACEHOLDER);
     try {
-      list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
+      route(ms, parameter, boundSql);
+      final boolean scatter = isScatter();
+      final PageToken pageToken = rowBounds instanceof PageToken ? (PageToken) rowBounds : null;
+      //缓存key已经按原SQL生成，这里才改写为数据库分页SQL，结果集处理时就不用再跳过行了
+      PaginationSupport pagination = configuration.getPaginationSupport();
+      if (rowBounds instanceof PageToken) {
+        boundSql = pagination.getKeysetBoundSql(ms, boundSql, (PageToken) rowBounds);
+        if (pagination.isKeysetLimitedInDatabase(ms)) {
+          rowBounds = RowBounds.DEFAULT;
+        }
+      } else if (!scatter && pagination.isPageable(ms, rowBounds)) {
+        boundSql = pagination.getPageBoundSql(ms, boundSql, rowBounds);
+        rowBounds = RowBounds.DEFAULT;
+      }
+      long start = System.currentTimeMillis();
+      long startNanos = sqlEventLog != null ? System.nanoTime() : 0;
+      Throwable failure = null;
+      try {
+        if (scatter) {
+          list = scatterQuery(ms, parameter, rowBounds, resultHandler, boundSql, pageToken);
+        } else {
+          list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
+        }
+      } catch (SQLException e) {
+        failure = e;
+        throw e;
+      } catch (RuntimeException e) {
+        failure = e;
+        throw e;
+      } finally {
+        publishSqlEvent(ms, startNanos, boundSql, parameter, list != null ? list.size() : -1, failure);
+      }
+      checkSlowStatement(ms, start, boundSql, parameter);
     } finally {
       //最后删除占位符
       localCache.removeObject(key);
@@ -350,9 +444,103 @@ public abstract class BaseExecutor implements Executor {
     return list;
   }
 
+  private boolean isScatter() {
+    return transaction instanceof ShardingTransaction && ((ShardingTransaction) transaction).isScatter();
+  }
+
+  //没有分片键的查询：每个分片查一遍(或并行查)，再合并
+  //键集分页的每个分片已经按键排好序并限制了一页，按键k路归并后截一页，下一页的标记取自合并后的最后一行
+  //其他的按分片顺序接起来，RowBounds要在合并后再跳过，每个分片只能少查不能跳
+  //有行数限制又有ResultHandler时，先合并截取，再交给ResultHandler
+  private <E> List<E> scatterQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql,
+      PageToken pageToken) throws SQLException {
+    final ShardingTransaction shardingTransaction = (ShardingTransaction) transaction;
+    final MergeOrder order;
+    final int offset;
+    final int limit;
+    RowBounds shardRowBounds = RowBounds.DEFAULT;
+    if (pageToken != null) {
+      order = configuration.getPaginationSupport().getKeysetMergeOrder(ms, pageToken);
+      offset = RowBounds.NO_ROW_OFFSET;
+      limit = pageToken.getPageSize();
+      shardRowBounds = rowBounds;
+    } else {
+      order = null;
+      offset = rowBounds.getOffset();
+      limit = rowBounds.getLimit();
+      if (limit != RowBounds.NO_ROW_LIMIT) {
+        shardRowBounds = new RowBounds(0, (int) Math.min(Integer.MAX_VALUE, (long) offset + limit));
+      }
+    }
+    final boolean bounded = offset != RowBounds.NO_ROW_OFFSET || limit != RowBounds.NO_ROW_LIMIT;
+    final ResultHandler shardResultHandler = bounded ? NO_RESULT_HANDLER : resultHandler;
+    List<List<E>> parts;
+    final List<DataSource> shards = shardingTransaction.getDataSource().getShards();
+    if (shardingTransaction.getDataSource().isParallelScatter()) {
+      parts = new ScatterGatherExecutor(configuration).queryParts(ms, Collections.nCopies(shards.size(), parameter), shards, shardRowBounds, shardResultHandler);
+    } else {
+      parts = new ArrayList<List<E>>(shards.size());
+      for (int shard = 0; shard < shards.size(); shard++) {
+        shardingTransaction.setShard(shard);
+        parts.add(this.<E>doQuery(ms, parameter, shardRowBounds, shardResultHandler, boundSql));
+      }
+    }
+    List<E> merged = ScatterGatherExecutor.merge(parts, order);
+    int from = Math.min(offset, merged.size());
+    int to = limit == RowBounds.NO_ROW_LIMIT ? merged.size() : (int) Math.min(merged.size(), (long) from + limit);
+    if (from != 0 || to != merged.size()) {
+      merged = new ArrayList<E>(merged.subList(from, to));
+    }
+    if (resultHandler != null && bounded) {
+      DefaultResultContext context = new DefaultResultContext();
+      for (E row : merged) {
+        context.nextResultObject(row);
+        resultHandler.handleResult(context);
+        if (context.isStopped()) {
+          break;
+        }
+      }
+      return new ArrayList<E>();
+    }
+    return merged;
+  }
+
+  //超过慢语句阈值的，把绑定后的SQL记到警告日志里
+  private void checkSlowStatement(MappedStatement ms, long start, BoundSql boundSql, Object parameter) {
+    Integer threshold = configuration.getSlowStatementThreshold();
+    if (threshold != null && System.currentTimeMillis() - start >= threshold) {
+      checkSlowStatement(ms, start, (boundSql != null ? boundSql : ms.getBoundSql(parameter)).getSql());
+    }
+  }
+
+  protected void checkSlowStatement(MappedStatement ms, long start, String sql) {
+    Integer threshold = configuration.getSlowStatementThreshold();
+    if (threshold != null) {
+      long elapsed = System.currentTimeMillis() - start;
+      if (elapsed >= threshold) {
+        ms.getStatementLog().warn("Slow statement '" + ms.getId() + "' took " + elapsed + " ms (threshold " + threshold + " ms): "
+            + sql.replaceAll("\\s+", " "));
+      }
+    }
+  }
+
+  //多数据源时先选好这条语句用哪个连接
+  private void route(MappedStatement ms, Object parameter, BoundSql boundSql) throws SQLException {
+    if (transaction instanceof RoutingTransaction) {
+      ((RoutingTransaction) transaction).route(ms, parameter, boundSql);
+    }
+  }
+
+  //异步SQL日志：执行完或失败时取出SQL和参数值登记事件，格式化和写日志都在后台线程
+  private void publishSqlEvent(MappedStatement ms, long startNanos, BoundSql boundSql, Object parameter, int rows, Throwable failure) {
+    if (sqlEventLog != null && ms.getStatementLog().isDebugEnabled()) {
+      sqlEventLog.publish(ms.getStatementLog(), ms, boundSql, parameter, System.nanoTime() - startNanos, rows, failure);
+    }
+  }
+
   protected Connection getConnection(Log statementLog) throws SQLException {
     Connection connection = transaction.getConnection();
-    if (statementLog.isDebugEnabled()) {
+    if (sqlEventLog == null && statementLog.isDebugEnabled()) {
       //如果需要打印Connection的日志，返回一个ConnectionLogger(代理模式, AOP思想)
       return ConnectionLogger.newInstance(connection, statementLog, queryStack);
     } else {
@@ -32,6 +32,7 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.RoutingTransaction;
 import org.apache.ibatis.transaction.Transaction;
 
 /**
@@ -56,8 +57,10 @@ public class BatchExecutor extends BaseExecutor {
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
+    //多数据源时路由变了就是另一个连接，不能接着用上一个Statement
+    final String routedSql = transaction instanceof RoutingTransaction ? ((RoutingTransaction) transaction).getRouteId() + ":" + sql : sql;
     final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
+    if (routedSql.equals(currentSql) && ms.equals(currentStatement)) {
       int last = statementList.size() - 1;
       stmt = statementList.get(last);
       BatchResult batchResult = batchResultList.get(last);
@@ -65,7 +68,7 @@ public class BatchExecutor extends BaseExecutor {
     } else {
       Connection connection = getConnection(ms.getStatementLog());
       stmt = handler.prepare(connection);
-      currentSql = sql;
+      currentSql = routedSql;
       currentStatement = ms;
       statementList.add(stmt);
       batchResultList.add(new BatchResult(ms, sql, parameterObject));
@@ -103,8 +106,10 @@ public class BatchExecutor extends BaseExecutor {
         Statement stmt = statementList.get(i);
         BatchResult batchResult = batchResultList.get(i);
         try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
           MappedStatement ms = batchResult.getMappedStatement();
+          long start = System.currentTimeMillis();
+          batchResult.setUpdateCounts(stmt.executeBatch());
+          checkSlowStatement(ms, start, batchResult.getSql());
           List<Object> parameterObjects = batchResult.getParameterObjects();
           KeyGenerator keyGenerator = ms.getKeyGenerator();
           if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
@@ -84,6 +84,8 @@ public class CachingExecutor implements Executor {
     BoundSql boundSql = ms.getBoundSql(parameterObject);
 	//query时传入一个cachekey参数
     CacheKey key = createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    //总行数也走二级缓存
+    ms.getConfiguration().getPaginationSupport().count(this, ms, parameterObject, rowBounds);
     return query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
   }
 
@@ -162,7 +164,8 @@ public class CachingExecutor implements Executor {
     delegate.clearLocalCache();
   }
 
-  private void flushCacheIfRequired(MappedStatement ms) {
+  @Override
+  public void flushCacheIfRequired(MappedStatement ms) {
     Cache cache = ms.getCache();
     if (cache != null && ms.isFlushCacheRequired()) {      
       tcm.clear(cache);
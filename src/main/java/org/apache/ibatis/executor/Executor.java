@@ -64,6 +64,9 @@ public interface Executor {
   //清理Session缓存
   void clearLocalCache();
 
+  //语句要求刷新缓存时清二级缓存：和update一样登记到事务里，提交时才清，回滚时不清
+  void flushCacheIfRequired(MappedStatement ms);
+
   //延迟加载
   void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType);
 
@@ -30,6 +30,7 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.RoutingTransaction;
 import org.apache.ibatis.transaction.Transaction;
 
 /**
@@ -80,6 +81,10 @@ public class ReuseExecutor extends BaseExecutor {
     //得到绑定的SQL语句
     BoundSql boundSql = handler.getBoundSql();
     String sql = boundSql.getSql();
+    //多数据源时同一条SQL在不同的连接上各缓存一个
+    if (transaction instanceof RoutingTransaction) {
+      sql = ((RoutingTransaction) transaction).getRouteId() + ":" + sql;
+    }
     //如果缓存中已经有了，直接得到Statement
     if (hasStatementFor(sql)) {
       stmt = getStatement(sql);
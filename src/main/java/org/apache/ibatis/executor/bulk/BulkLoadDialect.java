@@ -0,0 +1,52 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.bulk;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * A database native bulk load path, such as PostgreSQL <code>COPY FROM STDIN</code>.
+ * Rows arrive as the values the statement's type handlers would have bound to a PreparedStatement, in column order.
+ * 批量装载方言：把TypeHandler编码好的值按数据库自己的格式流式写进去
+ *
+ */
+public interface BulkLoadDialect {
+
+  /**
+   * Whether the connection can load through this dialect.
+   */
+  boolean isSupported(Connection connection) throws SQLException;
+
+  /**
+   * Streams all rows into the table and returns the number of rows loaded.
+   */
+  long load(Connection connection, String table, List<String> columns, Rows rows) throws SQLException;
+
+  /**
+   * The rows to load, read one at a time.
+   */
+  interface Rows {
+
+    /**
+     * Returns the values of the next row, or null when there are no more rows.
+     */
+    Object[] next() throws SQLException;
+
+  }
+
+}
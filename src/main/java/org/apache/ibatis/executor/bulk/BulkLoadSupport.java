@@ -0,0 +1,262 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.bulk;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.transaction.RoutingTransaction;
+
+/**
+ * 批量装载
+ * 数据库支持流式装载(比如PostgreSQL的COPY)时，用语句的TypeHandler把每个对象编码成列值，一次流进去
+ * 否则退回到JDBC批处理，每bulkLoadBatchSize行提交一批
+ * 可以直接用一个insert语句，也可以用一个结果映射描述列和属性的对应关系
+ *
+ */
+public class BulkLoadSupport {
+
+  public static final String BULK_INSERT_SUFFIX = "!bulkInsert";
+
+  //只有 insert into t (c1, c2) values (?, ?) 这种形状的语句才能换成流式装载
+  private static final Pattern SIMPLE_INSERT = Pattern.compile(
+      "(?is)\\s*insert\\s+into\\s+([\\w.\"]+)\\s*\\(([^)]*)\\)\\s*values\\s*\\(([^)]*)\\)\\s*;?\\s*");
+
+  private final Configuration configuration;
+  private final List<BulkLoadDialect> dialects = new CopyOnWriteArrayList<BulkLoadDialect>();
+  private final Map<String, MappedStatement> insertStatements = new ConcurrentHashMap<String, MappedStatement>();
+
+  public BulkLoadSupport(Configuration configuration) {
+    this.configuration = configuration;
+    dialects.add(new PostgresCopyDialect());
+  }
+
+  public void addDialect(BulkLoadDialect dialect) {
+    dialects.add(0, dialect);
+  }
+
+  public List<BulkLoadDialect> getDialects() {
+    return dialects;
+  }
+
+  //用insert语句装载，返回装载的行数
+  public long load(Executor executor, MappedStatement ms, Iterator<?> rows) throws SQLException {
+    if (ms.getSqlCommandType() != SqlCommandType.INSERT) {
+      throw new ExecutorException("Bulk load requires an insert statement. Statement: " + ms.getId());
+    }
+    //会话里还没执行的批处理先执行掉，一级缓存也作废
+    executor.flushStatements();
+    executor.clearLocalCache();
+    //二级缓存和insert一样登记在会话的事务里，提交时才清(装载期间被读进缓存的旧数据也一起清掉)，回滚时不清
+    executor.flushCacheIfRequired(ms);
+    Matcher insert = matchNativeInsert(ms);
+    if (insert != null && !(executor.getTransaction() instanceof RoutingTransaction)) {
+      Connection connection = executor.getTransaction().getConnection();
+      BulkLoadDialect dialect = getDialect(connection);
+      if (dialect != null) {
+        return dialect.load(connection, insert.group(1), splitColumns(insert.group(2)), new EncodedRows(ms, rows));
+      }
+    }
+    return batchLoad(executor, ms, rows);
+  }
+
+  //用结果映射装载：有列有属性的简单映射都作为插入的列
+  public long load(Executor executor, String table, ResultMap resultMap, Iterator<?> rows) throws SQLException {
+    return load(executor, getInsertStatement(table, resultMap), rows);
+  }
+
+  private BulkLoadDialect getDialect(Connection connection) throws SQLException {
+    for (BulkLoadDialect dialect : dialects) {
+      if (dialect.isSupported(connection)) {
+        return dialect;
+      }
+    }
+    return null;
+  }
+
+  //能走流式装载时返回匹配结果，否则返回null
+  //路由事务的连接随语句变化，动态SQL每行可能不同，要回填主键的也只能走批处理
+  private Matcher matchNativeInsert(MappedStatement ms) {
+    if (ms.getStatementType() == StatementType.CALLABLE
+        || ms.getSqlSource() instanceof DynamicSqlSource
+        || !isKeyFree(ms)) {
+      return null;
+    }
+    BoundSql boundSql = ms.getBoundSql(null);
+    Matcher matcher = SIMPLE_INSERT.matcher(boundSql.getSql());
+    if (!matcher.matches()) {
+      return null;
+    }
+    List<String> columns = splitColumns(matcher.group(2));
+    List<String> values = splitColumns(matcher.group(3));
+    if (columns.size() != values.size() || values.size() != boundSql.getParameterMappings().size()) {
+      return null;
+    }
+    for (String value : values) {
+      if (!"?".equals(value)) {
+        return null;
+      }
+    }
+    return matcher;
+  }
+
+  private boolean isKeyFree(MappedStatement ms) {
+    KeyGenerator keyGenerator = ms.getKeyGenerator();
+    return keyGenerator instanceof NoKeyGenerator
+        || (keyGenerator instanceof Jdbc3KeyGenerator && ms.getKeyProperties() == null);
+  }
+
+  private static List<String> splitColumns(String list) {
+    List<String> columns = new ArrayList<String>();
+    for (String column : list.split(",")) {
+      columns.add(column.trim());
+    }
+    return columns;
+  }
+
+  //退回到JDBC批处理，批处理执行器和会话共用一个事务，所以不能关闭它
+  //执行器从Configuration取，插件和普通的insert一样；它的二级缓存执行器不会提交，缓存由会话的执行器在提交时清
+  private long batchLoad(Executor executor, MappedStatement ms, Iterator<?> rows) throws SQLException {
+    Executor batchExecutor = configuration.newExecutor(executor.getTransaction(), ExecutorType.BATCH);
+    int batchSize = configuration.getBulkLoadBatchSize();
+    long count = 0;
+    int pending = 0;
+    try {
+      while (rows.hasNext()) {
+        batchExecutor.update(ms, rows.next());
+        if (++pending >= batchSize) {
+          count += sum(batchExecutor.flushStatements());
+          pending = 0;
+        }
+      }
+      if (pending > 0) {
+        count += sum(batchExecutor.flushStatements());
+      }
+      return count;
+    } catch (SQLException e) {
+      //只丢掉没执行的批，不回滚会话的事务
+      batchExecutor.rollback(false);
+      throw e;
+    } catch (RuntimeException e) {
+      batchExecutor.rollback(false);
+      throw e;
+    }
+  }
+
+  //驱动不报告行数时按1行算
+  private static long sum(List<BatchResult> results) {
+    long count = 0;
+    for (BatchResult result : results) {
+      for (int updateCount : result.getUpdateCounts()) {
+        count += updateCount == Statement.SUCCESS_NO_INFO ? 1 : Math.max(updateCount, 0);
+      }
+    }
+    return count;
+  }
+
+  private MappedStatement getInsertStatement(String table, ResultMap resultMap) {
+    String key = table + ":" + resultMap.getId();
+    MappedStatement ms = insertStatements.get(key);
+    if (ms == null) {
+      List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+      StringBuilder columns = new StringBuilder();
+      StringBuilder values = new StringBuilder();
+      for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+        if (resultMapping.getColumn() == null || resultMapping.getProperty() == null
+            || resultMapping.getNestedQueryId() != null || resultMapping.getNestedResultMapId() != null
+            || resultMapping.isCompositeResult()) {
+          continue;
+        }
+        if (!parameterMappings.isEmpty()) {
+          columns.append(", ");
+          values.append(", ");
+        }
+        columns.append(resultMapping.getColumn());
+        values.append("?");
+        ParameterMapping.Builder builder = resultMapping.getTypeHandler() == null
+            ? new ParameterMapping.Builder(configuration, resultMapping.getProperty(), resultMapping.getJavaType())
+            : new ParameterMapping.Builder(configuration, resultMapping.getProperty(), resultMapping.getTypeHandler());
+        parameterMappings.add(builder.jdbcType(resultMapping.getJdbcType()).build());
+      }
+      if (parameterMappings.isEmpty()) {
+        throw new ExecutorException("Result map " + resultMap.getId() + " has no simple column mappings to bulk load.");
+      }
+      String sql = "INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ")";
+      //结果映射所在命名空间的缓存，装载完要清掉
+      String id = resultMap.getId();
+      String namespace = id.lastIndexOf('.') > 0 ? id.substring(0, id.lastIndexOf('.')) : null;
+      ms = new MappedStatement.Builder(configuration, id + BULK_INSERT_SUFFIX,
+          new StaticSqlSource(configuration, sql, parameterMappings), SqlCommandType.INSERT)
+          .keyGenerator(new NoKeyGenerator())
+          .cache(namespace != null && configuration.hasCache(namespace) ? configuration.getCache(namespace) : null)
+          .flushCacheRequired(true)
+          .build();
+      insertStatements.put(key, ms);
+    }
+    return ms;
+  }
+
+  //每次取一行，用语句自己的ParameterHandler编码
+  private class EncodedRows implements BulkLoadDialect.Rows {
+
+    private final MappedStatement ms;
+    private final Iterator<?> rows;
+    private final ParameterCapture capture = new ParameterCapture();
+
+    EncodedRows(MappedStatement ms, Iterator<?> rows) {
+      this.ms = ms;
+      this.rows = rows;
+    }
+
+    @Override
+    public Object[] next() throws SQLException {
+      if (!rows.hasNext()) {
+        return null;
+      }
+      Object row = rows.next();
+      BoundSql boundSql = ms.getBoundSql(row);
+      return capture.capture(configuration.newParameterHandler(ms, row, boundSql), boundSql.getParameterMappings().size());
+    }
+
+  }
+
+}
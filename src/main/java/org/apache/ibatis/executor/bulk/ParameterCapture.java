@@ -0,0 +1,116 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.bulk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+
+/**
+ * A PreparedStatement that only records what a {@link ParameterHandler} binds, so that rows are encoded by the
+ * same type handlers an insert would use. Streams and LOBs are read into strings and byte arrays.
+ * 只记录参数值的PreparedStatement，用来借TypeHandler把对象编码成列值
+ *
+ */
+class ParameterCapture implements InvocationHandler {
+
+  private final PreparedStatement statement;
+  private Object[] values;
+
+  ParameterCapture() {
+    this.statement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, this);
+  }
+
+  /**
+   * Lets the handler bind the row and returns the bound values by parameter index.
+   */
+  Object[] capture(ParameterHandler parameterHandler, int parameterCount) throws SQLException {
+    values = new Object[parameterCount];
+    parameterHandler.setParameters(statement);
+    return values;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    final String name = method.getName();
+    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+      final int index = (Integer) args[0];
+      if (index < 1 || index > values.length) {
+        throw new SQLException("Parameter index " + index + " is out of range 1.." + values.length);
+      }
+      values[index - 1] = "setNull".equals(name) ? null : read(args[1]);
+      return null;
+    }
+    if ("toString".equals(name)) {
+      return "ParameterCapture";
+    } else if ("hashCode".equals(name)) {
+      return System.identityHashCode(proxy);
+    } else if ("equals".equals(name)) {
+      return proxy == args[0];
+    }
+    throw new SQLException("Method " + name + " is not supported while encoding bulk load rows.");
+  }
+
+  //流和LOB在这里就读出来，装载时不用再管它们的生命周期
+  private Object read(Object value) throws SQLException {
+    try {
+      if (value instanceof InputStream) {
+        return readBytes((InputStream) value);
+      } else if (value instanceof Reader) {
+        return readString((Reader) value);
+      } else if (value instanceof Blob) {
+        return readBytes(((Blob) value).getBinaryStream());
+      } else if (value instanceof Clob) {
+        return readString(((Clob) value).getCharacterStream());
+      }
+      return value;
+    } catch (IOException e) {
+      throw new SQLException("Could not read bulk load value.  Cause: " + e, e);
+    }
+  }
+
+  private static byte[] readBytes(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int n;
+    while ((n = in.read(buffer)) != -1) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  private static String readString(Reader in) throws IOException {
+    StringBuilder out = new StringBuilder();
+    char[] buffer = new char[8192];
+    int n;
+    while ((n = in.read(buffer)) != -1) {
+      out.append(buffer, 0, n);
+    }
+    return out.toString();
+  }
+
+}
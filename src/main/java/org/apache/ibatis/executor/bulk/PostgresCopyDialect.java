@@ -0,0 +1,248 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Loads rows with PostgreSQL <code>COPY ... FROM STDIN</code> in text format, through the driver's CopyManager.
+ * The driver is called reflectively, so it is only needed at run time.
+ * PostgreSQL的COPY：行按文本格式编码，边读迭代器边写，不在内存里攒
+ *
+ */
+public class PostgresCopyDialect implements BulkLoadDialect {
+
+  private static final String PG_CONNECTION = "org.postgresql.PGConnection";
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  @Override
+  public boolean isSupported(Connection connection) throws SQLException {
+    Class<?> pgConnection = getPgConnectionClass();
+    return pgConnection != null && connection.isWrapperFor(pgConnection);
+  }
+
+  @Override
+  public long load(Connection connection, String table, List<String> columns, Rows rows) throws SQLException {
+    StringBuilder sql = new StringBuilder("COPY ").append(table).append(" (");
+    for (int i = 0; i < columns.size(); i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(columns.get(i));
+    }
+    sql.append(") FROM STDIN");
+    CopyReader reader = new CopyReader(rows);
+    try {
+      //方法从接口上取，驱动的实现类不一定是public的
+      Class<?> pgConnection = getPgConnectionClass();
+      Object pg = connection.unwrap(pgConnection);
+      Object copyManager = pgConnection.getMethod("getCopyAPI").invoke(pg);
+      Method copyIn = copyManager.getClass().getMethod("copyIn", String.class, Reader.class);
+      return ((Number) copyIn.invoke(copyManager, sql.toString(), reader)).longValue();
+    } catch (InvocationTargetException e) {
+      //编码行时出的错比驱动包装过的更有用
+      if (reader.failure != null) {
+        throw reader.failure;
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      }
+      throw new SQLException("COPY into " + table + " failed.  Cause: " + cause, cause);
+    } catch (NoSuchMethodException e) {
+      throw new SQLException("Could not call the PostgreSQL copy API.  Cause: " + e, e);
+    } catch (IllegalAccessException e) {
+      throw new SQLException("Could not call the PostgreSQL copy API.  Cause: " + e, e);
+    }
+  }
+
+  private static Class<?> getPgConnectionClass() {
+    try {
+      return Resources.classForName(PG_CONNECTION);
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Appends the value in COPY text format: \N for null, escaped backslashes and control characters,
+   * t/f for booleans, \x hex for binary data and <code>{...}</code> literals for arrays and collections.
+   * Values of other types than strings, numbers, characters, dates, UUIDs and enums are rejected rather than
+   * written as their toString().
+   */
+  static void appendValue(StringBuilder row, Object value) throws SQLException {
+    if (value == null) {
+      row.append("\\N");
+    } else if (value instanceof Array) {
+      appendText(row, arrayLiteral(((Array) value).getArray()));
+    } else if (isArray(value)) {
+      appendText(row, arrayLiteral(value));
+    } else {
+      appendText(row, text(value));
+    }
+  }
+
+  //单个值的文本，还没有做COPY的转义
+  private static String text(Object value) throws SQLException {
+    if (value instanceof byte[]) {
+      //bytea的十六进制格式是\x..
+      StringBuilder hex = new StringBuilder(2 + ((byte[]) value).length * 2).append("\\x");
+      for (byte b : (byte[]) value) {
+        hex.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+      }
+      return hex.toString();
+    } else if (value instanceof Boolean) {
+      return ((Boolean) value) ? "t" : "f";
+    } else if (value instanceof Enum) {
+      return ((Enum<?>) value).name();
+    } else if (value instanceof java.util.Date && !(value instanceof Timestamp) && !(value instanceof java.sql.Date) && !(value instanceof Time)) {
+      //java.util.Date的toString()不是PostgreSQL能读的格式
+      return new Timestamp(((java.util.Date) value).getTime()).toString();
+    } else if (value instanceof CharSequence || value instanceof Number || value instanceof Character
+        || value instanceof java.util.Date || value instanceof UUID) {
+      return value.toString();
+    }
+    throw new SQLException("Cannot encode a value of type " + value.getClass().getName() + " for COPY."
+        + " Bind it as a string, number, date, byte array or array instead.");
+  }
+
+  private static boolean isArray(Object value) {
+    return value instanceof Collection || (value.getClass().isArray() && !(value instanceof byte[]));
+  }
+
+  //数组字面量 {a,"b c",NULL}，元素都加引号，嵌套的数组是多维数组
+  private static String arrayLiteral(Object array) throws SQLException {
+    StringBuilder literal = new StringBuilder("{");
+    Iterator<?> elements = array instanceof Collection ? ((Collection<?>) array).iterator() : null;
+    int length = elements == null ? java.lang.reflect.Array.getLength(array) : -1;
+    for (int i = 0; elements == null ? i < length : elements.hasNext(); i++) {
+      if (i > 0) {
+        literal.append(',');
+      }
+      Object element = elements == null ? java.lang.reflect.Array.get(array, i) : elements.next();
+      if (element == null) {
+        literal.append("NULL");
+      } else if (isArray(element)) {
+        literal.append(arrayLiteral(element));
+      } else {
+        String text = text(element);
+        literal.append('"');
+        for (int j = 0; j < text.length(); j++) {
+          char c = text.charAt(j);
+          if (c == '"' || c == '\\') {
+            literal.append('\\');
+          }
+          literal.append(c);
+        }
+        literal.append('"');
+      }
+    }
+    return literal.append('}').toString();
+  }
+
+  private static void appendText(StringBuilder row, String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '\\':
+          row.append("\\\\");
+          break;
+        case '\t':
+          row.append("\\t");
+          break;
+        case '\n':
+          row.append("\\n");
+          break;
+        case '\r':
+          row.append("\\r");
+          break;
+        default:
+          row.append(c);
+      }
+    }
+  }
+
+  //驱动从这里读COPY数据，每次编码一行
+  private static class CopyReader extends Reader {
+    private final Rows rows;
+    private final StringBuilder buffer = new StringBuilder();
+    private int position;
+    private SQLException failure;
+
+    CopyReader(Rows rows) {
+      this.rows = rows;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      while (position >= buffer.length()) {
+        if (!nextRow()) {
+          return -1;
+        }
+      }
+      int n = Math.min(len, buffer.length() - position);
+      buffer.getChars(position, position + n, cbuf, off);
+      position += n;
+      return n;
+    }
+
+    private boolean nextRow() throws IOException {
+      buffer.setLength(0);
+      position = 0;
+      try {
+        Object[] values = rows.next();
+        if (values == null) {
+          return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+          if (i > 0) {
+            buffer.append('\t');
+          }
+          appendValue(buffer, values[i]);
+        }
+      } catch (SQLException e) {
+        failure = e;
+        throw new IOException("Could not encode bulk load row.  Cause: " + e, e);
+      }
+      buffer.append('\n');
+      return true;
+    }
+
+    @Override
+    public void close() {
+      // nothing to release, the rows belong to the caller
+    }
+  }
+
+}
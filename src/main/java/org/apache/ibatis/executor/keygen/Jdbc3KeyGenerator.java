@@ -15,18 +15,28 @@
  */
 package org.apache.ibatis.executor.keygen;
 
+import java.io.Serializable;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
-import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap;
+import org.apache.ibatis.type.PrimitiveTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
@@ -37,7 +47,9 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
  * JDBC3键值生成器,核心是使用JDBC3的Statement.getGeneratedKeys
  * 
  */
-public class Jdbc3KeyGenerator implements KeyGenerator {
+public class Jdbc3KeyGenerator implements KeyGenerator, Serializable {
+
+  private static final long serialVersionUID = 7006464023601300318L;
 
   @Override
   public void processBefore(Executor executor, MappedStatement ms, Statement stmt, Object parameter) {
@@ -52,30 +64,20 @@ public class Jdbc3KeyGenerator implements KeyGenerator {
   }
 
   //批处理
+  //setter和TypeHandler按参数类型解析一次，之后逐行直接填充
   public void processBatch(MappedStatement ms, Statement stmt, List<Object> parameters) {
+    final String[] keyProperties = ms.getKeyProperties();
+    if (keyProperties == null || keyProperties.length == 0) {
+      return;
+    }
     ResultSet rs = null;
     try {
       //核心是使用JDBC3的Statement.getGeneratedKeys
       rs = stmt.getGeneratedKeys();
       final Configuration configuration = ms.getConfiguration();
-      final TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
-      final String[] keyProperties = ms.getKeyProperties();
       final ResultSetMetaData rsmd = rs.getMetaData();
-      TypeHandler<?>[] typeHandlers = null;
-      if (keyProperties != null && rsmd.getColumnCount() >= keyProperties.length) {
-        for (Object parameter : parameters) {
-          // there should be one row for each statement (also one for each parameter)
-          if (!rs.next()) {
-            break;
-          }
-          final MetaObject metaParam = configuration.newMetaObject(parameter);
-          if (typeHandlers == null) {
-            //先取得类型处理器
-            typeHandlers = getTypeHandlers(typeHandlerRegistry, metaParam, keyProperties);
-          }
-          //填充键值
-          populateKeys(rs, metaParam, keyProperties, typeHandlers);
-        }
+      if (rsmd.getColumnCount() >= keyProperties.length) {
+        assignKeys(configuration, rs, keyProperties, parameters);
       }
     } catch (Exception e) {
       throw new ExecutorException("Error getting generated key or setting result to parameter object. Cause: " + e, e);
@@ -90,24 +92,142 @@ public class Jdbc3KeyGenerator implements KeyGenerator {
     }
   }
 
-  private TypeHandler<?>[] getTypeHandlers(TypeHandlerRegistry typeHandlerRegistry, MetaObject metaParam, String[] keyProperties) {
-    TypeHandler<?>[] typeHandlers = new TypeHandler<?>[keyProperties.length];
-    for (int i = 0; i < keyProperties.length; i++) {
-      if (metaParam.hasSetter(keyProperties[i])) {
-        Class<?> keyPropertyType = metaParam.getSetterType(keyProperties[i]);
-        TypeHandler<?> th = typeHandlerRegistry.getTypeHandler(keyPropertyType);
-        typeHandlers[i] = th;
+  private void assignKeys(Configuration configuration, ResultSet rs, String[] keyProperties, List<Object> parameters) throws Exception {
+    KeyAssigner assigner = null;
+    for (Object parameter : parameters) {
+      KeyTargets targets = getKeyTargets(parameter, keyProperties);
+      if (targets == null) {
+        targets = new KeyTargets(Collections.singletonList(parameter), keyProperties);
+      }
+      for (Object target : targets.elements) {
+        // there should be one row for each statement (also one for each parameter)
+        if (!rs.next()) {
+          return;
+        }
+        if (target == null) {
+          continue;
+        }
+        if (assigner == null || !assigner.matches(target.getClass(), targets.properties)) {
+          //先取得setter和类型处理器
+          assigner = new KeyAssigner(configuration, target, targets.properties);
+        }
+        //填充键值
+        assigner.assign(configuration, rs, target);
       }
     }
-    return typeHandlers;
   }
 
-  private void populateKeys(ResultSet rs, MetaObject metaParam, String[] keyProperties, TypeHandler<?>[] typeHandlers) throws SQLException {
-    for (int i = 0; i < keyProperties.length; i++) {
-      TypeHandler<?> th = typeHandlers[i];
-      if (th != null) {
-        Object value = th.getResult(rs, i + 1);
-        metaParam.setValue(keyProperties[i], value);
+  //多行插入：集合参数(包括DefaultSqlSession包装的collection/list/array和@Param)每个元素对应一行生成的键
+  private KeyTargets getKeyTargets(Object parameter, String[] keyProperties) {
+    if (!(parameter instanceof StrictMap) && !(parameter instanceof ParamMap)) {
+      return null;
+    }
+    final Map<?, ?> paramMap = (Map<?, ?>) parameter;
+    //keyProperty写成 users.id 的形式，按@Param名字找集合
+    final int dot = keyProperties[0].indexOf('.');
+    if (dot > 0) {
+      final String name = keyProperties[0].substring(0, dot);
+      if (paramMap.containsKey(name)) {
+        List<?> elements = toList(paramMap.get(name));
+        if (elements != null) {
+          String[] properties = new String[keyProperties.length];
+          for (int i = 0; i < keyProperties.length; i++) {
+            properties[i] = keyProperties[i].startsWith(name + ".") ? keyProperties[i].substring(dot + 1) : keyProperties[i];
+          }
+          return new KeyTargets(elements, properties);
+        }
+      }
+    }
+    //带前缀但前缀不是集合(比如 user.id)，还是用MetaObject在参数Map上赋值，不能写到别的集合上
+    for (String keyProperty : keyProperties) {
+      if (keyProperty.indexOf('.') >= 0) {
+        return null;
+      }
+    }
+    //否则参数里只有一个集合时就用它(同一个集合可能有多个名字，比如collection和list，users和param1)
+    Object collection = null;
+    for (Object value : paramMap.values()) {
+      if (value instanceof Collection || value instanceof Object[]) {
+        if (collection != null && collection != value) {
+          return null;
+        }
+        collection = value;
+      }
+    }
+    return collection == null ? null : new KeyTargets(toList(collection), keyProperties);
+  }
+
+  private List<?> toList(Object value) {
+    if (value instanceof List) {
+      return (List<?>) value;
+    } else if (value instanceof Collection) {
+      return new ArrayList<Object>((Collection<?>) value);
+    } else if (value instanceof Object[]) {
+      return Arrays.asList((Object[]) value);
+    }
+    return null;
+  }
+
+  private static class KeyTargets {
+    private final List<?> elements;
+    private final String[] properties;
+
+    KeyTargets(List<?> elements, String[] properties) {
+      this.elements = elements;
+      this.properties = properties;
+    }
+  }
+
+  //一种参数类型的键值填充器，属性的setter和TypeHandler只解析一次
+  private static class KeyAssigner {
+    private final Class<?> type;
+    private final String[] properties;
+    private final TypeHandler<?>[] typeHandlers;
+    //简单属性的setter，为null的走MetaObject(Map参数，嵌套属性)
+    private final Invoker[] setters;
+
+    KeyAssigner(Configuration configuration, Object parameter, String[] properties) {
+      final TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+      final MetaObject metaParam = configuration.newMetaObject(parameter);
+      final boolean bean = metaParam.getObjectWrapper() instanceof BeanWrapper;
+      this.type = parameter.getClass();
+      this.properties = properties;
+      this.typeHandlers = new TypeHandler<?>[properties.length];
+      this.setters = new Invoker[properties.length];
+      for (int i = 0; i < properties.length; i++) {
+        if (metaParam.hasSetter(properties[i])) {
+          Class<?> keyPropertyType = metaParam.getSetterType(properties[i]);
+          typeHandlers[i] = typeHandlerRegistry.getTypeHandler(keyPropertyType);
+          if (bean && properties[i].indexOf('.') < 0 && properties[i].indexOf('[') < 0) {
+            setters[i] = ((BeanWrapper) metaParam.getObjectWrapper()).getSetInvoker(properties[i]);
+          }
+        }
+      }
+    }
+
+    boolean matches(Class<?> type, String[] properties) {
+      return this.type == type && this.properties == properties;
+    }
+
+    void assign(Configuration configuration, ResultSet rs, Object parameter) throws Exception {
+      MetaObject metaParam = null;
+      for (int i = 0; i < properties.length; i++) {
+        final TypeHandler<?> th = typeHandlers[i];
+        if (th == null) {
+          continue;
+        }
+        final Invoker setter = setters[i];
+        if (setter == null) {
+          if (metaParam == null) {
+            metaParam = configuration.newMetaObject(parameter);
+          }
+          metaParam.setValue(properties[i], th.getResult(rs, i + 1));
+        } else if (TypeHandlerRegistry.isPrimitiveTypeHandler(th) && setter instanceof PrimitiveSetter && setter.getType().isPrimitive()) {
+          //基本类型的键不装箱
+          ((PrimitiveTypeHandler) th).getPrimitiveResult(rs, i + 1, parameter, (PrimitiveSetter) setter);
+        } else {
+          setter.invoke(parameter, new Object[] { th.getResult(rs, i + 1) });
+        }
       }
     }
   }
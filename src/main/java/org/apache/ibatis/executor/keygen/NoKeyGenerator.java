@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.executor.keygen;
 
+import java.io.Serializable;
 import java.sql.Statement;
 
 import org.apache.ibatis.executor.Executor;
@@ -28,7 +29,9 @@ import org.apache.ibatis.mapping.MappedStatement;
  * MappedStatement有一个keyGenerator属性，默认的就用NoKeyGenerator
  *
  */
-public class NoKeyGenerator implements KeyGenerator {
+public class NoKeyGenerator implements KeyGenerator, Serializable {
+
+  private static final long serialVersionUID = -2473749787689641438L;
 
   //都是空方法
   @Override
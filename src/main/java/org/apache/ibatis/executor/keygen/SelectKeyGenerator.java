@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.executor.keygen;
 
+import java.io.Serializable;
 import java.sql.Statement;
 import java.util.List;
 
@@ -30,7 +31,9 @@ import org.apache.ibatis.session.RowBounds;
  * @author Clinton Begin
  * @author Jeff Butler
  */
-public class SelectKeyGenerator implements KeyGenerator {
+public class SelectKeyGenerator implements KeyGenerator, Serializable {
+
+  private static final long serialVersionUID = -6649620230806485458L;
   
   public static final String SELECT_KEY_SUFFIX = "!selectKey";
   private boolean executeBefore;
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.executor.BaseExecutor;
 import org.apache.ibatis.executor.BatchResult;
@@ -52,6 +53,12 @@ public class ResultLoaderMap {
 
   //加载对的hashmap
   private final Map<String, LoadPair> loaderMap = new HashMap<String, LoadPair>();
+  //代理对象触发加载时持有，加载会查数据库，所以不用synchronized，虚拟线程不会钉住载体线程
+  private final ReentrantLock lock = new ReentrantLock();
+
+  public ReentrantLock getLock() {
+    return lock;
+  }
 
   //把要延迟加载的属性记到ResultLoaderMap里（一个哈希表）
   public void addLoader(String property, MetaObject metaResultObject, ResultLoader resultLoader) {
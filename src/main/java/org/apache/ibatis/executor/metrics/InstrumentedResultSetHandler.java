@@ -0,0 +1,101 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import java.sql.CallableStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * 带统计的结果集处理器，装饰者模式
+ * 记录结果映射耗时和返回的行数
+ *
+ */
+public class InstrumentedResultSetHandler implements ResultSetHandler {
+
+  private final ResultSetHandler delegate;
+  private final StatementMetrics metrics;
+  private final boolean sampled;
+  private final boolean countsOwnRows;
+  private final boolean multipleResultMaps;
+
+  //resultHandler不为空时，行数由CountingResultHandler统计
+  public InstrumentedResultSetHandler(ResultSetHandler delegate, StatementMetrics metrics, boolean sampled, boolean countsOwnRows, boolean multipleResultMaps) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+    this.sampled = sampled;
+    this.countsOwnRows = countsOwnRows;
+    this.multipleResultMaps = multipleResultMaps;
+  }
+
+  @Override
+  public <E> List<E> handleResultSets(Statement stmt) throws SQLException {
+    long start = sampled ? System.nanoTime() : 0;
+    List<E> results = delegate.<E>handleResultSets(stmt);
+    if (sampled) {
+      metrics.recordMapping(System.nanoTime() - start);
+    }
+    if (countsOwnRows && results != null) {
+      metrics.recordRowsReturned(countRows(results));
+    }
+    return results;
+  }
+
+  @Override
+  public void handleOutputParameters(CallableStatement cs) throws SQLException {
+    delegate.handleOutputParameters(cs);
+  }
+
+  //多结果集时，返回的是List<List>(只有一个结果集时会被拆成单个List)
+  private long countRows(List<?> results) {
+    if (!multipleResultMaps) {
+      return results.size();
+    }
+    long rows = 0;
+    for (Object result : results) {
+      if (!(result instanceof List)) {
+        return results.size();
+      }
+      rows += ((List<?>) result).size();
+    }
+    return rows;
+  }
+
+  //包装用户的ResultHandler，顺便统计行数
+  public static class CountingResultHandler implements ResultHandler {
+
+    private final ResultHandler delegate;
+    private final StatementMetrics metrics;
+
+    public CountingResultHandler(ResultHandler delegate, StatementMetrics metrics) {
+      this.delegate = delegate;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public void handleResult(ResultContext context) {
+      metrics.recordRowsReturned(1);
+      delegate.handleResult(context);
+    }
+
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * 带统计的语句处理器，装饰者模式
+ * 准备+参数化计为prepare阶段，query/update/batch计为execute阶段
+ *
+ */
+public class InstrumentedStatementHandler implements StatementHandler {
+
+  private final StatementHandler delegate;
+  private final StatementMetrics metrics;
+  private final boolean sampled;
+
+  private long prepareNanos;
+
+  public InstrumentedStatementHandler(StatementHandler delegate, StatementMetrics metrics, boolean sampled) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+    this.sampled = sampled;
+  }
+
+  @Override
+  public Statement prepare(Connection connection) throws SQLException {
+    long start = sampled ? System.nanoTime() : 0;
+    try {
+      return delegate.prepare(connection);
+    } catch (SQLException e) {
+      metrics.recordError();
+      throw e;
+    } catch (RuntimeException e) {
+      metrics.recordError();
+      throw e;
+    } finally {
+      if (sampled) {
+        prepareNanos += System.nanoTime() - start;
+      }
+    }
+  }
+
+  @Override
+  public void parameterize(Statement statement) throws SQLException {
+    long start = sampled ? System.nanoTime() : 0;
+    try {
+      delegate.parameterize(statement);
+    } catch (SQLException e) {
+      metrics.recordError();
+      throw e;
+    } catch (RuntimeException e) {
+      metrics.recordError();
+      throw e;
+    } finally {
+      if (sampled) {
+        prepareNanos += System.nanoTime() - start;
+      }
+    }
+  }
+
+  @Override
+  public void batch(Statement statement) throws SQLException {
+    long start = sampled ? System.nanoTime() : 0;
+    metrics.recordExecution();
+    try {
+      delegate.batch(statement);
+    } catch (SQLException e) {
+      metrics.recordError();
+      throw e;
+    } catch (RuntimeException e) {
+      metrics.recordError();
+      throw e;
+    } finally {
+      recordTimings(start);
+    }
+  }
+
+  @Override
+  public int update(Statement statement) throws SQLException {
+    long start = sampled ? System.nanoTime() : 0;
+    metrics.recordExecution();
+    try {
+      int rows = delegate.update(statement);
+      metrics.recordRowsAffected(rows);
+      return rows;
+    } catch (SQLException e) {
+      metrics.recordError();
+      throw e;
+    } catch (RuntimeException e) {
+      metrics.recordError();
+      throw e;
+    } finally {
+      recordTimings(start);
+    }
+  }
+
+  @Override
+  public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
+    long start = sampled ? System.nanoTime() : 0;
+    metrics.recordExecution();
+    try {
+      return delegate.<E>query(statement, resultHandler);
+    } catch (SQLException e) {
+      metrics.recordError();
+      throw e;
+    } catch (RuntimeException e) {
+      metrics.recordError();
+      throw e;
+    } finally {
+      recordTimings(start);
+    }
+  }
+
+  @Override
+  public BoundSql getBoundSql() {
+    return delegate.getBoundSql();
+  }
+
+  @Override
+  public ParameterHandler getParameterHandler() {
+    return delegate.getParameterHandler();
+  }
+
+  private void recordTimings(long start) {
+    if (sampled) {
+      metrics.recordTimings(prepareNanos, System.nanoTime() - start);
+      //ReuseExecutor下同一个Statement可能执行多次，准备时间只算第一次
+      prepareNanos = 0;
+    }
+  }
+
+}
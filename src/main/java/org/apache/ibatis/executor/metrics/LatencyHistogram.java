@@ -0,0 +1,130 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 延迟直方图
+ * 仿照HdrHistogram的对数-线性分桶：每个2的幂区间再等分为16个子桶
+ * 百分位数取桶的上界，最坏相对误差为1/16(约6%)
+ * 数值以微秒为单位记录，超出上限的值计入最后一个桶
+ *
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+  //最大约2^36微秒(19小时)，足够覆盖任何一条SQL
+  private static final int MAX_MAGNITUDE = 36 - SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = MAX_MAGNITUDE * SUB_BUCKET_HALF_COUNT + SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts;
+
+  public LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKET_COUNT);
+  }
+
+  private LatencyHistogram(long[] counts) {
+    this.counts = new AtomicLongArray(counts);
+  }
+
+  //记录一次耗时(纳秒)
+  public void recordNanos(long nanos) {
+    counts.incrementAndGet(indexOf(nanos / 1000));
+  }
+
+  public long getTotalCount() {
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      total += counts.get(i);
+    }
+    return total;
+  }
+
+  //取得百分位数(纳秒)，percentile取值0~100
+  public long getValueAtPercentile(double percentile) {
+    long[] snapshot = copyCounts();
+    long total = 0;
+    for (long count : snapshot) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    double p = Math.min(Math.max(percentile, 0.0), 100.0);
+    long target = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+    long seen = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      seen += snapshot[i];
+      if (seen >= target) {
+        return highestEquivalentValue(i) * 1000;
+      }
+    }
+    return highestEquivalentValue(snapshot.length - 1) * 1000;
+  }
+
+  //复制一份当前状态，后续的记录不会影响复制品
+  public LatencyHistogram copy() {
+    return new LatencyHistogram(copyCounts());
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+  }
+
+  private long[] copyCounts() {
+    long[] snapshot = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      snapshot[i] = counts.get(i);
+    }
+    return snapshot;
+  }
+
+  //小于32的值一一对应，其余按2的幂分段，每段16个子桶
+  static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return value < 0 ? 0 : (int) value;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+    if (magnitude > MAX_MAGNITUDE) {
+      return BUCKET_COUNT - 1;
+    }
+    int subBucket = (int) (value >>> magnitude);
+    return magnitude * SUB_BUCKET_HALF_COUNT + subBucket;
+  }
+
+  static long lowestEquivalentValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int magnitude = index / SUB_BUCKET_HALF_COUNT - 1;
+    long subBucket = index - magnitude * SUB_BUCKET_HALF_COUNT;
+    return subBucket << magnitude;
+  }
+
+  static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int magnitude = index / SUB_BUCKET_HALF_COUNT - 1;
+    return lowestEquivalentValue(index) + (1L << magnitude) - 1;
+  }
+
+}
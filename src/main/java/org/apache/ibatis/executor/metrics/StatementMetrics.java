@@ -0,0 +1,100 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单条MappedStatement的执行统计
+ * 次数、错误数、行数每次都记录；各阶段耗时和延迟直方图只在被采样的执行上记录
+ *
+ */
+public class StatementMetrics {
+
+  private final String id;
+
+  private final AtomicLong executions = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+  private final AtomicLong rowsReturned = new AtomicLong();
+  private final AtomicLong rowsAffected = new AtomicLong();
+
+  //被采样(计时)的执行
+  private final AtomicLong sampledExecutions = new AtomicLong();
+  private final AtomicLong prepareNanos = new AtomicLong();
+  //执行耗时，包含结果映射
+  private final AtomicLong executeNanos = new AtomicLong();
+  private final AtomicLong sampledMappings = new AtomicLong();
+  private final AtomicLong mappingNanos = new AtomicLong();
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  public StatementMetrics(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void recordExecution() {
+    executions.incrementAndGet();
+  }
+
+  public void recordError() {
+    errors.incrementAndGet();
+  }
+
+  public void recordRowsReturned(long rows) {
+    rowsReturned.addAndGet(rows);
+  }
+
+  public void recordRowsAffected(long rows) {
+    if (rows > 0) {
+      rowsAffected.addAndGet(rows);
+    }
+  }
+
+  //记录一次被采样的执行，延迟=准备+执行
+  public void recordTimings(long prepare, long execute) {
+    sampledExecutions.incrementAndGet();
+    prepareNanos.addAndGet(prepare);
+    executeNanos.addAndGet(execute);
+    latency.recordNanos(prepare + execute);
+  }
+
+  public void recordMapping(long nanos) {
+    sampledMappings.incrementAndGet();
+    mappingNanos.addAndGet(nanos);
+  }
+
+  public StatementMetricsSnapshot snapshot() {
+    return new StatementMetricsSnapshot(id, executions.get(), errors.get(), rowsReturned.get(), rowsAffected.get(),
+        sampledExecutions.get(), prepareNanos.get(), executeNanos.get(), sampledMappings.get(), mappingNanos.get(), latency.copy());
+  }
+
+  public void reset() {
+    executions.set(0);
+    errors.set(0);
+    rowsReturned.set(0);
+    rowsAffected.set(0);
+    sampledExecutions.set(0);
+    prepareNanos.set(0);
+    executeNanos.set(0);
+    sampledMappings.set(0);
+    mappingNanos.set(0);
+    latency.reset();
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 执行统计注册表，按MappedStatement的id保存统计
+ * 采样间隔为N时，每N次执行才计时一次，以降低开销
+ *
+ */
+public class StatementMetricsRegistry {
+
+  private final ConcurrentMap<String, StatementMetrics> metrics = new ConcurrentHashMap<String, StatementMetrics>();
+  //执行和结果映射分开计数，避免两者交替命中采样
+  private final AtomicLong executionCounter = new AtomicLong();
+  private final AtomicLong mappingCounter = new AtomicLong();
+  private volatile int sampleInterval = 1;
+
+  public StatementMetrics getMetrics(String id) {
+    StatementMetrics statementMetrics = metrics.get(id);
+    if (statementMetrics == null) {
+      statementMetrics = new StatementMetrics(id);
+      StatementMetrics existing = metrics.putIfAbsent(id, statementMetrics);
+      if (existing != null) {
+        statementMetrics = existing;
+      }
+    }
+    return statementMetrics;
+  }
+
+  //本次执行是否需要计时
+  public boolean shouldSampleExecution() {
+    return shouldSample(executionCounter);
+  }
+
+  //本次结果映射是否需要计时
+  public boolean shouldSampleMapping() {
+    return shouldSample(mappingCounter);
+  }
+
+  private boolean shouldSample(AtomicLong counter) {
+    int interval = sampleInterval;
+    return interval <= 1 || counter.incrementAndGet() % interval == 0;
+  }
+
+  public int getSampleInterval() {
+    return sampleInterval;
+  }
+
+  public void setSampleInterval(int sampleInterval) {
+    this.sampleInterval = sampleInterval < 1 ? 1 : sampleInterval;
+  }
+
+  public StatementMetricsSnapshot getSnapshot(String id) {
+    StatementMetrics statementMetrics = metrics.get(id);
+    return statementMetrics == null ? null : statementMetrics.snapshot();
+  }
+
+  public Collection<StatementMetricsSnapshot> getSnapshots() {
+    List<StatementMetricsSnapshot> snapshots = new ArrayList<StatementMetricsSnapshot>();
+    for (StatementMetrics statementMetrics : metrics.values()) {
+      snapshots.add(statementMetrics.snapshot());
+    }
+    return snapshots;
+  }
+
+  public void reset() {
+    for (StatementMetrics statementMetrics : metrics.values()) {
+      statementMetrics.reset();
+    }
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+/**
+ * 执行统计的快照，不可变
+ * 时间单位都是纳秒，平均值只在被采样的执行上计算
+ *
+ */
+public class StatementMetricsSnapshot {
+
+  private final String id;
+  private final long executions;
+  private final long errors;
+  private final long rowsReturned;
+  private final long rowsAffected;
+  private final long sampledExecutions;
+  private final long prepareNanos;
+  private final long executeNanos;
+  private final long sampledMappings;
+  private final long mappingNanos;
+  private final LatencyHistogram latency;
+
+  StatementMetricsSnapshot(String id, long executions, long errors, long rowsReturned, long rowsAffected,
+      long sampledExecutions, long prepareNanos, long executeNanos, long sampledMappings, long mappingNanos, LatencyHistogram latency) {
+    this.id = id;
+    this.executions = executions;
+    this.errors = errors;
+    this.rowsReturned = rowsReturned;
+    this.rowsAffected = rowsAffected;
+    this.sampledExecutions = sampledExecutions;
+    this.prepareNanos = prepareNanos;
+    this.executeNanos = executeNanos;
+    this.sampledMappings = sampledMappings;
+    this.mappingNanos = mappingNanos;
+    this.latency = latency;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public long getExecutions() {
+    return executions;
+  }
+
+  public long getErrors() {
+    return errors;
+  }
+
+  public long getRowsReturned() {
+    return rowsReturned;
+  }
+
+  public long getRowsAffected() {
+    return rowsAffected;
+  }
+
+  public long getSampledExecutions() {
+    return sampledExecutions;
+  }
+
+  public long getAveragePrepareTime() {
+    return average(prepareNanos, sampledExecutions);
+  }
+
+  //执行的平均耗时(不含结果映射)
+  public long getAverageExecuteTime() {
+    return Math.max(0, average(executeNanos, sampledExecutions) - getAverageResultMappingTime());
+  }
+
+  public long getAverageResultMappingTime() {
+    return average(mappingNanos, sampledMappings);
+  }
+
+  //延迟的百分位数，如getLatencyPercentile(99.0)
+  public long getLatencyPercentile(double percentile) {
+    return latency.getValueAtPercentile(percentile);
+  }
+
+  private static long average(long total, long count) {
+    return count == 0 ? 0 : total / count;
+  }
+
+  @Override
+  public String toString() {
+    return id + " [executions=" + executions + ", errors=" + errors + ", rowsReturned=" + rowsReturned
+        + ", rowsAffected=" + rowsAffected + ", avgPrepare=" + getAveragePrepareTime()
+        + "ns, avgExecute=" + getAverageExecuteTime() + "ns, avgMapping=" + getAverageResultMappingTime()
+        + "ns, p50=" + getLatencyPercentile(50) + "ns, p99=" + getLatencyPercentile(99) + "ns]";
+  }
+
+}
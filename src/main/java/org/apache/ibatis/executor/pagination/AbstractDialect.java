@@ -0,0 +1,87 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.Locale;
+
+/**
+ * 方言基类，提供通用的count语句改写
+ * select count(*) from (原SQL) tmp_count
+ *
+ */
+public abstract class AbstractDialect implements Dialect {
+
+  @Override
+  public String getCountSql(String sql) {
+    return "SELECT COUNT(*) FROM (" + removeOrderBy(sql) + ") TMP_COUNT";
+  }
+
+  //去掉最外层的ORDER BY，统计总数时用不到，有的数据库(SQL Server)还不允许子查询里出现ORDER BY
+  //ORDER BY后面有参数的不去掉，否则参数就对不上了
+  protected String removeOrderBy(String sql) {
+    return removeTopLevelOrderBy(sql);
+  }
+
+  static String removeTopLevelOrderBy(String sql) {
+    int orderBy = lastTopLevelOrderBy(sql);
+    if (orderBy < 0 || sql.indexOf('?', orderBy) >= 0) {
+      return sql;
+    }
+    return sql.substring(0, orderBy);
+  }
+
+  //找到最外层(不在括号和字符串里)的最后一个ORDER BY的位置，找不到返回-1
+  protected static int lastTopLevelOrderBy(String sql) {
+    String lower = sql.toLowerCase(Locale.ENGLISH);
+    int depth = 0;
+    boolean quoted = false;
+    int found = -1;
+    for (int i = 0; i < lower.length(); i++) {
+      char c = lower.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (quoted) {
+        continue;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        //括号在ORDER BY之后出现，说明ORDER BY属于窗口函数之类的结构
+        if (depth < 0) {
+          return -1;
+        }
+      } else if (depth == 0 && c == 'o' && lower.startsWith("order", i) && isBoundary(lower, i - 1) && isBoundary(lower, i + 5)) {
+        int j = i + 5;
+        while (j < lower.length() && Character.isWhitespace(lower.charAt(j))) {
+          j++;
+        }
+        if (j > i + 5 && lower.startsWith("by", j) && isBoundary(lower, j + 2)) {
+          found = i;
+        }
+      }
+    }
+    return found;
+  }
+
+  private static boolean isBoundary(String sql, int index) {
+    if (index < 0 || index >= sql.length()) {
+      return true;
+    }
+    char c = sql.charAt(index);
+    return !Character.isLetterOrDigit(c) && c != '_';
+  }
+
+}
@@ -0,0 +1,32 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.List;
+
+/**
+ * 分页方言，把SQL改写为数据库自己的分页语法
+ *
+ */
+public interface Dialect {
+
+  //改写为分页SQL，新增的?对应的参数值按出现顺序放进pageParameters
+  String getPageSql(String sql, int offset, int limit, List<Object> pageParameters);
+
+  //改写为统计总行数的SQL
+  String getCountSql(String sql);
+
+}
@@ -0,0 +1,55 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.Locale;
+
+/**
+ * 根据databaseId找到对应的分页方言
+ * databaseId可以是DB_VENDOR里配置的别名(mysql,oracle...)，也可以是JDBC返回的数据库产品名
+ *
+ */
+public final class Dialects {
+
+  private static final Dialect LIMIT_OFFSET = new LimitOffsetDialect();
+  private static final Dialect OFFSET_FETCH = new OffsetFetchDialect();
+  private static final Dialect ROWNUM = new RownumDialect();
+
+  private Dialects() {
+    // Prevent Instantiation of Static Class
+  }
+
+  //认不出来的返回null，这时仍然在内存中分页
+  public static Dialect forDatabaseId(String databaseId) {
+    if (databaseId == null) {
+      return null;
+    }
+    String id = databaseId.toLowerCase(Locale.ENGLISH);
+    if (id.contains("mysql") || id.contains("mariadb") || id.contains("postgres") || id.contains("hsql")
+        || id.equals("h2") || id.contains("sqlite")) {
+      return LIMIT_OFFSET;
+    }
+    if (id.contains("derby") || id.contains("db2") || id.contains("sqlserver") || id.contains("sql server")
+        || id.equals("mssql")) {
+      return OFFSET_FETCH;
+    }
+    if (id.contains("oracle")) {
+      return ROWNUM;
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,41 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.List;
+
+/**
+ * LIMIT ? OFFSET ? 方言
+ * MySQL,MariaDB,PostgreSQL,H2,HSQLDB,SQLite
+ *
+ */
+public class LimitOffsetDialect extends AbstractDialect {
+
+  @Override
+  public String getPageSql(String sql, int offset, int limit, List<Object> pageParameters) {
+    StringBuilder pageSql = new StringBuilder(sql.length() + 20);
+    pageSql.append(sql);
+    //MySQL不支持只有OFFSET没有LIMIT，所以总是带上LIMIT
+    pageSql.append(" LIMIT ?");
+    pageParameters.add(Integer.valueOf(limit));
+    if (offset > 0) {
+      pageSql.append(" OFFSET ?");
+      pageParameters.add(Integer.valueOf(offset));
+    }
+    return pageSql.toString();
+  }
+
+}
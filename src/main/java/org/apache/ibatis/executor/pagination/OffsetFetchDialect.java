@@ -0,0 +1,42 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.List;
+
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * SQL:2008标准的 OFFSET ? ROWS FETCH NEXT ? ROWS ONLY 方言
+ * Derby,DB2,Oracle 12c,SQL Server 2012(要求有ORDER BY)
+ *
+ */
+public class OffsetFetchDialect extends AbstractDialect {
+
+  @Override
+  public String getPageSql(String sql, int offset, int limit, List<Object> pageParameters) {
+    StringBuilder pageSql = new StringBuilder(sql.length() + 40);
+    pageSql.append(sql);
+    pageSql.append(" OFFSET ? ROWS");
+    pageParameters.add(Integer.valueOf(offset));
+    if (limit != RowBounds.NO_ROW_LIMIT) {
+      pageSql.append(" FETCH NEXT ? ROWS ONLY");
+      pageParameters.add(Integer.valueOf(limit));
+    }
+    return pageSql.toString();
+  }
+
+}
@@ -0,0 +1,280 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.scatter.MergeOrder;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.PageRowBounds;
+import org.apache.ibatis.session.PageToken;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * 数据库分页
+ * 开启databasePagination后，把RowBounds改写成数据库的分页SQL，而不是取回所有行再在内存里跳过
+ * 缓存key仍然按原SQL+offset+limit生成，改写后的SQL由这三者唯一确定，所以缓存不受影响
+ * 另外支持键集分页(PageToken)，这时缓存key还要加上页标记里的键值
+ *
+ */
+public class PaginationSupport {
+
+  public static final String COUNT_STATEMENT_SUFFIX = "_COUNT";
+
+  //分页参数的名字，放在BoundSql的additionalParameters里
+  private static final String PAGE_PARAMETER_PREFIX = "__page_";
+
+  //没有配置方言时，count语句用标准SQL生成
+  private static final Dialect GENERIC_DIALECT = new OffsetFetchDialect();
+
+  private final Configuration configuration;
+  private final Map<String, MappedStatement> countStatements = new ConcurrentHashMap<String, MappedStatement>();
+
+  public PaginationSupport(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  //能否在数据库里分页
+  //嵌套结果映射按对象计数而不是按行计数，存储过程和多结果集没法改写，都还是在内存中分页
+  public boolean isPageable(MappedStatement ms, RowBounds rowBounds) {
+    if (!configuration.isDatabasePagination() || !isRewritable(ms)) {
+      return false;
+    }
+    if (rowBounds == null || rowBounds instanceof PageToken || (rowBounds.getOffset() == RowBounds.NO_ROW_OFFSET && rowBounds.getLimit() == RowBounds.NO_ROW_LIMIT)) {
+      return false;
+    }
+    return configuration.getPaginationDialect() != null;
+  }
+
+  //生成分页后的BoundSql，分页参数追加在原参数后面
+  public BoundSql getPageBoundSql(MappedStatement ms, BoundSql boundSql, RowBounds rowBounds) {
+    Dialect dialect = configuration.getPaginationDialect();
+    List<Object> pageParameters = new ArrayList<Object>(2);
+    String pageSql = dialect.getPageSql(boundSql.getSql(), rowBounds.getOffset(), rowBounds.getLimit(), pageParameters);
+    return copyBoundSql(boundSql, pageSql, pageParameters);
+  }
+
+  //键集分页：把原SQL包一层，加上 where 键 > 上一页的键 和 order by 键，能改写分页的再加上limit
+  //键就是结果映射里的id映射，多个键时展开为 (k1 > ?) OR (k1 = ? AND k2 > ?) ...
+  //排序只在外层，原SQL的ORDER BY去掉，SQL Server不允许子查询里有ORDER BY
+  public BoundSql getKeysetBoundSql(MappedStatement ms, BoundSql boundSql, PageToken pageToken) {
+    if (ms.getStatementType() == StatementType.CALLABLE || ms.getResulSets() != null) {
+      throw new ExecutorException("Keyset pagination is not supported for callable statements or multiple result sets. Statement: " + ms.getId());
+    }
+    List<ResultMapping> keys = getKeyMappings(ms);
+    Object[] keyValues = pageToken.getKeyValues();
+    if (keyValues != null && keyValues.length != keys.size()) {
+      throw new ExecutorException("Page token has " + keyValues.length + " key values but statement " + ms.getId() + " is keyed by " + keys.size() + " columns.");
+    }
+    List<Object> seekParameters = new ArrayList<Object>();
+    StringBuilder sql = new StringBuilder(boundSql.getSql().length() + 100);
+    sql.append("SELECT * FROM ( ").append(AbstractDialect.removeTopLevelOrderBy(boundSql.getSql())).append(" ) TMP_KEYSET");
+    if (keyValues != null) {
+      String operator = pageToken.isDescending() ? " < ?" : " > ?";
+      sql.append(" WHERE ");
+      for (int i = 0; i < keys.size(); i++) {
+        if (i > 0) {
+          sql.append(" OR ");
+        }
+        sql.append("(");
+        for (int j = 0; j < i; j++) {
+          sql.append(keys.get(j).getColumn()).append(" = ? AND ");
+          seekParameters.add(keyValue(ms, keys.get(j), keyValues[j]));
+        }
+        sql.append(keys.get(i).getColumn()).append(operator);
+        seekParameters.add(keyValue(ms, keys.get(i), keyValues[i]));
+        sql.append(")");
+      }
+    }
+    sql.append(" ORDER BY ");
+    for (int i = 0; i < keys.size(); i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(keys.get(i).getColumn());
+      if (pageToken.isDescending()) {
+        sql.append(" DESC");
+      }
+    }
+    String keysetSql = sql.toString();
+    if (isKeysetLimitedInDatabase(ms)) {
+      keysetSql = configuration.getPaginationDialect().getPageSql(keysetSql, RowBounds.NO_ROW_OFFSET, pageToken.getPageSize(), seekParameters);
+    }
+    return copyBoundSql(boundSql, keysetSql, seekParameters);
+  }
+
+  //键集分页的limit能否放到SQL里
+  //嵌套结果映射按对象计数，只能在内存里限制条数，按键排序保证了同一个对象的行是连续的
+  public boolean isKeysetLimitedInDatabase(MappedStatement ms) {
+    return !ms.hasNestedResultMaps() && configuration.getPaginationDialect() != null;
+  }
+
+  //由这一页的最后一行生成下一页的标记，不满一页说明是最后一页，返回null
+  public PageToken getNextPageToken(MappedStatement ms, List<?> items, PageToken pageToken) {
+    if (items.isEmpty() || items.size() < pageToken.getPageSize()) {
+      return null;
+    }
+    List<ResultMapping> keys = getKeyMappings(ms);
+    MetaObject lastRow = configuration.newMetaObject(items.get(items.size() - 1));
+    Object[] keyValues = new Object[keys.size()];
+    for (int i = 0; i < keys.size(); i++) {
+      keyValues[i] = keyValue(ms, keys.get(i), lastRow.getValue(keys.get(i).getProperty()));
+    }
+    return pageToken.next(keyValues);
+  }
+
+  //键集分页的排序，分片查询按它归并各分片的一页
+  public MergeOrder getKeysetMergeOrder(MappedStatement ms, PageToken pageToken) {
+    List<ResultMapping> keys = getKeyMappings(ms);
+    String[] properties = new String[keys.size()];
+    for (int i = 0; i < properties.length; i++) {
+      properties[i] = keys.get(i).getProperty();
+    }
+    return pageToken.isDescending() ? MergeOrder.descending(properties) : MergeOrder.ascending(properties);
+  }
+
+  //查询总行数，结果放进PageRowBounds.total
+  //没开数据库分页或者没法改写的语句不统计，total保持为null
+  public void count(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    if (!configuration.isDatabasePagination() || !(rowBounds instanceof PageRowBounds)) {
+      return;
+    }
+    PageRowBounds pageRowBounds = (PageRowBounds) rowBounds;
+    if (!pageRowBounds.isCount() || !isRewritable(ms)) {
+      return;
+    }
+    List<Object> list = executor.query(getCountStatement(ms), parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    //分片查询每个分片各返回一行，加起来
+    long total = 0;
+    for (Object count : list) {
+      if (count != null) {
+        total += ((Number) count).longValue();
+      }
+    }
+    pageRowBounds.setTotal(total);
+  }
+
+  private boolean isRewritable(MappedStatement ms) {
+    return ms.getSqlCommandType() == SqlCommandType.SELECT
+        && ms.getStatementType() != StatementType.CALLABLE
+        && ms.getResulSets() == null
+        && !ms.hasNestedResultMaps();
+  }
+
+  //count语句和原语句共用缓存，缓存key里有SQL，所以不会冲突
+  private MappedStatement getCountStatement(MappedStatement ms) {
+    MappedStatement countStatement = countStatements.get(ms.getId());
+    if (countStatement == null) {
+      String id = ms.getId() + COUNT_STATEMENT_SUFFIX;
+      List<ResultMap> resultMaps = new ArrayList<ResultMap>();
+      resultMaps.add(new ResultMap.Builder(configuration, id + "-Inline", Long.class, new ArrayList<ResultMapping>()).build());
+      countStatement = new MappedStatement.Builder(configuration, id, new CountSqlSource(ms), SqlCommandType.SELECT)
+          .resource(ms.getResource())
+          .statementType(ms.getStatementType())
+          .timeout(ms.getTimeout())
+          .parameterMap(ms.getParameterMap())
+          .resultMaps(resultMaps)
+          .cache(ms.getCache())
+          .useCache(ms.isUseCache())
+          .flushCacheRequired(false)
+          .databaseId(ms.getDatabaseId())
+          .lang(ms.getLang())
+          .build();
+      countStatements.put(ms.getId(), countStatement);
+    }
+    return countStatement;
+  }
+
+  private Dialect getCountDialect() {
+    Dialect dialect = configuration.getPaginationDialect();
+    return dialect == null ? GENERIC_DIALECT : dialect;
+  }
+
+  //排序键取自结果映射的id映射(没有id时是全部映射)，去掉嵌套的和构造函数的映射
+  private List<ResultMapping> getKeyMappings(MappedStatement ms) {
+    List<ResultMapping> keys = new ArrayList<ResultMapping>();
+    if (!ms.getResultMaps().isEmpty()) {
+      for (ResultMapping resultMapping : ms.getResultMaps().get(0).getIdResultMappings()) {
+        if (resultMapping.getColumn() != null && resultMapping.getProperty() != null
+            && resultMapping.getNestedQueryId() == null && resultMapping.getNestedResultMapId() == null) {
+          keys.add(resultMapping);
+        }
+      }
+    }
+    if (keys.isEmpty()) {
+      throw new ExecutorException("Keyset pagination requires a result map with id mappings. Statement: " + ms.getId());
+    }
+    return keys;
+  }
+
+  //键值为null时 k > null 永远不成立，会丢数据，直接报错
+  private Object keyValue(MappedStatement ms, ResultMapping key, Object value) {
+    if (value == null) {
+      throw new ExecutorException("Keyset pagination key '" + key.getProperty() + "' is null. Statement: " + ms.getId());
+    }
+    return value;
+  }
+
+  private BoundSql copyBoundSql(BoundSql boundSql, String sql, List<Object> extraParameters) {
+    List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>(boundSql.getParameterMappings());
+    BoundSql newBoundSql = new BoundSql(configuration, sql, parameterMappings, boundSql.getParameterObject());
+    //foreach,bind产生的参数也要带过去
+    for (Map.Entry<String, Object> entry : boundSql.getAdditionalParameters().entrySet()) {
+      newBoundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
+    }
+    for (int i = 0; i < extraParameters.size(); i++) {
+      Object value = extraParameters.get(i);
+      String name = PAGE_PARAMETER_PREFIX + i;
+      Class<?> javaType = configuration.getTypeHandlerRegistry().hasTypeHandler(value.getClass()) ? value.getClass() : Object.class;
+      parameterMappings.add(new ParameterMapping.Builder(configuration, name, javaType).build());
+      newBoundSql.setAdditionalParameter(name, value);
+    }
+    return newBoundSql;
+  }
+
+  //每次调用都由原语句重新生成SQL，再改写为count语句
+  private class CountSqlSource implements SqlSource {
+
+    private final MappedStatement ms;
+
+    CountSqlSource(MappedStatement ms) {
+      this.ms = ms;
+    }
+
+    @Override
+    public BoundSql getBoundSql(Object parameterObject) {
+      BoundSql boundSql = ms.getBoundSql(parameterObject);
+      return copyBoundSql(boundSql, getCountDialect().getCountSql(boundSql.getSql()), Collections.<Object>emptyList());
+    }
+  }
+
+}
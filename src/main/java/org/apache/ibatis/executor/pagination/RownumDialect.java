@@ -0,0 +1,54 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.List;
+
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Oracle的ROWNUM方言，适用于所有Oracle版本
+ * 有offset时要多带一列行号，Oracle没法写出"除了这一列以外的所有列"，所以这一列放在最后，结果集处理时跳过它
+ *
+ */
+public class RownumDialect extends AbstractDialect {
+
+  //行号列的名字，ResultSetWrapper会忽略最后一列叫这个名字的列
+  public static final String ROW_NUMBER_COLUMN = "MYBATIS_ROW_ID";
+
+  @Override
+  public String getPageSql(String sql, int offset, int limit, List<Object> pageParameters) {
+    StringBuilder pageSql = new StringBuilder(sql.length() + 120);
+    if (offset > 0) {
+      pageSql.append("SELECT * FROM ( SELECT TMP_PAGE.*, ROWNUM ").append(ROW_NUMBER_COLUMN).append(" FROM ( ");
+      pageSql.append(sql);
+      pageSql.append(" ) TMP_PAGE");
+      if (limit != RowBounds.NO_ROW_LIMIT) {
+        pageSql.append(" WHERE ROWNUM <= ?");
+        pageParameters.add(Long.valueOf((long) offset + limit));
+      }
+      pageSql.append(" ) WHERE ").append(ROW_NUMBER_COLUMN).append(" > ?");
+      pageParameters.add(Integer.valueOf(offset));
+    } else {
+      pageSql.append("SELECT * FROM ( ");
+      pageSql.append(sql);
+      pageSql.append(" ) WHERE ROWNUM <= ?");
+      pageParameters.add(Integer.valueOf(limit));
+    }
+    return pageSql.toString();
+  }
+
+}
@@ -21,12 +21,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.ErrorContext;
@@ -47,11 +53,16 @@ import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.MaxRowsExceededBehavior;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.PrimitiveTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
@@ -76,6 +87,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final BoundSql boundSql;
   private final TypeHandlerRegistry typeHandlerRegistry;
   private final ObjectFactory objectFactory;
+  //每个结果集最多读取的行数，0表示不限制
+  private final int maxRows;
 
   // nested resultmaps
   private final Map<CacheKey, Object> nestedResultObjects = new HashMap<CacheKey, Object>();
@@ -102,6 +115,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.objectFactory = configuration.getObjectFactory();
     this.resultHandler = resultHandler;
+    Integer statementMaxRows = mappedStatement.getMaxRows() != null ? mappedStatement.getMaxRows() : configuration.getDefaultMaxRows();
+    this.maxRows = statementMaxRows != null && statementMaxRows > 0 ? statementMaxRows : 0;
   }
 
   //
@@ -308,15 +323,138 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private void handleRowValuesForSimpleResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
       throws SQLException {
+    //多结果集要把子对象挂到父对象上，不并行
+    if (configuration.isParallelResultMapping() && parentMapping == null) {
+      handleRowValuesInParallel(rsw, resultMap, resultHandler, rowBounds);
+      return;
+    }
     DefaultResultContext resultContext = new DefaultResultContext();
     skipRows(rsw.getResultSet(), rowBounds);
-    while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
+    int rowsRead = 0;
+    while (shouldProcessMoreRows(resultContext, rowBounds) && nextRow(rsw.getResultSet(), rowsRead++)) {
       ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
       Object rowValue = getRowValue(rsw, discriminatedResultMap);
       storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
     }
   }
 
+  //
+  // HANDLE ROWS FOR SIMPLE RESULTMAP IN PARALLEL
+  //
+
+  //读取线程(当前线程)按批读取行，每批交给线程池映射，再按顺序交给ResultHandler
+  //同时在映射的批数有上限，读得比映射快时就等最早的一批
+  private void handleRowValuesInParallel(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler resultHandler, RowBounds rowBounds)
+      throws SQLException {
+    final DefaultResultContext resultContext = new DefaultResultContext();
+    final ResultSet rs = rsw.getResultSet();
+    final ExecutorService mappingExecutor = configuration.getResultMappingExecutor();
+    final int batchSize = Math.max(1, configuration.getParallelResultMappingBatchSize());
+    final int maxPendingBatches = Math.max(1, configuration.getParallelResultMappingThreads()) * 2;
+    final Map<String, RowMappingPlan> plans = new HashMap<String, RowMappingPlan>();
+    final LinkedList<Future<Object[]>> pendingBatches = new LinkedList<Future<Object[]>>();
+    skipRows(rs, rowBounds);
+    int rowsRead = 0;
+    int rowsBuffered = 0;
+    try {
+      boolean moreRows = true;
+      while (moreRows && !resultContext.isStopped()) {
+        final Object[] batch = new Object[batchSize];
+        int size = 0;
+        while (size < batchSize && rowsBuffered < rowBounds.getLimit() && nextRow(rs, rowsRead++)) {
+          ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rs, resultMap, null);
+          RowMappingPlan plan = getRowMappingPlan(plans, rsw, discriminatedResultMap);
+          //不能并行的结果映射直接在读取线程映射
+          batch[size++] = plan == null ? getRowValue(rsw, discriminatedResultMap) : new BufferedRow(plan, plan.readRow(rs));
+          rowsBuffered++;
+        }
+        moreRows = size == batchSize;
+        if (!moreRows && pendingBatches.isEmpty()) {
+          //结果集很小，不值得交给线程池
+          deliverBatch(resultHandler, resultContext, mapBatch(batch, size), size, rs);
+        } else {
+          pendingBatches.add(mappingExecutor.submit(new MapBatchTask(batch, size)));
+        }
+        while (!pendingBatches.isEmpty() && !resultContext.isStopped() && (!moreRows || pendingBatches.size() > maxPendingBatches)) {
+          Object[] mapped = awaitBatch(pendingBatches.removeFirst());
+          deliverBatch(resultHandler, resultContext, mapped, mapped.length, rs);
+        }
+      }
+    } finally {
+      //出错或者ResultHandler喊停时，丢掉还没映射完的批
+      for (Future<Object[]> pendingBatch : pendingBatches) {
+        pendingBatch.cancel(false);
+      }
+    }
+  }
+
+  private RowMappingPlan getRowMappingPlan(Map<String, RowMappingPlan> plans, ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (!plans.containsKey(resultMap.getId())) {
+      plans.put(resultMap.getId(), RowMappingPlan.create(configuration, rsw, resultMap, RowMappingPlan.shouldApplyAutomaticMappings(configuration, resultMap)));
+    }
+    return plans.get(resultMap.getId());
+  }
+
+  private void deliverBatch(ResultHandler resultHandler, DefaultResultContext resultContext, Object[] batch, int size, ResultSet rs) throws SQLException {
+    for (int i = 0; i < size && !resultContext.isStopped(); i++) {
+      storeObject(resultHandler, resultContext, batch[i], null, rs);
+    }
+  }
+
+  private Object[] awaitBatch(Future<Object[]> pendingBatch) {
+    try {
+      return pendingBatch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while waiting for rows of '" + mappedStatement.getId() + "' to be mapped.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error mapping rows of '" + mappedStatement.getId() + "'. Cause: " + cause, cause);
+    }
+  }
+
+  private static Object[] mapBatch(Object[] batch, int size) {
+    for (int i = 0; i < size; i++) {
+      if (batch[i] instanceof BufferedRow) {
+        BufferedRow row = (BufferedRow) batch[i];
+        batch[i] = row.plan.mapRow(row.values);
+      }
+    }
+    return batch;
+  }
+
+  //读取线程读出的一行，还没映射成对象
+  private static class BufferedRow {
+    private final RowMappingPlan plan;
+    private final Object[] values;
+
+    BufferedRow(RowMappingPlan plan, Object[] values) {
+      this.plan = plan;
+      this.values = values;
+    }
+  }
+
+  private static class MapBatchTask implements Callable<Object[]> {
+    private final Object[] batch;
+    private final int size;
+
+    MapBatchTask(Object[] batch, int size) {
+      this.batch = batch;
+      this.size = size;
+    }
+
+    @Override
+    public Object[] call() {
+      Object[] mapped = mapBatch(batch, size);
+      return size == mapped.length ? mapped : Arrays.copyOf(mapped, size);
+    }
+  }
+
   private void storeObject(ResultHandler resultHandler, DefaultResultContext resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs) throws SQLException {
     if (parentMapping != null) {
       linkToParents(rs, parentMapping, rowValue);
@@ -334,6 +472,34 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return !context.isStopped() && context.getResultCount() < rowBounds.getLimit();
   }
 
+  //读下一行，超过maxRows时截断或者报错
+  private boolean nextRow(ResultSet rs, int rowsRead) throws SQLException {
+    if (maxRows > 0 && rowsRead >= maxRows) {
+      if (configuration.getMaxRowsExceededBehavior() == MaxRowsExceededBehavior.FAIL && rs.next()) {
+        throw maxRowsExceeded("rows");
+      }
+      return false;
+    }
+    return rs.next();
+  }
+
+  //嵌套结果映射按顶层对象计数，第maxRows+1个对象出现时截断或者报错，已经读到的对象的子集合是完整的
+  private boolean acceptNewObject(int objectsCreated) {
+    if (maxRows > 0 && objectsCreated >= maxRows) {
+      if (configuration.getMaxRowsExceededBehavior() == MaxRowsExceededBehavior.FAIL) {
+        throw maxRowsExceeded("objects");
+      }
+      return false;
+    }
+    return true;
+  }
+
+  //有ResultHandler时同样受maxRows限制
+  private ExecutorException maxRowsExceeded(String what) {
+    return new ExecutorException("Mapped Statement '" + mappedStatement.getId() + "' returned more than " + maxRows + " " + what + " (maxRows). "
+        + "Narrow the query, page it with a RowBounds, or raise maxRows.");
+  }
+
   private void skipRows(ResultSet rs, RowBounds rowBounds) throws SQLException {
     if (rs.getType() != ResultSet.TYPE_FORWARD_ONLY) {
       if (rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET) {
@@ -399,7 +565,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (propertyMapping.isCompositeResult() 
           || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) 
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        if (isSimpleColumnMapping(propertyMapping)) {
+          final Boolean found = applyPrimitiveMapping(rsw, resultMap, metaObject, propertyMapping.getProperty(), rsw.getTypeHandler(propertyMapping, column), column);
+          if (found != null) {
+            foundValues = found || foundValues;
+            continue;
+          }
+        }
+        Object value = getPropertyMappingValue(rsw, metaObject, propertyMapping, lazyLoader, columnPrefix);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         // issue #377, call setter on nulls
@@ -414,8 +587,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
+  private Object getPropertyMappingValue(ResultSetWrapper rsw, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
@@ -425,9 +599,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       // the user added a column attribute to a nested result map, ignore it
       return NO_VALUE;
     } else {
-      final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      return typeHandler.getResult(rs, column);
+      final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyMapping, column);
+      return rsw.getResult(typeHandler, column);
     }
   }
 
@@ -451,8 +625,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         final Class<?> propertyType = metaObject.getSetterType(property);
         if (typeHandlerRegistry.hasTypeHandler(propertyType)) {
           final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
+          if (propertyType.isPrimitive()) {
+            final Boolean found = applyPrimitiveMapping(rsw, resultMap, metaObject, property, typeHandler, columnName);
+            if (found != null) {
+              foundValues = found || foundValues;
+              continue;
+            }
+          }
           //巧妙的用TypeHandler取得结果
-          final Object value = typeHandler.getResult(rsw.getResultSet(), columnName);
+          final Object value = rsw.getResult(typeHandler, columnName);
           // issue #377, call setter on nulls
           if (value != null || configuration.isCallSettersOnNulls()) {
             if (value != null || !propertyType.isPrimitive()) {
@@ -467,6 +648,31 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
+  private boolean isSimpleColumnMapping(ResultMapping propertyMapping) {
+    return propertyMapping.getProperty() != null && propertyMapping.getColumn() != null && !propertyMapping.isCompositeResult()
+        && propertyMapping.getNestedQueryId() == null && propertyMapping.getNestedResultMapId() == null
+        && propertyMapping.getResultSet() == null;
+  }
+
+  //基本类型属性，内置TypeHandler和setter都支持时直接读写，不装箱也不走MetaObject
+  //有嵌套查询的结果对象可能是延迟加载代理，代理要拦截setter，这时走原来的路
+  //返回是否找到值，不适用时返回null，由调用者走原来的路
+  private Boolean applyPrimitiveMapping(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String property, TypeHandler<?> typeHandler, String column)
+      throws SQLException {
+    if (!TypeHandlerRegistry.isPrimitiveTypeHandler(typeHandler) || resultMap.hasNestedQueries() || !(metaObject.getObjectWrapper() instanceof BeanWrapper)
+        || property.indexOf('.') >= 0 || property.indexOf('[') >= 0) {
+      return null;
+    }
+    final int columnIndex = rsw.getColumnIndex(column);
+    final Invoker invoker = ((BeanWrapper) metaObject.getObjectWrapper()).getSetInvoker(property);
+    if (columnIndex < 1 || !(invoker instanceof PrimitiveSetter) || !invoker.getType().isPrimitive()) {
+      return null;
+    }
+    // issue #377, call setter on nulls 对基本类型不会真的去调setter
+    final boolean found = ((PrimitiveTypeHandler) typeHandler).getPrimitiveResult(rsw.getResultSet(), columnIndex, metaObject.getOriginalObject(), (PrimitiveSetter) invoker);
+    return found || configuration.isCallSettersOnNulls();
+  }
+
   // MULTIPLE RESULT SETS
 
   private void linkToParents(ResultSet rs, ResultMapping parentMapping, Object rowValue) throws SQLException {
@@ -606,8 +812,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         final ResultMap resultMap = configuration.getResultMap(constructorMapping.getNestedResultMapId());
         value = getRowValue(rsw, resultMap);
       } else {
-        final TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
-        value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+        final TypeHandler<?> typeHandler = rsw.getTypeHandler(constructorMapping, prependPrefix(column, columnPrefix));
+        value = rsw.getResult(typeHandler, prependPrefix(column, columnPrefix));
       }
       constructorArgTypes.add(parameterType);
       constructorArgs.add(value);
@@ -625,7 +831,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           Class<?> parameterType = constructor.getParameterTypes()[i];
           String columnName = rsw.getColumnNames().get(i);
           TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnName);
-          Object value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(columnName, columnPrefix));
+          Object value = rsw.getResult(typeHandler, prependPrefix(columnName, columnPrefix));
           constructorArgTypes.add(parameterType);
           constructorArgs.add(value);
           foundValues = value != null || foundValues;
@@ -658,7 +864,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       columnName = rsw.getColumnNames().get(0);
     }
     final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
-    return typeHandler.getResult(rsw.getResultSet(), columnName);
+    return rsw.getResult(typeHandler, columnName);
   }
 
   //
@@ -799,10 +1005,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final DefaultResultContext resultContext = new DefaultResultContext();
     skipRows(rsw.getResultSet(), rowBounds);
     Object rowValue = null;
+    int objectsCreated = 0;
     while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
       final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
       Object partialObject = nestedResultObjects.get(rowKey);
+      //多行拼成一个对象，maxRows按顶层对象数而不是行数算
+      if (partialObject == null && parentMapping == null && !acceptNewObject(objectsCreated++)) {
+        break;
+      }
       // issue #577 && #542
       if (mappedStatement.isResultOrdered()) {
         if (partialObject == null && rowValue != null) {
@@ -1000,7 +1211,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
         if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
+          final Object value = rsw.getResult(th, column);
           if (value != null) {
             cacheKey.update(column);
             cacheKey.update(value);
@@ -1024,7 +1235,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
+        String value = rsw.getString(column);
         if (value != null) {
           cacheKey.update(column);
           cacheKey.update(value);
@@ -1036,7 +1247,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
     List<String> columnNames = rsw.getColumnNames();
     for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
+      final String value = rsw.getString(columnName);
       if (value != null) {
         cacheKey.update(columnName);
         cacheKey.update(value);
@@ -22,12 +22,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import org.apache.ibatis.executor.pagination.RownumDialect;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.ObjectTypeHandler;
@@ -45,7 +48,13 @@ class ResultSetWrapper {
   private final List<String> columnNames = new ArrayList<String>();
   private final List<String> classNames = new ArrayList<String>();
   private final List<JdbcType> jdbcTypes = new ArrayList<JdbcType>();
+  //列名(大写，按useColumnLabel取标签或列名) -> 列序号，和ResultSet.getXxx(String)一样取第一个匹配的列
+  private final Map<String, Integer> columnIndexMap = new HashMap<String, Integer>();
+  //按调用时给的列名缓存列序号，避免每行都转大写
+  private final Map<String, Integer> columnIndexCache = new HashMap<String, Integer>();
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<String, Map<Class<?>, TypeHandler<?>>>();
+  //结果映射(按对象本身) -> 列名 -> 解析出的类型处理器，每行不用再逐个比较列名
+  private final Map<ResultMapping, Map<String, TypeHandler<?>>> mappingTypeHandlerMap = new IdentityHashMap<ResultMapping, Map<String, TypeHandler<?>>>();
   private Map<String, List<String>> mappedColumnNamesMap = new HashMap<String, List<String>>();
   private Map<String, List<String>> unMappedColumnNamesMap = new HashMap<String, List<String>>();
 
@@ -54,11 +63,22 @@ class ResultSetWrapper {
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.resultSet = rs;
     final ResultSetMetaData metaData = rs.getMetaData();
-    final int columnCount = metaData.getColumnCount();
+    int columnCount = metaData.getColumnCount();
+    //ROWNUM分页多出来的行号列不是查询本身的列
+    if (columnCount > 1 && RownumDialect.ROW_NUMBER_COLUMN.equalsIgnoreCase(metaData.getColumnLabel(columnCount))) {
+      columnCount--;
+    }
     for (int i = 1; i <= columnCount; i++) {
-      columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
+      final String columnName = configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i);
+      columnNames.add(columnName);
       jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
       classNames.add(metaData.getColumnClassName(i));
+      if (columnName != null) {
+        final String key = columnName.toUpperCase(Locale.ENGLISH);
+        if (!columnIndexMap.containsKey(key)) {
+          columnIndexMap.put(key, i);
+        }
+      }
     }
   }
 
@@ -116,6 +136,75 @@ class ResultSetWrapper {
     return handler;
   }
 
+  /**
+   * Returns the 1-based index of the column with the given name (the label or the column name,
+   * following useColumnLabel), compared case-insensitively like ResultSet.findColumn, or -1 if the
+   * result set has no such column.
+   */
+  public int getColumnIndex(String columnName) {
+    if (columnName == null) {
+      return -1;
+    }
+    Integer index = columnIndexCache.get(columnName);
+    if (index == null) {
+      index = columnIndexMap.get(columnName.toUpperCase(Locale.ENGLISH));
+      if (index == null) {
+        index = -1;
+      }
+      columnIndexCache.put(columnName, index);
+    }
+    return index;
+  }
+
+  /**
+   * Same as getColumnIndex, but -1 for handlers that are not built in: a user handler's
+   * getResult(ResultSet, int) may not read what its getResult(ResultSet, String) reads.
+   */
+  public int getColumnIndex(TypeHandler<?> typeHandler, String columnName) {
+    return TypeHandlerRegistry.isBuiltInTypeHandler(typeHandler) ? getColumnIndex(columnName) : -1;
+  }
+
+  //内置处理器按列序号取值，不用驱动每次按标签找列；找不到的列和自定义处理器还按列名取
+  public Object getResult(TypeHandler<?> typeHandler, String columnName) throws SQLException {
+    final int index = getColumnIndex(typeHandler, columnName);
+    return index > 0 ? typeHandler.getResult(resultSet, index) : typeHandler.getResult(resultSet, columnName);
+  }
+
+  public String getString(String columnName) throws SQLException {
+    final int index = getColumnIndex(columnName);
+    return index > 0 ? resultSet.getString(index) : resultSet.getString(columnName);
+  }
+
+  /**
+   * Gets the type handler of a result mapping. When the mapping only has the UnknownTypeHandler the
+   * handler is resolved once from the column metadata, instead of on every row.
+   */
+  public TypeHandler<?> getTypeHandler(ResultMapping mapping, String columnName) {
+    TypeHandler<?> handler = mapping.getTypeHandler();
+    if (!(handler instanceof UnknownTypeHandler) || columnName == null) {
+      return handler;
+    }
+    Map<String, TypeHandler<?>> columnHandlers = mappingTypeHandlerMap.get(mapping);
+    if (columnHandlers == null) {
+      columnHandlers = new HashMap<String, TypeHandler<?>>();
+      mappingTypeHandlerMap.put(mapping, columnHandlers);
+    }
+    TypeHandler<?> resolved = columnHandlers.get(columnName);
+    if (resolved == null) {
+      //列名大小写可能和元数据不一样，找不到就还用UnknownTypeHandler
+      resolved = handler;
+      for (String name : columnNames) {
+        if (name.equalsIgnoreCase(columnName)) {
+          Class<?> javaType = mapping.getJavaType() == null ? Object.class : mapping.getJavaType();
+          resolved = getTypeHandler(javaType, name);
+          break;
+        }
+      }
+      columnHandlers.put(columnName, resolved);
+    }
+    return resolved;
+  }
+
   private Class<?> resolveClass(String className) {
     try {
       return Resources.classForName(className);
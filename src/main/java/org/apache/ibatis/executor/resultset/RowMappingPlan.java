@@ -0,0 +1,168 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * 并行结果映射时，一个结果映射在一个结果集上的映射计划
+ * 读取线程按计划用TypeHandler把一行需要的列读进Object[]，工作线程按计划创建对象并设置属性
+ * 结果集不是线程安全的，所以读列必须在读取线程；对象创建和反射赋值放到工作线程
+ * 只支持简单的结果映射：没有嵌套结果映射/嵌套查询/构造函数映射/多结果集
+ *
+ */
+class RowMappingPlan {
+
+  private final Configuration configuration;
+  private final ObjectFactory objectFactory;
+  private final Class<?> type;
+  private final String[] columns;
+  //列序号，0表示结果集里找不到或者是自定义处理器，按列名取
+  private final int[] columnIndexes;
+  private final String[] properties;
+  private final TypeHandler<?>[] typeHandlers;
+  //自动映射时已知属性类型，null表示要到赋值时再看
+  private final Boolean[] primitives;
+
+  private RowMappingPlan(Configuration configuration, ResultSetWrapper rsw, Class<?> type, List<String> columns, List<String> properties,
+      List<TypeHandler<?>> typeHandlers, List<Boolean> primitives) {
+    this.configuration = configuration;
+    this.objectFactory = configuration.getObjectFactory();
+    this.type = type;
+    this.columns = columns.toArray(new String[columns.size()]);
+    this.properties = properties.toArray(new String[properties.size()]);
+    this.typeHandlers = typeHandlers.toArray(new TypeHandler<?>[typeHandlers.size()]);
+    this.columnIndexes = new int[this.columns.length];
+    for (int i = 0; i < this.columns.length; i++) {
+      this.columnIndexes[i] = Math.max(0, rsw.getColumnIndex(this.typeHandlers[i], this.columns[i]));
+    }
+    this.primitives = primitives.toArray(new Boolean[primitives.size()]);
+  }
+
+  //不能并行映射的返回null
+  public static RowMappingPlan create(Configuration configuration, ResultSetWrapper rsw, ResultMap resultMap, boolean applyAutomaticMappings)
+      throws SQLException {
+    TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    Class<?> type = resultMap.getType();
+    if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries() || !resultMap.getConstructorResultMappings().isEmpty()
+        || typeHandlerRegistry.hasTypeHandler(type) || !isInstantiable(type)) {
+      return null;
+    }
+    List<String> columns = new ArrayList<String>();
+    List<String> properties = new ArrayList<String>();
+    List<TypeHandler<?>> typeHandlers = new ArrayList<TypeHandler<?>>();
+    List<Boolean> primitives = new ArrayList<Boolean>();
+    //用一个样本对象来解析属性，和DefaultResultSetHandler.applyAutomaticMappings的逻辑一致
+    MetaObject sample = configuration.newMetaObject(configuration.getObjectFactory().create(type));
+    if (applyAutomaticMappings) {
+      for (String columnName : rsw.getUnmappedColumnNames(resultMap, null)) {
+        final String property = sample.findProperty(columnName, configuration.isMapUnderscoreToCamelCase());
+        if (property != null && sample.hasSetter(property)) {
+          final Class<?> propertyType = sample.getSetterType(property);
+          if (typeHandlerRegistry.hasTypeHandler(propertyType)) {
+            columns.add(columnName);
+            properties.add(property);
+            typeHandlers.add(rsw.getTypeHandler(propertyType, columnName));
+            primitives.add(Boolean.valueOf(propertyType.isPrimitive()));
+          }
+        }
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.getResultSet() != null || propertyMapping.isCompositeResult()) {
+        return null;
+      }
+      final String column = propertyMapping.getColumn();
+      if (propertyMapping.getNestedResultMapId() == null && propertyMapping.getProperty() != null
+          && column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        columns.add(column);
+        properties.add(propertyMapping.getProperty());
+        typeHandlers.add(rsw.getTypeHandler(propertyMapping, column));
+        primitives.add(null);
+      }
+    }
+    return new RowMappingPlan(configuration, rsw, type, columns, properties, typeHandlers, primitives);
+  }
+
+  public static boolean shouldApplyAutomaticMappings(Configuration configuration, ResultMap resultMap) {
+    if (resultMap.getAutoMapping() != null) {
+      return resultMap.getAutoMapping();
+    }
+    return AutoMappingBehavior.NONE != configuration.getAutoMappingBehavior();
+  }
+
+  private static boolean isInstantiable(Class<?> type) {
+    if (type.isInterface()) {
+      return true;
+    }
+    if (Modifier.isAbstract(type.getModifiers())) {
+      return false;
+    }
+    try {
+      type.getDeclaredConstructor();
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  //读取线程调用，把当前行需要的列读出来
+  public Object[] readRow(ResultSet rs) throws SQLException {
+    Object[] values = new Object[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      values[i] = columnIndexes[i] > 0 ? typeHandlers[i].getResult(rs, columnIndexes[i]) : typeHandlers[i].getResult(rs, columns[i]);
+    }
+    return values;
+  }
+
+  //工作线程调用，规则和DefaultResultSetHandler.getRowValue一样：一个值都没有就返回null
+  public Object mapRow(Object[] values) {
+    Object resultObject = objectFactory.create(type);
+    MetaObject metaObject = configuration.newMetaObject(resultObject);
+    boolean foundValues = false;
+    for (int i = 0; i < values.length; i++) {
+      Object value = values[i];
+      if (value != null || configuration.isCallSettersOnNulls()) {
+        if (value != null || !isPrimitive(metaObject, i)) {
+          metaObject.setValue(properties[i], value);
+        }
+        foundValues = true;
+      }
+    }
+    return foundValues ? resultObject : null;
+  }
+
+  private boolean isPrimitive(MetaObject metaObject, int index) {
+    Boolean primitive = primitives[index];
+    return primitive != null ? primitive.booleanValue() : metaObject.getSetterType(properties[index]).isPrimitive();
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.scatter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+/**
+ * The order of the rows every part returns, by one or more properties of the result objects (later properties
+ * break ties of earlier ones). Parts are merged so that the merged rows keep this order; nulls come first in
+ * ascending order.
+ * 合并顺序：每个分段的结果已经按这个属性排好序
+ *
+ */
+public final class MergeOrder {
+
+  private final String[] properties;
+  private final boolean descending;
+
+  private MergeOrder(String[] properties, boolean descending) {
+    if (properties.length == 0) {
+      throw new IllegalArgumentException("At least one merge order property is required");
+    }
+    this.properties = properties.clone();
+    this.descending = descending;
+  }
+
+  public static MergeOrder ascending(String... properties) {
+    return new MergeOrder(properties, false);
+  }
+
+  public static MergeOrder descending(String... properties) {
+    return new MergeOrder(properties, true);
+  }
+
+  public String getProperty() {
+    return properties[0];
+  }
+
+  public List<String> getProperties() {
+    return Collections.unmodifiableList(Arrays.asList(properties));
+  }
+
+  public boolean isDescending() {
+    return descending;
+  }
+
+  //取排序值，每行只取一次，多个属性时是数组
+  Object sortValue(Object row) {
+    if (row == null) {
+      return null;
+    }
+    MetaObject metaObject = SystemMetaObject.forObject(row);
+    if (properties.length == 1) {
+      return metaObject.getValue(properties[0]);
+    }
+    Object[] values = new Object[properties.length];
+    for (int i = 0; i < properties.length; i++) {
+      values[i] = metaObject.getValue(properties[i]);
+    }
+    return values;
+  }
+
+  int compare(Object value1, Object value2) {
+    if (properties.length > 1 && value1 != null && value2 != null) {
+      Object[] values1 = (Object[]) value1;
+      Object[] values2 = (Object[]) value2;
+      for (int i = 0; i < values1.length; i++) {
+        int result = compareValues(values1[i], values2[i]);
+        if (result != 0) {
+          return result;
+        }
+      }
+      return 0;
+    }
+    return compareValues(value1, value2);
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private int compareValues(Object value1, Object value2) {
+    int result;
+    if (value1 == null) {
+      result = value2 == null ? 0 : -1;
+    } else if (value2 == null) {
+      result = 1;
+    } else {
+      result = ((Comparable) value1).compareTo(value2);
+    }
+    return descending ? -result : result;
+  }
+
+}
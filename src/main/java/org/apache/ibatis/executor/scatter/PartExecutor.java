@@ -0,0 +1,83 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.scatter;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Runs one part on a connection of its own, and lets another thread cancel the running statement.
+ * 分段执行器：记住正在执行的Statement，超时时由调用线程cancel
+ *
+ */
+class PartExecutor extends SimpleExecutor {
+
+  private final int queryTimeout;
+  private volatile Statement running;
+  private volatile boolean cancelled;
+
+  PartExecutor(Configuration configuration, Transaction transaction, int queryTimeout) {
+    super(configuration, transaction);
+    this.queryTimeout = queryTimeout;
+  }
+
+  @Override
+  public <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+    Statement stmt = null;
+    try {
+      StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
+      stmt = handler.prepare(getConnection(ms.getStatementLog()));
+      //每个分段的超时，比语句自己配置的短才用
+      if (queryTimeout > 0 && (stmt.getQueryTimeout() == 0 || stmt.getQueryTimeout() > queryTimeout)) {
+        stmt.setQueryTimeout(queryTimeout);
+      }
+      handler.parameterize(stmt);
+      running = stmt;
+      //cancel可能赶在Statement登记之前
+      if (cancelled) {
+        throw new ExecutorException("Part of '" + ms.getId() + "' was cancelled.");
+      }
+      return handler.<E>query(stmt, resultHandler);
+    } finally {
+      running = null;
+      closeStatement(stmt);
+    }
+  }
+
+  void cancel() {
+    cancelled = true;
+    Statement stmt = running;
+    if (stmt != null) {
+      try {
+        stmt.cancel();
+      } catch (SQLException e) {
+        // ignore, the statement may have finished meanwhile
+      }
+    }
+  }
+
+}
@@ -0,0 +1,378 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.scatter;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Runs one select as several parts at the same time, for example once per monthly partition table or once per
+ * shard, and merges the rows. Every part runs on its own connection from the environment's transaction factory,
+ * outside of any session, on the {@link Configuration#getScatterGatherExecutorService() scatter-gather pool}.
+ * <p>
+ * Rows are merged by concatenation in part order, by a k-way merge when every part returns its rows in a
+ * {@link MergeOrder}, or into a {@link ResultHandler}. The handler is called by one thread at a time, but rows of
+ * different parts interleave in the order they arrive. When the handler stops the {@link ResultContext}, the parts
+ * still running are cancelled and no further rows reach it.
+ * When a part fails, the {@link #setTimeout(long) timeout} expires or the calling thread is interrupted, the
+ * statements still running are cancelled and parts not started yet are dropped.
+ * Executor plugins do not apply to the parts; statement handler plugins do.
+ * 分发查询：一条语句按参数或数据源分成多段并行执行，再合并结果
+ *
+ */
+public class ScatterGatherExecutor {
+
+  private final Configuration configuration;
+  private final ExecutorService executorService;
+  //整个查询的超时(毫秒)，0不限
+  private long timeout;
+  //每段语句的超时(秒)，0用语句自己的
+  private int partTimeout;
+
+  public ScatterGatherExecutor(Configuration configuration) {
+    this(configuration, configuration.getScatterGatherExecutorService());
+  }
+
+  public ScatterGatherExecutor(Configuration configuration, ExecutorService executorService) {
+    this.configuration = configuration;
+    this.executorService = executorService;
+  }
+
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Milliseconds the whole query may take before the parts still running are cancelled; 0 waits for ever.
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  public int getPartTimeout() {
+    return partTimeout;
+  }
+
+  /**
+   * JDBC query timeout of every part in seconds, applied when shorter than the statement's own; 0 leaves it.
+   */
+  public void setPartTimeout(int partTimeout) {
+    this.partTimeout = partTimeout;
+  }
+
+  /**
+   * Runs the statement once per parameter and concatenates the rows in parameter order.
+   */
+  public <E> List<E> selectList(String statement, List<?> parameters) {
+    return selectList(statement, parameters, null);
+  }
+
+  /**
+   * Runs the statement once per parameter and merges the rows in the given order.
+   */
+  public <E> List<E> selectList(String statement, List<?> parameters, MergeOrder order) {
+    return selectList(statement, parameters, Collections.nCopies(parameters.size(), getDataSource()), order);
+  }
+
+  /**
+   * Runs the statement on every data source and merges the rows in the given order; null concatenates them.
+   */
+  public <E> List<E> selectList(String statement, Object parameter, List<DataSource> dataSources, MergeOrder order) {
+    return selectList(statement, Collections.nCopies(dataSources.size(), parameter), dataSources, order);
+  }
+
+  /**
+   * Runs the statement once per parameter and hands all rows to the handler.
+   */
+  public void select(String statement, List<?> parameters, ResultHandler handler) {
+    select(statement, parameters, Collections.nCopies(parameters.size(), getDataSource()), handler);
+  }
+
+  /**
+   * Runs the statement on every data source and hands all rows to the handler.
+   */
+  public void select(String statement, Object parameter, List<DataSource> dataSources, ResultHandler handler) {
+    select(statement, Collections.nCopies(dataSources.size(), parameter), dataSources, handler);
+  }
+
+  private <E> List<E> selectList(String statement, List<?> parameters, List<DataSource> dataSources, MergeOrder order) {
+    try {
+      MappedStatement ms = configuration.getMappedStatement(statement);
+      List<List<E>> parts = queryParts(ms, parameters, dataSources, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      return merge(parts, order);
+    } catch (Exception e) {
+      throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
+    } finally {
+      ErrorContext.instance().reset();
+    }
+  }
+
+  private void select(String statement, List<?> parameters, List<DataSource> dataSources, ResultHandler handler) {
+    try {
+      MappedStatement ms = configuration.getMappedStatement(statement);
+      queryParts(ms, parameters, dataSources, RowBounds.DEFAULT, handler);
+    } catch (Exception e) {
+      throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
+    } finally {
+      ErrorContext.instance().reset();
+    }
+  }
+
+  /**
+   * Runs part i with parameters[i] on dataSources[i] and returns the rows of every part in part order.
+   * With a result handler the rows go to the handler as they arrive, one row at a time but with the rows of
+   * different parts interleaved, and the returned lists are empty. Stopping the context cancels the other parts.
+   */
+  public <E> List<List<E>> queryParts(final MappedStatement ms, List<?> parameters, List<DataSource> dataSources,
+      final RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+    if (parameters.size() != dataSources.size()) {
+      throw new IllegalArgumentException("Got " + parameters.size() + " parameters for " + dataSources.size() + " data sources");
+    }
+    final int size = parameters.size();
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    final AtomicReferenceArray<PartExecutor> executors = new AtomicReferenceArray<PartExecutor>(size);
+    final SynchronizedResultHandler handler = resultHandler == null ? null : new SynchronizedResultHandler(resultHandler, executors, cancelled);
+    final List<Future<List<E>>> futures = new ArrayList<Future<List<E>>>(size);
+    boolean completed = false;
+    try {
+      for (int i = 0; i < size; i++) {
+        final int part = i;
+        final Object parameter = parameters.get(i);
+        final DataSource dataSource = dataSources.get(i);
+        futures.add(executorService.submit(new Callable<List<E>>() {
+          @Override
+          public List<E> call() throws Exception {
+            return runPart(ms, parameter, dataSource, rowBounds, handler, part, executors, cancelled);
+          }
+        }));
+      }
+      final long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+      List<List<E>> results = new ArrayList<List<E>>(size);
+      for (Future<List<E>> future : futures) {
+        try {
+          results.add(deadline == 0 ? future.get() : future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+        } catch (ExecutionException e) {
+          //处理器叫停后被取消的分段报的错不算失败
+          if (handler == null || !handler.isStopped()) {
+            throw e;
+          }
+          results.add(Collections.<E>emptyList());
+        }
+      }
+      completed = true;
+      return results;
+    } catch (TimeoutException e) {
+      throw new ExecutorException("Scatter-gather query '" + ms.getId() + "' did not finish within " + timeout + " ms.", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while waiting for scatter-gather query '" + ms.getId() + "'.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error running part of scatter-gather query '" + ms.getId() + "'.  Cause: " + cause, cause);
+    } finally {
+      if (!completed) {
+        cancel(futures, executors, cancelled);
+      }
+    }
+  }
+
+  private <E> List<E> runPart(MappedStatement ms, Object parameter, DataSource dataSource, RowBounds rowBounds, ResultHandler handler,
+      int part, AtomicReferenceArray<PartExecutor> executors, AtomicBoolean cancelled) throws SQLException {
+    Transaction transaction = getEnvironment().getTransactionFactory().newTransaction(dataSource, null, true);
+    PartExecutor executor = new PartExecutor(configuration, transaction, partTimeout);
+    executors.set(part, executor);
+    //先登记再看标志，cancel先置标志再找执行器，两边总有一边看得到
+    if (cancelled.get()) {
+      executor.cancel();
+    }
+    try {
+      return executor.query(ms, parameter, rowBounds, handler);
+    } finally {
+      executor.close(false);
+      ErrorContext.instance().reset();
+    }
+  }
+
+  private <E> void cancel(List<Future<List<E>>> futures, AtomicReferenceArray<PartExecutor> executors, AtomicBoolean cancelled) {
+    cancelled.set(true);
+    for (Future<List<E>> future : futures) {
+      future.cancel(false);
+    }
+    cancelRunning(executors);
+  }
+
+  //futures可能还在提交，别的线程只能取消已经登记的执行器，没开始的分段看到cancelled标志自己放弃
+  private static void cancelRunning(AtomicReferenceArray<PartExecutor> executors) {
+    for (int i = 0; i < executors.length(); i++) {
+      PartExecutor executor = executors.get(i);
+      if (executor != null) {
+        executor.cancel();
+      }
+    }
+  }
+
+  private Environment getEnvironment() {
+    Environment environment = configuration.getEnvironment();
+    if (environment == null) {
+      throw new ExecutorException("Scatter-gather queries need an environment to open connections.");
+    }
+    return environment;
+  }
+
+  private DataSource getDataSource() {
+    return getEnvironment().getDataSource();
+  }
+
+  /**
+   * Merges the rows of all parts. Without an order they are concatenated in part order, otherwise every part
+   * must be sorted in that order already and the parts are merged k-way; equal rows keep part order.
+   */
+  public static <E> List<E> merge(List<List<E>> parts, final MergeOrder order) {
+    int total = 0;
+    for (List<E> part : parts) {
+      total += part == null ? 0 : part.size();
+    }
+    List<E> merged = new ArrayList<E>(total);
+    if (order == null || parts.size() < 2) {
+      for (List<E> part : parts) {
+        if (part != null) {
+          merged.addAll(part);
+        }
+      }
+      return merged;
+    }
+    //每段一个游标，堆顶是当前最小的行
+    PriorityQueue<Cursor<E>> heads = new PriorityQueue<Cursor<E>>(parts.size(), new Comparator<Cursor<E>>() {
+      @Override
+      public int compare(Cursor<E> cursor1, Cursor<E> cursor2) {
+        int result = order.compare(cursor1.sortValue, cursor2.sortValue);
+        return result != 0 ? result : cursor1.part - cursor2.part;
+      }
+    });
+    for (int i = 0; i < parts.size(); i++) {
+      if (parts.get(i) != null) {
+        Cursor<E> cursor = new Cursor<E>(i, parts.get(i).iterator());
+        if (cursor.next(order)) {
+          heads.add(cursor);
+        }
+      }
+    }
+    while (!heads.isEmpty()) {
+      Cursor<E> cursor = heads.poll();
+      merged.add(cursor.row);
+      if (cursor.next(order)) {
+        heads.add(cursor);
+      }
+    }
+    return merged;
+  }
+
+  private static class Cursor<E> {
+    private final int part;
+    private final Iterator<E> rows;
+    private E row;
+    private Object sortValue;
+
+    Cursor(int part, Iterator<E> rows) {
+      this.part = part;
+      this.rows = rows;
+    }
+
+    boolean next(MergeOrder order) {
+      if (!rows.hasNext()) {
+        return false;
+      }
+      row = rows.next();
+      sortValue = order.sortValue(row);
+      return true;
+    }
+  }
+
+  //多段同时往一个ResultHandler里送，一次只送一行，各段的行交错到达
+  //处理器叫停后取消其他分段，之后到的行不再送
+  private static class SynchronizedResultHandler implements ResultHandler {
+    private final ResultHandler delegate;
+    private final AtomicReferenceArray<PartExecutor> executors;
+    private final AtomicBoolean cancelled;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean stopped;
+
+    SynchronizedResultHandler(ResultHandler delegate, AtomicReferenceArray<PartExecutor> executors, AtomicBoolean cancelled) {
+      this.delegate = delegate;
+      this.executors = executors;
+      this.cancelled = cancelled;
+    }
+
+    @Override
+    public void handleResult(ResultContext context) {
+      lock.lock();
+      try {
+        if (!stopped) {
+          delegate.handleResult(context);
+          if (!context.isStopped()) {
+            return;
+          }
+          stopped = true;
+          cancelled.set(true);
+          cancelRunning(executors);
+        }
+        context.stop();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    boolean isStopped() {
+      return stopped;
+    }
+  }
+
+}
@@ -27,8 +27,10 @@ import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.MaxRowsExceededBehavior;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.TypeHandlerRegistry;
@@ -98,6 +100,8 @@ public abstract class BaseStatementHandler implements StatementHandler {
       setStatementTimeout(statement);
       //设置读取条数
       setFetchSize(statement);
+      //设置最多读取的行数
+      setMaxRows(statement);
       return statement;
     } catch (SQLException e) {
       closeStatement(statement);
@@ -125,8 +129,35 @@ public abstract class BaseStatementHandler implements StatementHandler {
   //设置读取条数,其实就是调用Statement.setFetchSize
   protected void setFetchSize(Statement stmt) throws SQLException {
     Integer fetchSize = mappedStatement.getFetchSize();
+    Integer defaultFetchSize = configuration.getDefaultFetchSize();
     if (fetchSize != null) {
       stmt.setFetchSize(fetchSize);
+    } else if (defaultFetchSize != null) {
+      stmt.setFetchSize(defaultFetchSize);
+    }
+  }
+
+  //设置最多读取的行数,其实就是调用Statement.setMaxRows
+  //让驱动在服务端就截断，不必把多余的行拉到客户端再丢掉
+  protected void setMaxRows(Statement stmt) throws SQLException {
+    if (mappedStatement.getSqlCommandType() != SqlCommandType.SELECT) {
+      return;
+    }
+    long jdbcMaxRows = 0;
+    Integer maxRows = mappedStatement.getMaxRows() != null ? mappedStatement.getMaxRows() : configuration.getDefaultMaxRows();
+    //嵌套结果映射的maxRows按对象计数，由结果集处理器限制，不能交给驱动按行截断
+    if (maxRows != null && maxRows > 0 && !mappedStatement.hasNestedResultMaps()) {
+      //FAIL时多读一行，用来判断是否超出
+      jdbcMaxRows = (long) rowBounds.getOffset() + maxRows
+          + (configuration.getMaxRowsExceededBehavior() == MaxRowsExceededBehavior.FAIL ? 1 : 0);
+    }
+    //嵌套结果映射时行和对象不是一一对应的，RowBounds不能换算成行数
+    if (rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT && !mappedStatement.hasNestedResultMaps()) {
+      long rowBoundsMaxRows = (long) rowBounds.getOffset() + rowBounds.getLimit();
+      jdbcMaxRows = jdbcMaxRows == 0 ? rowBoundsMaxRows : Math.min(jdbcMaxRows, rowBoundsMaxRows);
+    }
+    if (jdbcMaxRows > 0 && jdbcMaxRows < Integer.MAX_VALUE) {
+      stmt.setMaxRows((int) jdbcMaxRows);
     }
   }
 
@@ -0,0 +1,144 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.index;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import org.apache.ibatis.io.PackageIndex;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * 构建期生成包索引的注解处理器
+ * 把本模块编译的每个类(包括成员类)连同接口、抽象类、成员类、TypeHandler实现等标记
+ * 写到META-INF/mybatis/package-index，并用package行声明这些类所在的包已完整收录，
+ * 运行时ResolverUtil查到声明过的包就不再扫描类路径。
+ * 索引反映的是一次完整编译的结果，增量编译只编了部分类时要重新完整构建。
+ * <p>
+ * The processor is not registered as a service, so it never runs on its own for modules that depend on MyBatis.
+ * Enable it for the module holding the aliases, type handlers and mappers with
+ * {@code javac -processor org.apache.ibatis.index.PackageIndexProcessor}
+ * (with Maven, list it under the compiler plugin's {@code annotationProcessors}).
+ * Naming processors explicitly turns off discovery, so other processors of that module have to be listed as well.
+ *
+ */
+@SupportedAnnotationTypes("*")
+public class PackageIndexProcessor extends AbstractProcessor {
+
+  private static final String RESOURCE = PackageIndex.RESOURCE;
+  private static final String TYPE_HANDLER = TypeHandler.class.getName();
+
+  //二进制类名 -> 标记，TreeMap让输出稳定
+  private final Map<String, String> entries = new TreeMap<String, String>();
+  //本次编译的类所在的包
+  private final Set<String> packages = new TreeSet<String>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      writeIndex();
+    } else {
+      TypeMirror typeHandler = typeHandlerType();
+      for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+        PackageElement typePackage = processingEnv.getElementUtils().getPackageOf(type);
+        if (!typePackage.isUnnamed()) {
+          packages.add(typePackage.getQualifiedName().toString());
+        }
+        addType(type, typeHandler);
+      }
+    }
+    //不认领任何注解，别的处理器照常工作
+    return false;
+  }
+
+  private TypeMirror typeHandlerType() {
+    TypeElement element = processingEnv.getElementUtils().getTypeElement(TYPE_HANDLER);
+    return element == null ? null : processingEnv.getTypeUtils().erasure(element.asType());
+  }
+
+  private void addType(TypeElement type, TypeMirror typeHandler) {
+    StringBuilder flags = new StringBuilder();
+    if (type.getKind().isInterface()) {
+      flags.append(" interface");
+    }
+    if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+      flags.append(" abstract");
+    }
+    if (type.getNestingKind() == NestingKind.MEMBER) {
+      flags.append(" member");
+    }
+    if (typeHandler != null && processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type.asType()), typeHandler)) {
+      flags.append(" typeHandler");
+    }
+    entries.put(processingEnv.getElementUtils().getBinaryName(type).toString(), flags.toString());
+    for (Element enclosed : type.getEnclosedElements()) {
+      if (enclosed instanceof TypeElement) {
+        addType((TypeElement) enclosed, typeHandler);
+      }
+    }
+  }
+
+  private void writeIndex() {
+    if (entries.isEmpty()) {
+      return;
+    }
+    try {
+      FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", RESOURCE);
+      Writer writer = new OutputStreamWriter(resource.openOutputStream(), "UTF-8");
+      try {
+        writer.write("# Generated by " + getClass().getName() + ", do not edit\n");
+        for (String typePackage : packages) {
+          writer.write("package " + typePackage + "\n");
+        }
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+          writer.write(entry.getKey());
+          writer.write(entry.getValue());
+          writer.write('\n');
+        }
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + RESOURCE + ": " + e);
+    }
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Build-time index of the classes found in the class path, written by the
+ * {@link org.apache.ibatis.index.PackageIndexProcessor} annotation processor to {@value #RESOURCE}. A {@code package} line names a package the index lists
+ * completely. Every other line holds a binary class name followed by optional flags: {@code interface},
+ * {@code abstract}, {@code member} and {@code typeHandler}.
+ * 构建期生成的类索引，ResolverUtil先查它，查不到再用VFS扫描
+ * 每个索引只对它所在的类路径根(目录或jar)负责，包出现在没有索引或索引没声明它的根里就要扫描
+ *
+ */
+public class PackageIndex {
+
+  private static final Log log = LogFactory.getLog(PackageIndex.class);
+
+  public static final String RESOURCE = "META-INF/mybatis/package-index";
+
+  //每个类加载器只读一次索引
+  private static final Map<ClassLoader, PackageIndex> INSTANCES = new WeakHashMap<ClassLoader, PackageIndex>();
+
+  private final ClassLoader classLoader;
+  //类路径根 -> 这个根里的索引声明完整收录的包
+  private final Map<String, Set<String>> coveredPackages;
+  private final List<Entry> entries;
+
+  PackageIndex(ClassLoader classLoader, Map<String, Set<String>> coveredPackages, List<Entry> entries) {
+    this.classLoader = classLoader;
+    this.coveredPackages = coveredPackages;
+    this.entries = entries;
+  }
+
+  public static PackageIndex getInstance(ClassLoader classLoader) {
+    synchronized (INSTANCES) {
+      PackageIndex index = INSTANCES.get(classLoader);
+      if (index == null) {
+        index = load(classLoader);
+        INSTANCES.put(classLoader, index);
+      }
+      return index;
+    }
+  }
+
+  /**
+   * Returns the indexed classes of the package and its sub packages, or null when the package has to
+   * be scanned. The index is used only if every class path root holding the package has an index that
+   * lists exactly this package; the same roots are the ones a VFS scan would visit.
+   */
+  public List<Entry> list(String packageName) {
+    if (coveredPackages.isEmpty()) {
+      return null;
+    }
+    String path = packageName.replace('.', '/');
+    try {
+      Enumeration<URL> urls = classLoader.getResources(path);
+      if (!urls.hasMoreElements()) {
+        return null;
+      }
+      while (urls.hasMoreElements()) {
+        Set<String> packages = coveredPackages.get(getRoot(urls.nextElement().toString(), path));
+        if (packages == null || !packages.contains(packageName)) {
+          return null;
+        }
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    String prefix = packageName + ".";
+    List<Entry> result = new ArrayList<Entry>();
+    for (Entry entry : entries) {
+      if (entry.getClassName().startsWith(prefix)) {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  private static PackageIndex load(ClassLoader classLoader) {
+    Map<String, Set<String>> coveredPackages = new HashMap<String, Set<String>>();
+    List<Entry> entries = new ArrayList<Entry>();
+    try {
+      Enumeration<URL> urls = classLoader.getResources(RESOURCE);
+      while (urls.hasMoreElements()) {
+        URL url = urls.nextElement();
+        log.debug("Reading package index " + url);
+        Set<String> packages = new HashSet<String>();
+        read(url.openStream(), packages, entries);
+        coveredPackages.put(getRoot(url.toString(), RESOURCE), packages);
+      }
+    } catch (IOException e) {
+      //索引读不了就当没有，退回到扫描
+      log.warn("Could not read package index. Cause: " + e);
+      return new PackageIndex(classLoader, Collections.<String, Set<String>>emptyMap(), Collections.<Entry>emptyList());
+    }
+    return new PackageIndex(classLoader, coveredPackages, entries);
+  }
+
+  //去掉资源路径，剩下类路径根的URL，比如jar:file:/a.jar!/或file:/classes/
+  private static String getRoot(String url, String path) {
+    if (url.endsWith("/")) {
+      url = url.substring(0, url.length() - 1);
+    }
+    return url.endsWith(path) ? url.substring(0, url.length() - path.length()) : url;
+  }
+
+  static void read(InputStream inputStream, Set<String> packages, List<Entry> entries) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.length() == 0 || line.startsWith("#")) {
+          continue;
+        }
+        String[] tokens = line.split("\\s+");
+        //package是关键字，不会和类名冲突
+        if ("package".equals(tokens[0])) {
+          if (tokens.length > 1) {
+            packages.add(tokens[1]);
+          }
+          continue;
+        }
+        Entry entry = new Entry(tokens[0]);
+        for (int i = 1; i < tokens.length; i++) {
+          if ("interface".equals(tokens[i])) {
+            entry.isInterface = true;
+          } else if ("abstract".equals(tokens[i])) {
+            entry.isAbstract = true;
+          } else if ("member".equals(tokens[i])) {
+            entry.isMember = true;
+          } else if ("typeHandler".equals(tokens[i])) {
+            entry.isTypeHandler = true;
+          }
+        }
+        entries.add(entry);
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * A class listed in the index.
+   */
+  public static class Entry {
+    private final String className;
+    private boolean isInterface;
+    private boolean isAbstract;
+    private boolean isMember;
+    private boolean isTypeHandler;
+
+    Entry(String className) {
+      this.className = className;
+    }
+
+    //二进制类名，成员类用$分隔
+    public String getClassName() {
+      return className;
+    }
+
+    public boolean isInterface() {
+      return isInterface;
+    }
+
+    public boolean isAbstract() {
+      return isAbstract;
+    }
+
+    public boolean isMember() {
+      return isMember;
+    }
+
+    //实现了org.apache.ibatis.type.TypeHandler
+    public boolean isTypeHandler() {
+      return isTypeHandler;
+    }
+  }
+
+}
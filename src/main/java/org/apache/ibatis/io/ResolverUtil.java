@@ -76,6 +76,17 @@ public class ResolverUtil<T> {
     boolean matches(Class<?> type);
   }
 
+  /**
+   * A Test that can reject classes using only the flags of the build-time {@link PackageIndex},
+   * so that rejected classes are never loaded.
+   */
+  public static interface IndexedTest extends Test {
+    /**
+     * Returns false if the indexed class can not match, true if it has to be loaded and matched.
+     */
+    boolean mayMatch(PackageIndex.Entry entry);
+  }
+
   /**
    * A Test that checks to see if each class is assignable to the provided class. Note
    * that this test will match the parent type itself if it is presented for matching.
@@ -217,6 +228,11 @@ public class ResolverUtil<T> {
    */
   //主要的方法，找一个package下满足条件的所有类,被TypeHanderRegistry,MapperRegistry,TypeAliasRegistry调用
   public ResolverUtil<T> find(Test test, String packageName) {
+    //构建期索引里有这个包就不用扫描了
+    if (findInIndex(test, packageName)) {
+      return this;
+    }
+
     String path = getPackagePath(packageName);
 
     try {
@@ -234,6 +250,27 @@ public class ResolverUtil<T> {
     return this;
   }
 
+  /**
+   * Looks the package up in the build-time {@link PackageIndex}. Returns false if the index does
+   * not cover the package and it has to be scanned.
+   */
+  protected boolean findInIndex(Test test, String packageName) {
+    ClassLoader loader = getClassLoader();
+    if (loader == null || packageName == null) {
+      return false;
+    }
+    List<PackageIndex.Entry> entries = PackageIndex.getInstance(loader).list(packageName);
+    if (entries == null) {
+      return false;
+    }
+    for (PackageIndex.Entry entry : entries) {
+      if (!(test instanceof IndexedTest) || ((IndexedTest) test).mayMatch(entry)) {
+        addIfMatching(test, entry.getClassName().replace('.', '/') + ".class");
+      }
+    }
+    return true;
+  }
+
   /**
    * Converts a Java package name to a path that can be looked up with a call to
    * {@link ClassLoader#getResources(String)}.
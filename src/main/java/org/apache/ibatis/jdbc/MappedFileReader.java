@@ -0,0 +1,120 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.jdbc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 内存映射文件的Reader
+ * 文件按区段映射进来，直接解码到调用方的缓冲区，不经过堆上的字节缓冲，也不把整个文件读进内存
+ *
+ */
+class MappedFileReader extends Reader {
+
+  //每次映射64M，超过2G的文件也能读
+  static final long DEFAULT_REGION_SIZE = 64L * 1024 * 1024;
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final long size;
+  private final long regionSize;
+  private final CharsetDecoder decoder;
+  private long regionStart;
+  private MappedByteBuffer region;
+  private boolean flushed;
+  //调用方缓冲区只剩1个字符时，代理对要先解码到这里再一个一个给出去
+  private final CharBuffer pending = (CharBuffer) CharBuffer.allocate(2).flip();
+
+  MappedFileReader(File file, Charset charset) throws IOException {
+    this(file, charset, DEFAULT_REGION_SIZE);
+  }
+
+  MappedFileReader(File file, Charset charset, long regionSize) throws IOException {
+    this.file = new RandomAccessFile(file, "r");
+    this.channel = this.file.getChannel();
+    this.size = channel.size();
+    this.regionSize = regionSize;
+    this.decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    map(0);
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (region == null) {
+      throw new IOException("Reader is closed.");
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (!pending.hasRemaining() && len == 1) {
+      pending.clear();
+      decode(pending);
+      pending.flip();
+    }
+    if (pending.hasRemaining()) {
+      cbuf[off] = pending.get();
+      return 1;
+    }
+    return decode(CharBuffer.wrap(cbuf, off, len));
+  }
+
+  private int decode(CharBuffer out) throws IOException {
+    int off = out.position();
+    while (!flushed && out.position() == off) {
+      boolean lastRegion = regionStart + region.limit() >= size;
+      CoderResult result = decoder.decode(region, out, lastRegion);
+      if (result.isError()) {
+        result.throwException();
+      }
+      if (out.position() > off || !result.isUnderflow()) {
+        break;
+      }
+      if (!lastRegion) {
+        //区段末尾可能是半个字符，从没解码的位置开始映射下一段
+        map(regionStart + region.position());
+      } else {
+        decoder.flush(out);
+        flushed = true;
+      }
+    }
+    int count = out.position() - off;
+    return count == 0 ? -1 : count;
+  }
+
+  private void map(long position) throws IOException {
+    regionStart = position;
+    region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position));
+  }
+
+  @Override
+  public void close() throws IOException {
+    region = null;
+    file.close();
+  }
+
+}
@@ -16,14 +16,32 @@
 package org.apache.ibatis.jdbc;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.io.Resources;
 
 /**
  * @author Clinton Begin
@@ -52,6 +70,11 @@ public class ScriptRunner {
   private String delimiter = DEFAULT_DELIMITER;
   private boolean fullLineDelimiter = false;
 
+  //大于0时，连续的DML语句攒成JDBC批处理执行
+  private int batchSize;
+  private Statement batchStatement;
+  private final List<String> batchedCommands = new ArrayList<String>();
+
   public ScriptRunner(Connection connection) {
     this.connection = connection;
   }
@@ -95,6 +118,123 @@ public class ScriptRunner {
     this.fullLineDelimiter = fullLineDelimiter;
   }
 
+  /**
+   * Groups up to this many consecutive INSERT/UPDATE/DELETE/MERGE commands into one JDBC batch.
+   * Any other command executes the pending batch first. 0 (the default) executes every command on its own.
+   * When a batch fails and stopOnError is false, the commands the driver reports as not executed
+   * (via {@link BatchUpdateException#getUpdateCounts()}) are run again one by one so that each failure is reported on its own;
+   * a batch that fails with any other exception is only reported.
+   * 批处理大小，用于装载大量数据的脚本
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Runs a script file, reading it through a memory mapping instead of a buffered stream.
+   * The file is decoded with {@link Resources#getCharset()}, or the platform charset when none is set.
+   */
+  public void runScript(File script) {
+    Reader reader;
+    try {
+      reader = new MappedFileReader(script, getCharset());
+    } catch (IOException e) {
+      throw new RuntimeSqlException("Could not open script " + script + ".  Cause: " + e, e);
+    }
+    try {
+      runScript(reader);
+    } finally {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+  /**
+   * Runs independent script files in parallel, each on its own connection from the data source and with this
+   * runner's settings. Scripts that depend on each other (a schema and its data) must not be run this way.
+   * If a script fails the scripts that have not started yet are skipped, and the first failure is thrown
+   * once the running ones have finished.
+   * 并行运行互不依赖的脚本
+   */
+  public void runScripts(final DataSource dataSource, List<File> scripts, int threads) {
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, scripts.size())), new ThreadFactory() {
+      private final AtomicInteger threadNumber = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mybatis-script-runner-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (final File script : scripts) {
+        futures.add(executorService.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws SQLException {
+            ScriptRunner runner = copy(dataSource.getConnection());
+            try {
+              runner.runScript(script);
+            } finally {
+              runner.closeConnection();
+            }
+            return null;
+          }
+        }));
+      }
+      RuntimeSqlException failure = null;
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (CancellationException e) {
+          //前面的脚本失败了，没有运行
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            Throwable cause = e.getCause();
+            failure = cause instanceof RuntimeSqlException ? (RuntimeSqlException) cause
+                : new RuntimeSqlException("Error running script " + scripts.get(i) + ".  Cause: " + cause, cause);
+            for (Future<?> future : futures) {
+              future.cancel(false);
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeSqlException("Interrupted while running scripts.", e);
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  //同样设置的运行器，用在另一个连接上
+  private ScriptRunner copy(Connection connection) {
+    ScriptRunner runner = new ScriptRunner(connection);
+    runner.stopOnError = stopOnError;
+    runner.autoCommit = autoCommit;
+    runner.sendFullScript = sendFullScript;
+    runner.removeCRs = removeCRs;
+    runner.escapeProcessing = escapeProcessing;
+    runner.logWriter = logWriter;
+    runner.errorLogWriter = errorLogWriter;
+    runner.delimiter = delimiter;
+    runner.fullLineDelimiter = fullLineDelimiter;
+    runner.batchSize = batchSize;
+    return runner;
+  }
+
+  private static Charset getCharset() {
+    Charset charset = Resources.getCharset();
+    return charset == null ? Charset.defaultCharset() : charset;
+  }
+
   public void runScript(Reader reader) {
     setAutoCommit();
 
@@ -135,12 +275,15 @@ public class ScriptRunner {
       while ((line = lineReader.readLine()) != null) {
         command = handleLine(command, line);
       }
+      executeBatch();
       commitConnection();
       checkForMissingLineTerminator(command);
     } catch (Exception e) {
       String message = "Error executing: " + command + ".  Cause: " + e;
       printlnError(message);
       throw new RuntimeSqlException(message, e);
+    } finally {
+      closeBatchStatement();
     }
   }
 
@@ -198,7 +341,7 @@ public class ScriptRunner {
       command.append(line.substring(0, line.lastIndexOf(delimiter)));
       command.append(LINE_SEPARATOR);
       println(command);
-      executeStatement(command.toString());
+      executeCommand(command.toString());
       command.setLength(0);
     } else if (trimmedLine.length() > 0) {
       //没有分号，先加入，等后面的分号
@@ -217,16 +360,98 @@ public class ScriptRunner {
     return !fullLineDelimiter && trimmedLine.contains(delimiter) || fullLineDelimiter && trimmedLine.equals(delimiter);
   }
 
+  //DML语句进批处理，其他语句先把攒着的批处理执行掉，DDL要能看到前面插入的数据
+  private void executeCommand(String command) throws SQLException {
+    if (batchSize > 0 && isBatchable(command)) {
+      if (batchStatement == null) {
+        batchStatement = connection.createStatement();
+        batchStatement.setEscapeProcessing(escapeProcessing);
+      }
+      batchStatement.addBatch(toSql(command));
+      batchedCommands.add(command);
+      if (batchedCommands.size() >= batchSize) {
+        executeBatch();
+      }
+    } else {
+      executeBatch();
+      executeStatement(command);
+    }
+  }
+
+  private boolean isBatchable(String command) {
+    String sql = command.trim();
+    int end = 0;
+    while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+      end++;
+    }
+    String keyword = sql.substring(0, end);
+    return "INSERT".equalsIgnoreCase(keyword) || "UPDATE".equalsIgnoreCase(keyword)
+        || "DELETE".equalsIgnoreCase(keyword) || "MERGE".equalsIgnoreCase(keyword);
+  }
+
+  private void executeBatch() throws SQLException {
+    if (batchedCommands.isEmpty()) {
+      return;
+    }
+    List<String> commands = new ArrayList<String>(batchedCommands);
+    batchedCommands.clear();
+    try {
+      batchStatement.executeBatch();
+    } catch (SQLException e) {
+      String message = "Error executing batch of " + commands.size() + " statements ending with: " + commands.get(commands.size() - 1) + ".  Cause: " + e;
+      if (stopOnError) {
+        throw new SQLException(message, e);
+      }
+      printlnError(message);
+      executeFailedCommands(commands, e);
+    } finally {
+      batchStatement.clearBatch();
+    }
+  }
+
+  //批处理失败后逐条重跑没成功的语句，每条失败的语句单独报告
+  //驱动在失败处停下时，计数比语句少，后面的语句都没执行；不是BatchUpdateException就不知道哪些执行过了，不重跑
+  private void executeFailedCommands(List<String> commands, SQLException e) throws SQLException {
+    if (!(e instanceof BatchUpdateException)) {
+      return;
+    }
+    int[] counts = ((BatchUpdateException) e).getUpdateCounts();
+    if (counts == null) {
+      return;
+    }
+    for (int i = 0; i < commands.size(); i++) {
+      if (i >= counts.length || counts[i] == Statement.EXECUTE_FAILED) {
+        executeStatement(commands.get(i));
+      }
+    }
+  }
+
+  private void closeBatchStatement() {
+    if (batchStatement != null) {
+      try {
+        batchStatement.close();
+      } catch (Exception e) {
+        // ignore
+      }
+      batchStatement = null;
+      batchedCommands.clear();
+    }
+  }
+
+  private String toSql(String command) {
+    if (removeCRs) {
+      //  \r\n 和 \n  都可以达到换行的目的，但是和操作系统有关，  \r--mac  \n--unix linux  \r\n---windows
+      return command.replaceAll("\r\n", "\n");
+    }
+    return command;
+  }
+
   private void executeStatement(String command) throws SQLException {
     //就是用最简单的JDBC来执行
     boolean hasResults = false;
     Statement statement = connection.createStatement();
     statement.setEscapeProcessing(escapeProcessing);
-    String sql = command;
-    if (removeCRs) {
-      //  \r\n 和 \n  都可以达到换行的目的，但是和操作系统有关，  \r--mac  \n--unix linux  \r\n---windows
-      sql = sql.replaceAll("\r\n", "\n");
-    }
+    String sql = toSql(command);
     if (stopOnError) {
       hasResults = statement.execute(sql);
     } else {
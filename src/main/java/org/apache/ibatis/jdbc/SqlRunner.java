@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.jdbc;
 
+import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -24,11 +25,15 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
+import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
@@ -43,9 +48,29 @@ public class SqlRunner {
 
   public static final int NO_GENERATED_KEY = Integer.MIN_VALUE + 1001;
 
+  //要返回自增主键的语句和普通语句分开缓存
+  private static final String GENERATED_KEYS_PREFIX = "RETURN_GENERATED_KEYS:";
+
   private Connection connection;
   private TypeHandlerRegistry typeHandlerRegistry;
   private boolean useGeneratedKeySupport;
+  private int statementCacheSize;
+
+  //按最近使用排序的语句缓存，超出大小时关掉最久没用的
+  private final Map<String, CachedStatement> statementCache = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+      if (size() > statementCacheSize) {
+        closeStatement(eldest.getValue().statement);
+        return true;
+      }
+      return false;
+    }
+  };
+  //列的java类名到TypeHandler，省得每次查询都去加载类
+  private final Map<String, TypeHandler<?>> columnTypeHandlers = new HashMap<String, TypeHandler<?>>();
 
   public SqlRunner(Connection connection) {
     this.connection = connection;
@@ -56,6 +81,28 @@ public class SqlRunner {
     this.useGeneratedKeySupport = useGeneratedKeySupport;
   }
 
+  /**
+   * Keeps up to this many prepared statements open on the connection, keyed by SQL, together with the column
+   * labels and type handlers of their results. 0 (the default) prepares and closes a statement per call.
+   * 语句缓存大小，反复执行同样SQL的报表工具可以打开
+   */
+  public void setStatementCacheSize(int statementCacheSize) {
+    this.statementCacheSize = statementCacheSize;
+    if (statementCache.size() > statementCacheSize) {
+      clearStatementCache();
+    }
+  }
+
+  /**
+   * Closes every cached statement, for example after DDL changed the tables they read.
+   */
+  public void clearStatementCache() {
+    for (CachedStatement cached : statementCache.values()) {
+      closeStatement(cached.statement);
+    }
+    statementCache.clear();
+  }
+
   /*
    * Executes a SELECT statement that returns one row.
    *
@@ -81,17 +128,59 @@ public class SqlRunner {
    * @throws SQLException If statement preparation or execution fails
    */
   public List<Map<String, Object>> selectAll(String sql, Object... args) throws SQLException {
-    PreparedStatement ps = connection.prepareStatement(sql);
+    CachedStatement cached = borrowStatement(sql, false);
     try {
-      setParameters(ps, args);
-      ResultSet rs = ps.executeQuery();
-      return getResults(rs);
+      setParameters(cached.statement, args);
+      ResultSet rs = cached.statement.executeQuery();
+      return getResults(rs, cached);
     } finally {
-      try {
-        ps.close();
-      } catch (SQLException e) {
-        //ignore
+      releaseStatement(sql, cached);
+    }
+  }
+
+  /*
+   * Executes a SELECT statement and hands the rows to the handler one at a time, without keeping them.
+   * Calling stop() on the result context ends the query early.
+   *
+   * @param sql     The SQL
+   * @param handler Receives each row as a Map
+   * @param args    The arguments to be set on the statement.
+   * @throws SQLException If statement preparation or execution fails
+   */
+  public void select(String sql, ResultHandler handler, Object... args) throws SQLException {
+    RowIterator rows = iterate(sql, args);
+    try {
+      DefaultResultContext context = new DefaultResultContext();
+      while (!context.isStopped() && rows.hasNextRow()) {
+        context.nextResultObject(rows.nextRow());
+        handler.handleResult(context);
       }
+    } finally {
+      rows.close();
+    }
+  }
+
+  /*
+   * Executes a SELECT statement and returns an iterator that reads one row at a time from the open result set.
+   * The iterator closes itself after the last row; close it explicitly when stopping early.
+   *
+   * @param sql  The SQL
+   * @param args The arguments to be set on the statement.
+   * @return The rows, read as they are iterated.
+   * @throws SQLException If statement preparation or execution fails
+   */
+  public RowIterator iterate(String sql, Object... args) throws SQLException {
+    CachedStatement cached = borrowStatement(sql, false);
+    try {
+      setParameters(cached.statement, args);
+      ResultSet rs = cached.statement.executeQuery();
+      return new RowIterator(sql, cached, rs, getColumns(rs, cached));
+    } catch (SQLException e) {
+      releaseStatement(sql, cached);
+      throw e;
+    } catch (RuntimeException e) {
+      releaseStatement(sql, cached);
+      throw e;
     }
   }
 
@@ -104,18 +193,14 @@ public class SqlRunner {
    * @throws SQLException If statement preparation or execution fails
    */
   public int insert(String sql, Object... args) throws SQLException {
-    PreparedStatement ps;
-    if (useGeneratedKeySupport) {
-      ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-    } else {
-      ps = connection.prepareStatement(sql);
-    }
+    CachedStatement cached = borrowStatement(sql, useGeneratedKeySupport);
+    PreparedStatement ps = cached.statement;
 
     try {
       setParameters(ps, args);
       ps.executeUpdate();
       if (useGeneratedKeySupport) {
-        List<Map<String, Object>> keys = getResults(ps.getGeneratedKeys());
+        List<Map<String, Object>> keys = getResults(ps.getGeneratedKeys(), null);
         if (keys.size() == 1) {
           Map<String, Object> key = keys.get(0);
           Iterator<Object> i = key.values().iterator();
@@ -133,14 +218,22 @@ public class SqlRunner {
       }
       return NO_GENERATED_KEY;
     } finally {
-      try {
-        ps.close();
-      } catch (SQLException e) {
-        //ignore
-      }
+      releaseStatement(useGeneratedKeySupport ? GENERATED_KEYS_PREFIX + sql : sql, cached);
     }
   }
 
+  /*
+   * Executes an INSERT statement once per argument array as a single JDBC batch.
+   *
+   * @param sql      The SQL
+   * @param argsList The arguments of each execution.
+   * @return The update counts returned by the driver, one per argument array.
+   * @throws SQLException If statement preparation or execution fails
+   */
+  public int[] insertBatch(String sql, List<Object[]> argsList) throws SQLException {
+    return updateBatch(sql, argsList);
+  }
+
   /*
    * Executes an UPDATE statement.
    *
@@ -150,16 +243,39 @@ public class SqlRunner {
    * @throws SQLException If statement preparation or execution fails
    */
   public int update(String sql, Object... args) throws SQLException {
-    PreparedStatement ps = connection.prepareStatement(sql);
+    CachedStatement cached = borrowStatement(sql, false);
     try {
-      setParameters(ps, args);
-      return ps.executeUpdate();
+      setParameters(cached.statement, args);
+      return cached.statement.executeUpdate();
+    } finally {
+      releaseStatement(sql, cached);
+    }
+  }
+
+  /*
+   * Executes an UPDATE statement once per argument array as a single JDBC batch.
+   *
+   * @param sql      The SQL
+   * @param argsList The arguments of each execution.
+   * @return The update counts returned by the driver, one per argument array.
+   * @throws SQLException If statement preparation or execution fails
+   */
+  public int[] updateBatch(String sql, List<Object[]> argsList) throws SQLException {
+    CachedStatement cached = borrowStatement(sql, false);
+    try {
+      for (Object[] args : argsList) {
+        setParameters(cached.statement, args);
+        cached.statement.addBatch();
+      }
+      return cached.statement.executeBatch();
     } finally {
+      //失败时批里可能还有没执行的参数，不能留给下次用
       try {
-        ps.close();
+        cached.statement.clearBatch();
       } catch (SQLException e) {
         //ignore
       }
+      releaseStatement(sql, cached);
     }
   }
 
@@ -175,6 +291,18 @@ public class SqlRunner {
     return update(sql, args);
   }
 
+  /*
+   * Executes a DELETE statement once per argument array as a single JDBC batch.
+   *
+   * @param sql      The SQL
+   * @param argsList The arguments of each execution.
+   * @return The update counts returned by the driver, one per argument array.
+   * @throws SQLException If statement preparation or execution fails
+   */
+  public int[] deleteBatch(String sql, List<Object[]> argsList) throws SQLException {
+    return updateBatch(sql, argsList);
+  }
+
   /*
    * Executes any string as a JDBC Statement.
    * Good for DDL
@@ -196,6 +324,7 @@ public class SqlRunner {
   }
 
   public void closeConnection() {
+    clearStatementCache();
     try {
       connection.close();
     } catch (SQLException e) {
@@ -222,36 +351,41 @@ public class SqlRunner {
     }
   }
 
+  //从缓存里取出语句，用完再放回去，所以迭代器还开着时同样的SQL会另外准备一个语句
+  private CachedStatement borrowStatement(String sql, boolean generatedKeys) throws SQLException {
+    CachedStatement cached = statementCache.remove(generatedKeys ? GENERATED_KEYS_PREFIX + sql : sql);
+    if (cached == null) {
+      PreparedStatement ps = generatedKeys
+          ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+          : connection.prepareStatement(sql);
+      cached = new CachedStatement(ps);
+    }
+    return cached;
+  }
+
+  private void releaseStatement(String key, CachedStatement cached) {
+    if (statementCacheSize > 0 && !statementCache.containsKey(key)) {
+      statementCache.put(key, cached);
+    } else {
+      closeStatement(cached.statement);
+    }
+  }
+
+  private static void closeStatement(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      //ignore
+    }
+  }
+
   //取得结果
-  private List<Map<String, Object>> getResults(ResultSet rs) throws SQLException {
+  private List<Map<String, Object>> getResults(ResultSet rs, CachedStatement cached) throws SQLException {
     try {
       List<Map<String, Object>> list = new ArrayList<Map<String, Object>>();
-      List<String> columns = new ArrayList<String>();
-      List<TypeHandler<?>> typeHandlers = new ArrayList<TypeHandler<?>>();
-      ResultSetMetaData rsmd = rs.getMetaData();
-      //先计算要哪些列，已经列的类型（TypeHandler）
-      for (int i = 0, n = rsmd.getColumnCount(); i < n; i++) {
-        columns.add(rsmd.getColumnLabel(i + 1));
-        try {
-          Class<?> type = Resources.classForName(rsmd.getColumnClassName(i + 1));
-          TypeHandler<?> typeHandler = typeHandlerRegistry.getTypeHandler(type);
-          if (typeHandler == null) {
-            typeHandler = typeHandlerRegistry.getTypeHandler(Object.class);
-          }
-          typeHandlers.add(typeHandler);
-        } catch (Exception e) {
-          typeHandlers.add(typeHandlerRegistry.getTypeHandler(Object.class));
-        }
-      }
+      ResultColumns columns = getColumns(rs, cached);
       while (rs.next()) {
-        Map<String, Object> row = new HashMap<String, Object>();
-        for (int i = 0, n = columns.size(); i < n; i++) {
-          String name = columns.get(i);
-          TypeHandler<?> handler = typeHandlers.get(i);
-          //巧妙的利用TypeHandler来取得结果
-          row.put(name.toUpperCase(Locale.ENGLISH), handler.getResult(rs, name));
-        }
-        list.add(row);
+        list.add(getRow(rs, columns));
       }
       return list;
     } finally {
@@ -265,4 +399,194 @@ public class SqlRunner {
     }
   }
 
+  //语句上次的列信息还对得上就直接用，否则重新计算要哪些列，以及列的类型（TypeHandler）
+  private ResultColumns getColumns(ResultSet rs, CachedStatement cached) throws SQLException {
+    ResultSetMetaData rsmd = rs.getMetaData();
+    if (cached != null && cached.columns != null && cached.columns.matches(rsmd)) {
+      return cached.columns;
+    }
+    int n = rsmd.getColumnCount();
+    ResultColumns columns = new ResultColumns(n);
+    for (int i = 0; i < n; i++) {
+      columns.labels[i] = rsmd.getColumnLabel(i + 1);
+      columns.keys[i] = columns.labels[i].toUpperCase(Locale.ENGLISH);
+      columns.types[i] = rsmd.getColumnType(i + 1);
+      columns.classNames[i] = rsmd.getColumnClassName(i + 1);
+      columns.typeHandlers[i] = getColumnTypeHandler(rsmd.getColumnClassName(i + 1));
+    }
+    if (cached != null) {
+      cached.columns = columns;
+    }
+    return columns;
+  }
+
+  private TypeHandler<?> getColumnTypeHandler(String className) {
+    if (className == null) {
+      return typeHandlerRegistry.getTypeHandler(Object.class);
+    }
+    TypeHandler<?> typeHandler = columnTypeHandlers.get(className);
+    if (typeHandler == null) {
+      try {
+        Class<?> type = Resources.classForName(className);
+        typeHandler = typeHandlerRegistry.getTypeHandler(type);
+      } catch (Exception e) {
+        //ignore, 用Object的TypeHandler
+      }
+      if (typeHandler == null) {
+        typeHandler = typeHandlerRegistry.getTypeHandler(Object.class);
+      }
+      columnTypeHandlers.put(className, typeHandler);
+    }
+    return typeHandler;
+  }
+
+  private Map<String, Object> getRow(ResultSet rs, ResultColumns columns) throws SQLException {
+    Map<String, Object> row = new HashMap<String, Object>(columns.keys.length * 4 / 3 + 1);
+    for (int i = 0; i < columns.keys.length; i++) {
+      //巧妙的利用TypeHandler来取得结果，按列序号取比按列名取少一次查找
+      row.put(columns.keys[i], columns.typeHandlers[i].getResult(rs, i + 1));
+    }
+    return row;
+  }
+
+  /**
+   * Rows of a query read one at a time from its open result set.
+   * Closing the iterator closes the result set and returns the statement to the cache.
+   * 逐行读取的查询结果
+   */
+  public class RowIterator implements Iterator<Map<String, Object>>, Closeable {
+
+    private final String sql;
+    private final CachedStatement cached;
+    private final ResultColumns columns;
+    private ResultSet rs;
+    private Map<String, Object> next;
+
+    RowIterator(String sql, CachedStatement cached, ResultSet rs, ResultColumns columns) {
+      this.sql = sql;
+      this.cached = cached;
+      this.rs = rs;
+      this.columns = columns;
+    }
+
+    /**
+     * Like {@link #hasNext()}, but throws the SQLException instead of wrapping it.
+     */
+    public boolean hasNextRow() throws SQLException {
+      if (next == null && rs != null) {
+        boolean success = false;
+        try {
+          if (rs.next()) {
+            next = getRow(rs, columns);
+          }
+          success = true;
+        } finally {
+          if (next == null || !success) {
+            close();
+          }
+        }
+      }
+      return next != null;
+    }
+
+    /**
+     * Like {@link #next()}, but throws the SQLException instead of wrapping it.
+     */
+    public Map<String, Object> nextRow() throws SQLException {
+      if (!hasNextRow()) {
+        throw new NoSuchElementException();
+      }
+      Map<String, Object> row = next;
+      next = null;
+      return row;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        return hasNextRow();
+      } catch (SQLException e) {
+        throw new RuntimeSqlException("Error reading row.  Cause: " + e, e);
+      }
+    }
+
+    @Override
+    public Map<String, Object> next() {
+      try {
+        return nextRow();
+      } catch (SQLException e) {
+        throw new RuntimeSqlException("Error reading row.  Cause: " + e, e);
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove a row from a SqlRunner iterator");
+    }
+
+    @Override
+    public void close() {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {
+          //ignore
+        }
+        rs = null;
+        next = null;
+        releaseStatement(sql, cached);
+      }
+    }
+
+  }
+
+  private static class CachedStatement {
+
+    private final PreparedStatement statement;
+    private ResultColumns columns;
+
+    CachedStatement(PreparedStatement statement) {
+      this.statement = statement;
+    }
+
+  }
+
+  //结果的列名、map的key和TypeHandler
+  private static class ResultColumns {
+
+    private final String[] labels;
+    private final String[] keys;
+    private final int[] types;
+    private final String[] classNames;
+    private final TypeHandler<?>[] typeHandlers;
+
+    ResultColumns(int count) {
+      labels = new String[count];
+      keys = new String[count];
+      types = new int[count];
+      classNames = new String[count];
+      typeHandlers = new TypeHandler<?>[count];
+    }
+
+    //DDL可能改了表，列数、列名和列的类型都一样才复用，类型变了TypeHandler也要跟着换
+    boolean matches(ResultSetMetaData rsmd) throws SQLException {
+      if (rsmd.getColumnCount() != labels.length) {
+        return false;
+      }
+      for (int i = 0; i < labels.length; i++) {
+        if (!labels[i].equals(rsmd.getColumnLabel(i + 1))
+            || types[i] != rsmd.getColumnType(i + 1)
+            || !equals(classNames[i], rsmd.getColumnClassName(i + 1))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean equals(String a, String b) {
+      return a == null ? b == null : a.equals(b);
+    }
+
+  }
+
 }
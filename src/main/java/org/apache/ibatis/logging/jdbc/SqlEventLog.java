@@ -0,0 +1,288 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.logging.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Asynchronous SQL log used instead of the JDBC logging proxies when asyncSqlLog is enabled.
+ * Executors publish one event per statement, after it ran or failed, into a fixed-size ring buffer of
+ * preallocated slots; a daemon thread drains it and writes the same Preparing/Parameters/Total lines to the
+ * statement's {@link Log}. The SQL and the parameter values are taken on the request thread when the event is
+ * published, so the background thread never touches the mapped statement or the caller's parameter object;
+ * only the toString() of the values is left to it. When the buffer is full events are dropped rather than
+ * making the caller wait.
+ * 异步SQL日志：请求线程取出SQL和参数值放进环形缓冲，后台线程格式化并写日志
+ *
+ */
+public class SqlEventLog {
+
+  private final Event[] events;
+  private final int mask;
+  private final int sampleRate;
+  //已经占用的序号，生产者CAS推进
+  private final AtomicLong claimed = new AtomicLong();
+  //后台线程已经写完的序号
+  private final AtomicLong consumed = new AtomicLong();
+  private final AtomicLong offered = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final Thread drainer;
+  //JVM退出时把还没写的事件写完
+  private final Thread shutdownHook;
+  //后台线程没事可做、准备park时为true，生产者这时才去unpark
+  private volatile boolean waiting;
+  private volatile boolean closed;
+
+  public SqlEventLog(int bufferSize, int sampleRate) {
+    //容量取2的幂，下标用位与
+    int capacity = 1;
+    while (capacity < bufferSize) {
+      capacity <<= 1;
+    }
+    this.events = new Event[capacity];
+    for (int i = 0; i < capacity; i++) {
+      events[i] = new Event();
+    }
+    this.mask = capacity - 1;
+    this.sampleRate = Math.max(1, sampleRate);
+    this.drainer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        drainLoop();
+      }
+    }, "mybatis-sql-log");
+    drainer.setDaemon(true);
+    drainer.start();
+    this.shutdownHook = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        close();
+      }
+    }, "mybatis-sql-log-shutdown");
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  public boolean publish(Log log, MappedStatement ms, BoundSql boundSql, Object parameter, long elapsedNanos, int rows) {
+    return publish(log, ms, boundSql, parameter, elapsedNanos, rows, null);
+  }
+
+  /**
+   * Records an executed statement, to be written to the given log. The bound SQL is null for updates and is
+   * then built from the parameter. A failed statement is passed with its exception. Returns false if the event
+   * was sampled out or the buffer was full. The caller is expected to have checked that the log is enabled for debug.
+   */
+  public boolean publish(Log log, MappedStatement ms, BoundSql boundSql, Object parameter, long elapsedNanos, int rows, Throwable failure) {
+    if (closed || (sampleRate > 1 && offered.getAndIncrement() % sampleRate != 0)) {
+      return false;
+    }
+    final String sql;
+    final Object[] values;
+    try {
+      final BoundSql bound = boundSql != null ? boundSql : ms.getBoundSql(parameter);
+      sql = bound.getSql();
+      values = getParameterValues(ms.getConfiguration(), bound);
+    } catch (RuntimeException e) {
+      // a parameter that cannot be read must not fail the statement
+      return false;
+    }
+    long sequence;
+    do {
+      sequence = claimed.get();
+      if (sequence - consumed.get() >= events.length) {
+        //满了就丢，不让请求线程等日志
+        dropped.incrementAndGet();
+        return false;
+      }
+    } while (!claimed.compareAndSet(sequence, sequence + 1));
+    final Event event = events[(int) (sequence & mask)];
+    event.log = log;
+    event.sql = sql;
+    event.values = values;
+    event.update = boundSql == null;
+    event.elapsedNanos = elapsedNanos;
+    event.rows = rows;
+    event.failure = failure;
+    //最后写volatile的序号，后台线程看到序号就能看到上面的字段
+    event.sequence = sequence;
+    if (waiting) {
+      LockSupport.unpark(drainer);
+    }
+    return true;
+  }
+
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Writes the events published so far and stops the background thread. Called by
+   * {@link Configuration#closeSqlEventLog()}, or at JVM shutdown otherwise.
+   */
+  public void close() {
+    closed = true;
+    LockSupport.unpark(drainer);
+    try {
+      drainer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (Thread.currentThread() != shutdownHook) {
+      try {
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+      } catch (IllegalStateException e) {
+        // already shutting down
+      }
+    }
+  }
+
+  private void drainLoop() {
+    while (true) {
+      if (!drain()) {
+        if (closed && consumed.get() == claimed.get()) {
+          return;
+        }
+        //先声明要park，再看一次有没有新事件：生产者要么被这次检查看到，要么看到waiting去unpark
+        waiting = true;
+        if (!isPublished(consumed.get()) && !(closed && consumed.get() == claimed.get())) {
+          LockSupport.park(this);
+        }
+        waiting = false;
+      }
+    }
+  }
+
+  private boolean isPublished(long sequence) {
+    return events[(int) (sequence & mask)].sequence == sequence;
+  }
+
+  //写出已经发布的事件，返回是否写了
+  private boolean drain() {
+    boolean drained = false;
+    long sequence = consumed.get();
+    while (true) {
+      final Event event = events[(int) (sequence & mask)];
+      if (event.sequence != sequence) {
+        return drained;
+      }
+      try {
+        write(event);
+      } catch (RuntimeException e) {
+        // ignore, a bad toString() must not stop the log
+      }
+      event.log = null;
+      event.sql = null;
+      event.values = null;
+      event.failure = null;
+      sequence++;
+      consumed.set(sequence);
+      drained = true;
+    }
+  }
+
+  private void write(Event event) {
+    final Log log = event.log;
+    log.debug("==>  Preparing: " + removeBreakingWhitespace(event.sql));
+    log.debug("==> Parameters: " + getParameterValueString(event.values));
+    String time = String.valueOf(event.elapsedNanos / 1000 / 1000.0);
+    if (event.failure != null) {
+      log.debug("<==     Failed: " + event.failure + ", Time: " + time + " ms");
+    } else if (event.rows < 0) {
+      log.debug("<==       Time: " + time + " ms");
+    } else if (event.update) {
+      log.debug("<==    Updates: " + event.rows + ", Time: " + time + " ms");
+    } else {
+      log.debug("<==      Total: " + event.rows + ", Time: " + time + " ms");
+    }
+  }
+
+  //和DefaultParameterHandler取参数值的方式一样，在请求线程上调用
+  private Object[] getParameterValues(Configuration configuration, BoundSql boundSql) {
+    final Object parameterObject = boundSql.getParameterObject();
+    final List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    final List<Object> values = new ArrayList<Object>();
+    if (parameterMappings != null) {
+      MetaObject metaObject = null;
+      for (ParameterMapping parameterMapping : parameterMappings) {
+        if (parameterMapping.getMode() == ParameterMode.OUT) {
+          continue;
+        }
+        Object value;
+        String propertyName = parameterMapping.getProperty();
+        if (boundSql.hasAdditionalParameter(propertyName)) {
+          value = boundSql.getAdditionalParameter(propertyName);
+        } else if (parameterObject == null) {
+          value = null;
+        } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+          value = parameterObject;
+        } else {
+          if (metaObject == null) {
+            metaObject = configuration.newMetaObject(parameterObject);
+          }
+          value = metaObject.getValue(propertyName);
+        }
+        values.add(value);
+      }
+    }
+    return values.toArray();
+  }
+
+  private String getParameterValueString(Object[] values) {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      final Object value = values[i];
+      builder.append(value == null ? "null" : value + "(" + value.getClass().getSimpleName() + ")");
+    }
+    return builder.toString();
+  }
+
+  private String removeBreakingWhitespace(String original) {
+    StringTokenizer whitespaceStripper = new StringTokenizer(original);
+    StringBuilder builder = new StringBuilder();
+    while (whitespaceStripper.hasMoreTokens()) {
+      builder.append(whitespaceStripper.nextToken());
+      builder.append(" ");
+    }
+    return builder.toString();
+  }
+
+  //环形缓冲的槽，预先分配好反复使用
+  private static class Event {
+    private volatile long sequence = -1;
+    private Log log;
+    private String sql;
+    private Object[] values;
+    private boolean update;
+    private long elapsedNanos;
+    private int rows;
+    private Throwable failure;
+  }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.mapping;
 
+import java.io.Serializable;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.List;
@@ -40,7 +41,9 @@ import org.apache.ibatis.reflection.SystemMetaObject;
  * 缓存构建器,建造者模式
  * 
  */
-public class CacheBuilder {
+public class CacheBuilder implements Serializable {
+
+  private static final long serialVersionUID = 6229272583475508090L;
   private String id;
   private Class<? extends Cache> implementation;
   private List<Class<? extends Cache>> decorators;
@@ -15,6 +15,9 @@
  */
 package org.apache.ibatis.mapping;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -35,13 +38,17 @@ import org.apache.ibatis.session.Configuration;
  * 映射的语句
  *
  */
-public final class MappedStatement {
+public final class MappedStatement implements Serializable {
+
+  private static final long serialVersionUID = -2715094170783175054L;
 
   private String resource;
   private Configuration configuration;
   private String id;
   private Integer fetchSize;
   private Integer timeout;
+  //最多读取的行数
+  private Integer maxRows;
   private StatementType statementType;
   private ResultSetType resultSetType;
   //SQL源码
@@ -58,7 +65,7 @@ public final class MappedStatement {
   private String[] keyColumns;
   private boolean hasNestedResultMaps;
   private String databaseId;
-  private Log statementLog;
+  private transient Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
 
@@ -80,11 +87,7 @@ public final class MappedStatement {
       mappedStatement.timeout = configuration.getDefaultStatementTimeout();
       mappedStatement.sqlCommandType = sqlCommandType;
       mappedStatement.keyGenerator = configuration.isUseGeneratedKeys() && SqlCommandType.INSERT.equals(sqlCommandType) ? new Jdbc3KeyGenerator() : new NoKeyGenerator();
-      String logId = id;
-      if (configuration.getLogPrefix() != null) {
-        logId = configuration.getLogPrefix() + id;
-      }
-      mappedStatement.statementLog = LogFactory.getLog(logId);
+      mappedStatement.statementLog = newStatementLog(configuration, id);
       mappedStatement.lang = configuration.getDefaultScriptingLanuageInstance();
     }
 
@@ -120,6 +123,11 @@ public final class MappedStatement {
       return this;
     }
 
+    public Builder maxRows(Integer maxRows) {
+      mappedStatement.maxRows = maxRows;
+      return this;
+    }
+
     public Builder statementType(StatementType statementType) {
       mappedStatement.statementType = statementType;
       return this;
@@ -222,6 +230,10 @@ public final class MappedStatement {
     return timeout;
   }
 
+  public Integer getMaxRows() {
+    return maxRows;
+  }
+
   public StatementType getStatementType() {
     return statementType;
   }
@@ -305,6 +317,20 @@ public final class MappedStatement {
     return boundSql;
   }
 
+  private static Log newStatementLog(Configuration configuration, String id) {
+    String logId = id;
+    if (configuration.getLogPrefix() != null) {
+      logId = configuration.getLogPrefix() + id;
+    }
+    return LogFactory.getLog(logId);
+  }
+
+  //日志对象不序列化，读回时按当前的logPrefix重新取
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    statementLog = newStatementLog(configuration, id);
+  }
+
   private static String[] delimitedStringtoArray(String in) {
     if (in == null || in.trim().length() == 0) {
       return null;
@@ -15,6 +15,10 @@
  */
 package org.apache.ibatis.mapping;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.sql.ResultSet;
 
 import org.apache.ibatis.session.Configuration;
@@ -29,7 +33,9 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
  * 参数映射
  * 
  */
-public class ParameterMapping {
+public class ParameterMapping implements Serializable {
+
+  private static final long serialVersionUID = -7323391826764503087L;
 
   private Configuration configuration;
 
@@ -45,7 +51,7 @@ public class ParameterMapping {
   private JdbcType jdbcType;
   //numericScale
   private Integer numericScale;
-  private TypeHandler<?> typeHandler;
+  private transient TypeHandler<?> typeHandler;
   private String resultMapId;
   //jdbcType=NUMERIC
   private String jdbcTypeName;
@@ -213,4 +219,15 @@ public class ParameterMapping {
     return expression;
   }
 
+  //TypeHandler不可序列化，只写类名，读回时重新解析
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    TypeHandlerReference.write(out, typeHandler);
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    typeHandler = TypeHandlerReference.read(in, configuration, javaType, jdbcType);
+  }
+
 }
@@ -15,6 +15,10 @@
  */
 package org.apache.ibatis.mapping;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -32,14 +36,16 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
  * 结果映射
  * MyBatis 中最重要最强大的元素
  */
-public class ResultMapping {
+public class ResultMapping implements Serializable {
+
+  private static final long serialVersionUID = 3146067667123986584L;
 
   private Configuration configuration;
   private String property;
   private String column;
   private Class<?> javaType;
   private JdbcType jdbcType;
-  private TypeHandler<?> typeHandler;
+  private transient TypeHandler<?> typeHandler;
   private String nestedResultMapId;
   private String nestedQueryId;
   private Set<String> notNullColumns;
@@ -286,4 +292,15 @@ public class ResultMapping {
     }
   }
 
+  //TypeHandler不可序列化，只写类名，读回时重新解析
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    TypeHandlerReference.write(out, typeHandler);
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    typeHandler = TypeHandlerReference.read(in, configuration, javaType, jdbcType);
+  }
+
 }
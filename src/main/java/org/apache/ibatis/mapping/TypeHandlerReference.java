@@ -0,0 +1,63 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * 序列化映射元数据时TypeHandler只写类名，读回时到TypeHandlerRegistry里重新解析
+ *
+ */
+final class TypeHandlerReference {
+
+  private TypeHandlerReference() {
+    // Prevent Instantiation
+  }
+
+  static void write(ObjectOutputStream out, TypeHandler<?> typeHandler) throws IOException {
+    out.writeObject(typeHandler == null ? null : typeHandler.getClass());
+  }
+
+  @SuppressWarnings("unchecked")
+  static TypeHandler<?> read(ObjectInputStream in, Configuration configuration, Class<?> javaType, JdbcType jdbcType) throws IOException, ClassNotFoundException {
+    Class<? extends TypeHandler<?>> typeHandlerType = (Class<? extends TypeHandler<?>>) in.readObject();
+    if (typeHandlerType == null) {
+      return null;
+    }
+    TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    //先按javaType和jdbcType找，类型一致说明原来就是从注册表里解析出来的(比如每个枚举各自的EnumTypeHandler)
+    if (javaType != null) {
+      TypeHandler<?> handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
+      if (handler != null && handler.getClass() == typeHandlerType) {
+        return handler;
+      }
+    }
+    //再和BaseBuilder.resolveTypeHandler一样，先找已注册的实例，找不到再new一个
+    TypeHandler<?> handler = typeHandlerRegistry.getMappingTypeHandler(typeHandlerType);
+    if (handler == null) {
+      handler = typeHandlerRegistry.getInstance(javaType, typeHandlerType);
+    }
+    return handler;
+  }
+
+}
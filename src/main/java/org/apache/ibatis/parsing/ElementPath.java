@@ -0,0 +1,142 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.w3c.dom.Node;
+
+/**
+ * 只由元素名组成的简单XPath，比如/configuration、/mapper/resultMap、select|insert|update|delete
+ * 直接遍历DOM的子元素求值，不经过javax.xml.xpath。构建器用到的表达式都属于这一类，
+ * 其他表达式(属性、谓词、函数、//等)compile返回null，仍交给XPath
+ *
+ */
+final class ElementPath {
+
+  private static final Pattern NAME = Pattern.compile("\\*|[A-Za-z_][A-Za-z0-9_.\\-]*");
+  //表达式就那么几种，编译结果缓存起来，不支持的也缓存一个占位
+  private static final ConcurrentMap<String, ElementPath> CACHE = new ConcurrentHashMap<String, ElementPath>();
+  private static final ElementPath UNSUPPORTED = new ElementPath(false, new String[0][]);
+
+  private final boolean absolute;
+  //每一步可选的元素名，*匹配任意元素
+  private final String[][] steps;
+
+  private ElementPath(boolean absolute, String[][] steps) {
+    this.absolute = absolute;
+    this.steps = steps;
+  }
+
+  static ElementPath compile(String expression) {
+    ElementPath path = CACHE.get(expression);
+    if (path == null) {
+      path = parse(expression.trim());
+      CACHE.putIfAbsent(expression, path);
+    }
+    return path == UNSUPPORTED ? null : path;
+  }
+
+  private static ElementPath parse(String expression) {
+    if (expression.length() == 0) {
+      return UNSUPPORTED;
+    }
+    //XPath里|的优先级比/低，所以只支持每一项都是单个元素名的并集
+    if (expression.indexOf('|') >= 0) {
+      String[] names = expression.split("\\|", -1);
+      for (int i = 0; i < names.length; i++) {
+        names[i] = names[i].trim();
+        if (!NAME.matcher(names[i]).matches()) {
+          return UNSUPPORTED;
+        }
+      }
+      return new ElementPath(false, new String[][] { names });
+    }
+    boolean absolute = expression.startsWith("/");
+    String[] names = (absolute ? expression.substring(1) : expression).split("/", -1);
+    String[][] steps = new String[names.length][];
+    for (int i = 0; i < names.length; i++) {
+      if (!NAME.matcher(names[i]).matches()) {
+        return UNSUPPORTED;
+      }
+      steps[i] = new String[] { names[i] };
+    }
+    return new ElementPath(absolute, steps);
+  }
+
+  //按文档顺序返回所有匹配的元素
+  List<Node> select(Node context) {
+    List<Node> current = new ArrayList<Node>();
+    current.add(start(context));
+    for (String[] step : steps) {
+      List<Node> next = new ArrayList<Node>();
+      for (Node node : current) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+          if (matches(child, step)) {
+            next.add(child);
+          }
+        }
+      }
+      current = next;
+    }
+    return current;
+  }
+
+  //文档顺序的第一个匹配元素，找到就停
+  Node selectFirst(Node context) {
+    return first(start(context), 0);
+  }
+
+  private Node first(Node node, int stepIndex) {
+    if (stepIndex == steps.length) {
+      return node;
+    }
+    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (matches(child, steps[stepIndex])) {
+        Node found = first(child, stepIndex + 1);
+        if (found != null) {
+          return found;
+        }
+      }
+    }
+    return null;
+  }
+
+  private Node start(Node context) {
+    if (absolute && context.getNodeType() != Node.DOCUMENT_NODE) {
+      return context.getOwnerDocument();
+    }
+    return context;
+  }
+
+  private static boolean matches(Node node, String[] names) {
+    if (node.getNodeType() != Node.ELEMENT_NODE) {
+      return false;
+    }
+    String nodeName = node.getNodeName();
+    for (String name : names) {
+      if ("*".equals(name) || name.equals(nodeName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -149,8 +149,15 @@ public class XPathParser {
   }
 
   public String evalString(Object root, String expression) {
-	//1.先用xpath解析
-    String result = (String) evaluate(expression, root, XPathConstants.STRING);
+	//1.先用xpath解析(简单的元素路径直接取文本)
+    String result;
+    ElementPath path = elementPath(root, expression);
+    if (path != null) {
+      Node node = path.selectFirst((Node) root);
+      result = node == null ? "" : node.getTextContent();
+    } else {
+      result = (String) evaluate(expression, root, XPathConstants.STRING);
+    }
 	//2.再调用PropertyParser去解析,也就是替换 ${} 这种格式的字符串
     result = PropertyParser.parse(result, variables);
     return result;
@@ -161,6 +168,11 @@ public class XPathParser {
   }
 
   public Boolean evalBoolean(Object root, String expression) {
+    ElementPath path = elementPath(root, expression);
+    if (path != null) {
+      //节点集的布尔值就是是否非空
+      return path.selectFirst((Node) root) != null;
+    }
     return (Boolean) evaluate(expression, root, XPathConstants.BOOLEAN);
   }
 
@@ -212,6 +224,13 @@ public class XPathParser {
 	//返回节点List
   public List<XNode> evalNodes(Object root, String expression) {
     List<XNode> xnodes = new ArrayList<XNode>();
+    ElementPath path = elementPath(root, expression);
+    if (path != null) {
+      for (Node node : path.select((Node) root)) {
+        xnodes.add(new XNode(this, node, variables));
+      }
+      return xnodes;
+    }
     NodeList nodes = (NodeList) evaluate(expression, root, XPathConstants.NODESET);
     for (int i = 0; i < nodes.getLength(); i++) {
       xnodes.add(new XNode(this, nodes.item(i), variables));
@@ -225,16 +244,29 @@ public class XPathParser {
 
 	//返回节点
   public XNode evalNode(Object root, String expression) {
-    Node node = (Node) evaluate(expression, root, XPathConstants.NODE);
+    ElementPath path = elementPath(root, expression);
+    Node node = path != null ? path.selectFirst((Node) root) : (Node) evaluate(expression, root, XPathConstants.NODE);
     if (node == null) {
       return null;
     }
     return new XNode(this, node, variables);
   }
 
+  //构建器用的都是只由元素名组成的路径，直接遍历DOM求值；其他表达式返回null，走XPath
+  private ElementPath elementPath(Object root, String expression) {
+    if (!(root instanceof Node)) {
+      return null;
+    }
+    return ElementPath.compile(expression);
+  }
+
   private Object evaluate(String expression, Object root, QName returnType) {
     try {
 		//最终合流到这儿，直接调用XPath.evaluate
+      //XPathFactory.newInstance()要查找实现类，开销不小，用到时才创建
+      if (xpath == null) {
+        xpath = XPathFactory.newInstance().newXPath();
+      }
       return xpath.evaluate(expression, root, returnType);
     } catch (Exception e) {
       throw new BuilderException("Error evaluating XPath.  Cause: " + e, e);
@@ -288,9 +320,7 @@ public class XPathParser {
     this.validation = validation;
     this.entityResolver = entityResolver;
     this.variables = variables;
-	//共通构造函数，除了把参数都设置到实例变量里面去以外，还初始化了XPath
-    XPathFactory factory = XPathFactory.newInstance();
-    this.xpath = factory.newXPath();
+	//共通构造函数，把参数都设置到实例变量里面去，XPath在第一次用到时才初始化
   }
 
 }
@@ -0,0 +1,316 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * {@link FlatPlugin} for {@link Executor}.
+ * 拍平插件：执行器
+ *
+ */
+class FlatExecutor extends FlatPlugin<Executor> implements Executor {
+
+  private static final int UPDATE = 0;
+  private static final int QUERY_WITH_KEY = 1;
+  private static final int QUERY = 2;
+  private static final int FLUSH_STATEMENTS = 3;
+  private static final int COMMIT = 4;
+  private static final int ROLLBACK = 5;
+  private static final int CREATE_CACHE_KEY = 6;
+  private static final int IS_CACHED = 7;
+  private static final int CLEAR_LOCAL_CACHE = 8;
+  private static final int DEFER_LOAD = 9;
+  private static final int GET_TRANSACTION = 10;
+  private static final int CLOSE = 11;
+  private static final int IS_CLOSED = 12;
+  private static final int SET_EXECUTOR_WRAPPER = 13;
+  private static final int FLUSH_CACHE_IF_REQUIRED = 14;
+
+  static final Method[] METHODS = new Method[] {
+      method(Executor.class, "update", MappedStatement.class, Object.class),
+      method(Executor.class, "query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class),
+      method(Executor.class, "query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class),
+      method(Executor.class, "flushStatements"),
+      method(Executor.class, "commit", boolean.class),
+      method(Executor.class, "rollback", boolean.class),
+      method(Executor.class, "createCacheKey", MappedStatement.class, Object.class, RowBounds.class, BoundSql.class),
+      method(Executor.class, "isCached", MappedStatement.class, CacheKey.class),
+      method(Executor.class, "clearLocalCache"),
+      method(Executor.class, "deferLoad", MappedStatement.class, MetaObject.class, String.class, CacheKey.class, Class.class),
+      method(Executor.class, "getTransaction"),
+      method(Executor.class, "close", boolean.class),
+      method(Executor.class, "isClosed"),
+      method(Executor.class, "setExecutorWrapper", Executor.class),
+      method(Executor.class, "flushCacheIfRequired", MappedStatement.class) };
+
+  FlatExecutor(Executor target, Interceptor[][] chains) {
+    super(target, chains);
+  }
+
+  @Override
+  public int update(MappedStatement ms, Object parameter) throws SQLException {
+    if (!intercepted(UPDATE)) {
+      return target.update(ms, parameter);
+    }
+    try {
+      return (Integer) intercept(UPDATE, new Object[] { ms, parameter });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey cacheKey, BoundSql boundSql) throws SQLException {
+    if (!intercepted(QUERY_WITH_KEY)) {
+      return target.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    }
+    try {
+      return (List<E>) intercept(QUERY_WITH_KEY, new Object[] { ms, parameter, rowBounds, resultHandler, cacheKey, boundSql });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+    if (!intercepted(QUERY)) {
+      return target.query(ms, parameter, rowBounds, resultHandler);
+    }
+    try {
+      return (List<E>) intercept(QUERY, new Object[] { ms, parameter, rowBounds, resultHandler });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public List<BatchResult> flushStatements() throws SQLException {
+    if (!intercepted(FLUSH_STATEMENTS)) {
+      return target.flushStatements();
+    }
+    try {
+      return (List<BatchResult>) intercept(FLUSH_STATEMENTS, null);
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @Override
+  public void commit(boolean required) throws SQLException {
+    if (!intercepted(COMMIT)) {
+      target.commit(required);
+      return;
+    }
+    try {
+      intercept(COMMIT, new Object[] { required });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @Override
+  public void rollback(boolean required) throws SQLException {
+    if (!intercepted(ROLLBACK)) {
+      target.rollback(required);
+      return;
+    }
+    try {
+      intercept(ROLLBACK, new Object[] { required });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @Override
+  public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+    if (!intercepted(CREATE_CACHE_KEY)) {
+      return target.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    }
+    try {
+      return (CacheKey) intercept(CREATE_CACHE_KEY, new Object[] { ms, parameterObject, rowBounds, boundSql });
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  public boolean isCached(MappedStatement ms, CacheKey key) {
+    if (!intercepted(IS_CACHED)) {
+      return target.isCached(ms, key);
+    }
+    try {
+      return (Boolean) intercept(IS_CACHED, new Object[] { ms, key });
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  public void clearLocalCache() {
+    if (!intercepted(CLEAR_LOCAL_CACHE)) {
+      target.clearLocalCache();
+      return;
+    }
+    try {
+      intercept(CLEAR_LOCAL_CACHE, null);
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+    if (!intercepted(DEFER_LOAD)) {
+      target.deferLoad(ms, resultObject, property, key, targetType);
+      return;
+    }
+    try {
+      intercept(DEFER_LOAD, new Object[] { ms, resultObject, property, key, targetType });
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  public Transaction getTransaction() {
+    if (!intercepted(GET_TRANSACTION)) {
+      return target.getTransaction();
+    }
+    try {
+      return (Transaction) intercept(GET_TRANSACTION, null);
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  public void close(boolean forceRollback) {
+    if (!intercepted(CLOSE)) {
+      target.close(forceRollback);
+      return;
+    }
+    try {
+      intercept(CLOSE, new Object[] { forceRollback });
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    if (!intercepted(IS_CLOSED)) {
+      return target.isClosed();
+    }
+    try {
+      return (Boolean) intercept(IS_CLOSED, null);
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  public void setExecutorWrapper(Executor executor) {
+    if (!intercepted(SET_EXECUTOR_WRAPPER)) {
+      target.setExecutorWrapper(executor);
+      return;
+    }
+    try {
+      intercept(SET_EXECUTOR_WRAPPER, new Object[] { executor });
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  public void flushCacheIfRequired(MappedStatement ms) {
+    if (!intercepted(FLUSH_CACHE_IF_REQUIRED)) {
+      target.flushCacheIfRequired(ms);
+      return;
+    }
+    try {
+      intercept(FLUSH_CACHE_IF_REQUIRED, new Object[] { ms });
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  protected Method[] getMethods() {
+    return METHODS;
+  }
+
+  @Override
+  protected Object invokeTarget(int index, Object[] args) throws Throwable {
+    switch (index) {
+      case UPDATE:
+        return target.update((MappedStatement) args[0], args[1]);
+      case QUERY_WITH_KEY:
+        return target.query((MappedStatement) args[0], args[1], (RowBounds) args[2], (ResultHandler) args[3], (CacheKey) args[4], (BoundSql) args[5]);
+      case QUERY:
+        return target.query((MappedStatement) args[0], args[1], (RowBounds) args[2], (ResultHandler) args[3]);
+      case FLUSH_STATEMENTS:
+        return target.flushStatements();
+      case COMMIT:
+        target.commit((Boolean) args[0]);
+        return null;
+      case ROLLBACK:
+        target.rollback((Boolean) args[0]);
+        return null;
+      case CREATE_CACHE_KEY:
+        return target.createCacheKey((MappedStatement) args[0], args[1], (RowBounds) args[2], (BoundSql) args[3]);
+      case IS_CACHED:
+        return target.isCached((MappedStatement) args[0], (CacheKey) args[1]);
+      case CLEAR_LOCAL_CACHE:
+        target.clearLocalCache();
+        return null;
+      case DEFER_LOAD:
+        target.deferLoad((MappedStatement) args[0], (MetaObject) args[1], (String) args[2], (CacheKey) args[3], (Class<?>) args[4]);
+        return null;
+      case GET_TRANSACTION:
+        return target.getTransaction();
+      case CLOSE:
+        target.close((Boolean) args[0]);
+        return null;
+      case IS_CLOSED:
+        return target.isClosed();
+      case SET_EXECUTOR_WRAPPER:
+        target.setExecutorWrapper((Executor) args[0]);
+        return null;
+      case FLUSH_CACHE_IF_REQUIRED:
+        target.flushCacheIfRequired((MappedStatement) args[0]);
+        return null;
+      default:
+        throw new IllegalArgumentException("Unknown method index " + index);
+    }
+  }
+
+}
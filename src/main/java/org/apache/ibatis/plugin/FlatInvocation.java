@@ -0,0 +1,62 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Invocation handed to interceptors of a {@link FlatPlugin}. {@link #proceed()} calls the next interceptor
+ * of the chain, and the target itself once the chain is exhausted, without reflection.
+ * {@link #getTarget()} is always the real target, not an inner proxy.
+ * 拍平插件的调用
+ *
+ */
+class FlatInvocation extends Invocation {
+
+  private final FlatPlugin<?> plugin;
+  private final int index;
+  private final Interceptor[] chain;
+  private final int position;
+
+  FlatInvocation(FlatPlugin<?> plugin, int index, Interceptor[] chain, int position, Method method, Object[] args) {
+    super(plugin.target, method, args);
+    this.plugin = plugin;
+    this.index = index;
+    this.chain = chain;
+    this.position = position;
+  }
+
+  Object call() throws Throwable {
+    return chain[position].intercept(this);
+  }
+
+  @Override
+  public Object proceed() throws InvocationTargetException, IllegalAccessException {
+    try {
+      if (position + 1 < chain.length) {
+        return new FlatInvocation(plugin, index, chain, position + 1, getMethod(), getArgs()).call();
+      }
+      return plugin.invokeTarget(index, getArgs());
+    } catch (Throwable t) {
+      //和嵌套代理时method.invoke的表现一样
+      throw new InvocationTargetException(ExceptionUtil.unwrapThrowable(t));
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+
+/**
+ * {@link FlatPlugin} for {@link ParameterHandler}.
+ * 拍平插件：参数处理器
+ *
+ */
+class FlatParameterHandler extends FlatPlugin<ParameterHandler> implements ParameterHandler {
+
+  private static final int GET_PARAMETER_OBJECT = 0;
+  private static final int SET_PARAMETERS = 1;
+
+  static final Method[] METHODS = new Method[] {
+      method(ParameterHandler.class, "getParameterObject"),
+      method(ParameterHandler.class, "setParameters", PreparedStatement.class) };
+
+  FlatParameterHandler(ParameterHandler target, Interceptor[][] chains) {
+    super(target, chains);
+  }
+
+  @Override
+  public Object getParameterObject() {
+    if (!intercepted(GET_PARAMETER_OBJECT)) {
+      return target.getParameterObject();
+    }
+    try {
+      return (Object) intercept(GET_PARAMETER_OBJECT, null);
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  public void setParameters(PreparedStatement ps) throws SQLException {
+    if (!intercepted(SET_PARAMETERS)) {
+      target.setParameters(ps);
+      return;
+    }
+    try {
+      intercept(SET_PARAMETERS, new Object[] { ps });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @Override
+  protected Method[] getMethods() {
+    return METHODS;
+  }
+
+  @Override
+  protected Object invokeTarget(int index, Object[] args) throws Throwable {
+    switch (index) {
+      case GET_PARAMETER_OBJECT:
+        return target.getParameterObject();
+      case SET_PARAMETERS:
+        target.setParameters((PreparedStatement) args[0]);
+        return null;
+      default:
+        throw new IllegalArgumentException("Unknown method index " + index);
+    }
+  }
+
+}
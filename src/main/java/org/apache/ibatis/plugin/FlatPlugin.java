@@ -0,0 +1,189 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Base class of the delegating classes that InterceptorChain uses instead of nested {@link Plugin} proxies
+ * when flatInterceptorChain is enabled. There is one subclass per interface that can be intercepted; for each
+ * method it holds the interceptors that want it, outermost first, and calls the target directly when there are none.
+ * 拍平的插件：一个对象代替层层嵌套的JDK代理
+ *
+ */
+abstract class FlatPlugin<T> {
+
+  protected final T target;
+  //按方法序号排列，每个方法的拦截器(最外层的在前)，没有拦截器的是null
+  private final Interceptor[][] chains;
+
+  protected FlatPlugin(T target, Interceptor[][] chains) {
+    this.target = target;
+    this.chains = chains;
+  }
+
+  protected final boolean intercepted(int index) {
+    return chains[index] != null;
+  }
+
+  protected final Object intercept(int index, Object[] args) throws Throwable {
+    try {
+      return new FlatInvocation(this, index, chains[index], 0, getMethods()[index], args).call();
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+  }
+
+  //方法序号和getMethods()的下标一致
+  protected abstract Method[] getMethods();
+
+  //拦截器链走完之后直接调用目标对象，不用反射
+  protected abstract Object invokeTarget(int index, Object[] args) throws Throwable;
+
+  //和JDK代理一样，接口没声明的受检异常包成UndeclaredThrowableException
+  protected static SQLException sqlException(Throwable t) {
+    if (t instanceof SQLException) {
+      return (SQLException) t;
+    }
+    throw runtimeException(t);
+  }
+
+  protected static RuntimeException runtimeException(Throwable t) {
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new UndeclaredThrowableException(t);
+  }
+
+  protected static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+    try {
+      return type.getMethod(name, parameterTypes);
+    } catch (NoSuchMethodException e) {
+      throw new PluginException("Could not find method on " + type + " named " + name + ". Cause: " + e, e);
+    }
+  }
+
+  //某个目标类型的拍平方案，按目标对象的类缓存
+  static class Plan {
+
+    //不能拍平，走原来的Interceptor.plugin
+    static final Plan UNSUPPORTED = new Plan(null, null);
+
+    private final Class<?> type;
+    private final Interceptor[][] chains;
+
+    private Plan(Class<?> type, Interceptor[][] chains) {
+      this.type = type;
+      this.chains = chains;
+    }
+
+    static Plan build(Class<?> targetType, List<Interceptor> interceptors) {
+      Class<?> type = null;
+      for (Class<?> candidate : new Class<?>[] { Executor.class, StatementHandler.class, ParameterHandler.class, ResultSetHandler.class }) {
+        if (candidate.isAssignableFrom(targetType)) {
+          if (type != null) {
+            return UNSUPPORTED;
+          }
+          type = candidate;
+        }
+      }
+      if (type == null) {
+        return UNSUPPORTED;
+      }
+      final Method[] methods = methodsOf(type);
+      final Interceptor[][] chains = new Interceptor[methods.length][];
+      boolean intercepted = false;
+      //后加的拦截器在外层，先被调用
+      for (int i = interceptors.size() - 1; i >= 0; i--) {
+        final Interceptor interceptor = interceptors.get(i);
+        final Map<Class<?>, Set<Method>> signatureMap = Plugin.getSignatureMap(interceptor);
+        //拦截了目标类型上的其他接口，只有JDK代理能办到
+        for (Class<?> c : Plugin.getAllInterfaces(targetType, signatureMap)) {
+          if (c != type) {
+            return UNSUPPORTED;
+          }
+        }
+        final Set<Method> signatures = signatureMap.get(type);
+        if (signatures == null) {
+          continue;
+        }
+        for (int m = 0; m < methods.length; m++) {
+          if (signatures.contains(methods[m])) {
+            chains[m] = append(chains[m], interceptor);
+            intercepted = true;
+          }
+        }
+      }
+      return new Plan(type, intercepted ? chains : null);
+    }
+
+    boolean isSupported() {
+      return type != null;
+    }
+
+    Object wrap(Object target) {
+      if (chains == null) {
+        return target;
+      } else if (type == Executor.class) {
+        return new FlatExecutor((Executor) target, chains);
+      } else if (type == StatementHandler.class) {
+        return new FlatStatementHandler((StatementHandler) target, chains);
+      } else if (type == ParameterHandler.class) {
+        return new FlatParameterHandler((ParameterHandler) target, chains);
+      } else {
+        return new FlatResultSetHandler((ResultSetHandler) target, chains);
+      }
+    }
+
+    private static Method[] methodsOf(Class<?> type) {
+      if (type == Executor.class) {
+        return FlatExecutor.METHODS;
+      } else if (type == StatementHandler.class) {
+        return FlatStatementHandler.METHODS;
+      } else if (type == ParameterHandler.class) {
+        return FlatParameterHandler.METHODS;
+      } else {
+        return FlatResultSetHandler.METHODS;
+      }
+    }
+
+    private static Interceptor[] append(Interceptor[] chain, Interceptor interceptor) {
+      List<Interceptor> list = new ArrayList<Interceptor>();
+      if (chain != null) {
+        for (Interceptor i : chain) {
+          list.add(i);
+        }
+      }
+      list.add(interceptor);
+      return list.toArray(new Interceptor[list.size()]);
+    }
+  }
+
+}
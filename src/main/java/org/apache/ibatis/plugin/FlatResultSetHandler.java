@@ -0,0 +1,88 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+
+/**
+ * {@link FlatPlugin} for {@link ResultSetHandler}.
+ * 拍平插件：结果集处理器
+ *
+ */
+class FlatResultSetHandler extends FlatPlugin<ResultSetHandler> implements ResultSetHandler {
+
+  private static final int HANDLE_RESULT_SETS = 0;
+  private static final int HANDLE_OUTPUT_PARAMETERS = 1;
+
+  static final Method[] METHODS = new Method[] {
+      method(ResultSetHandler.class, "handleResultSets", Statement.class),
+      method(ResultSetHandler.class, "handleOutputParameters", CallableStatement.class) };
+
+  FlatResultSetHandler(ResultSetHandler target, Interceptor[][] chains) {
+    super(target, chains);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E> List<E> handleResultSets(Statement stmt) throws SQLException {
+    if (!intercepted(HANDLE_RESULT_SETS)) {
+      return target.handleResultSets(stmt);
+    }
+    try {
+      return (List<E>) intercept(HANDLE_RESULT_SETS, new Object[] { stmt });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @Override
+  public void handleOutputParameters(CallableStatement cs) throws SQLException {
+    if (!intercepted(HANDLE_OUTPUT_PARAMETERS)) {
+      target.handleOutputParameters(cs);
+      return;
+    }
+    try {
+      intercept(HANDLE_OUTPUT_PARAMETERS, new Object[] { cs });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @Override
+  protected Method[] getMethods() {
+    return METHODS;
+  }
+
+  @Override
+  protected Object invokeTarget(int index, Object[] args) throws Throwable {
+    switch (index) {
+      case HANDLE_RESULT_SETS:
+        return target.handleResultSets((Statement) args[0]);
+      case HANDLE_OUTPUT_PARAMETERS:
+        target.handleOutputParameters((CallableStatement) args[0]);
+        return null;
+      default:
+        throw new IllegalArgumentException("Unknown method index " + index);
+    }
+  }
+
+}
@@ -0,0 +1,173 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * {@link FlatPlugin} for {@link StatementHandler}.
+ * 拍平插件：语句处理器
+ *
+ */
+class FlatStatementHandler extends FlatPlugin<StatementHandler> implements StatementHandler {
+
+  private static final int PREPARE = 0;
+  private static final int PARAMETERIZE = 1;
+  private static final int BATCH = 2;
+  private static final int UPDATE = 3;
+  private static final int QUERY = 4;
+  private static final int GET_BOUND_SQL = 5;
+  private static final int GET_PARAMETER_HANDLER = 6;
+
+  static final Method[] METHODS = new Method[] {
+      method(StatementHandler.class, "prepare", Connection.class),
+      method(StatementHandler.class, "parameterize", Statement.class),
+      method(StatementHandler.class, "batch", Statement.class),
+      method(StatementHandler.class, "update", Statement.class),
+      method(StatementHandler.class, "query", Statement.class, ResultHandler.class),
+      method(StatementHandler.class, "getBoundSql"),
+      method(StatementHandler.class, "getParameterHandler") };
+
+  FlatStatementHandler(StatementHandler target, Interceptor[][] chains) {
+    super(target, chains);
+  }
+
+  @Override
+  public Statement prepare(Connection connection) throws SQLException {
+    if (!intercepted(PREPARE)) {
+      return target.prepare(connection);
+    }
+    try {
+      return (Statement) intercept(PREPARE, new Object[] { connection });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @Override
+  public void parameterize(Statement statement) throws SQLException {
+    if (!intercepted(PARAMETERIZE)) {
+      target.parameterize(statement);
+      return;
+    }
+    try {
+      intercept(PARAMETERIZE, new Object[] { statement });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @Override
+  public void batch(Statement statement) throws SQLException {
+    if (!intercepted(BATCH)) {
+      target.batch(statement);
+      return;
+    }
+    try {
+      intercept(BATCH, new Object[] { statement });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @Override
+  public int update(Statement statement) throws SQLException {
+    if (!intercepted(UPDATE)) {
+      return target.update(statement);
+    }
+    try {
+      return (Integer) intercept(UPDATE, new Object[] { statement });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
+    if (!intercepted(QUERY)) {
+      return target.query(statement, resultHandler);
+    }
+    try {
+      return (List<E>) intercept(QUERY, new Object[] { statement, resultHandler });
+    } catch (Throwable t) {
+      throw sqlException(t);
+    }
+  }
+
+  @Override
+  public BoundSql getBoundSql() {
+    if (!intercepted(GET_BOUND_SQL)) {
+      return target.getBoundSql();
+    }
+    try {
+      return (BoundSql) intercept(GET_BOUND_SQL, null);
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  public ParameterHandler getParameterHandler() {
+    if (!intercepted(GET_PARAMETER_HANDLER)) {
+      return target.getParameterHandler();
+    }
+    try {
+      return (ParameterHandler) intercept(GET_PARAMETER_HANDLER, null);
+    } catch (Throwable t) {
+      throw runtimeException(t);
+    }
+  }
+
+  @Override
+  protected Method[] getMethods() {
+    return METHODS;
+  }
+
+  @Override
+  protected Object invokeTarget(int index, Object[] args) throws Throwable {
+    switch (index) {
+      case PREPARE:
+        return target.prepare((Connection) args[0]);
+      case PARAMETERIZE:
+        target.parameterize((Statement) args[0]);
+        return null;
+      case BATCH:
+        target.batch((Statement) args[0]);
+        return null;
+      case UPDATE:
+        return target.update((Statement) args[0]);
+      case QUERY:
+        return target.query((Statement) args[0], (ResultHandler) args[1]);
+      case GET_BOUND_SQL:
+        return target.getBoundSql();
+      case GET_PARAMETER_HANDLER:
+        return target.getParameterHandler();
+      default:
+        throw new IllegalArgumentException("Unknown method index " + index);
+    }
+  }
+
+}
@@ -18,6 +18,8 @@ package org.apache.ibatis.plugin;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Clinton Begin
@@ -30,8 +32,22 @@ public class InterceptorChain {
 
   //内部就是一个拦截器的List
   private final List<Interceptor> interceptors = new ArrayList<Interceptor>();
+  //拍平：一个FlatPlugin代替每个拦截器一层JDK代理
+  private boolean flat;
+  //按目标对象的类缓存拍平方案
+  private final ConcurrentMap<Class<?>, FlatPlugin.Plan> flatPlans = new ConcurrentHashMap<Class<?>, FlatPlugin.Plan>();
 
   public Object pluginAll(Object target) {
+    if (flat && !interceptors.isEmpty()) {
+      FlatPlugin.Plan plan = flatPlans.get(target.getClass());
+      if (plan == null) {
+        plan = FlatPlugin.Plan.build(target.getClass(), interceptors);
+        flatPlans.put(target.getClass(), plan);
+      }
+      if (plan.isSupported()) {
+        return plan.wrap(target);
+      }
+    }
     //循环调用每个Interceptor.plugin方法
     for (Interceptor interceptor : interceptors) {
       target = interceptor.plugin(target);
@@ -41,6 +57,21 @@ public class InterceptorChain {
 
   public void addInterceptor(Interceptor interceptor) {
     interceptors.add(interceptor);
+    flatPlans.clear();
+  }
+
+  /**
+   * When enabled, targets of the core interfaces get a single delegating object that runs the intercepted methods
+   * through the interceptors directly, instead of one {@link Plugin} proxy per interceptor.
+   * {@link Interceptor#plugin(Object)} is not called for them, so interceptors should rely on their
+   * {@link Intercepts} signatures only.
+   */
+  public void setFlat(boolean flat) {
+    this.flat = flat;
+  }
+
+  public boolean isFlat() {
+    return flat;
   }
   
   public List<Interceptor> getInterceptors() {
@@ -18,6 +18,8 @@ package org.apache.ibatis.reflection.invoker;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 
+import org.apache.ibatis.reflection.ReflectionException;
+
 /**
  * @author Clinton Begin
  */
@@ -25,7 +27,7 @@ import java.lang.reflect.InvocationTargetException;
  * getter调用者
  * 
  */
-public class GetFieldInvoker implements Invoker {
+public class GetFieldInvoker implements Invoker, PrimitiveGetter {
   private Field field;
 
   public GetFieldInvoker(Field field) {
@@ -42,4 +44,71 @@ public class GetFieldInvoker implements Invoker {
   public Class<?> getType() {
     return field.getType();
   }
+
+  @Override
+  public boolean getBoolean(Object target) {
+    try {
+      return field.getBoolean(target);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public byte getByte(Object target) {
+    try {
+      return field.getByte(target);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public short getShort(Object target) {
+    try {
+      return field.getShort(target);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public int getInt(Object target) {
+    try {
+      return field.getInt(target);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public long getLong(Object target) {
+    try {
+      return field.getLong(target);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public float getFloat(Object target) {
+    try {
+      return field.getFloat(target);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public double getDouble(Object target) {
+    try {
+      return field.getDouble(target);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  private ReflectionException fail(IllegalAccessException e) {
+    return new ReflectionException("Could not get field '" + field.getName() + "' of '" + field.getDeclaringClass() + "'. Cause: " + e, e);
+  }
 }
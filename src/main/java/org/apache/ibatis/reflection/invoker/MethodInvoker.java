@@ -18,6 +18,9 @@ package org.apache.ibatis.reflection.invoker;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+
 /**
  * @author Clinton Begin
  */
@@ -25,7 +28,7 @@ import java.lang.reflect.Method;
  * 方法调用者
  * 
  */
-public class MethodInvoker implements Invoker {
+public class MethodInvoker implements Invoker, PrimitiveSetter, PrimitiveGetter {
 
   private Class<?> type;
   private Method method;
@@ -51,4 +54,85 @@ public class MethodInvoker implements Invoker {
   public Class<?> getType() {
     return type;
   }
+
+  //Method.invoke只收Object参数，方法调用免不了装箱，但省掉了MetaObject那一套
+
+  @Override
+  public void setBoolean(Object target, boolean value) {
+    invokeQuietly(target, value);
+  }
+
+  @Override
+  public void setByte(Object target, byte value) {
+    invokeQuietly(target, value);
+  }
+
+  @Override
+  public void setShort(Object target, short value) {
+    invokeQuietly(target, value);
+  }
+
+  @Override
+  public void setInt(Object target, int value) {
+    invokeQuietly(target, value);
+  }
+
+  @Override
+  public void setLong(Object target, long value) {
+    invokeQuietly(target, value);
+  }
+
+  @Override
+  public void setFloat(Object target, float value) {
+    invokeQuietly(target, value);
+  }
+
+  @Override
+  public void setDouble(Object target, double value) {
+    invokeQuietly(target, value);
+  }
+
+  @Override
+  public boolean getBoolean(Object target) {
+    return ((Boolean) invokeQuietly(target)).booleanValue();
+  }
+
+  @Override
+  public byte getByte(Object target) {
+    return ((Number) invokeQuietly(target)).byteValue();
+  }
+
+  @Override
+  public short getShort(Object target) {
+    return ((Number) invokeQuietly(target)).shortValue();
+  }
+
+  @Override
+  public int getInt(Object target) {
+    return ((Number) invokeQuietly(target)).intValue();
+  }
+
+  @Override
+  public long getLong(Object target) {
+    return ((Number) invokeQuietly(target)).longValue();
+  }
+
+  @Override
+  public float getFloat(Object target) {
+    return ((Number) invokeQuietly(target)).floatValue();
+  }
+
+  @Override
+  public double getDouble(Object target) {
+    return ((Number) invokeQuietly(target)).doubleValue();
+  }
+
+  private Object invokeQuietly(Object target, Object... args) {
+    try {
+      return method.invoke(target, args);
+    } catch (Throwable t) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(t);
+      throw new ReflectionException("Could not invoke '" + method.getName() + "' of '" + target.getClass() + "'. Cause: " + cause, cause);
+    }
+  }
 }
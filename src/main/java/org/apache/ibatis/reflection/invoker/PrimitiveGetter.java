@@ -0,0 +1,39 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+/**
+ * 直接读基本类型属性的getter调用者，设置参数时不用装箱
+ * 反射的异常包装成ReflectionException抛出
+ *
+ */
+public interface PrimitiveGetter {
+
+  boolean getBoolean(Object target);
+
+  byte getByte(Object target);
+
+  short getShort(Object target);
+
+  int getInt(Object target);
+
+  long getLong(Object target);
+
+  float getFloat(Object target);
+
+  double getDouble(Object target);
+
+}
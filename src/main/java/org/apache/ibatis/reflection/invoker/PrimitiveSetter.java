@@ -0,0 +1,39 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+/**
+ * 直接写基本类型属性的setter调用者，结果映射时不用装箱
+ * 反射的异常包装成ReflectionException抛出
+ *
+ */
+public interface PrimitiveSetter {
+
+  void setBoolean(Object target, boolean value);
+
+  void setByte(Object target, byte value);
+
+  void setShort(Object target, short value);
+
+  void setInt(Object target, int value);
+
+  void setLong(Object target, long value);
+
+  void setFloat(Object target, float value);
+
+  void setDouble(Object target, double value);
+
+}
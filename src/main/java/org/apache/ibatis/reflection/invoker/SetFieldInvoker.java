@@ -18,6 +18,8 @@ package org.apache.ibatis.reflection.invoker;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 
+import org.apache.ibatis.reflection.ReflectionException;
+
 /**
  * @author Clinton Begin
  */
@@ -25,7 +27,7 @@ import java.lang.reflect.InvocationTargetException;
  * setter调用者
  * 
  */
-public class SetFieldInvoker implements Invoker {
+public class SetFieldInvoker implements Invoker, PrimitiveSetter {
   private Field field;
 
   public SetFieldInvoker(Field field) {
@@ -43,4 +45,71 @@ public class SetFieldInvoker implements Invoker {
   public Class<?> getType() {
     return field.getType();
   }
+
+  @Override
+  public void setBoolean(Object target, boolean value) {
+    try {
+      field.setBoolean(target, value);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public void setByte(Object target, byte value) {
+    try {
+      field.setByte(target, value);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public void setShort(Object target, short value) {
+    try {
+      field.setShort(target, value);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public void setInt(Object target, int value) {
+    try {
+      field.setInt(target, value);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public void setLong(Object target, long value) {
+    try {
+      field.setLong(target, value);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public void setFloat(Object target, float value) {
+    try {
+      field.setFloat(target, value);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  @Override
+  public void setDouble(Object target, double value) {
+    try {
+      field.setDouble(target, value);
+    } catch (IllegalAccessException e) {
+      throw fail(e);
+    }
+  }
+
+  private ReflectionException fail(IllegalAccessException e) {
+    return new ReflectionException("Could not set field '" + field.getName() + "' of '" + field.getDeclaringClass() + "'. Cause: " + e, e);
+  }
 }
@@ -85,6 +85,15 @@ public class BeanWrapper extends BaseWrapper {
     return metaClass.getSetterNames();
   }
 
+  //简单属性(不带.和[])的setter/getter调用者，基本类型属性直接读写时用
+  public Invoker getSetInvoker(String name) {
+    return metaClass.getSetInvoker(name);
+  }
+
+  public Invoker getGetInvoker(String name) {
+    return metaClass.getGetInvoker(name);
+  }
+
   @Override
   public Class<?> getSetterType(String name) {
     PropertyTokenizer prop = new PropertyTokenizer(name);
@@ -26,8 +26,12 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveGetter;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.PrimitiveTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
@@ -86,6 +90,10 @@ public class DefaultParameterHandler implements ParameterHandler {
           } else {
             //除此以外，MetaObject.getValue反射取得值设进去
             MetaObject metaObject = configuration.newMetaObject(parameterObject);
+            //基本类型属性直接从getter取值设参数，不装箱
+            if (setPrimitiveParameter(ps, i + 1, parameterMapping, metaObject)) {
+              continue;
+            }
             value = metaObject.getValue(propertyName);
           }
           TypeHandler typeHandler = parameterMapping.getTypeHandler();
@@ -100,4 +108,19 @@ public class DefaultParameterHandler implements ParameterHandler {
     }
   }
 
+  private boolean setPrimitiveParameter(PreparedStatement ps, int i, ParameterMapping parameterMapping, MetaObject metaObject) throws SQLException {
+    final TypeHandler<?> typeHandler = parameterMapping.getTypeHandler();
+    final String property = parameterMapping.getProperty();
+    if (!TypeHandlerRegistry.isPrimitiveTypeHandler(typeHandler) || parameterMapping.getJavaType() == null || !parameterMapping.getJavaType().isPrimitive()
+        || !(metaObject.getObjectWrapper() instanceof BeanWrapper) || property.indexOf('.') >= 0 || property.indexOf('[') >= 0) {
+      return false;
+    }
+    final Invoker invoker = ((BeanWrapper) metaObject.getObjectWrapper()).getGetInvoker(property);
+    if (!(invoker instanceof PrimitiveGetter) || !invoker.getType().isPrimitive()) {
+      return false;
+    }
+    ((PrimitiveTypeHandler) typeHandler).setPrimitiveParameter(ps, i, metaObject.getOriginalObject(), (PrimitiveGetter) invoker);
+    return true;
+  }
+
 }
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.defaults;
 
+import java.io.Serializable;
 import java.util.HashMap;
 
 import org.apache.ibatis.builder.SqlSourceBuilder;
@@ -35,7 +36,9 @@ import org.apache.ibatis.session.Configuration;
 /**
  * 原始SQL源码，比DynamicSqlSource快
  */
-public class RawSqlSource implements SqlSource {
+public class RawSqlSource implements SqlSource, Serializable {
+
+  private static final long serialVersionUID = 5202907035259551212L;
 
   private final SqlSource sqlSource;
 
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -24,7 +25,9 @@ import java.util.List;
  * choose SQL节点
  *
  */
-public class ChooseSqlNode implements SqlNode {
+public class ChooseSqlNode implements SqlNode, Serializable {
+
+  private static final long serialVersionUID = 4608675360401353848L;
   private SqlNode defaultSqlNode;
   private List<SqlNode> ifSqlNodes;
 
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.io.Serializable;
 import java.util.Map;
 
 import org.apache.ibatis.builder.SqlSourceBuilder;
@@ -29,7 +30,9 @@ import org.apache.ibatis.session.Configuration;
  * 动态SQL源码
  * 
  */
-public class DynamicSqlSource implements SqlSource {
+public class DynamicSqlSource implements SqlSource, Serializable {
+
+  private static final long serialVersionUID = 1969695898697700946L;
 
   private Configuration configuration;
   private SqlNode rootSqlNode;
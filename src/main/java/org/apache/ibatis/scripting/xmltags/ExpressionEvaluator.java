@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -30,7 +31,9 @@ import org.apache.ibatis.builder.BuilderException;
  * 表达式求值器
  * 可参考ExpressionEvaluatorTest
  */
-public class ExpressionEvaluator {
+public class ExpressionEvaluator implements Serializable {
+
+  private static final long serialVersionUID = -8300509646056254826L;
 
   //表达式求布尔值，比如username == 'cbegin'
   public boolean evaluateBoolean(String expression, Object parameterObject) {
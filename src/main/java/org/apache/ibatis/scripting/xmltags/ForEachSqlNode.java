@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.io.Serializable;
 import java.util.Map;
 
 import org.apache.ibatis.parsing.GenericTokenParser;
@@ -28,7 +29,9 @@ import org.apache.ibatis.session.Configuration;
  * foreach SQL节点
  *TODO
  */
-public class ForEachSqlNode implements SqlNode {
+public class ForEachSqlNode implements SqlNode, Serializable {
+
+  private static final long serialVersionUID = -3074817096123314463L;
   public static final String ITEM_PREFIX = "__frch_";
 
   private ExpressionEvaluator evaluator;
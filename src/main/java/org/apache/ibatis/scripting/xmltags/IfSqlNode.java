@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.io.Serializable;
+
 /**
  * @author Clinton Begin
  */
@@ -22,7 +24,9 @@ package org.apache.ibatis.scripting.xmltags;
  * if SQL节点
  *
  */
-public class IfSqlNode implements SqlNode {
+public class IfSqlNode implements SqlNode, Serializable {
+
+  private static final long serialVersionUID = -2675145517242550219L;
   private ExpressionEvaluator evaluator;
   private String test;
   private SqlNode contents;
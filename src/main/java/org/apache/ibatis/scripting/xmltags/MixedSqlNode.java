@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -24,7 +25,9 @@ import java.util.List;
  * 混合SQL节点
  * 
  */
-public class MixedSqlNode implements SqlNode {
+public class MixedSqlNode implements SqlNode, Serializable {
+
+  private static final long serialVersionUID = 3393563041874630611L;
   //组合模式，拥有一个SqlNode的List
   private List<SqlNode> contents;
 
@@ -25,6 +25,8 @@ import org.apache.ibatis.session.Configuration;
  */
 public class SetSqlNode extends TrimSqlNode {
 
+  private static final long serialVersionUID = -5904314826176091208L;
+
   private static List<String> suffixList = Arrays.asList(",");
 
   public SetSqlNode(Configuration configuration,SqlNode contents) {
@@ -15,13 +15,17 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.io.Serializable;
+
 /**
  * @author Clinton Begin
  */
 /**
  * 静态文本SQL节点
  */
-public class StaticTextSqlNode implements SqlNode {
+public class StaticTextSqlNode implements SqlNode, Serializable {
+
+  private static final long serialVersionUID = -3051436752712420047L;
   private String text;
 
   public StaticTextSqlNode(String text) {
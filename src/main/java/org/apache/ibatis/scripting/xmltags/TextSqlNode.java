@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.io.Serializable;
 import java.util.regex.Pattern;
 
 import org.apache.ibatis.parsing.GenericTokenParser;
@@ -29,7 +30,9 @@ import org.apache.ibatis.type.SimpleTypeRegistry;
  * 文本SQL节点（CDATA|TEXT）
  *
  */
-public class TextSqlNode implements SqlNode {
+public class TextSqlNode implements SqlNode, Serializable {
+
+  private static final long serialVersionUID = -3344787157971352935L;
   private String text;
   private Pattern injectionFilter;
 
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -27,7 +28,9 @@ import org.apache.ibatis.session.Configuration;
 /**
  * @author Clinton Begin
  */
-public class TrimSqlNode implements SqlNode {
+public class TrimSqlNode implements SqlNode, Serializable {
+
+  private static final long serialVersionUID = -7390188836816883552L;
 
   private SqlNode contents;
   private String prefix;
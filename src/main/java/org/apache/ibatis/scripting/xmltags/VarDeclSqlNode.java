@@ -15,10 +15,14 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.io.Serializable;
+
 /**
  * @author Frank D. Martinez [mnesarco]
  */
-public class VarDeclSqlNode implements SqlNode {
+public class VarDeclSqlNode implements SqlNode, Serializable {
+
+  private static final long serialVersionUID = 4191713592647717890L;
 
   private final String name;
   private final String expression;
@@ -25,6 +25,8 @@ import org.apache.ibatis.session.Configuration;
  */
 public class WhereSqlNode extends TrimSqlNode {
 
+  private static final long serialVersionUID = -3354166770392346647L;
+
   private static List<String> prefixList = Arrays.asList("AND ","OR ","AND\n", "OR\n", "AND\r", "OR\r", "AND\t", "OR\t");
 
   public WhereSqlNode(Configuration configuration, SqlNode contents) {
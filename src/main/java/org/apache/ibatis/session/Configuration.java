@@ -15,19 +15,30 @@
  */
 package org.apache.ibatis.session;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
+import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.ResultMapResolver;
+import org.apache.ibatis.builder.StatementResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
@@ -44,10 +55,22 @@ import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.executor.bulk.BulkLoadSupport;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
+import org.apache.ibatis.executor.metrics.InstrumentedResultSetHandler;
+import org.apache.ibatis.executor.metrics.InstrumentedStatementHandler;
+import org.apache.ibatis.executor.metrics.StatementMetrics;
+import org.apache.ibatis.executor.metrics.StatementMetricsRegistry;
+import org.apache.ibatis.executor.metrics.StatementMetricsSnapshot;
+import org.apache.ibatis.executor.pagination.Dialect;
+import org.apache.ibatis.executor.pagination.Dialects;
+import org.apache.ibatis.executor.pagination.LimitOffsetDialect;
+import org.apache.ibatis.executor.pagination.OffsetFetchDialect;
+import org.apache.ibatis.executor.pagination.PaginationSupport;
+import org.apache.ibatis.executor.pagination.RownumDialect;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
@@ -56,6 +79,7 @@ import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.logging.commons.JakartaCommonsLoggingImpl;
+import org.apache.ibatis.logging.jdbc.SqlEventLog;
 import org.apache.ibatis.logging.jdk14.Jdk14LoggingImpl;
 import org.apache.ibatis.logging.log4j.Log4jImpl;
 import org.apache.ibatis.logging.log4j2.Log4j2Impl;
@@ -63,6 +87,7 @@ import org.apache.ibatis.logging.nologging.NoLoggingImpl;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.logging.stdout.StdOutImpl;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.CacheBuilder;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMap;
@@ -117,9 +142,40 @@ public class Configuration {
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
   protected Set<String> lazyLoadTriggerMethods = new HashSet<String>(Arrays.asList(new String[] { "equals", "clone", "hashCode", "toString" }));
   protected Integer defaultStatementTimeout;
+  protected Integer defaultFetchSize;
+  //全局的最大行数，语句上的maxRows优先
+  protected Integer defaultMaxRows;
+  protected MaxRowsExceededBehavior maxRowsExceededBehavior = MaxRowsExceededBehavior.FAIL;
+  //慢语句阈值(毫秒)，超过的会打印警告日志
+  protected Integer slowStatementThreshold;
   //默认为简单执行器
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
+  //默认不统计语句执行情况
+  protected boolean statementMetricsEnabled = false;
+  //默认在内存中分页，开启后改写为数据库的分页SQL
+  protected boolean databasePagination = false;
+  //分页方言，不配置则根据databaseId推断
+  protected Dialect paginationDialect;
+  //简单结果映射是否用多个线程并行映射，以及线程数和每批的行数
+  protected boolean parallelResultMapping = false;
+  protected int parallelResultMappingThreads = Runtime.getRuntime().availableProcessors();
+  protected int parallelResultMappingBatchSize = 256;
+  //启动时是否并行解析映射器XML
+  protected boolean parallelMapperParsing = false;
+  //映射器元数据快照文件，配置了才会读写快照
+  protected String configurationSnapshot;
+  //延迟构建语句，启动时只登记，第一次查找时才构建MappedStatement
+  protected boolean lazyStatementBuilding = false;
+  //异步SQL日志，代替JDBC日志代理
+  protected boolean asyncSqlLog = false;
+  protected int asyncSqlLogBufferSize = 8192;
+  //每N条语句记一条
+  protected int asyncSqlLogSampleRate = 1;
+  //并行分发查询(ScatterGatherExecutor)的线程数
+  protected int scatterGatherThreads = 8;
+  //批量装载退回到JDBC批处理时每批的行数
+  protected int bulkLoadBatchSize = 1000;
   //---------以上都是<settings>节点-------
 
   protected Properties variables = new Properties();
@@ -148,6 +204,18 @@ public class Configuration {
   //类型别名注册机
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
+  //语句执行统计
+  protected final StatementMetricsRegistry statementMetricsRegistry = new StatementMetricsRegistry();
+  //数据库分页
+  protected final PaginationSupport paginationSupport = new PaginationSupport(this);
+  //批量装载
+  protected final BulkLoadSupport bulkLoadSupport = new BulkLoadSupport(this);
+  //并行结果映射的线程池，第一次用到时才创建
+  protected ExecutorService resultMappingExecutor;
+  //异步SQL日志，第一次用到时才创建
+  protected volatile SqlEventLog sqlEventLog;
+  //并行分发查询的线程池，第一次用到时才创建
+  protected ExecutorService scatterGatherExecutorService;
 
   //映射的语句,存在Map里
   protected final Map<String, MappedStatement> mappedStatements = new StrictMap<MappedStatement>("Mapped Statements collection");
@@ -161,6 +229,11 @@ public class Configuration {
   protected final Set<String> loadedResources = new HashSet<String>();
   protected final Map<String, XNode> sqlFragments = new StrictMap<XNode>("XML fragments parsed from previous mappers");
 
+  //延迟构建时还没构建的语句，按语句全名登记
+  protected final Map<String, StatementResolver> pendingStatements = new LinkedHashMap<String, StatementResolver>();
+  //延迟构建时已经查找过的语句，无锁读取
+  protected final ConcurrentMap<String, MappedStatement> resolvedStatements = new ConcurrentHashMap<String, MappedStatement>();
+
   //不完整的SQL语句
   protected final Collection<XMLStatementBuilder> incompleteStatements = new LinkedList<XMLStatementBuilder>();
   protected final Collection<CacheRefResolver> incompleteCacheRefs = new LinkedList<CacheRefResolver>();
@@ -173,6 +246,8 @@ public class Configuration {
    * namespace which the actual cache is bound to.
    */
   protected final Map<String, String> cacheRefMap = new HashMap<String, String>();
+  //构建缓存用的CacheBuilder，写快照时靠它重建缓存
+  protected final Map<String, CacheBuilder> cacheDefinitions = new HashMap<String, CacheBuilder>();
 
   public Configuration(Environment environment) {
     this();
@@ -210,6 +285,10 @@ public class Configuration {
     typeAliasRegistry.registerAlias("CGLIB", CglibProxyFactory.class);
     typeAliasRegistry.registerAlias("JAVASSIST", JavassistProxyFactory.class);
 
+    typeAliasRegistry.registerAlias("LIMIT_OFFSET", LimitOffsetDialect.class);
+    typeAliasRegistry.registerAlias("OFFSET_FETCH", OffsetFetchDialect.class);
+    typeAliasRegistry.registerAlias("ROWNUM", RownumDialect.class);
+
     languageRegistry.setDefaultDriverClass(XMLLanguageDriver.class);
     languageRegistry.register(RawLanguageDriver.class);
   }
@@ -290,6 +369,10 @@ public class Configuration {
     return loadedResources.contains(resource);
   }
 
+  public Set<String> getLoadedResources() {
+    return Collections.unmodifiableSet(loadedResources);
+  }
+
   public Environment getEnvironment() {
     return environment;
   }
@@ -381,6 +464,38 @@ public class Configuration {
     this.defaultStatementTimeout = defaultStatementTimeout;
   }
 
+  public Integer getDefaultFetchSize() {
+    return defaultFetchSize;
+  }
+
+  public void setDefaultFetchSize(Integer defaultFetchSize) {
+    this.defaultFetchSize = defaultFetchSize;
+  }
+
+  public Integer getDefaultMaxRows() {
+    return defaultMaxRows;
+  }
+
+  public void setDefaultMaxRows(Integer defaultMaxRows) {
+    this.defaultMaxRows = defaultMaxRows;
+  }
+
+  public MaxRowsExceededBehavior getMaxRowsExceededBehavior() {
+    return maxRowsExceededBehavior;
+  }
+
+  public void setMaxRowsExceededBehavior(MaxRowsExceededBehavior maxRowsExceededBehavior) {
+    this.maxRowsExceededBehavior = maxRowsExceededBehavior;
+  }
+
+  public Integer getSlowStatementThreshold() {
+    return slowStatementThreshold;
+  }
+
+  public void setSlowStatementThreshold(Integer slowStatementThreshold) {
+    this.slowStatementThreshold = slowStatementThreshold;
+  }
+
   public boolean isUseColumnLabel() {
     return useColumnLabel;
   }
@@ -405,6 +520,234 @@ public class Configuration {
     this.jdbcTypeForNull = jdbcTypeForNull;
   }
 
+  public boolean isStatementMetricsEnabled() {
+    return statementMetricsEnabled;
+  }
+
+  public void setStatementMetricsEnabled(boolean statementMetricsEnabled) {
+    this.statementMetricsEnabled = statementMetricsEnabled;
+  }
+
+  public int getStatementMetricsSampleInterval() {
+    return statementMetricsRegistry.getSampleInterval();
+  }
+
+  //每N次执行计时一次，1表示每次都计时
+  public void setStatementMetricsSampleInterval(int statementMetricsSampleInterval) {
+    statementMetricsRegistry.setSampleInterval(statementMetricsSampleInterval);
+  }
+
+  public StatementMetricsRegistry getStatementMetricsRegistry() {
+    return statementMetricsRegistry;
+  }
+
+  //取得某条语句的执行统计，没有执行过返回null
+  public StatementMetricsSnapshot getStatementMetrics(String statementId) {
+    return statementMetricsRegistry.getSnapshot(statementId);
+  }
+
+  public Collection<StatementMetricsSnapshot> getStatementMetrics() {
+    return statementMetricsRegistry.getSnapshots();
+  }
+
+  public boolean isDatabasePagination() {
+    return databasePagination;
+  }
+
+  public void setDatabasePagination(boolean databasePagination) {
+    this.databasePagination = databasePagination;
+  }
+
+  //没有显式配置方言时，根据databaseId推断，推断不出返回null
+  public Dialect getPaginationDialect() {
+    if (paginationDialect != null) {
+      return paginationDialect;
+    }
+    return Dialects.forDatabaseId(databaseId);
+  }
+
+  public void setPaginationDialect(Dialect paginationDialect) {
+    this.paginationDialect = paginationDialect;
+  }
+
+  public PaginationSupport getPaginationSupport() {
+    return paginationSupport;
+  }
+
+  public boolean isParallelResultMapping() {
+    return parallelResultMapping;
+  }
+
+  public void setParallelResultMapping(boolean parallelResultMapping) {
+    this.parallelResultMapping = parallelResultMapping;
+  }
+
+  public int getParallelResultMappingThreads() {
+    return parallelResultMappingThreads;
+  }
+
+  public void setParallelResultMappingThreads(int parallelResultMappingThreads) {
+    this.parallelResultMappingThreads = parallelResultMappingThreads;
+  }
+
+  public int getParallelResultMappingBatchSize() {
+    return parallelResultMappingBatchSize;
+  }
+
+  public void setParallelResultMappingBatchSize(int parallelResultMappingBatchSize) {
+    this.parallelResultMappingBatchSize = parallelResultMappingBatchSize;
+  }
+
+  public boolean isParallelMapperParsing() {
+    return parallelMapperParsing;
+  }
+
+  public void setParallelMapperParsing(boolean parallelMapperParsing) {
+    this.parallelMapperParsing = parallelMapperParsing;
+  }
+
+  public String getConfigurationSnapshot() {
+    return configurationSnapshot;
+  }
+
+  public void setConfigurationSnapshot(String configurationSnapshot) {
+    this.configurationSnapshot = configurationSnapshot;
+  }
+
+  public boolean isLazyStatementBuilding() {
+    return lazyStatementBuilding;
+  }
+
+  public void setLazyStatementBuilding(boolean lazyStatementBuilding) {
+    this.lazyStatementBuilding = lazyStatementBuilding;
+  }
+
+  public boolean isAsyncSqlLog() {
+    return asyncSqlLog;
+  }
+
+  public void setAsyncSqlLog(boolean asyncSqlLog) {
+    this.asyncSqlLog = asyncSqlLog;
+  }
+
+  public int getAsyncSqlLogBufferSize() {
+    return asyncSqlLogBufferSize;
+  }
+
+  public void setAsyncSqlLogBufferSize(int asyncSqlLogBufferSize) {
+    this.asyncSqlLogBufferSize = asyncSqlLogBufferSize;
+  }
+
+  public int getAsyncSqlLogSampleRate() {
+    return asyncSqlLogSampleRate;
+  }
+
+  public void setAsyncSqlLogSampleRate(int asyncSqlLogSampleRate) {
+    this.asyncSqlLogSampleRate = asyncSqlLogSampleRate;
+  }
+
+  //asyncSqlLog打开时执行器用它，一个后台守护线程
+  public SqlEventLog getSqlEventLog() {
+    SqlEventLog log = sqlEventLog;
+    if (log == null) {
+      synchronized (this) {
+        log = sqlEventLog;
+        if (log == null) {
+          log = new SqlEventLog(asyncSqlLogBufferSize, asyncSqlLogSampleRate);
+          sqlEventLog = log;
+        }
+      }
+    }
+    return log;
+  }
+
+  /**
+   * Writes the pending asyncSqlLog events and stops its background thread. Call it when the
+   * SqlSessionFactory is discarded; otherwise it runs at JVM shutdown.
+   */
+  public void closeSqlEventLog() {
+    SqlEventLog log;
+    synchronized (this) {
+      log = sqlEventLog;
+      sqlEventLog = null;
+    }
+    if (log != null) {
+      log.close();
+    }
+  }
+
+  //拍平拦截器链，存在InterceptorChain里
+  public boolean isFlatInterceptorChain() {
+    return interceptorChain.isFlat();
+  }
+
+  public void setFlatInterceptorChain(boolean flatInterceptorChain) {
+    interceptorChain.setFlat(flatInterceptorChain);
+  }
+
+  //默认是parallelResultMappingThreads个守护线程
+  public synchronized ExecutorService getResultMappingExecutor() {
+    if (resultMappingExecutor == null) {
+      resultMappingExecutor = Executors.newFixedThreadPool(Math.max(1, parallelResultMappingThreads), new ThreadFactory() {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "mybatis-result-mapping-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return resultMappingExecutor;
+  }
+
+  //也可以用应用自己的线程池
+  public synchronized void setResultMappingExecutor(ExecutorService resultMappingExecutor) {
+    this.resultMappingExecutor = resultMappingExecutor;
+  }
+
+  public int getScatterGatherThreads() {
+    return scatterGatherThreads;
+  }
+
+  public void setScatterGatherThreads(int scatterGatherThreads) {
+    this.scatterGatherThreads = scatterGatherThreads;
+  }
+
+  //默认是scatterGatherThreads个守护线程，每个线程同时占一个连接
+  public synchronized ExecutorService getScatterGatherExecutorService() {
+    if (scatterGatherExecutorService == null) {
+      scatterGatherExecutorService = Executors.newFixedThreadPool(Math.max(1, scatterGatherThreads), new ThreadFactory() {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "mybatis-scatter-gather-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return scatterGatherExecutorService;
+  }
+
+  public synchronized void setScatterGatherExecutorService(ExecutorService scatterGatherExecutorService) {
+    this.scatterGatherExecutorService = scatterGatherExecutorService;
+  }
+
+  public int getBulkLoadBatchSize() {
+    return bulkLoadBatchSize;
+  }
+
+  public void setBulkLoadBatchSize(int bulkLoadBatchSize) {
+    this.bulkLoadBatchSize = bulkLoadBatchSize;
+  }
+
+  public BulkLoadSupport getBulkLoadSupport() {
+    return bulkLoadSupport;
+  }
+
   public Properties getVariables() {
     return variables;
   }
@@ -483,10 +826,20 @@ public class Configuration {
   //创建结果集处理器
   public ResultSetHandler newResultSetHandler(Executor executor, MappedStatement mappedStatement, RowBounds rowBounds, ParameterHandler parameterHandler,
       ResultHandler resultHandler, BoundSql boundSql) {
+    StatementMetrics metrics = statementMetricsEnabled ? statementMetricsRegistry.getMetrics(mappedStatement.getId()) : null;
+    boolean countsOwnRows = resultHandler == null;
+    if (metrics != null && resultHandler != null) {
+      resultHandler = new InstrumentedResultSetHandler.CountingResultHandler(resultHandler, metrics);
+    }
     //创建DefaultResultSetHandler(稍老一点的版本3.1是创建NestedResultSetHandler或者FastResultSetHandler)
     ResultSetHandler resultSetHandler = new DefaultResultSetHandler(executor, mappedStatement, parameterHandler, resultHandler, boundSql, rowBounds);
     //插件在这里插入
     resultSetHandler = (ResultSetHandler) interceptorChain.pluginAll(resultSetHandler);
+    //需要统计的话，在插件之后包一层，插件看到的还是原来的处理器
+    if (metrics != null) {
+      resultSetHandler = new InstrumentedResultSetHandler(resultSetHandler, metrics, statementMetricsRegistry.shouldSampleMapping(),
+          countsOwnRows, mappedStatement.getResultMaps().size() > 1);
+    }
     return resultSetHandler;
   }
 
@@ -496,6 +849,11 @@ public class Configuration {
     StatementHandler statementHandler = new RoutingStatementHandler(executor, mappedStatement, parameterObject, rowBounds, resultHandler, boundSql);
     //插件在这里插入
     statementHandler = (StatementHandler) interceptorChain.pluginAll(statementHandler);
+    //需要统计的话，在插件之后包一层，插件看到的还是RoutingStatementHandler(分页插件常用delegate.boundSql)
+    if (statementMetricsEnabled) {
+      statementHandler = new InstrumentedStatementHandler(statementHandler, statementMetricsRegistry.getMetrics(mappedStatement.getId()),
+          statementMetricsRegistry.shouldSampleExecution());
+    }
     return statementHandler;
   }
 
@@ -550,6 +908,14 @@ public class Configuration {
     caches.put(cache.getId(), cache);
   }
 
+  public void addCacheDefinition(String id, CacheBuilder cacheBuilder) {
+    cacheDefinitions.put(id, cacheBuilder);
+  }
+
+  public CacheBuilder getCacheDefinition(String id) {
+    return cacheDefinitions.get(id);
+  }
+
   public Collection<String> getCacheNames() {
     return caches.keySet();
   }
@@ -613,15 +979,33 @@ public class Configuration {
   }
 
   public Collection<String> getMappedStatementNames() {
+    buildPendingStatements();
     buildAllStatements();
     return mappedStatements.keySet();
   }
 
   public Collection<MappedStatement> getMappedStatements() {
+    buildPendingStatements();
     buildAllStatements();
     return mappedStatements.values();
   }
 
+  //登记一个延迟构建的语句，id重复和直接添加语句一样报错
+  public void addPendingStatement(String id, StatementResolver resolver) {
+    synchronized (pendingStatements) {
+      if (pendingStatements.containsKey(id) || mappedStatements.containsKey(id)) {
+        throw new IllegalArgumentException("Mapped Statements collection already contains value for " + id);
+      }
+      pendingStatements.put(id, resolver);
+    }
+  }
+
+  public StatementResolver getPendingStatement(String id) {
+    synchronized (pendingStatements) {
+      return pendingStatements.get(id);
+    }
+  }
+
   public Collection<XMLStatementBuilder> getIncompleteStatements() {
     return incompleteStatements;
   }
@@ -664,9 +1048,28 @@ public class Configuration {
     if (validateIncompleteStatements) {
       buildAllStatements();
     }
+    if (lazyStatementBuilding) {
+      return getLazyMappedStatement(id);
+    }
     return mappedStatements.get(id);
   }
 
+  //已经查找过的直接返回，否则加锁构建，构建好的语句通过ConcurrentMap发布给其他线程
+  protected MappedStatement getLazyMappedStatement(String id) {
+    MappedStatement ms = resolvedStatements.get(id);
+    if (ms == null) {
+      synchronized (pendingStatements) {
+        buildPendingStatement(id);
+        ms = mappedStatements.get(id);
+      }
+      //短名称以后可能变得模糊，只记全名
+      if (id.indexOf('.') > 0) {
+        resolvedStatements.put(id, ms);
+      }
+    }
+    return ms;
+  }
+
   public Map<String, XNode> getSqlFragments() {
     return sqlFragments;
   }
@@ -704,12 +1107,25 @@ public class Configuration {
     if (validateIncompleteStatements) {
       buildAllStatements();
     }
+    if (lazyStatementBuilding) {
+      if (resolvedStatements.containsKey(statementName)) {
+        return true;
+      }
+      synchronized (pendingStatements) {
+        return mappedStatements.containsKey(statementName) || pendingStatements.containsKey(statementName)
+            || hasPendingShortName(statementName);
+      }
+    }
     return mappedStatements.containsKey(statementName);
   }
 
   public void addCacheRef(String namespace, String referencedNamespace) {
     cacheRefMap.put(namespace, referencedNamespace);
   }
+
+  public Map<String, String> getCacheRefs() {
+    return Collections.unmodifiableMap(cacheRefMap);
+  }
   
   /*
    * Parses all the unprocessed statement nodes in the cache. It is recommended
@@ -743,6 +1159,63 @@ public class Configuration {
     }
   }
 
+  /*
+   * Builds and validates every statement, including the ones registered for lazy building.
+   * With lazyStatementBuilding enabled this is the fail-fast check that startup no longer does.
+   */
+  public void validateStatements() {
+    buildPendingStatements();
+    buildAllStatements();
+  }
+
+  //构建所有延迟登记的语句
+  protected void buildPendingStatements() {
+    synchronized (pendingStatements) {
+      while (!pendingStatements.isEmpty()) {
+        buildPendingStatement(pendingStatements.keySet().iterator().next());
+      }
+    }
+  }
+
+  //构建一个延迟登记的语句，用短名称查找时构建所有同名的，模糊的情况交给StrictMap报错
+  private void buildPendingStatement(String id) {
+    StatementResolver resolver = pendingStatements.remove(id);
+    if (resolver != null) {
+      resolvePendingStatement(id, resolver);
+    } else if (id.indexOf('.') < 0) {
+      List<String> matches = new ArrayList<String>();
+      for (String pendingId : pendingStatements.keySet()) {
+        if (id.equals(pendingId.substring(pendingId.lastIndexOf('.') + 1))) {
+          matches.add(pendingId);
+        }
+      }
+      for (String pendingId : matches) {
+        resolvePendingStatement(pendingId, pendingStatements.remove(pendingId));
+      }
+    }
+  }
+
+  private void resolvePendingStatement(String id, StatementResolver resolver) {
+    try {
+      resolver.resolve();
+    } catch (IncompleteElementException e) {
+      //缺的东西以后可能会加进来，放回去下次再试
+      pendingStatements.put(id, resolver);
+      throw e;
+    }
+  }
+
+  private boolean hasPendingShortName(String id) {
+    if (id.indexOf('.') < 0) {
+      for (String pendingId : pendingStatements.keySet()) {
+        if (id.equals(pendingId.substring(pendingId.lastIndexOf('.') + 1))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   /*
    * Extracts namespace from fully qualified statement id.
    *
@@ -0,0 +1,82 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.ibatis.executor.pagination.PaginationSupport;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * 用键集分页遍历整张表
+ * 每页的缓存key里有页标记的键值，各页互不影响，不用清会话的本地缓存
+ * 扫描很大的表时，给语句设置flushCache="true"或者用localCacheScope=STATEMENT，已经读过的页就不会留在本地缓存里
+ *
+ */
+public class KeysetIterator<E> implements Iterator<E> {
+
+  private final SqlSession sqlSession;
+  private final String statement;
+  private final Object parameter;
+  private final MappedStatement mappedStatement;
+  private final PaginationSupport paginationSupport;
+
+  private PageToken pageToken;
+  private Iterator<E> page;
+
+  public KeysetIterator(SqlSession sqlSession, String statement, Object parameter, int pageSize) {
+    this(sqlSession, statement, parameter, PageToken.first(pageSize));
+  }
+
+  public KeysetIterator(SqlSession sqlSession, String statement, Object parameter, PageToken firstPageToken) {
+    this.sqlSession = sqlSession;
+    this.statement = statement;
+    this.parameter = parameter;
+    this.mappedStatement = sqlSession.getConfiguration().getMappedStatement(statement);
+    this.paginationSupport = sqlSession.getConfiguration().getPaginationSupport();
+    this.pageToken = firstPageToken;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while ((page == null || !page.hasNext()) && pageToken != null) {
+      fetchPage();
+    }
+    return page != null && page.hasNext();
+  }
+
+  @Override
+  public E next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return page.next();
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("Cannot remove an element from a keyset iterator");
+  }
+
+  private void fetchPage() {
+    List<E> items = sqlSession.<E>selectList(statement, parameter, pageToken);
+    pageToken = paginationSupport.getNextPageToken(mappedStatement, items, pageToken);
+    page = items.iterator();
+  }
+
+}
@@ -0,0 +1,48 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+
+/**
+ * 键集分页的一页结果
+ * 映射器方法返回KeysetPage并且带一个PageToken参数时，就按键集分页查询
+ *
+ */
+public class KeysetPage<E> {
+
+  private final List<E> items;
+  private final PageToken nextPageToken;
+
+  public KeysetPage(List<E> items, PageToken nextPageToken) {
+    this.items = items;
+    this.nextPageToken = nextPageToken;
+  }
+
+  public List<E> getItems() {
+    return items;
+  }
+
+  //最后一页返回null
+  public PageToken getNextPageToken() {
+    return nextPageToken;
+  }
+
+  public boolean hasNext() {
+    return nextPageToken != null;
+  }
+
+}
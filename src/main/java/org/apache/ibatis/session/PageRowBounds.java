@@ -0,0 +1,51 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * 带总行数的分页
+ * 开启databasePagination时，查询前先执行count语句，把总行数放进total，再查询这一页
+ *
+ */
+public class PageRowBounds extends RowBounds {
+
+  //是否查询总行数
+  private final boolean count;
+  private Long total;
+
+  public PageRowBounds(int offset, int limit) {
+    this(offset, limit, true);
+  }
+
+  public PageRowBounds(int offset, int limit, boolean count) {
+    super(offset, limit);
+    this.count = count;
+  }
+
+  public boolean isCount() {
+    return count;
+  }
+
+  //没有查询总行数时返回null
+  public Long getTotal() {
+    return total;
+  }
+
+  public void setTotal(Long total) {
+    this.total = total;
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.Arrays;
+
+/**
+ * 键集(seek)分页的页标记
+ * 记录上一页最后一行的排序键(结果映射里的id)，下一页用 where 键 > 上一页的键 来定位，而不是跳过offset行
+ * 第一页用PageToken.first(pageSize)，后面的页用KeysetPage.getNextPageToken()
+ *
+ */
+public class PageToken extends RowBounds {
+
+  //上一页最后一行的键值，第一页为null
+  private final Object[] keyValues;
+  private final boolean descending;
+
+  public PageToken(int pageSize) {
+    this(pageSize, null, false);
+  }
+
+  public PageToken(int pageSize, Object[] keyValues, boolean descending) {
+    super(NO_ROW_OFFSET, pageSize);
+    this.keyValues = keyValues == null ? null : keyValues.clone();
+    this.descending = descending;
+  }
+
+  public static PageToken first(int pageSize) {
+    return new PageToken(pageSize);
+  }
+
+  //倒序翻页的第一页
+  public static PageToken firstDescending(int pageSize) {
+    return new PageToken(pageSize, null, true);
+  }
+
+  //同样的页大小和方向，从给定的键之后开始
+  public PageToken next(Object[] lastKeyValues) {
+    return new PageToken(getPageSize(), lastKeyValues, descending);
+  }
+
+  public int getPageSize() {
+    return getLimit();
+  }
+
+  public boolean isFirstPage() {
+    return keyValues == null;
+  }
+
+  public Object[] getKeyValues() {
+    return keyValues == null ? null : keyValues.clone();
+  }
+
+  public boolean isDescending() {
+    return descending;
+  }
+
+  @Override
+  public String toString() {
+    return "PageToken" + (keyValues == null ? "[first]" : Arrays.toString(keyValues)) + (descending ? " desc" : "") + " size " + getPageSize();
+  }
+
+}
@@ -17,6 +17,7 @@ package org.apache.ibatis.session;
 
 import java.io.Closeable;
 import java.sql.Connection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -223,6 +224,26 @@ public interface SqlSession extends Closeable {
    */
   int delete(String statement, Object parameter);
 
+  /**
+   * Loads a stream of rows through an insert statement. Uses the database's native bulk load (such as
+   * PostgreSQL COPY) when the statement is a plain insert, otherwise falls back to chunked JDBC batches.
+   * 批量装载，返回装载的行数
+   * @param statement Unique identifier matching the insert statement to execute.
+   * @param rows The parameter objects, one per row.
+   * @return long The number of rows loaded.
+   */
+  long bulkLoad(String statement, Iterator<?> rows);
+
+  /**
+   * Loads a stream of rows into a table, taking the columns from a result map's column/property mappings.
+   * 按结果映射的列批量装载，返回装载的行数
+   * @param table The table to load into.
+   * @param resultMap Unique identifier matching the result map that describes the columns.
+   * @param rows The objects to load, one per row.
+   * @return long The number of rows loaded.
+   */
+  long bulkLoad(String table, String resultMap, Iterator<?> rows);
+
   //以下是事务控制方法,commit,rollback
   /**
    * Flushes batch statements and commits database connection.
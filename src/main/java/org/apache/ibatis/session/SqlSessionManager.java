@@ -21,6 +21,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -244,6 +245,16 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionProxy.delete(statement, parameter);
   }
 
+  @Override
+  public long bulkLoad(String statement, Iterator<?> rows) {
+    return sqlSessionProxy.bulkLoad(statement, rows);
+  }
+
+  @Override
+  public long bulkLoad(String table, String resultMap, Iterator<?> rows) {
+    return sqlSessionProxy.bulkLoad(table, resultMap, rows);
+  }
+
   @Override
   public <T> T getMapper(Class<T> type) {
     return getConfiguration().getMapper(type, this);
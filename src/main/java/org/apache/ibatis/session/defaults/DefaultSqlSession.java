@@ -19,6 +19,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +32,7 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -205,6 +207,32 @@ public class DefaultSqlSession implements SqlSession {
     return update(statement, parameter);
   }
 
+  @Override
+  public long bulkLoad(String statement, Iterator<?> rows) {
+    try {
+      dirty = true;
+      MappedStatement ms = configuration.getMappedStatement(statement);
+      return configuration.getBulkLoadSupport().load(executor, ms, rows);
+    } catch (Exception e) {
+      throw ExceptionFactory.wrapException("Error bulk loading.  Cause: " + e, e);
+    } finally {
+      ErrorContext.instance().reset();
+    }
+  }
+
+  @Override
+  public long bulkLoad(String table, String resultMap, Iterator<?> rows) {
+    try {
+      dirty = true;
+      ResultMap rm = configuration.getResultMap(resultMap);
+      return configuration.getBulkLoadSupport().load(executor, table, rm, rows);
+    } catch (Exception e) {
+      throw ExceptionFactory.wrapException("Error bulk loading.  Cause: " + e, e);
+    } finally {
+      ErrorContext.instance().reset();
+    }
+  }
+
   @Override
   public void commit() {
     commit(false);
@@ -18,6 +18,9 @@ package org.apache.ibatis.session.defaults;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.routing.RoutingDataSource;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
@@ -99,8 +102,13 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
     try {
       final Environment environment = configuration.getEnvironment();
       final TransactionFactory transactionFactory = getTransactionFactoryFromEnvironment(environment);
-      //通过事务工厂来产生一个事务
-      tx = transactionFactory.newTransaction(environment.getDataSource(), level, autoCommit);
+      //通过事务工厂来产生一个事务，路由数据源(比如读写分离)自己产生跨多个数据源的事务
+      final DataSource dataSource = environment.getDataSource();
+      if (dataSource instanceof RoutingDataSource) {
+        tx = ((RoutingDataSource) dataSource).newTransaction(transactionFactory, level, autoCommit);
+      } else {
+        tx = transactionFactory.newTransaction(dataSource, level, autoCommit);
+      }
       //生成一个执行器(事务包含在执行器里)
       final Executor executor = configuration.newExecutor(tx, execType);
       //然后产生一个DefaultSqlSession
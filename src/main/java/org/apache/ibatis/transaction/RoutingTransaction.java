@@ -0,0 +1,48 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.transaction;
+
+import java.sql.SQLException;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * A transaction spanning more than one data source. The executor calls {@link #route} before each statement,
+ * and {@link #getConnection()} then returns the connection the statement should run on.
+ * 路由事务，每条语句执行前先选好用哪个连接
+ *
+ */
+public interface RoutingTransaction extends Transaction {
+
+  /**
+   * Selects the connection for the statement about to be executed with the given parameter.
+   * The boundSql is the one the executor already built for it, or null when it has not built one yet (updates).
+   */
+  void route(MappedStatement ms, Object parameter, BoundSql boundSql) throws SQLException;
+
+  /**
+   * Identifies the current route. Executors that cache prepared statements keep them apart per route.
+   */
+  String getRouteId();
+
+  /**
+   * Identifies the route the statement would take with the given parameter, when the rows it returns depend on
+   * the route. Cache keys include it. Returns null when every route returns the same rows.
+   */
+  Object getRouteKey(MappedStatement ms, Object parameter, BoundSql boundSql);
+
+}
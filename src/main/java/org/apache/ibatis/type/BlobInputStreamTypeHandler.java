@@ -0,0 +1,69 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps a BLOB column to an {@link InputStream} without reading it into memory.
+ * The stream is backed by the driver's LOB locator and is only usable while the connection
+ * (and, for most drivers, the result set) is open, so it is meant for ResultHandler or cursor reads.
+ * <p>
+ * Parameters are bound with the length-less {@code setBinaryStream(int, InputStream)}, because an
+ * InputStream does not carry its length. That overload needs a JDBC 4 driver, and some drivers buffer
+ * the whole stream before sending it. When the length is known, bind a {@code byte[]} or a {@link Blob} instead.
+ * 流式BLOB类型处理器
+ *
+ */
+public class BlobInputStreamTypeHandler extends BaseTypeHandler<InputStream> {
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, InputStream parameter, JdbcType jdbcType)
+      throws SQLException {
+    //不知道长度，只能用不带长度的重载
+    ps.setBinaryStream(i, parameter);
+  }
+
+  @Override
+  public InputStream getNullableResult(ResultSet rs, String columnName)
+      throws SQLException {
+    return toInputStream(rs.getBlob(columnName));
+  }
+
+  @Override
+  public InputStream getNullableResult(ResultSet rs, int columnIndex)
+      throws SQLException {
+    return toInputStream(rs.getBlob(columnIndex));
+  }
+
+  @Override
+  public InputStream getNullableResult(CallableStatement cs, int columnIndex)
+      throws SQLException {
+    return toInputStream(cs.getBlob(columnIndex));
+  }
+
+  private InputStream toInputStream(Blob blob) throws SQLException {
+    if (blob == null) {
+      return null;
+    }
+    return blob.getBinaryStream();
+  }
+}
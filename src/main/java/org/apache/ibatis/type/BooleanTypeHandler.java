@@ -20,10 +20,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import org.apache.ibatis.reflection.invoker.PrimitiveGetter;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+
 /**
  * @author Clinton Begin
  */
-public class BooleanTypeHandler extends BaseTypeHandler<Boolean> {
+public class BooleanTypeHandler extends BaseTypeHandler<Boolean> implements PrimitiveTypeHandler {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Boolean parameter, JdbcType jdbcType)
@@ -48,4 +51,21 @@ public class BooleanTypeHandler extends BaseTypeHandler<Boolean> {
       throws SQLException {
     return cs.getBoolean(columnIndex);
   }
+
+  @Override
+  public boolean getPrimitiveResult(ResultSet rs, int columnIndex, Object target, PrimitiveSetter setter)
+      throws SQLException {
+    boolean result = rs.getBoolean(columnIndex);
+    if (rs.wasNull()) {
+      return false;
+    }
+    setter.setBoolean(target, result);
+    return true;
+  }
+
+  @Override
+  public void setPrimitiveParameter(PreparedStatement ps, int i, Object target, PrimitiveGetter getter)
+      throws SQLException {
+    ps.setBoolean(i, getter.getBoolean(target));
+  }
 }
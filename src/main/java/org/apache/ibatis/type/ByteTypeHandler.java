@@ -20,10 +20,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import org.apache.ibatis.reflection.invoker.PrimitiveGetter;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+
 /**
  * @author Clinton Begin
  */
-public class ByteTypeHandler extends BaseTypeHandler<Byte> {
+public class ByteTypeHandler extends BaseTypeHandler<Byte> implements PrimitiveTypeHandler {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Byte parameter, JdbcType jdbcType)
@@ -48,4 +51,21 @@ public class ByteTypeHandler extends BaseTypeHandler<Byte> {
       throws SQLException {
     return cs.getByte(columnIndex);
   }
+
+  @Override
+  public boolean getPrimitiveResult(ResultSet rs, int columnIndex, Object target, PrimitiveSetter setter)
+      throws SQLException {
+    byte result = rs.getByte(columnIndex);
+    if (rs.wasNull()) {
+      return false;
+    }
+    setter.setByte(target, result);
+    return true;
+  }
+
+  @Override
+  public void setPrimitiveParameter(PreparedStatement ps, int i, Object target, PrimitiveGetter getter)
+      throws SQLException {
+    ps.setByte(i, getter.getByte(target));
+  }
 }
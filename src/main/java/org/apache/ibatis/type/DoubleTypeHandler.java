@@ -20,10 +20,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import org.apache.ibatis.reflection.invoker.PrimitiveGetter;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+
 /**
  * @author Clinton Begin
  */
-public class DoubleTypeHandler extends BaseTypeHandler<Double> {
+public class DoubleTypeHandler extends BaseTypeHandler<Double> implements PrimitiveTypeHandler {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Double parameter, JdbcType jdbcType)
@@ -49,4 +52,20 @@ public class DoubleTypeHandler extends BaseTypeHandler<Double> {
     return cs.getDouble(columnIndex);
   }
 
+  @Override
+  public boolean getPrimitiveResult(ResultSet rs, int columnIndex, Object target, PrimitiveSetter setter)
+      throws SQLException {
+    double result = rs.getDouble(columnIndex);
+    if (rs.wasNull()) {
+      return false;
+    }
+    setter.setDouble(target, result);
+    return true;
+  }
+
+  @Override
+  public void setPrimitiveParameter(PreparedStatement ps, int i, Object target, PrimitiveGetter getter)
+      throws SQLException {
+    ps.setDouble(i, getter.getDouble(target));
+  }
 }
@@ -20,10 +20,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import org.apache.ibatis.reflection.invoker.PrimitiveGetter;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+
 /**
  * @author Clinton Begin
  */
-public class FloatTypeHandler extends BaseTypeHandler<Float> {
+public class FloatTypeHandler extends BaseTypeHandler<Float> implements PrimitiveTypeHandler {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Float parameter, JdbcType jdbcType)
@@ -48,4 +51,21 @@ public class FloatTypeHandler extends BaseTypeHandler<Float> {
       throws SQLException {
     return cs.getFloat(columnIndex);
   }
+
+  @Override
+  public boolean getPrimitiveResult(ResultSet rs, int columnIndex, Object target, PrimitiveSetter setter)
+      throws SQLException {
+    float result = rs.getFloat(columnIndex);
+    if (rs.wasNull()) {
+      return false;
+    }
+    setter.setFloat(target, result);
+    return true;
+  }
+
+  @Override
+  public void setPrimitiveParameter(PreparedStatement ps, int i, Object target, PrimitiveGetter getter)
+      throws SQLException {
+    ps.setFloat(i, getter.getFloat(target));
+  }
 }
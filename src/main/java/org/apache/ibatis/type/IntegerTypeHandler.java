@@ -20,6 +20,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import org.apache.ibatis.reflection.invoker.PrimitiveGetter;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+
 /**
  * @author Clinton Begin
  */
@@ -28,7 +31,7 @@ import java.sql.SQLException;
  * 调用PreparedStatement.setInt, ResultSet.getInt, CallableStatement.getInt
  * 
  */
-public class IntegerTypeHandler extends BaseTypeHandler<Integer> {
+public class IntegerTypeHandler extends BaseTypeHandler<Integer> implements PrimitiveTypeHandler {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Integer parameter, JdbcType jdbcType)
@@ -53,4 +56,21 @@ public class IntegerTypeHandler extends BaseTypeHandler<Integer> {
       throws SQLException {
     return cs.getInt(columnIndex);
   }
+
+  @Override
+  public boolean getPrimitiveResult(ResultSet rs, int columnIndex, Object target, PrimitiveSetter setter)
+      throws SQLException {
+    int result = rs.getInt(columnIndex);
+    if (rs.wasNull()) {
+      return false;
+    }
+    setter.setInt(target, result);
+    return true;
+  }
+
+  @Override
+  public void setPrimitiveParameter(PreparedStatement ps, int i, Object target, PrimitiveGetter getter)
+      throws SQLException {
+    ps.setInt(i, getter.getInt(target));
+  }
 }
@@ -0,0 +1,41 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.reflection.invoker.PrimitiveGetter;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+
+/**
+ * A type handler that can move a value between JDBC and a primitive bean property without boxing it.
+ * The built-in handlers of the primitive wrapper types implement it. Only those exact classes are
+ * used this way (see {@link TypeHandlerRegistry#isPrimitiveTypeHandler(TypeHandler)}); subclasses
+ * always go through getResult and setParameter.
+ * 基本类型处理器，映射基本类型属性时DefaultResultSetHandler和DefaultParameterHandler走这里
+ *
+ */
+public interface PrimitiveTypeHandler {
+
+  //按列序号读一列写到target的属性上，SQL NULL时什么都不写并返回false
+  boolean getPrimitiveResult(ResultSet rs, int columnIndex, Object target, PrimitiveSetter setter) throws SQLException;
+
+  //从target的属性读值设置参数
+  void setPrimitiveParameter(PreparedStatement ps, int i, Object target, PrimitiveGetter getter) throws SQLException;
+
+}
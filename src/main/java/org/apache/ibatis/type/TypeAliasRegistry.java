@@ -29,6 +29,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.ibatis.io.PackageIndex;
 import org.apache.ibatis.io.ResolverUtil;
 import org.apache.ibatis.io.Resources;
 
@@ -148,7 +149,7 @@ public class TypeAliasRegistry {
   public void registerAliases(String packageName, Class<?> superType){
 		//TODO ResolverUtil
     ResolverUtil<Class<?>> resolverUtil = new ResolverUtil<Class<?>>();
-    resolverUtil.find(new ResolverUtil.IsA(superType), packageName);
+    resolverUtil.find(new AliasTest(superType), packageName);
     Set<Class<? extends Class<?>>> typeSet = resolverUtil.getClasses();
     for(Class<?> type : typeSet){
       // Ignore inner classes and interfaces (including package-info.java)
@@ -201,4 +202,16 @@ public class TypeAliasRegistry {
     return Collections.unmodifiableMap(TYPE_ALIASES);
   }
 
+  //接口和成员类不注册别名，有构建期索引时不用加载它们
+  private static class AliasTest extends ResolverUtil.IsA implements ResolverUtil.IndexedTest {
+    AliasTest(Class<?> superType) {
+      super(superType);
+    }
+
+    @Override
+    public boolean mayMatch(PackageIndex.Entry entry) {
+      return !entry.isInterface() && !entry.isMember();
+    }
+  }
+
 }
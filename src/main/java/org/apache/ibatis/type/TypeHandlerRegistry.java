@@ -15,19 +15,26 @@
  */
 package org.apache.ibatis.type;
 
+import java.io.InputStream;
+import java.io.Reader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.ibatis.io.PackageIndex;
 import org.apache.ibatis.io.ResolverUtil;
 
 /**
@@ -44,6 +51,24 @@ public final class TypeHandlerRegistry {
   private final Map<Type, Map<JdbcType, TypeHandler<?>>> TYPE_HANDLER_MAP = new HashMap<Type, Map<JdbcType, TypeHandler<?>>>();
   private final TypeHandler<Object> UNKNOWN_TYPE_HANDLER = new UnknownTypeHandler(this);
   private final Map<Class<?>, TypeHandler<?>> ALL_TYPE_HANDLERS_MAP = new HashMap<Class<?>, TypeHandler<?>>();
+  //解析结果缓存：java类型 -> 按JdbcType序号(0留给null)存放的处理器
+  //数组一旦放进去就不再修改，补充时复制一份再放回去
+  //注册新的处理器时换上一个新的空缓存，而不是clear：注册前开始的查找只会把旧结果写回它读到的那个旧缓存
+  private volatile ConcurrentMap<Type, Object[]> RESOLVED_TYPE_HANDLER_CACHE = new ConcurrentHashMap<Type, Object[]>();
+
+  //缓存里表示没有处理器
+  private static final Object NO_TYPE_HANDLER = new Object();
+  private static final int JDBC_TYPE_SLOTS = JdbcType.values().length + 1;
+
+  //不装箱的快速路径只认这几个内置处理器本身，子类可能改写了取值和设参数的逻辑
+  private static final Set<Class<?>> PRIMITIVE_TYPE_HANDLERS = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+      BooleanTypeHandler.class, ByteTypeHandler.class, ShortTypeHandler.class, IntegerTypeHandler.class,
+      LongTypeHandler.class, FloatTypeHandler.class, DoubleTypeHandler.class));
+
+  //内置处理器判断每行每列都会用到，按处理器类缓存结果
+  //只缓存和本类同一个类加载器的类，不会因为缓存而拖住webapp等别的类加载器
+  private static final String BUILT_IN_PACKAGE = TypeHandlerRegistry.class.getName().substring(0, TypeHandlerRegistry.class.getName().lastIndexOf('.') + 1);
+  private static final ConcurrentMap<Class<?>, Boolean> BUILT_IN_TYPE_HANDLERS = new ConcurrentHashMap<Class<?>, Boolean>();
 
   public TypeHandlerRegistry() {
     //构造函数里注册系统内置的类型处理器
@@ -112,6 +137,12 @@ public final class TypeHandlerRegistry {
     register(byte[].class, JdbcType.LONGVARBINARY, new BlobTypeHandler());
     register(JdbcType.LONGVARBINARY, new BlobTypeHandler());
     register(JdbcType.BLOB, new BlobTypeHandler());
+    register(InputStream.class, new BlobInputStreamTypeHandler());
+    register(InputStream.class, JdbcType.BLOB, new BlobInputStreamTypeHandler());
+    register(InputStream.class, JdbcType.LONGVARBINARY, new BlobInputStreamTypeHandler());
+    register(Reader.class, new ClobReaderTypeHandler());
+    register(Reader.class, JdbcType.CLOB, new ClobReaderTypeHandler());
+    register(Reader.class, JdbcType.LONGVARCHAR, new ClobReaderTypeHandler());
 
     register(Object.class, UNKNOWN_TYPE_HANDLER);
     register(Object.class, JdbcType.OTHER, UNKNOWN_TYPE_HANDLER);
@@ -175,6 +206,28 @@ public final class TypeHandlerRegistry {
 
   @SuppressWarnings("unchecked")
   private <T> TypeHandler<T> getTypeHandler(Type type, JdbcType jdbcType) {
+    if (type == null) {
+      return (TypeHandler<T>) resolveTypeHandler(null, jdbcType);
+    }
+    //先查缓存，常用的类型只有一次ConcurrentHashMap查找
+    final int slot = jdbcType == null ? 0 : jdbcType.ordinal() + 1;
+    final ConcurrentMap<Type, Object[]> cache = RESOLVED_TYPE_HANDLER_CACHE;
+    final Object[] resolved = cache.get(type);
+    Object handler = resolved == null ? null : resolved[slot];
+    if (handler == null) {
+      handler = resolveTypeHandler(type, jdbcType);
+      if (handler == null) {
+        handler = NO_TYPE_HANDLER;
+      }
+      final Object[] copy = resolved == null ? new Object[JDBC_TYPE_SLOTS] : resolved.clone();
+      copy[slot] = handler;
+      cache.put(type, copy);
+    }
+    // type drives generics here
+    return handler == NO_TYPE_HANDLER ? null : (TypeHandler<T>) handler;
+  }
+
+  private TypeHandler<?> resolveTypeHandler(Type type, JdbcType jdbcType) {
     Map<JdbcType, TypeHandler<?>> jdbcHandlerMap = TYPE_HANDLER_MAP.get(type);
     TypeHandler<?> handler = null;
     if (jdbcHandlerMap != null) {
@@ -186,8 +239,36 @@ public final class TypeHandlerRegistry {
     if (handler == null && type != null && type instanceof Class && Enum.class.isAssignableFrom((Class<?>) type)) {
       handler = new EnumTypeHandler((Class<?>) type);
     }
-    // type drives generics here
-    return (TypeHandler<T>) handler;
+    return handler;
+  }
+
+  /**
+   * Returns true only for the built-in handlers of the primitive wrapper types themselves, which
+   * may move primitive properties through {@link PrimitiveTypeHandler}. Subclasses return false.
+   */
+  public static boolean isPrimitiveTypeHandler(TypeHandler<?> typeHandler) {
+    return typeHandler != null && PRIMITIVE_TYPE_HANDLERS.contains(typeHandler.getClass());
+  }
+
+  /**
+   * Returns true for the handlers shipped in this package. Their getResult(ResultSet, int) reads the
+   * same value as getResult(ResultSet, String), which a user handler is not required to guarantee.
+   */
+  public static boolean isBuiltInTypeHandler(TypeHandler<?> typeHandler) {
+    if (typeHandler == null) {
+      return false;
+    }
+    final Class<?> type = typeHandler.getClass();
+    Boolean builtIn = BUILT_IN_TYPE_HANDLERS.get(type);
+    if (builtIn == null) {
+      if (type.getClassLoader() != TypeHandlerRegistry.class.getClassLoader()) {
+        return false;
+      }
+      builtIn = type.getName().startsWith(BUILT_IN_PACKAGE) && type.getName().indexOf('.', BUILT_IN_PACKAGE.length()) < 0
+          && !type.isAnonymousClass();
+      BUILT_IN_TYPE_HANDLERS.put(type, builtIn);
+    }
+    return builtIn;
   }
 
   public TypeHandler<Object> getUnknownTypeHandler() {
@@ -270,6 +351,7 @@ public final class TypeHandlerRegistry {
         TYPE_HANDLER_MAP.put(javaType, map);
       }
       map.put(jdbcType, handler);
+      RESOLVED_TYPE_HANDLER_CACHE = new ConcurrentHashMap<Type, Object[]>();
     }
     ALL_TYPE_HANDLERS_MAP.put(handler.getClass(), handler);
   }
@@ -332,7 +414,7 @@ public final class TypeHandlerRegistry {
 
   public void register(String packageName) {
     ResolverUtil<Class<?>> resolverUtil = new ResolverUtil<Class<?>>();
-    resolverUtil.find(new ResolverUtil.IsA(TypeHandler.class), packageName);
+    resolverUtil.find(new TypeHandlerTest(), packageName);
     Set<Class<? extends Class<?>>> handlerSet = resolverUtil.getClasses();
     for (Class<?> type : handlerSet) {
       //Ignore inner classes and interfaces (including package-info.java) and abstract classes
@@ -350,5 +432,17 @@ public final class TypeHandlerRegistry {
   public Collection<TypeHandler<?>> getTypeHandlers() {
     return Collections.unmodifiableCollection(ALL_TYPE_HANDLERS_MAP.values());
   }
-  
+
+  //有构建期索引时只加载实现了TypeHandler的具体类
+  private static class TypeHandlerTest extends ResolverUtil.IsA implements ResolverUtil.IndexedTest {
+    TypeHandlerTest() {
+      super(TypeHandler.class);
+    }
+
+    @Override
+    public boolean mayMatch(PackageIndex.Entry entry) {
+      return entry.isTypeHandler() && !entry.isInterface() && !entry.isAbstract();
+    }
+  }
+
 }
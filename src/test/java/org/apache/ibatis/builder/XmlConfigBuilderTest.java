@@ -16,6 +16,7 @@
 package org.apache.ibatis.builder;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -25,6 +26,9 @@ import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 
 import org.apache.ibatis.builder.xml.XMLConfigBuilder;
 import org.apache.ibatis.io.Resources;
@@ -46,6 +50,27 @@ public class XmlConfigBuilderTest {
     assertNotNull(config);
   }
 
+  @Test
+  public void shouldLoadTheSameMappersWhenParsingInParallel() throws Exception {
+    Configuration sequential = new XMLConfigBuilder(Resources.getResourceAsStream("org/apache/ibatis/builder/MapperConfig.xml")).parse();
+    // same mappers, listed in reverse order so that forward references have to be resolved at the end
+    Configuration parallel = new XMLConfigBuilder(Resources.getResourceAsStream("org/apache/ibatis/builder/ParallelMapperConfig.xml")).parse();
+    assertTrue(parallel.isParallelMapperParsing());
+    assertEquals(new HashSet<String>(sequential.getMappedStatementNames()), new HashSet<String>(parallel.getMappedStatementNames()));
+    assertEquals(new HashSet<String>(sequential.getResultMapNames()), new HashSet<String>(parallel.getResultMapNames()));
+    assertEquals(new HashSet<String>(sequential.getCacheNames()), new HashSet<String>(parallel.getCacheNames()));
+    assertTrue(parallel.getIncompleteStatements().isEmpty());
+    assertTrue(parallel.getIncompleteResultMaps().isEmpty());
+    assertTrue(parallel.getIncompleteCacheRefs().isEmpty());
+    // findPost includes a fragment of its own file, expanded on the pool
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    parameter.put("blog_id", 1);
+    String findPost = "org.apache.ibatis.domain.blog.mappers.PostMapper.findPost";
+    String sql = parallel.getMappedStatement(findPost).getBoundSql(parameter).getSql();
+    assertTrue(sql.contains("blog_id = ?"));
+    assertEquals(sequential.getMappedStatement(findPost).getBoundSql(parameter).getSql(), sql);
+  }
+
   enum MyEnum {
     ONE, TWO
   }
@@ -15,8 +15,16 @@
  */
 package org.apache.ibatis.builder;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 import java.io.InputStream;
+import java.util.HashSet;
 
+import org.apache.ibatis.binding.BoundAuthorMapper;
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.session.Configuration;
@@ -33,6 +41,49 @@ public class XmlMapperBuilderTest {
     builder.parse();
   }
 
+  @Test
+  public void shouldBuildStatementsOnFirstLookupWhenLazy() throws Exception {
+    Configuration eager = new Configuration();
+    loadAuthorMapper(eager);
+    Configuration lazy = new Configuration();
+    lazy.setLazyStatementBuilding(true);
+    loadAuthorMapper(lazy);
+
+    String id = "org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAllAuthors";
+    assertNotNull(lazy.getPendingStatement(id));
+    assertTrue(lazy.hasStatement(id));
+    assertTrue(lazy.hasStatement("selectComplexAuthors"));
+    assertFalse(lazy.hasStatement("org.apache.ibatis.domain.blog.mappers.AuthorMapper.doesNotExist"));
+    assertEquals(id, lazy.getMappedStatement(id).getId());
+    assertNull(lazy.getPendingStatement(id));
+    assertNotNull(lazy.getPendingStatement("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectComplexAuthors"));
+    assertEquals("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectComplexAuthors", lazy.getMappedStatement("selectComplexAuthors").getId());
+
+    lazy.validateStatements();
+    assertEquals(new HashSet<String>(eager.getMappedStatementNames()), new HashSet<String>(lazy.getMappedStatementNames()));
+  }
+
+  @Test
+  public void shouldRegisterAnnotatedMethodsLazily() throws Exception {
+    Configuration eager = new Configuration();
+    eager.addMapper(BoundAuthorMapper.class);
+    Configuration lazy = new Configuration();
+    lazy.setLazyStatementBuilding(true);
+    lazy.addMapper(BoundAuthorMapper.class);
+
+    String id = BoundAuthorMapper.class.getName() + ".selectAuthor";
+    assertNotNull(lazy.getPendingStatement(id));
+    assertEquals(id, lazy.getMappedStatement(id).getId());
+    assertEquals(new HashSet<String>(eager.getMappedStatementNames()), new HashSet<String>(lazy.getMappedStatementNames()));
+  }
+
+  private void loadAuthorMapper(Configuration configuration) throws Exception {
+    String resource = "org/apache/ibatis/builder/AuthorMapper.xml";
+    InputStream inputStream = Resources.getResourceAsStream(resource);
+    XMLMapperBuilder builder = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
+    builder.parse();
+  }
+
 //  @Test
 //  public void shouldNotLoadTheSameNamespaceFromTwoResourcesWithDifferentNames() throws Exception {
 //    Configuration configuration = new Configuration();
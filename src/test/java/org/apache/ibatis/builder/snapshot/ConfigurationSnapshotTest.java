@@ -0,0 +1,187 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.domain.blog.mappers.AuthorMapper;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigurationSnapshotTest {
+
+  private File snapshotFile;
+
+  @Before
+  public void createSnapshotFile() throws Exception {
+    snapshotFile = File.createTempFile("mybatis-snapshot", ".bin");
+    snapshotFile.delete();
+  }
+
+  @After
+  public void deleteSnapshotFile() {
+    snapshotFile.delete();
+  }
+
+  @Test
+  public void shouldRestoreMappersFromSnapshot() throws Exception {
+    Configuration parsed = build();
+    assertTrue(snapshotFile.isFile());
+    Configuration restored = build();
+
+    // sql fragments are only kept while parsing XML, so their absence shows the snapshot was used
+    assertFalse(parsed.getSqlFragments().isEmpty());
+    assertTrue(restored.getSqlFragments().isEmpty());
+
+    assertEquals(new HashSet<String>(parsed.getMappedStatementNames()), new HashSet<String>(restored.getMappedStatementNames()));
+    assertEquals(new HashSet<String>(parsed.getResultMapNames()), new HashSet<String>(restored.getResultMapNames()));
+    assertEquals(new HashSet<String>(parsed.getParameterMapNames()), new HashSet<String>(restored.getParameterMapNames()));
+    assertEquals(new HashSet<String>(parsed.getCacheNames()), new HashSet<String>(restored.getCacheNames()));
+    assertTrue(restored.hasMapper(AuthorMapper.class));
+
+    MappedStatement cached = restored.getMappedStatement("com.domain.CachedAuthorMapper.selectAllAuthors");
+    assertSame(restored.getCache("com.domain.CachedAuthorMapper"), cached.getCache());
+    assertSame(restored, cached.getConfiguration());
+
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    List<Integer> ids = new ArrayList<Integer>();
+    ids.add(1);
+    ids.add(2);
+    parameter.put("ids", ids);
+    parameter.put("blog_id", 3);
+    BoundSql expected = parsed.getMappedStatement("org.apache.ibatis.domain.blog.mappers.PostMapper.findPost").getBoundSql(parameter);
+    BoundSql actual = restored.getMappedStatement("org.apache.ibatis.domain.blog.mappers.PostMapper.findPost").getBoundSql(parameter);
+    assertEquals(expected.getSql(), actual.getSql());
+    assertEquals(expected.getParameterMappings().size(), actual.getParameterMappings().size());
+
+    // type handlers are looked up again in the registry of the new configuration
+    List<ResultMapping> expectedMappings = parsed.getResultMap("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAuthor").getResultMappings();
+    List<ResultMapping> actualMappings = restored.getResultMap("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAuthor").getResultMappings();
+    assertEquals(expectedMappings.size(), actualMappings.size());
+    for (int i = 0; i < actualMappings.size(); i++) {
+      assertSame(expectedMappings.get(i).getTypeHandler().getClass(), actualMappings.get(i).getTypeHandler().getClass());
+    }
+    assertEquals("username", actualMappings.get(1).getProperty());
+    assertSame(restored.getTypeHandlerRegistry().getTypeHandler(String.class), actualMappings.get(1).getTypeHandler());
+  }
+
+  @Test
+  public void shouldIgnoreSnapshotWithDifferentChecksum() throws Exception {
+    Configuration parsed = build();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new ConfigurationSnapshot(parsed).write(out, "old");
+
+    Configuration configuration = new Configuration();
+    assertFalse(new ConfigurationSnapshot(configuration).read(new ByteArrayInputStream(out.toByteArray()), "new"));
+    assertTrue(configuration.getMappedStatementNames().isEmpty());
+  }
+
+  @Test
+  public void shouldIgnoreSnapshotWhenAResultClassChanged() throws Exception {
+    Configuration parsed = build();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new ConfigurationSnapshot(parsed).write(out, "checksum");
+    byte[] bytes = out.toByteArray();
+
+    // the header lists each class file the snapshot depends on with its digest; pretend Author.class was recompiled
+    String dependency = "org.apache.ibatis.domain.blog.Author";
+    int digest = indexOf(bytes, (char) 0 + String.valueOf((char) dependency.length()) + dependency + (char) 0 + (char) 40) + dependency.length() + 4;
+    assertTrue(digest > dependency.length());
+    bytes[digest] = (byte) (bytes[digest] == '0' ? '1' : '0');
+
+    assertTrue(new ConfigurationSnapshot(new Configuration()).read(new ByteArrayInputStream(out.toByteArray()), "checksum"));
+    Configuration configuration = new Configuration();
+    assertFalse(new ConfigurationSnapshot(configuration).read(new ByteArrayInputStream(bytes), "checksum"));
+    assertTrue(configuration.getMappedStatementNames().isEmpty());
+  }
+
+  @Test
+  public void shouldRejectClassesNotListedInTheHeader() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new ConfigurationSnapshot(new Configuration()).write(out, "checksum");
+    byte[] bytes = out.toByteArray();
+
+    // keep the header of an empty snapshot, which lists no classes, and replace the serialized payload
+    int payload = indexOf(bytes, "\u00ac\u00ed\u0000\u0005");
+    assertTrue(payload > 0);
+    ByteArrayOutputStream forged = new ByteArrayOutputStream();
+    forged.write(bytes, 0, payload);
+    ObjectOutputStream objects = new ObjectOutputStream(forged);
+    objects.writeObject(new Unlisted());
+    objects.close();
+
+    Unlisted.deserialized = false;
+    Configuration configuration = new Configuration();
+    assertFalse(new ConfigurationSnapshot(configuration).read(new ByteArrayInputStream(forged.toByteArray()), "checksum"));
+    assertFalse(Unlisted.deserialized);
+    assertTrue(configuration.getMappedStatementNames().isEmpty());
+  }
+
+  static class Unlisted implements Serializable {
+    private static final long serialVersionUID = 1L;
+    static boolean deserialized;
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      deserialized = true;
+    }
+  }
+
+  private static int indexOf(byte[] bytes, String value) throws Exception {
+    byte[] target = value.getBytes("ISO-8859-1");
+    for (int i = 0; i + target.length <= bytes.length; i++) {
+      int j = 0;
+      while (j < target.length && bytes[i + j] == target[j]) {
+        j++;
+      }
+      if (j == target.length) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private Configuration build() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("snapshotFile", snapshotFile.getAbsolutePath());
+    return new XMLConfigBuilder(Resources.getResourceAsStream("org/apache/ibatis/builder/snapshot/SnapshotMapperConfig.xml"), null, properties).parse();
+  }
+
+}
@@ -0,0 +1,201 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Test;
+
+public class ReadWriteDataSourceTest {
+
+  private final Configuration config = new Configuration();
+  private final MappedStatement select = statement("blog.selectBlog", SqlCommandType.SELECT);
+  private final MappedStatement insert = statement("blog.insertBlog", SqlCommandType.INSERT);
+
+  @Test
+  public void shouldReadFromReplicasInTurn() throws Exception {
+    FakeDataSource primary = new FakeDataSource("primary");
+    FakeDataSource first = new FakeDataSource("first");
+    FakeDataSource second = new FakeDataSource("second");
+    ReadWriteDataSource dataSource = new ReadWriteDataSource(primary, Arrays.<DataSource>asList(first, second));
+    assertEquals("first", read(dataSource));
+    assertEquals("second", read(dataSource));
+    assertEquals("first", read(dataSource));
+  }
+
+  @Test
+  public void shouldReadFromPrimaryAfterWritingUntilCommit() throws Exception {
+    ReadWriteDataSource dataSource = new ReadWriteDataSource(new FakeDataSource("primary"),
+        Collections.<DataSource>singletonList(new FakeDataSource("replica")));
+    ReadWriteTransaction tx = newTransaction(dataSource);
+    tx.route(insert, null, null);
+    assertEquals("primary", tx.getConnection().toString());
+    tx.route(select, null, null);
+    assertEquals("primary", tx.getConnection().toString());
+    tx.commit();
+    tx.route(select, null, null);
+    assertEquals("replica", tx.getConnection().toString());
+    assertEquals("replica", tx.getRouteId());
+    tx.close();
+  }
+
+  @Test
+  public void shouldRunEverythingOnPrimaryInATransaction() throws Exception {
+    ReadWriteDataSource dataSource = new ReadWriteDataSource(new FakeDataSource("primary"),
+        Collections.<DataSource>singletonList(new FakeDataSource("replica")));
+    ReadWriteTransaction tx = (ReadWriteTransaction) dataSource.newTransaction(new JdbcTransactionFactory(), null, false);
+    tx.route(select, null, null);
+    assertEquals("primary", tx.getConnection().toString());
+    tx.close();
+  }
+
+  @Test
+  public void shouldReadLockingAndFlushingSelectsFromPrimary() throws Exception {
+    ReadWriteDataSource dataSource = new ReadWriteDataSource(new FakeDataSource("primary"),
+        Collections.<DataSource>singletonList(new FakeDataSource("replica")));
+    MappedStatement forUpdate = new MappedStatement.Builder(config, "blog.lockBlog",
+        new StaticSqlSource(config, "select * from blog where id = ? for  update"), SqlCommandType.SELECT).build();
+    MappedStatement flushing = new MappedStatement.Builder(config, "blog.flushBlog",
+        new StaticSqlSource(config, "sql"), SqlCommandType.SELECT).flushCacheRequired(true).build();
+    assertEquals("primary", read(dataSource, forUpdate));
+    assertEquals("primary", read(dataSource, flushing));
+    assertEquals("replica", read(dataSource, select));
+  }
+
+  @Test
+  public void shouldCheckDynamicSelectsWithTheBoundSqlOfTheExecutor() throws Exception {
+    ReadWriteDataSource dataSource = new ReadWriteDataSource(new FakeDataSource("primary"),
+        Collections.<DataSource>singletonList(new FakeDataSource("replica")));
+    final boolean[] built = new boolean[1];
+    MappedStatement dynamic = new MappedStatement.Builder(config, "blog.findBlog", new SqlSource() {
+      @Override
+      public BoundSql getBoundSql(Object parameterObject) {
+        built[0] = true;
+        return new BoundSql(config, "select * from blog", null, parameterObject);
+      }
+    }, SqlCommandType.SELECT).build();
+    ReadWriteTransaction tx = newTransaction(dataSource);
+    tx.route(dynamic, null, new BoundSql(config, "select * from blog for update", null, null));
+    assertEquals("primary", tx.getConnection().toString());
+    tx.close();
+    assertFalse(built[0]);
+  }
+
+  @Test
+  public void shouldReadConfiguredStatementsFromPrimary() throws Exception {
+    ReadWriteDataSource dataSource = new ReadWriteDataSource(new FakeDataSource("primary"),
+        Collections.<DataSource>singletonList(new FakeDataSource("replica")));
+    dataSource.setPrimaryStatements(Arrays.asList("blog"));
+    assertEquals("primary", read(dataSource));
+    dataSource.setPrimaryStatements(Arrays.asList("blog.selectBlog"));
+    assertEquals("primary", read(dataSource));
+    dataSource.setPrimaryStatements(Arrays.asList("author"));
+    assertEquals("replica", read(dataSource));
+  }
+
+  @Test
+  public void shouldFailOverToTheNextReplicaAndThenToThePrimary() throws Exception {
+    FakeDataSource first = new FakeDataSource("first");
+    FakeDataSource second = new FakeDataSource("second");
+    ReadWriteDataSource dataSource = new ReadWriteDataSource(new FakeDataSource("primary"), Arrays.<DataSource>asList(first, second));
+    first.failing = true;
+    assertEquals("second", read(dataSource));
+    assertEquals("second", read(dataSource));
+    second.failing = true;
+    assertEquals("primary", read(dataSource));
+    assertNull(dataSource.selectReplica());
+  }
+
+  @Test
+  public void shouldPickTheReplicaWithFewestActiveConnections() throws Exception {
+    FakeDataSource first = new FakeDataSource("first");
+    FakeDataSource second = new FakeDataSource("second");
+    ReadWriteDataSource dataSource = new ReadWriteDataSource(new FakeDataSource("primary"), Arrays.<DataSource>asList(first, second));
+    dataSource.setLoadBalance(LoadBalance.LEAST_ACTIVE);
+    //不是PooledDataSource的从库按轮询
+    assertEquals("first", read(dataSource));
+    assertEquals("second", read(dataSource));
+  }
+
+  private String read(ReadWriteDataSource dataSource) throws SQLException {
+    return read(dataSource, select);
+  }
+
+  private String read(ReadWriteDataSource dataSource, MappedStatement ms) throws SQLException {
+    ReadWriteTransaction tx = newTransaction(dataSource);
+    tx.route(ms, null, null);
+    String name = tx.getConnection().toString();
+    tx.close();
+    return name;
+  }
+
+  private ReadWriteTransaction newTransaction(ReadWriteDataSource dataSource) {
+    return (ReadWriteTransaction) dataSource.newTransaction(new JdbcTransactionFactory(), null, true);
+  }
+
+  private MappedStatement statement(String id, SqlCommandType type) {
+    return new MappedStatement.Builder(config, id, new StaticSqlSource(config, "sql"), type).build();
+  }
+
+  private static class FakeDataSource extends UnpooledDataSource {
+    private final String name;
+    private boolean failing;
+
+    FakeDataSource(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      if (failing) {
+        throw new SQLException(name + " is down");
+      }
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+          if ("toString".equals(method.getName())) {
+            return name;
+          } else if ("getAutoCommit".equals(method.getName())) {
+            return true;
+          }
+          return null;
+        }
+      });
+    }
+  }
+
+}
@@ -0,0 +1,232 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultFlag;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.PageToken;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Test;
+
+public class ShardingDataSourceTest {
+
+  private final Configuration config = new Configuration();
+  private final MappedStatement select = statement("author.selectAuthor", SqlCommandType.SELECT);
+  private final MappedStatement insert = statement("author.insertAuthor", SqlCommandType.INSERT);
+  private final MappedStatement selectById = statement("author.selectAuthorById", "id");
+  private final MappedStatement selectByName = statement("author.selectAuthorByName", "username");
+  private final ShardingDataSource dataSource = new ShardingDataSource(
+      Arrays.<DataSource>asList(new FakeDataSource("first"), new FakeDataSource("second"), new FakeDataSource("third")),
+      new ModuloShardStrategy("id", "author.id"));
+
+  @Test
+  public void shouldRouteByPropertyOfTheParameter() throws Exception {
+    ShardingTransaction tx = newTransaction();
+    tx.route(insert, new Author(4), null);
+    assertEquals("second", tx.getConnection().toString());
+    assertEquals("shard-1", tx.getRouteId());
+    tx.route(select, new Author(-4), null);
+    assertEquals("third", tx.getConnection().toString());
+    tx.close();
+  }
+
+  @Test
+  public void shouldRouteByNamedParameterOrSimpleParameter() throws Exception {
+    ShardingTransaction tx = newTransaction();
+    ParamMap<Object> params = new ParamMap<Object>();
+    params.put("author", new Author(5));
+    tx.route(select, params, null);
+    assertEquals("third", tx.getConnection().toString());
+    tx.route(selectById, 3, selectById.getBoundSql(3));
+    assertEquals("first", tx.getConnection().toString());
+    assertFalse(tx.isScatter());
+    tx.close();
+  }
+
+  @Test
+  public void shouldNotTakeASimpleParameterBoundUnderAnotherNameAsShardKey() throws Exception {
+    ShardingTransaction tx = newTransaction();
+    tx.route(selectByName, "jim", null);
+    assertTrue(tx.isScatter());
+    tx.route(select, 3, null);
+    assertTrue(tx.isScatter());
+    tx.close();
+  }
+
+  @Test
+  public void shouldTakeTheBoundNamesFromTheGivenBoundSql() throws Exception {
+    ShardingTransaction tx = newTransaction();
+    //执行器传进来的BoundSql里用分片键的名字引用了参数
+    tx.route(select, 3, selectById.getBoundSql(3));
+    assertFalse(tx.isScatter());
+    assertEquals("shard-0", tx.getRouteId());
+    tx.close();
+  }
+
+  @Test
+  public void shouldScatterSelectsWithoutShardKey() throws Exception {
+    ShardingTransaction tx = newTransaction();
+    tx.route(select, Collections.singletonMap("username", "jim"), null);
+    assertTrue(tx.isScatter());
+    tx.route(select, null, null);
+    assertTrue(tx.isScatter());
+    tx.close();
+  }
+
+  @Test(expected = DataSourceException.class)
+  public void shouldRejectWritesWithoutShardKey() throws Exception {
+    newTransaction().route(insert, Collections.singletonMap("username", "jim"), null);
+  }
+
+  @Test
+  public void shouldKeepCacheKeysOfShardsApart() throws Exception {
+    SimpleExecutor executor = new SimpleExecutor(config, newTransaction());
+    //不带参数值的SQL，分片键在参数的属性里，只比较分片
+    BoundSql boundSql = select.getBoundSql(null);
+    assertEquals(executor.createCacheKey(select, new Author(1), RowBounds.DEFAULT, boundSql), executor.createCacheKey(select, new Author(4), RowBounds.DEFAULT, boundSql));
+    assertFalse(executor.createCacheKey(select, new Author(1), RowBounds.DEFAULT, boundSql).equals(executor.createCacheKey(select, new Author(2), RowBounds.DEFAULT, boundSql)));
+  }
+
+  @Test
+  public void shouldMergeRowsOfAllShardsAndApplyRowBoundsAfterwards() throws Exception {
+    final ShardingTransaction tx = newTransaction();
+    SimpleExecutor executor = new SimpleExecutor(config, tx) {
+      @SuppressWarnings("unchecked")
+      @Override
+      public <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) {
+        assertEquals(0, rowBounds.getOffset());
+        assertEquals(3, rowBounds.getLimit());
+        return (List<E>) Arrays.asList(tx.getRouteId() + "a", tx.getRouteId() + "b");
+      }
+    };
+    List<Object> rows = executor.query(select, null, new RowBounds(1, 2), SimpleExecutor.NO_RESULT_HANDLER);
+    assertEquals(Arrays.<Object>asList("shard-0b", "shard-1a"), rows);
+  }
+
+  @Test
+  public void shouldApplyRowBoundsBeforeTheResultHandler() throws Exception {
+    final ShardingTransaction tx = newTransaction();
+    SimpleExecutor executor = new SimpleExecutor(config, tx) {
+      @SuppressWarnings("unchecked")
+      @Override
+      public <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) {
+        assertNull(resultHandler);
+        return (List<E>) Arrays.asList(tx.getRouteId() + "a", tx.getRouteId() + "b");
+      }
+    };
+    final List<Object> handled = new ArrayList<Object>();
+    executor.query(select, null, new RowBounds(1, 2), new ResultHandler() {
+      @Override
+      public void handleResult(ResultContext context) {
+        handled.add(context.getResultObject());
+      }
+    });
+    assertEquals(Arrays.<Object>asList("shard-0b", "shard-1a"), handled);
+  }
+
+  @Test
+  public void shouldMergeKeysetPagesOfAllShardsByKey() throws Exception {
+    final ShardingTransaction tx = newTransaction();
+    SimpleExecutor executor = new SimpleExecutor(config, tx) {
+      @SuppressWarnings("unchecked")
+      @Override
+      public <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) {
+        //每个分片按键排好的一页
+        int shard = Integer.parseInt(tx.getRouteId().substring("shard-".length()));
+        return (List<E>) Arrays.asList(new Author(shard + 1), new Author(shard + 4));
+      }
+    };
+    MappedStatement keyed = new MappedStatement.Builder(config, "author.selectAuthorPage", new StaticSqlSource(config, "select * from author"),
+        SqlCommandType.SELECT).resultMaps(Collections.singletonList(new ResultMap.Builder(config, "authorPage", Author.class,
+        Collections.singletonList(new ResultMapping.Builder(config, "id", "id", int.class).flags(Collections.singletonList(ResultFlag.ID)).build()))
+        .build())).build();
+    PageToken first = PageToken.first(2);
+    List<Author> page = executor.query(keyed, null, first, SimpleExecutor.NO_RESULT_HANDLER);
+    assertEquals(2, page.size());
+    assertEquals(1, page.get(0).getId());
+    assertEquals(2, page.get(1).getId());
+    assertEquals(2, config.getPaginationSupport().getNextPageToken(keyed, page, first).getKeyValues()[0]);
+  }
+
+  private ShardingTransaction newTransaction() {
+    return (ShardingTransaction) dataSource.newTransaction(new JdbcTransactionFactory(), null, true);
+  }
+
+  private MappedStatement statement(String id, SqlCommandType type) {
+    return new MappedStatement.Builder(config, id, new StaticSqlSource(config, "sql"), type).build();
+  }
+
+  private MappedStatement statement(String id, String boundProperty) {
+    List<ParameterMapping> parameterMappings = Collections.singletonList(new ParameterMapping.Builder(config, boundProperty, Object.class).build());
+    return new MappedStatement.Builder(config, id, new StaticSqlSource(config, "sql", parameterMappings), SqlCommandType.SELECT).build();
+  }
+
+  private static class FakeDataSource extends UnpooledDataSource {
+    private final String name;
+
+    FakeDataSource(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+          if ("toString".equals(method.getName())) {
+            return name;
+          } else if ("getAutoCommit".equals(method.getName())) {
+            return true;
+          }
+          return null;
+        }
+      });
+    }
+  }
+
+}
@@ -0,0 +1,296 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.bulk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.executor.CachingExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorTestHelper;
+import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.Test;
+
+public class BulkLoadSupportTest extends BaseDataTest {
+
+  private final Configuration config = new Configuration();
+
+  @Test
+  public void shouldEncodeCopyTextValues() throws Exception {
+    StringBuilder row = new StringBuilder();
+    PostgresCopyDialect.appendValue(row, null);
+    row.append('|');
+    PostgresCopyDialect.appendValue(row, Boolean.TRUE);
+    row.append('|');
+    PostgresCopyDialect.appendValue(row, new byte[] { 0, (byte) 0xAB });
+    row.append('|');
+    PostgresCopyDialect.appendValue(row, "a\\b\tc\nd\re");
+    assertEquals("\\N|t|\\\\x00ab|a\\\\b\\tc\\nd\\re", row.toString());
+  }
+
+  @Test
+  public void shouldEncodeArraysAsCopyTextLiterals() throws Exception {
+    StringBuilder row = new StringBuilder();
+    PostgresCopyDialect.appendValue(row, new String[] { "a b", null, "c\"d" });
+    row.append('|');
+    PostgresCopyDialect.appendValue(row, Arrays.asList(new int[] { 1, 2 }, new int[] { 3, 4 }));
+    assertEquals("{\"a b\",NULL,\"c\\\\\"d\"}|{{\"1\",\"2\"},{\"3\",\"4\"}}", row.toString());
+  }
+
+  @Test(expected = SQLException.class)
+  public void shouldRejectValuesWithoutCopyTextForm() throws Exception {
+    PostgresCopyDialect.appendValue(new StringBuilder(), new Object());
+  }
+
+  @Test
+  public void shouldClearTheCacheOfTheLoadedNamespaceOnCommit() throws Exception {
+    config.getBulkLoadSupport().addDialect(new RecordingDialect());
+    PerpetualCache cache = new PerpetualCache("author");
+    config.addCache(cache);
+    cache.putObject("key", "stale");
+    Executor executor = new CachingExecutor(new SimpleExecutor(config, new JdbcTransaction(fakeConnection())));
+    config.getBulkLoadSupport().load(executor, "author", authorMap(), authors().iterator());
+    //别的会话在提交前还看得到缓存
+    assertSame("stale", cache.getObject("key"));
+    executor.commit(true);
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  public void shouldKeepTheCacheWhenTheLoadIsRolledBack() throws Exception {
+    PerpetualCache cache = new PerpetualCache("author");
+    config.addCache(cache);
+    cache.putObject("key", "cached");
+    Executor executor = new CachingExecutor(new SimpleExecutor(config, new JdbcTransaction(fakeConnection())));
+    //走JDBC批处理，批处理执行器自己的二级缓存执行器不算数
+    config.getBulkLoadSupport().load(executor, "author", authorMap(), authors().iterator());
+    executor.rollback(true);
+    executor.commit(true);
+    assertSame("cached", cache.getObject("key"));
+  }
+
+  @Test
+  public void shouldRunJdbcBatchesThroughPlugins() throws Exception {
+    final List<Object> updates = new ArrayList<Object>();
+    config.addInterceptor(new UpdateRecorder(updates));
+    MappedStatement insert = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+    Executor executor = new SimpleExecutor(config, new JdbcTransaction(fakeConnection()));
+    assertEquals(2, config.getBulkLoadSupport().load(executor, insert, authors().iterator()));
+    assertEquals(2, updates.size());
+  }
+
+  @Test
+  public void shouldStreamRowsThroughNativeDialect() throws Exception {
+    RecordingDialect dialect = new RecordingDialect();
+    config.getBulkLoadSupport().addDialect(dialect);
+    MappedStatement ms = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+    Executor executor = new SimpleExecutor(config, new JdbcTransaction(fakeConnection()));
+    long count = config.getBulkLoadSupport().load(executor, ms, authors().iterator());
+    assertEquals(2, count);
+    assertEquals("author", dialect.table);
+    assertEquals(Arrays.asList("id", "username", "password", "email", "bio", "favourite_section"), dialect.columns);
+    assertArrayEquals(new Object[] { 500, "jim", "secret", "jim@x.org", null, "NEWS" }, dialect.rows.get(0));
+    assertArrayEquals(new Object[] { 501, "sally", "secret", "sally@x.org", "hi", "IMAGES" }, dialect.rows.get(1));
+  }
+
+  @Test
+  public void shouldBuildInsertFromResultMap() throws Exception {
+    RecordingDialect dialect = new RecordingDialect();
+    config.getBulkLoadSupport().addDialect(dialect);
+    MappedStatement select = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+    Executor executor = new SimpleExecutor(config, new JdbcTransaction(fakeConnection()));
+    long count = config.getBulkLoadSupport().load(executor, "author_copy", select.getResultMaps().get(0), authors().iterator());
+    assertEquals(2, count);
+    assertEquals("author_copy", dialect.table);
+    assertEquals(Arrays.asList("id", "username", "password", "email", "bio", "favourite_section"), dialect.columns);
+    assertArrayEquals(new Object[] { 501, "sally", "secret", "sally@x.org", "hi", "IMAGES" }, dialect.rows.get(1));
+  }
+
+  @Test
+  public void shouldNotStreamWhenKeysMustBeGenerated() throws Exception {
+    RecordingDialect dialect = new RecordingDialect();
+    config.getBulkLoadSupport().addDialect(dialect);
+    DataSource ds = createBlogDataSource();
+    Connection connection = ds.getConnection();
+    try {
+      connection.setAutoCommit(false);
+      Executor executor = new SimpleExecutor(config, new JdbcTransaction(connection));
+      MappedStatement ms = ExecutorTestHelper.prepareInsertAuthorMappedStatementWithAutoKey(config);
+      List<Author> authors = authors();
+      assertEquals(2, config.getBulkLoadSupport().load(executor, ms, authors.iterator()));
+      assertNull(dialect.table);
+      executor.rollback(true);
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void shouldFallBackToJdbcBatches() throws Exception {
+    config.setBulkLoadBatchSize(1);
+    DataSource ds = createBlogDataSource();
+    Connection connection = ds.getConnection();
+    try {
+      connection.setAutoCommit(false);
+      Executor executor = new SimpleExecutor(config, new JdbcTransaction(connection));
+      MappedStatement insert = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      assertEquals(2, config.getBulkLoadSupport().load(executor, insert, authors().iterator()));
+      MappedStatement select = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      List<Author> loaded = executor.query(select, 501, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals("sally", loaded.get(0).getUsername());
+      assertEquals(Section.IMAGES, loaded.get(0).getFavouriteSection());
+      executor.rollback(true);
+    } finally {
+      connection.close();
+    }
+  }
+
+  private ResultMap authorMap() {
+    return new ResultMap.Builder(config, "author.authorMap", Author.class, Arrays.asList(
+        new ResultMapping.Builder(config, "id", "id", int.class).build())).build();
+  }
+
+  private static List<Author> authors() {
+    List<Author> authors = new ArrayList<Author>();
+    authors.add(new Author(500, "jim", "secret", "jim@x.org", null, Section.NEWS));
+    authors.add(new Author(501, "sally", "secret", "sally@x.org", "hi", Section.IMAGES));
+    return authors;
+  }
+
+  //连接和语句都是假的：每条批处理语句报告1行
+  private static Connection fakeConnection() {
+    return (Connection) Proxy.newProxyInstance(BulkLoadSupportTest.class.getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if ("getAutoCommit".equals(method.getName())) {
+          return false;
+        } else if ("prepareStatement".equals(method.getName())) {
+          return fakeStatement();
+        }
+        return defaultValue(method.getReturnType());
+      }
+    });
+  }
+
+  private static PreparedStatement fakeStatement() {
+    return (PreparedStatement) Proxy.newProxyInstance(BulkLoadSupportTest.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+      private int batched;
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if ("addBatch".equals(method.getName())) {
+          batched++;
+        } else if ("executeBatch".equals(method.getName())) {
+          int[] counts = new int[batched];
+          Arrays.fill(counts, 1);
+          batched = 0;
+          return counts;
+        }
+        return defaultValue(method.getReturnType());
+      }
+    });
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+  @Intercepts({ @Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }) })
+  private static class UpdateRecorder implements Interceptor {
+    private final List<Object> updates;
+
+    UpdateRecorder(List<Object> updates) {
+      this.updates = updates;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      updates.add(invocation.getArgs()[1]);
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  private static class RecordingDialect implements BulkLoadDialect {
+
+    String table;
+    List<String> columns;
+    final List<Object[]> rows = new ArrayList<Object[]>();
+
+    @Override
+    public boolean isSupported(Connection connection) {
+      return true;
+    }
+
+    @Override
+    public long load(Connection connection, String table, List<String> columns, Rows rows) throws SQLException {
+      this.table = table;
+      this.columns = columns;
+      Object[] row;
+      while ((row = rows.next()) != null) {
+        this.rows.add(row);
+      }
+      return this.rows.size();
+    }
+
+  }
+
+}
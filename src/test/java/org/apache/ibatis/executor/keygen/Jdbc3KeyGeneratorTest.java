@@ -0,0 +1,146 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.keygen;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class Jdbc3KeyGeneratorTest {
+
+  @Mock
+  private Statement stmt;
+  @Mock
+  private ResultSet rs;
+  @Mock
+  private ResultSetMetaData rsmd;
+
+  private final Configuration config = new Configuration();
+
+  @Before
+  public void setUp() throws Exception {
+    when(stmt.getGeneratedKeys()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rs.next()).thenReturn(true, true, false);
+    when(rs.getInt(1)).thenReturn(101, 102);
+    when(rs.getString(2)).thenReturn("jim", "sally");
+  }
+
+  @Test
+  public void shouldAssignKeysToEachParameterOfBatch() throws Exception {
+    Author first = new Author();
+    Author second = new Author();
+    new Jdbc3KeyGenerator().processBatch(insert("id"), stmt, Arrays.<Object>asList(first, second));
+    assertEquals(101, first.getId());
+    assertEquals(102, second.getId());
+  }
+
+  @Test
+  public void shouldAssignKeysToElementsOfListParameter() throws Exception {
+    List<Author> authors = Arrays.asList(new Author(), new Author());
+    StrictMap<Object> param = new StrictMap<Object>();
+    param.put("collection", authors);
+    param.put("list", authors);
+    new Jdbc3KeyGenerator().processAfter(null, insert("id"), stmt, param);
+    assertEquals(101, authors.get(0).getId());
+    assertEquals(102, authors.get(1).getId());
+  }
+
+  @Test
+  public void shouldAssignCompositeKeysToElementsOfNamedParameter() throws Exception {
+    Author[] authors = new Author[] { new Author(), new Author() };
+    ParamMap<Object> param = new ParamMap<Object>();
+    param.put("authors", authors);
+    param.put("param1", authors);
+    param.put("blogId", 1);
+    new Jdbc3KeyGenerator().processAfter(null, insert("authors.id,authors.username"), stmt, param);
+    assertEquals(101, authors[0].getId());
+    assertEquals("jim", authors[0].getUsername());
+    assertEquals(102, authors[1].getId());
+    assertEquals("sally", authors[1].getUsername());
+  }
+
+  @Test
+  public void shouldAssignPrefixedKeyToNamedBeanNotToCollection() throws Exception {
+    when(rsmd.getColumnCount()).thenReturn(1);
+    Author author = new Author();
+    List<Author> others = Arrays.asList(new Author(), new Author());
+    ParamMap<Object> param = new ParamMap<Object>();
+    param.put("author", author);
+    param.put("param1", author);
+    param.put("others", others);
+    param.put("param2", others);
+    new Jdbc3KeyGenerator().processAfter(null, insert("author.id"), stmt, param);
+    assertEquals(101, author.getId());
+    assertEquals(new Author().getId(), others.get(0).getId());
+    assertEquals(new Author().getId(), others.get(1).getId());
+  }
+
+  @Test
+  public void shouldStopWhenThereAreFewerKeysThanParameters() throws Exception {
+    List<Object> authors = new ArrayList<Object>();
+    for (int i = 0; i < 3; i++) {
+      authors.add(new Author());
+    }
+    new Jdbc3KeyGenerator().processBatch(insert("id"), stmt, authors);
+    assertEquals(102, ((Author) authors.get(1)).getId());
+    assertEquals(new Author().getId(), ((Author) authors.get(2)).getId());
+  }
+
+  @Test
+  public void shouldUseSubclassedHandlerForPrimitiveKey() throws Exception {
+    config.getTypeHandlerRegistry().register(int.class, new IntegerTypeHandler() {
+      @Override
+      public Integer getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return rs.getInt(columnIndex) * 10;
+      }
+    });
+    Author first = new Author();
+    Author second = new Author();
+    new Jdbc3KeyGenerator().processBatch(insert("id"), stmt, Arrays.<Object>asList(first, second));
+    assertEquals(1010, first.getId());
+    assertEquals(1020, second.getId());
+  }
+
+  private MappedStatement insert(String keyProperty) {
+    return new MappedStatement.Builder(config, "insertAuthor", new StaticSqlSource(config, "insert into author"), SqlCommandType.INSERT)
+        .keyProperty(keyProperty).build();
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void shouldMapEveryValueIntoItsOwnBucketRange() {
+    for (long value = 0; value < 100000; value++) {
+      int index = LatencyHistogram.indexOf(value);
+      assertTrue(LatencyHistogram.lowestEquivalentValue(index) <= value);
+      assertTrue(LatencyHistogram.highestEquivalentValue(index) >= value);
+    }
+  }
+
+  @Test
+  public void shouldReturnPercentilesWithinThreePercent() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.recordNanos(i * 1000000L);
+    }
+    assertEquals(1000, histogram.getTotalCount());
+    assertEquals(500000000L, histogram.getValueAtPercentile(50), 500000000L * 0.03);
+    assertEquals(990000000L, histogram.getValueAtPercentile(99), 990000000L * 0.03);
+    assertEquals(1000000000L, histogram.getValueAtPercentile(100), 1000000000L * 0.03);
+  }
+
+  @Test
+  public void shouldReturnZeroWhenEmpty() {
+    assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+  }
+
+  @Test
+  public void shouldClampHugeValuesIntoLastBucket() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.recordNanos(Long.MAX_VALUE);
+    assertEquals(1, histogram.getTotalCount());
+    assertTrue(histogram.getValueAtPercentile(100) > 0);
+  }
+
+  @Test
+  public void copyShouldNotSeeLaterRecordings() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.recordNanos(1000);
+    LatencyHistogram copy = histogram.copy();
+    histogram.recordNanos(1000);
+    assertEquals(1, copy.getTotalCount());
+    assertEquals(2, histogram.getTotalCount());
+  }
+
+}
@@ -0,0 +1,195 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorTestHelper;
+import org.apache.ibatis.executor.statement.RoutingStatementHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class StatementMetricsTest extends BaseDataTest {
+
+  private static DataSource ds;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    ds = createBlogDataSource();
+  }
+
+  @Test
+  public void shouldRecordExecutionsRowsAndTimings() throws Exception {
+    Configuration config = new Configuration();
+    config.setStatementMetricsEnabled(true);
+    Executor executor = config.newExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+      List<Author> authors = executor.query(selectStatement, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      executor.clearLocalCache();
+      executor.query(selectStatement, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+
+      StatementMetricsSnapshot snapshot = config.getStatementMetrics(selectStatement.getId());
+      assertEquals(2, snapshot.getExecutions());
+      assertEquals(0, snapshot.getErrors());
+      assertEquals(authors.size() * 2, snapshot.getRowsReturned());
+      assertEquals(2, snapshot.getSampledExecutions());
+      assertTrue(snapshot.getLatencyPercentile(50) > 0);
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldCountRowsPassedToResultHandler() throws Exception {
+    Configuration config = new Configuration();
+    config.setStatementMetricsEnabled(true);
+    Executor executor = config.newExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+      final int[] handled = new int[1];
+      executor.query(selectStatement, null, RowBounds.DEFAULT, new ResultHandler() {
+        @Override
+        public void handleResult(ResultContext context) {
+          handled[0]++;
+        }
+      });
+      assertEquals(handled[0], config.getStatementMetrics(selectStatement.getId()).getRowsReturned());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldRecordRowsAffectedAndErrors() throws Exception {
+    Configuration config = new Configuration();
+    config.setStatementMetricsEnabled(true);
+    Executor executor = config.newExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      Author author = new Author(-1, "someone", "******", "someone@apache.org", null, null);
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      assertEquals(1, executor.update(insertStatement, author));
+      try {
+        executor.update(insertStatement, author);
+      } catch (Exception e) {
+        // duplicate key
+      }
+      StatementMetricsSnapshot snapshot = config.getStatementMetrics(insertStatement.getId());
+      assertEquals(2, snapshot.getExecutions());
+      assertEquals(1, snapshot.getErrors());
+      assertEquals(1, snapshot.getRowsAffected());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldOnlyTimeSampledExecutions() throws Exception {
+    Configuration config = new Configuration();
+    config.setStatementMetricsEnabled(true);
+    config.setStatementMetricsSampleInterval(2);
+    Executor executor = config.newExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+      for (int i = 0; i < 4; i++) {
+        executor.clearLocalCache();
+        executor.query(selectStatement, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      }
+      StatementMetricsSnapshot snapshot = config.getStatementMetrics(selectStatement.getId());
+      assertEquals(4, snapshot.getExecutions());
+      assertEquals(2, snapshot.getSampledExecutions());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldWrapHandlersOutsideOfPlugins() throws Exception {
+    Configuration config = new Configuration();
+    config.setStatementMetricsEnabled(true);
+    final List<Object> targets = new ArrayList<Object>();
+    config.addInterceptor(new Interceptor() {
+      @Override
+      public Object intercept(Invocation invocation) throws Throwable {
+        return invocation.proceed();
+      }
+
+      @Override
+      public Object plugin(Object target) {
+        targets.add(target);
+        return target;
+      }
+
+      @Override
+      public void setProperties(Properties properties) {
+      }
+    });
+    MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+    BoundSql boundSql = selectStatement.getBoundSql(null);
+    StatementHandler handler = config.newStatementHandler(null, selectStatement, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, boundSql);
+    assertTrue(handler instanceof InstrumentedStatementHandler);
+    //分页插件的写法：从RoutingStatementHandler取delegate.boundSql
+    Object target = targets.get(targets.size() - 1);
+    assertTrue(target instanceof RoutingStatementHandler);
+    assertSame(boundSql, SystemMetaObject.forObject(target).getValue("delegate.boundSql"));
+    for (Object t : targets) {
+      assertFalse(t instanceof InstrumentedResultSetHandler);
+    }
+  }
+
+  @Test
+  public void shouldNotRecordWhenDisabled() throws Exception {
+    Configuration config = new Configuration();
+    Executor executor = config.newExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+      executor.query(selectStatement, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertNull(config.getStatementMetrics(selectStatement.getId()));
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+}
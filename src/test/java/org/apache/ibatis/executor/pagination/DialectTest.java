@@ -0,0 +1,83 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+
+public class DialectTest {
+
+  private static final String SQL = "select * from blog where author_id = ? order by id";
+
+  @Test
+  public void shouldAppendLimitOffset() {
+    List<Object> parameters = new ArrayList<Object>();
+    assertEquals(SQL + " LIMIT ? OFFSET ?", new LimitOffsetDialect().getPageSql(SQL, 20, 10, parameters));
+    assertEquals(Arrays.<Object>asList(10, 20), parameters);
+
+    parameters.clear();
+    assertEquals(SQL + " LIMIT ?", new LimitOffsetDialect().getPageSql(SQL, 0, 10, parameters));
+    assertEquals(Arrays.<Object>asList(10), parameters);
+  }
+
+  @Test
+  public void shouldAppendOffsetFetch() {
+    List<Object> parameters = new ArrayList<Object>();
+    assertEquals(SQL + " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY", new OffsetFetchDialect().getPageSql(SQL, 20, 10, parameters));
+    assertEquals(Arrays.<Object>asList(20, 10), parameters);
+
+    parameters.clear();
+    assertEquals(SQL + " OFFSET ? ROWS", new OffsetFetchDialect().getPageSql(SQL, 20, RowBounds.NO_ROW_LIMIT, parameters));
+    assertEquals(Arrays.<Object>asList(20), parameters);
+  }
+
+  @Test
+  public void shouldWrapWithRownum() {
+    List<Object> parameters = new ArrayList<Object>();
+    assertEquals("SELECT * FROM ( SELECT TMP_PAGE.*, ROWNUM MYBATIS_ROW_ID FROM ( " + SQL + " ) TMP_PAGE WHERE ROWNUM <= ? ) WHERE MYBATIS_ROW_ID > ?",
+        new RownumDialect().getPageSql(SQL, 20, 10, parameters));
+    assertEquals(Arrays.<Object>asList(30L, 20), parameters);
+  }
+
+  @Test
+  public void shouldRemoveTopLevelOrderByFromCountSql() {
+    Dialect dialect = new LimitOffsetDialect();
+    assertEquals("SELECT COUNT(*) FROM (select * from blog where author_id = ? ) TMP_COUNT", dialect.getCountSql(SQL));
+    String nested = "select * from (select * from blog order by id) b where title = 'order by'";
+    assertEquals("SELECT COUNT(*) FROM (" + nested + ") TMP_COUNT", dialect.getCountSql(nested));
+    String parameterized = "select * from blog order by case when id = ? then 0 else 1 end";
+    assertEquals("SELECT COUNT(*) FROM (" + parameterized + ") TMP_COUNT", dialect.getCountSql(parameterized));
+  }
+
+  @Test
+  public void shouldResolveDialectFromDatabaseId() {
+    assertEquals(LimitOffsetDialect.class, Dialects.forDatabaseId("HSQL Database Engine").getClass());
+    assertEquals(LimitOffsetDialect.class, Dialects.forDatabaseId("mysql").getClass());
+    assertEquals(OffsetFetchDialect.class, Dialects.forDatabaseId("Apache Derby").getClass());
+    assertEquals(OffsetFetchDialect.class, Dialects.forDatabaseId("Microsoft SQL Server").getClass());
+    assertEquals(RownumDialect.class, Dialects.forDatabaseId("Oracle").getClass());
+    assertNull(Dialects.forDatabaseId("informix"));
+    assertNull(Dialects.forDatabaseId(null));
+  }
+
+}
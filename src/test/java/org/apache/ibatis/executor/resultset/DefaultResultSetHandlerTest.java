@@ -16,30 +16,44 @@
 package org.apache.ibatis.executor.resultset;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
 import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.pagination.RownumDialect;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -91,7 +105,8 @@ public class DefaultResultSetHandlerTest {
     when(rs.getMetaData()).thenReturn(rsmd);
     when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
     when(rs.next()).thenReturn(true).thenReturn(false);
-    when(rs.getInt("CoLuMn1")).thenReturn(100);
+    // the column is read by the index its label resolves to
+    when(rs.getInt(1)).thenReturn(100);
     when(rs.wasNull()).thenReturn(false);
     when(rsmd.getColumnCount()).thenReturn(1);
     when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
@@ -106,4 +121,149 @@ public class DefaultResultSetHandlerTest {
     assertEquals(Integer.valueOf(100), ((HashMap) results.get(0)).get("cOlUmN1"));
   }
 
+  @Test
+  public void shouldResolveUnknownTypeHandlerOncePerMappingAndColumn() throws Exception {
+    final Configuration config = new Configuration();
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("NAME");
+    when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(String.class.getCanonicalName());
+    final ResultSetWrapper rsw = new ResultSetWrapper(rs, config);
+
+    final ResultMapping mapping = new ResultMapping.Builder(config, "name", "name", Object.class).build();
+    assertTrue(mapping.getTypeHandler() instanceof UnknownTypeHandler);
+    final TypeHandler<?> handler = rsw.getTypeHandler(mapping, "name");
+    assertTrue(handler instanceof StringTypeHandler);
+    assertSame(handler, rsw.getTypeHandler(mapping, "name"));
+
+    // an equal mapping of another result map is resolved with its own java type
+    final ResultMapping integerMapping = new ResultMapping.Builder(config, "name", "name", new UnknownTypeHandler(config.getTypeHandlerRegistry()))
+        .javaType(Integer.class).build();
+    assertEquals(mapping, integerMapping);
+    assertTrue(rsw.getTypeHandler(integerMapping, "name") instanceof IntegerTypeHandler);
+  }
+
+  @Test
+  public void shouldSkipRownumPaginationColumn() throws Exception {
+    final Configuration config = new Configuration();
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        new ArrayList<ResultMap>() {
+          {
+            add(new ResultMap.Builder(config, "testMap", HashMap.class, new ArrayList<ResultMapping>()).build());
+          }
+        }).build();
+    final DefaultResultSetHandler fastResultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.getString(1)).thenReturn("Fred");
+    when(rs.getString("NAME")).thenReturn("Fred");
+    when(rs.wasNull()).thenReturn(false);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("NAME");
+    when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(String.class.getCanonicalName());
+    when(rsmd.getColumnLabel(2)).thenReturn(RownumDialect.ROW_NUMBER_COLUMN);
+    when(rsmd.getColumnType(2)).thenReturn(Types.NUMERIC);
+    when(rsmd.getColumnClassName(2)).thenReturn(BigDecimal.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    final List<Object> results = fastResultSetHandler.handleResultSets(stmt);
+    assertEquals(1, results.size());
+    assertEquals(Collections.singletonMap("NAME", "Fred"), results.get(0));
+  }
+
+  @Test
+  public void shouldSetPrimitivePropertyThroughBuiltInHandler() throws Exception {
+    final Counter counter = mapCounter(new Configuration(), "COUNT");
+    assertEquals(42, counter.count);
+    verify(rs).getInt(1);
+  }
+
+  @Test
+  public void shouldMatchColumnNameWhenNotUsingColumnLabel() throws Exception {
+    final Configuration config = new Configuration();
+    config.setUseColumnLabel(false);
+    config.getTypeHandlerRegistry().register(int.class, new IntegerTypeHandler() {
+      @Override
+      public Integer getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return rs.getInt(columnIndex);
+      }
+    });
+    // the label does not match the property, the column name does; a user handler reads it by name
+    assertEquals(42, mapCounter(config, "C").count);
+    verify(rs).getInt("COUNT");
+  }
+
+  @Test
+  public void shouldReadByIndexWithBuiltInHandlerWhenNotUsingColumnLabel() throws Exception {
+    final Configuration config = new Configuration();
+    config.setUseColumnLabel(false);
+    config.setAutoMappingBehavior(AutoMappingBehavior.NONE);
+    final MappedStatement ms = counterStatement(config, new ResultMapping.Builder(config, "count", "COUNT", Integer.class).build());
+    final DefaultResultSetHandler handler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+    stubCounterResultSet("C");
+    assertEquals(1, handler.handleResultSets(stmt).size());
+    verify(rs).getInt(1);
+  }
+
+  @Test
+  public void shouldNotUsePrimitivePathForSubclassedHandler() throws Exception {
+    final Configuration config = new Configuration();
+    config.getTypeHandlerRegistry().register(int.class, new IntegerTypeHandler() {
+      @Override
+      public Integer getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return rs.getInt(columnName) * 10;
+      }
+    });
+    // a user handler is read by column name, never by index
+    assertEquals(420, mapCounter(config, "COUNT").count);
+    verify(rs, never()).getInt(1);
+  }
+
+  private Counter mapCounter(final Configuration config, String label) throws Exception {
+    final DefaultResultSetHandler fastResultSetHandler = new DefaultResultSetHandler(null, counterStatement(config), null, null, null, new RowBounds(0, 100));
+    stubCounterResultSet(label);
+    final List<Object> results = fastResultSetHandler.handleResultSets(stmt);
+    assertEquals(1, results.size());
+    return (Counter) results.get(0);
+  }
+
+  private MappedStatement counterStatement(final Configuration config, final ResultMapping... mappings) {
+    return new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        new ArrayList<ResultMap>() {
+          {
+            add(new ResultMap.Builder(config, "testMap", Counter.class, new ArrayList<ResultMapping>(Arrays.asList(mappings))).build());
+          }
+        }).build();
+  }
+
+  private void stubCounterResultSet(String label) throws SQLException {
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.getInt(1)).thenReturn(42);
+    when(rs.getInt("COUNT")).thenReturn(42);
+    when(rs.wasNull()).thenReturn(false);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn(label);
+    when(rsmd.getColumnName(1)).thenReturn("COUNT");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+  }
+
+  static class Counter {
+    // no setter, written through the field
+    private int count;
+  }
+
 }
@@ -0,0 +1,175 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.scatter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ExecutorTestHelper;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Test;
+
+public class ScatterGatherExecutorTest extends BaseDataTest {
+
+  private final Configuration config = new Configuration();
+
+  @Test
+  public void shouldConcatenatePartsInPartOrder() {
+    List<List<Integer>> parts = Arrays.asList(Arrays.asList(3, 1), null, Arrays.asList(2));
+    assertEquals(Arrays.asList(3, 1, 2), ScatterGatherExecutor.merge(parts, null));
+  }
+
+  @Test
+  public void shouldMergeSortedParts() {
+    List<List<Map<String, Object>>> parts = new ArrayList<List<Map<String, Object>>>();
+    parts.add(Arrays.asList(row(1, "a"), row(4, "a"), row(6, "a")));
+    parts.add(Collections.<Map<String, Object>>emptyList());
+    parts.add(Arrays.asList(row(null, "c"), row(4, "c"), row(5, "c")));
+    List<Map<String, Object>> merged = ScatterGatherExecutor.merge(parts, MergeOrder.ascending("id"));
+    assertEquals("[null c, 1 a, 4 a, 4 c, 5 c, 6 a]", describe(merged));
+    Collections.reverse(parts.get(0));
+    Collections.reverse(parts.get(2));
+    merged = ScatterGatherExecutor.merge(parts, MergeOrder.descending("id"));
+    assertEquals("[6 a, 5 c, 4 a, 4 c, 1 a, null c]", describe(merged));
+  }
+
+  @Test
+  public void shouldMergePartsSortedByTwoProperties() {
+    List<List<Map<String, Object>>> parts = new ArrayList<List<Map<String, Object>>>();
+    parts.add(Arrays.asList(row(1, "b"), row(2, "a")));
+    parts.add(Arrays.asList(row(1, "a"), row(1, "c")));
+    List<Map<String, Object>> merged = ScatterGatherExecutor.merge(parts, MergeOrder.ascending("id", "part"));
+    assertEquals("[1 a, 1 b, 1 c, 2 a]", describe(merged));
+  }
+
+  @Test
+  public void shouldRunPartsOnSeparateConnectionsAndMergeThem() throws Exception {
+    DataSource ds = createBlogDataSource();
+    config.setEnvironment(new Environment("test", new JdbcTransactionFactory(), ds));
+    MappedStatement ms = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+    ScatterGatherExecutor executor = new ScatterGatherExecutor(config);
+    List<List<Author>> parts = executor.queryParts(ms, Arrays.asList(101, 102), Arrays.asList(ds, ds), RowBounds.DEFAULT, null);
+    assertEquals(101, parts.get(0).get(0).getId());
+    assertEquals(102, parts.get(1).get(0).getId());
+    List<Author> merged = ScatterGatherExecutor.merge(parts, MergeOrder.descending("id"));
+    assertEquals(102, merged.get(0).getId());
+    assertEquals(101, merged.get(1).getId());
+  }
+
+  @Test
+  public void shouldHandAllRowsToOneHandler() throws Exception {
+    DataSource ds = createBlogDataSource();
+    config.setEnvironment(new Environment("test", new JdbcTransactionFactory(), ds));
+    MappedStatement ms = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+    final List<Object> rows = new ArrayList<Object>();
+    new ScatterGatherExecutor(config).queryParts(ms, Arrays.asList(101, 102, 101), Arrays.asList(ds, ds, ds), RowBounds.DEFAULT, new ResultHandler() {
+      @Override
+      public void handleResult(ResultContext context) {
+        rows.add(context.getResultObject());
+      }
+    });
+    assertEquals(3, rows.size());
+  }
+
+  @Test
+  public void shouldCancelOtherPartsWhenHandlerStops() throws Exception {
+    DataSource ds = createBlogDataSource();
+    config.setEnvironment(new Environment("test", new JdbcTransactionFactory(), ds));
+    MappedStatement ms = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+    final List<Object> rows = new ArrayList<Object>();
+    new ScatterGatherExecutor(config).queryParts(ms, Arrays.asList(101, 102, 101), Arrays.asList(ds, ds, ds), RowBounds.DEFAULT, new ResultHandler() {
+      @Override
+      public void handleResult(ResultContext context) {
+        rows.add(context.getResultObject());
+        context.stop();
+      }
+    });
+    assertEquals(1, rows.size());
+  }
+
+  @Test
+  public void shouldGiveUpWhenTimeoutExpires() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    DataSource slow = new UnpooledDataSource() {
+      @Override
+      public Connection getConnection() {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return null;
+          }
+        });
+      }
+    };
+    config.setEnvironment(new Environment("test", new JdbcTransactionFactory(), slow));
+    MappedStatement ms = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+    ScatterGatherExecutor executor = new ScatterGatherExecutor(config);
+    executor.setTimeout(50);
+    try {
+      executor.queryParts(ms, Arrays.asList(101, 102), Arrays.<DataSource>asList(slow, slow), RowBounds.DEFAULT, null);
+      fail("Should have timed out");
+    } catch (ExecutorException e) {
+      assertEquals("Scatter-gather query 'selectAuthor' did not finish within 50 ms.", e.getMessage());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private static Map<String, Object> row(Integer id, String part) {
+    Map<String, Object> row = new HashMap<String, Object>();
+    row.put("id", id);
+    row.put("part", part);
+    return row;
+  }
+
+  private static String describe(List<Map<String, Object>> rows) {
+    List<String> descriptions = new ArrayList<String>();
+    for (Map<String, Object> row : rows) {
+      descriptions.add(row.get("id") + " " + row.get("part"));
+    }
+    return descriptions.toString();
+  }
+
+}
@@ -0,0 +1,132 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.apache.ibatis.io.PackageIndex;
+import org.apache.ibatis.io.ResolverUtil;
+import org.apache.ibatis.type.TypeHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackageIndexProcessorTest {
+
+  private static final String PACKAGE = "org.apache.ibatis.index.sample";
+
+  private File dir;
+  private ClassLoader loader;
+
+  @Before
+  public void compileSample() throws Exception {
+    dir = File.createTempFile("package-index", "");
+    dir.delete();
+    dir.mkdirs();
+    List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+    sources.add(new Source(PACKAGE + ".Author", "package " + PACKAGE + "; public class Author { public static class Address {} }"));
+    sources.add(new Source(PACKAGE + ".AuthorMapper", "package " + PACKAGE + "; public interface AuthorMapper {}"));
+    sources.add(new Source(PACKAGE + ".NameTypeHandler", "package " + PACKAGE + "; public class NameTypeHandler extends org.apache.ibatis.type.StringTypeHandler {}"));
+    sources.add(new Source(PACKAGE + ".mappers.BlogMapper", "package " + PACKAGE + ".mappers; public interface BlogMapper {}"));
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    List<String> options = Arrays.asList("-d", dir.getPath(), "-classpath", System.getProperty("java.class.path"));
+    JavaCompiler.CompilationTask task = compiler.getTask(null, null, null, options, null, sources);
+    task.setProcessors(Arrays.asList(new PackageIndexProcessor()));
+    assertTrue(task.call());
+    loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+  }
+
+  @After
+  public void deleteSample() {
+    delete(dir);
+  }
+
+  @Test
+  public void shouldWriteAnIndexThatPackageIndexReads() {
+    assertTrue(new File(dir, PackageIndex.RESOURCE).isFile());
+    Map<String, PackageIndex.Entry> entries = new HashMap<String, PackageIndex.Entry>();
+    for (PackageIndex.Entry entry : PackageIndex.getInstance(loader).list(PACKAGE)) {
+      entries.put(entry.getClassName(), entry);
+    }
+    assertEquals(5, entries.size());
+    assertFalse(entries.get(PACKAGE + ".Author").isMember());
+    assertTrue(entries.get(PACKAGE + ".Author$Address").isMember());
+    assertTrue(entries.get(PACKAGE + ".AuthorMapper").isInterface());
+    assertTrue(entries.get(PACKAGE + ".AuthorMapper").isAbstract());
+    assertTrue(entries.get(PACKAGE + ".NameTypeHandler").isTypeHandler());
+    assertFalse(entries.get(PACKAGE + ".Author").isTypeHandler());
+    assertEquals(1, PackageIndex.getInstance(loader).list(PACKAGE + ".mappers").size());
+  }
+
+  @Test
+  public void shouldDeclareOnlyThePackagesItCompiled() {
+    // org.apache.ibatis.index also holds this test, which the generated index does not list
+    assertNull(PackageIndex.getInstance(loader).list("org.apache.ibatis.index"));
+  }
+
+  @Test
+  public void shouldResolveClassesFromTheGeneratedIndex() {
+    ResolverUtil<Object> resolverUtil = new ResolverUtil<Object>();
+    resolverUtil.setClassLoader(loader);
+    resolverUtil.find(new ResolverUtil.IsA(TypeHandler.class), PACKAGE);
+    assertEquals(1, resolverUtil.getClasses().size());
+    assertEquals(PACKAGE + ".NameTypeHandler", resolverUtil.getClasses().iterator().next().getName());
+  }
+
+  private static class Source extends SimpleJavaFileObject {
+    private final String code;
+
+    Source(String className, String code) {
+      super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+      this.code = code;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return code;
+    }
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackageIndexTest {
+
+  private static final String PACKAGE = "org.apache.ibatis.io.indexed";
+
+  private File dir;
+  private ClassLoader loader;
+
+  @Before
+  public void writeIndex() throws Exception {
+    dir = File.createTempFile("package-index", "");
+    dir.delete();
+    new File(dir, "org/apache/ibatis/io/indexed/mappers").mkdirs();
+    File index = new File(dir, PackageIndex.RESOURCE);
+    index.getParentFile().mkdirs();
+    OutputStream out = new FileOutputStream(index);
+    try {
+      out.write(("# test index\n"
+          + "package " + PACKAGE + "\n"
+          + PACKAGE + ".Author\n"
+          + PACKAGE + ".Blog\n"
+          + PACKAGE + ".mappers.AuthorMapper interface abstract\n").getBytes("UTF-8"));
+    } finally {
+      out.close();
+    }
+    loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+  }
+
+  @After
+  public void deleteIndex() {
+    delete(dir);
+  }
+
+  @Test
+  public void shouldListDeclaredPackages() {
+    PackageIndex index = PackageIndex.getInstance(loader);
+    assertEquals(3, index.list(PACKAGE).size());
+    assertTrue(index.list(PACKAGE).get(2).isInterface());
+  }
+
+  @Test
+  public void shouldNotCoverPackagesOnlyByPrefix() {
+    // the index holds a class of the sub package, but does not declare the sub package itself
+    assertNull(PackageIndex.getInstance(loader).list(PACKAGE + ".mappers"));
+  }
+
+  @Test
+  public void shouldNotCoverPackagesHeldByRootsWithoutIndex() {
+    // org.apache.ibatis.io also lives in the test classes, which have no index
+    assertNull(PackageIndex.getInstance(loader).list("org.apache.ibatis.io"));
+    assertNull(PackageIndex.getInstance(loader).list("org.apache.ibatis.domain.jpetstore"));
+  }
+
+  @Test
+  public void shouldUseIndexWithoutScanning() {
+    ScanRecordingResolverUtil resolverUtil = new ScanRecordingResolverUtil();
+    resolverUtil.setClassLoader(loader);
+    resolverUtil.find(new ResolverUtil.IsA(Object.class), PACKAGE);
+    assertTrue(resolverUtil.scanned.isEmpty());
+  }
+
+  @Test
+  public void shouldSkipEntriesRejectedByIndexedTest() {
+    final List<String> offered = new ArrayList<String>();
+    ResolverUtil<Object> resolverUtil = new ResolverUtil<Object>() {
+      @Override
+      protected void addIfMatching(ResolverUtil.Test test, String fqn) {
+        offered.add(fqn);
+      }
+    };
+    resolverUtil.setClassLoader(loader);
+    resolverUtil.find(new ResolverUtil.IndexedTest() {
+      @Override
+      public boolean mayMatch(PackageIndex.Entry entry) {
+        return entry.isInterface();
+      }
+
+      @Override
+      public boolean matches(Class<?> type) {
+        return true;
+      }
+    }, PACKAGE);
+    assertEquals(1, offered.size());
+    assertEquals("org/apache/ibatis/io/indexed/mappers/AuthorMapper.class", offered.get(0));
+  }
+
+  @Test
+  public void shouldScanPackagesMissingFromIndex() {
+    ScanRecordingResolverUtil resolverUtil = new ScanRecordingResolverUtil();
+    resolverUtil.setClassLoader(loader);
+    resolverUtil.find(new ResolverUtil.IsA(Object.class), "org.apache.ibatis.domain.jpetstore");
+    assertEquals(1, resolverUtil.scanned.size());
+    assertTrue(resolverUtil.getClasses().size() > 1);
+  }
+
+  private static class ScanRecordingResolverUtil extends ResolverUtil<Object> {
+    private final List<String> scanned = new ArrayList<String>();
+
+    @Override
+    protected String getPackagePath(String packageName) {
+      scanned.add(packageName);
+      return super.getPackagePath(packageName);
+    }
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+}
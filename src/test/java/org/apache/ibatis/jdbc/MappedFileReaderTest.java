@@ -0,0 +1,95 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+public class MappedFileReaderTest {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  @Test
+  public void shouldDecodeCharactersSplitAcrossRegions() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      text.append("insert into t values (").append(i).append(", '数据€');\n");
+    }
+    File file = write(text.toString());
+    try {
+      //区段大小取奇数，多字节字符一定会被切开
+      assertEquals(text.toString(), readAll(new MappedFileReader(file, UTF8, 7), 5));
+      assertEquals(text.toString(), readAll(new MappedFileReader(file, UTF8), 8192));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void shouldHandOutSurrogatePairsOneCharAtATime() throws IOException {
+    String text = "a\uD83D\uDE00b\uD83D\uDE01";
+    File file = write(text);
+    try {
+      assertEquals(text, readAll(new MappedFileReader(file, UTF8, 7), 1));
+      assertEquals(text, readAll(new MappedFileReader(file, UTF8), 1));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void shouldReadEmptyFile() throws IOException {
+    File file = write("");
+    try {
+      assertEquals("", readAll(new MappedFileReader(file, UTF8), 16));
+    } finally {
+      file.delete();
+    }
+  }
+
+  private static File write(String text) throws IOException {
+    File file = File.createTempFile("mapped", ".sql");
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(text.getBytes(UTF8));
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  private static String readAll(MappedFileReader reader, int bufferSize) throws IOException {
+    StringBuilder text = new StringBuilder();
+    char[] buffer = new char[bufferSize];
+    try {
+      int n;
+      while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+        text.append(buffer, 0, n);
+      }
+    } finally {
+      reader.close();
+    }
+    return text.toString();
+  }
+
+}
@@ -19,14 +19,28 @@ import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.Test;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 public class PooledDataSourceTest extends BaseDataTest {
 
@@ -85,4 +99,179 @@ public class PooledDataSourceTest extends BaseDataTest {
     Connection c = ds.getConnection();
     JDBCConnection realConnection = (JDBCConnection) PooledDataSource.unwrapConnection(c);
   }
+
+  @Test
+  public void shouldReuseReturnedConnectionAndInvalidateTheOldHandle() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      Connection first = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(first);
+      first.close();
+      Connection second = ds.getConnection();
+      assertNotSame(first, second);
+      assertSame(real, PooledDataSource.unwrapConnection(second));
+      try {
+        first.getAutoCommit();
+        fail("A closed handle must not reach the connection that was handed out again");
+      } catch (SQLException e) {
+        // expected
+      }
+      second.getAutoCommit();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNotReturnAConnectionTwiceWhenAnOldHandleIsClosedAgain() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      Connection first = ds.getConnection();
+      first.close();
+      Connection second = ds.getConnection();
+      first.close();
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      // a stale handle closed again is not a bad connection
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      second.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNeverHandOutMoreThanMaximumActiveConnectionsUnderContention() throws Exception {
+    final PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolMaximumActiveConnections(3);
+    ds.setPoolMaximumIdleConnections(2);
+    final AtomicInteger inUse = new AtomicInteger();
+    final AtomicInteger maxInUse = new AtomicInteger();
+    final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+    List<Thread> threads = new ArrayList<Thread>();
+    try {
+      for (int i = 0; i < 20; i++) {
+        Thread thread = new Thread() {
+          @Override
+          public void run() {
+            for (int j = 0; j < 50; j++) {
+              try {
+                Connection connection = ds.getConnection();
+                int current = inUse.incrementAndGet();
+                while (current > maxInUse.get() && !maxInUse.compareAndSet(maxInUse.get(), current)) {
+                  // retry
+                }
+                Thread.yield();
+                inUse.decrementAndGet();
+                connection.close();
+              } catch (Throwable e) {
+                errors.add(e);
+              }
+            }
+          }
+        };
+        threads.add(thread);
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(Collections.emptyList(), errors);
+      assertTrue(maxInUse.get() <= 3);
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(1000, ds.getPoolState().getRequestCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldDiscardConnectionWhoseRollbackFailed() throws Exception {
+    PooledDataSource ds = new PooledDataSource(FailingRollbackDriver.class.getName(), FailingRollbackDriver.URL, "sa", "");
+    ds.setDefaultAutoCommit(false);
+    try {
+      Connection connection = ds.getConnection();
+      try {
+        connection.close();
+        fail("The rollback failure should reach the caller");
+      } catch (SQLException e) {
+        assertEquals("rollback failed", e.getMessage());
+      }
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(1, FailingRollbackDriver.closed.get());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  public static class FailingRollbackDriver implements Driver {
+    static final String URL = "jdbc:failing-rollback:";
+    static final AtomicInteger closed = new AtomicInteger();
+
+    @Override
+    public Connection connect(String url, Properties info) {
+      if (!acceptsURL(url)) {
+        return null;
+      }
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+        private boolean isClosed;
+        private int rollbacks;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+          String name = method.getName();
+          if ("rollback".equals(name)) {
+            //借出时的回滚成功，归还时的回滚失败
+            if (++rollbacks > 1) {
+              throw new SQLException("rollback failed");
+            }
+          } else if ("close".equals(name)) {
+            isClosed = true;
+            closed.incrementAndGet();
+          } else if ("isClosed".equals(name)) {
+            return isClosed;
+          } else if ("getAutoCommit".equals(name)) {
+            return false;
+          } else if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+          } else if ("equals".equals(name)) {
+            return proxy == args[0];
+          }
+          return null;
+        }
+      });
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+      return url.startsWith(URL);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+      return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+      return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+      return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+      return false;
+    }
+
+    public Logger getParentLogger() {
+      return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    }
+  }
+
 }
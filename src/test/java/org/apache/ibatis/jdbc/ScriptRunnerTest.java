@@ -25,10 +25,21 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import javax.sql.DataSource;
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -80,6 +91,101 @@ public class ScriptRunnerTest extends BaseDataTest {
     assertProductsTableExistsAndLoaded();
   }
 
+  @Test
+  public void shouldRunScriptsInBatches() throws Exception {
+    DataSource ds = createUnpooledDataSource(JPETSTORE_PROPERTIES);
+    Connection conn = ds.getConnection();
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setAutoCommit(false);
+    runner.setStopOnError(true);
+    runner.setBatchSize(5);
+    runner.setErrorLogWriter(null);
+    runner.setLogWriter(null);
+    runner.runScript(Resources.getResourceAsFile(JPETSTORE_DDL));
+    runner.runScript(Resources.getResourceAsFile(JPETSTORE_DATA));
+    conn.close();
+    assertProductsTableExistsAndLoaded();
+  }
+
+  @Test
+  public void shouldRerunCommandsOfAFailedBatchOneByOne() throws Exception {
+    final List<String> executed = new ArrayList<String>();
+    final Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if ("executeBatch".equals(method.getName())) {
+          //第二条失败，驱动继续执行了第三条
+          throw new BatchUpdateException(new int[] { 1, Statement.EXECUTE_FAILED, 1 });
+        } else if ("execute".equals(method.getName())) {
+          executed.add(((String) args[0]).trim());
+          return false;
+        }
+        return null;
+      }
+    });
+    Connection conn = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if ("createStatement".equals(method.getName())) {
+          return statement;
+        } else if ("getAutoCommit".equals(method.getName())) {
+          return false;
+        }
+        return null;
+      }
+    });
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setAutoCommit(false);
+    runner.setStopOnError(false);
+    runner.setBatchSize(3);
+    runner.setErrorLogWriter(null);
+    runner.setLogWriter(null);
+    runner.runScript(new StringReader("INSERT INTO t VALUES (1);\nINSERT INTO t VALUES (2);\nINSERT INTO t VALUES (3);\n"));
+    assertEquals(Arrays.asList("INSERT INTO t VALUES (2)"), executed);
+  }
+
+  @Test
+  public void shouldRunIndependentScriptsInParallel() throws Exception {
+    DataSource ds = createUnpooledDataSource(JPETSTORE_PROPERTIES);
+    List<File> scripts = new ArrayList<File>();
+    try {
+      for (int i = 0; i < 3; i++) {
+        File script = File.createTempFile("parallel", ".sql");
+        Writer writer = new FileWriter(script);
+        try {
+          writer.write("DROP TABLE parallel" + i + " IF EXISTS;\n");
+          writer.write("CREATE TABLE parallel" + i + " (id INT);\n");
+          for (int j = 0; j < 10; j++) {
+            writer.write("INSERT INTO parallel" + i + " VALUES (" + j + ");\n");
+          }
+        } finally {
+          writer.close();
+        }
+        scripts.add(script);
+      }
+      ScriptRunner runner = new ScriptRunner(null);
+      runner.setAutoCommit(false);
+      runner.setStopOnError(true);
+      runner.setBatchSize(4);
+      runner.setErrorLogWriter(null);
+      runner.setLogWriter(null);
+      runner.runScripts(ds, scripts, 3);
+      Connection conn = ds.getConnection();
+      try {
+        SqlRunner executor = new SqlRunner(conn);
+        for (int i = 0; i < 3; i++) {
+          assertEquals(10, executor.selectAll("SELECT * FROM parallel" + i).size());
+        }
+      } finally {
+        conn.close();
+      }
+    } finally {
+      for (File script : scripts) {
+        script.delete();
+      }
+    }
+  }
+
   @Test
   public void shouldReturnWarningIfEndOfLineTerminatorNotFound() throws Exception {
     DataSource ds = createUnpooledDataSource(JPETSTORE_PROPERTIES);
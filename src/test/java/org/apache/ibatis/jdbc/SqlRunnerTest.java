@@ -18,13 +18,23 @@ package org.apache.ibatis.jdbc;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import javax.sql.DataSource;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.junit.Test;
 
 public class SqlRunnerTest extends BaseDataTest {
@@ -82,6 +92,147 @@ public class SqlRunnerTest extends BaseDataTest {
     assertEquals(1, count);
   }
 
+  @Test
+  public void shouldReuseCachedStatements() throws Exception {
+    DataSource ds = createUnpooledDataSource(JPETSTORE_PROPERTIES);
+    runScript(ds, JPETSTORE_DDL);
+    runScript(ds, JPETSTORE_DATA);
+    Connection connection = ds.getConnection();
+    SqlRunner exec = new SqlRunner(connection);
+    exec.setStatementCacheSize(4);
+    assertEquals("FI-SW-01", exec.selectOne("SELECT * FROM PRODUCT WHERE PRODUCTID = ?", "FI-SW-01").get("PRODUCTID"));
+    assertEquals("K9-BD-01", exec.selectOne("SELECT * FROM PRODUCT WHERE PRODUCTID = ?", "K9-BD-01").get("PRODUCTID"));
+    exec.closeConnection();
+  }
+
+  @Test
+  public void shouldNotReuseCachedColumnsWhenColumnTypeChanged() throws Exception {
+    //同一条语句，第一次查出INTEGER列，DDL改成VARCHAR后再查
+    final boolean[] altered = new boolean[1];
+    final ResultSetMetaData rsmd = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSetMetaData.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if ("getColumnCount".equals(name)) {
+          return 1;
+        } else if ("getColumnLabel".equals(name)) {
+          return "VALUE";
+        } else if ("getColumnType".equals(name)) {
+          return altered[0] ? Types.VARCHAR : Types.INTEGER;
+        } else if ("getColumnClassName".equals(name)) {
+          return altered[0] ? String.class.getName() : Integer.class.getName();
+        }
+        return null;
+      }
+    });
+    final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if ("executeQuery".equals(method.getName())) {
+          return singleRow(rsmd);
+        }
+        return null;
+      }
+    });
+    Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if ("prepareStatement".equals(method.getName())) {
+          return statement;
+        }
+        return null;
+      }
+    });
+    SqlRunner exec = new SqlRunner(connection);
+    exec.setStatementCacheSize(4);
+    assertEquals(7, exec.selectOne("SELECT VALUE FROM T").get("VALUE"));
+    altered[0] = true;
+    assertEquals("seven", exec.selectOne("SELECT VALUE FROM T").get("VALUE"));
+  }
+
+  private ResultSet singleRow(final ResultSetMetaData rsmd) {
+    return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+      private boolean read;
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if ("getMetaData".equals(name)) {
+          return rsmd;
+        } else if ("next".equals(name)) {
+          boolean hasRow = !read;
+          read = true;
+          return hasRow;
+        } else if ("getInt".equals(name)) {
+          return 7;
+        } else if ("getString".equals(name)) {
+          return "seven";
+        } else if ("wasNull".equals(name)) {
+          return false;
+        }
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void shouldIterateRows() throws Exception {
+    DataSource ds = createUnpooledDataSource(JPETSTORE_PROPERTIES);
+    runScript(ds, JPETSTORE_DDL);
+    runScript(ds, JPETSTORE_DATA);
+    Connection connection = ds.getConnection();
+    SqlRunner exec = new SqlRunner(connection);
+    exec.setStatementCacheSize(4);
+    SqlRunner.RowIterator rows = exec.iterate("SELECT * FROM PRODUCT ORDER BY PRODUCTID");
+    int count = 0;
+    while (rows.hasNext()) {
+      assertTrue(rows.next().containsKey("PRODUCTID"));
+      //迭代中同样的SQL要另外准备语句，不能关掉还在读的结果集
+      assertEquals(16, exec.selectAll("SELECT * FROM PRODUCT ORDER BY PRODUCTID").size());
+      count++;
+    }
+    connection.close();
+    assertEquals(16, count);
+  }
+
+  @Test
+  public void shouldStopHandlingRows() throws Exception {
+    DataSource ds = createUnpooledDataSource(JPETSTORE_PROPERTIES);
+    runScript(ds, JPETSTORE_DDL);
+    runScript(ds, JPETSTORE_DATA);
+    Connection connection = ds.getConnection();
+    SqlRunner exec = new SqlRunner(connection);
+    final List<Object> rows = new ArrayList<Object>();
+    exec.select("SELECT * FROM PRODUCT WHERE CATEGORY = ?", new ResultHandler() {
+      @Override
+      public void handleResult(ResultContext context) {
+        rows.add(context.getResultObject());
+        if (context.getResultCount() == 2) {
+          context.stop();
+        }
+      }
+    }, "DOGS");
+    connection.close();
+    assertEquals(2, rows.size());
+  }
+
+  @Test
+  public void shouldUpdateInBatch() throws Exception {
+    DataSource ds = createUnpooledDataSource(JPETSTORE_PROPERTIES);
+    runScript(ds, JPETSTORE_DDL);
+    runScript(ds, JPETSTORE_DATA);
+    Connection connection = ds.getConnection();
+    SqlRunner exec = new SqlRunner(connection);
+    List<Object[]> args = new ArrayList<Object[]>();
+    args.add(new Object[] { "DOGS", "FI-SW-01" });
+    args.add(new Object[] { "DOGS", "FI-SW-02" });
+    int[] counts = exec.updateBatch("update product set category = ? where productid = ?", args);
+    List<Map<String, Object>> rows = exec.selectAll("SELECT * FROM PRODUCT WHERE PRODUCTID IN (?, ?) AND CATEGORY = ?", "FI-SW-01", "FI-SW-02", "DOGS");
+    connection.close();
+    assertEquals(2, counts.length);
+    assertEquals(2, rows.size());
+  }
+
   @Test
   public void shouldDeleteOne() throws Exception {
     DataSource ds = createUnpooledDataSource(JPETSTORE_PROPERTIES);
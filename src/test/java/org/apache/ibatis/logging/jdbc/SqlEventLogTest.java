@@ -0,0 +1,155 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.logging.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class SqlEventLogTest {
+
+  private final Configuration config = new Configuration();
+
+  @Test
+  public void shouldWriteStatementEventsInTheBackground() {
+    RecordingLog log = new RecordingLog();
+    MappedStatement ms = selectAuthor();
+    SqlEventLog eventLog = new SqlEventLog(16, 1);
+    assertTrue(eventLog.publish(log, ms, ms.getBoundSql(101), 101, 2500000L, 1));
+    assertTrue(eventLog.publish(log, ms, null, 102, 1000000L, 3));
+    eventLog.close();
+    assertEquals("==>  Preparing: select * from author where id = ? ", log.lines.get(0));
+    assertEquals("==> Parameters: 101(Integer)", log.lines.get(1));
+    assertEquals("<==      Total: 1, Time: 2.5 ms", log.lines.get(2));
+    assertEquals("==> Parameters: 102(Integer)", log.lines.get(4));
+    assertEquals("<==    Updates: 3, Time: 1.0 ms", log.lines.get(5));
+  }
+
+  @Test
+  public void shouldCaptureParameterValuesWhenPublished() {
+    RecordingLog log = new RecordingLog();
+    MappedStatement ms = selectAuthor();
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    parameter.put("id", 101);
+    SqlEventLog eventLog = new SqlEventLog(16, 1);
+    synchronized (log) {
+      assertTrue(eventLog.publish(log, ms, ms.getBoundSql(parameter), parameter, 0, 1));
+      parameter.put("id", 102);
+    }
+    eventLog.close();
+    assertEquals("==> Parameters: 101(Integer)", log.lines.get(1));
+  }
+
+  @Test
+  public void shouldWriteFailedStatements() {
+    RecordingLog log = new RecordingLog();
+    MappedStatement ms = selectAuthor();
+    SqlEventLog eventLog = new SqlEventLog(16, 1);
+    assertTrue(eventLog.publish(log, ms, null, 101, 1000000L, -1, new SQLException("deadlock")));
+    eventLog.close();
+    assertEquals("<==     Failed: java.sql.SQLException: deadlock, Time: 1.0 ms", log.lines.get(2));
+  }
+
+  @Test
+  public void shouldSampleEvents() {
+    RecordingLog log = new RecordingLog();
+    MappedStatement ms = selectAuthor();
+    SqlEventLog eventLog = new SqlEventLog(16, 3);
+    int published = 0;
+    for (int i = 0; i < 9; i++) {
+      if (eventLog.publish(log, ms, null, i, 0, 1)) {
+        published++;
+      }
+    }
+    eventLog.close();
+    assertEquals(3, published);
+    assertEquals(9, log.lines.size());
+  }
+
+  @Test
+  public void shouldDropEventsWhenBufferIsFull() {
+    final RecordingLog log = new RecordingLog();
+    MappedStatement ms = selectAuthor();
+    SqlEventLog eventLog = new SqlEventLog(2, 1);
+    //写日志的线程卡住，缓冲很快就满
+    synchronized (log) {
+      for (int i = 0; i < 10; i++) {
+        eventLog.publish(log, ms, null, i, 0, 1);
+      }
+      assertTrue(eventLog.getDroppedCount() > 0);
+    }
+    eventLog.close();
+    assertFalse(eventLog.publish(log, ms, null, 1, 0, 1));
+  }
+
+  private MappedStatement selectAuthor() {
+    List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+    parameterMappings.add(new ParameterMapping.Builder(config, "id", Integer.class).build());
+    return new MappedStatement.Builder(config, "selectAuthor",
+        new StaticSqlSource(config, "select * from author\n where id = ?", parameterMappings), SqlCommandType.SELECT).build();
+  }
+
+  private static class RecordingLog implements Log {
+    private final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public boolean isDebugEnabled() {
+      return true;
+    }
+
+    @Override
+    public boolean isTraceEnabled() {
+      return false;
+    }
+
+    @Override
+    public void error(String s, Throwable e) {
+    }
+
+    @Override
+    public void error(String s) {
+    }
+
+    @Override
+    public synchronized void debug(String s) {
+      lines.add(s);
+    }
+
+    @Override
+    public void trace(String s) {
+    }
+
+    @Override
+    public void warn(String s) {
+    }
+  }
+
+}
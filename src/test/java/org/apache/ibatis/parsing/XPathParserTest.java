@@ -16,8 +16,10 @@
 package org.apache.ibatis.parsing;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.io.InputStream;
+import java.util.List;
 
 import org.apache.ibatis.io.Resources;
 import org.junit.Test;
@@ -43,4 +45,25 @@ public class XPathParserTest {
     assertEquals("employee[${id_var}]_height", node.getValueBasedIdentifier());
   }
 
+  @Test
+  public void shouldEvaluateElementPathsLikeXPath() throws Exception {
+    XPathParser parser = new XPathParser(Resources.getResourceAsStream("resources/nodelet_test.xml"), false, null, null);
+    XNode employee = parser.evalNode("/employee");
+    // relative, absolute from a nested node and union paths are evaluated without javax.xml.xpath
+    assertEquals("1970", employee.evalString("birth_date/year"));
+    assertEquals("employee", employee.evalNode("birth_date").evalNode("/employee").getName());
+    List<XNode> nodes = employee.evalNodes("weight|first_name|height");
+    assertEquals(3, nodes.size());
+    assertEquals("first_name", nodes.get(0).getName());
+    assertEquals("height", nodes.get(1).getName());
+    assertEquals("weight", nodes.get(2).getName());
+    assertEquals(3, employee.evalNodes("birth_date/*").size());
+    assertNull(employee.evalNode("birth_date/hour"));
+    assertEquals("", employee.evalString("birth_date/hour"));
+    assertEquals(Boolean.FALSE, employee.evalBoolean("birth_date/hour"));
+    // anything else still goes through XPath
+    assertEquals("ft", employee.evalString("height/@units"));
+    assertEquals(1, employee.evalNodes("birth_date[year='1970']").size());
+  }
+
 }
@@ -0,0 +1,170 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.junit.Test;
+
+public class InterceptorChainTest {
+
+  @Test
+  public void shouldRunInterceptorsInTheSameOrderAsNestedProxies() throws Exception {
+    List<String> nestedCalls = new ArrayList<String>();
+    invokeSetParameters(newChain(false, nestedCalls), nestedCalls);
+    List<String> flatCalls = new ArrayList<String>();
+    invokeSetParameters(newChain(true, flatCalls), flatCalls);
+    assertEquals("[second, first, target]", nestedCalls.toString());
+    assertEquals(nestedCalls, flatCalls);
+  }
+
+  @Test
+  public void shouldUseOneDelegatingObjectInsteadOfProxies() {
+    List<String> calls = new ArrayList<String>();
+    Object plugged = newChain(true, calls).pluginAll(new RecordingParameterHandler(calls));
+    assertFalse(Proxy.isProxyClass(plugged.getClass()));
+    assertTrue(plugged instanceof FlatParameterHandler);
+  }
+
+  @Test
+  public void shouldCallNonInterceptedMethodsDirectly() {
+    List<String> calls = new ArrayList<String>();
+    ParameterHandler handler = (ParameterHandler) newChain(true, calls).pluginAll(new RecordingParameterHandler(calls));
+    assertEquals("parameter", handler.getParameterObject());
+    assertEquals("[target]", calls.toString());
+  }
+
+  @Test
+  public void shouldExposeTheRealTargetAndUnwrapExceptions() {
+    final RecordingParameterHandler target = new RecordingParameterHandler(new ArrayList<String>());
+    InterceptorChain chain = new InterceptorChain();
+    chain.setFlat(true);
+    chain.addInterceptor(new FailingInterceptor(target));
+    ParameterHandler handler = (ParameterHandler) chain.pluginAll(target);
+    try {
+      handler.setParameters(null);
+      fail();
+    } catch (SQLException e) {
+      assertEquals("expected", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldReturnTargetWhenNoMethodIsIntercepted() {
+    InterceptorChain chain = new InterceptorChain();
+    chain.setFlat(true);
+    chain.addInterceptor(new RecordingInterceptor("first", new ArrayList<String>()));
+    Object target = new Object();
+    assertSame(target, chain.pluginAll(target));
+  }
+
+  private InterceptorChain newChain(boolean flat, List<String> calls) {
+    InterceptorChain chain = new InterceptorChain();
+    chain.setFlat(flat);
+    chain.addInterceptor(new RecordingInterceptor("first", calls));
+    chain.addInterceptor(new RecordingInterceptor("second", calls));
+    return chain;
+  }
+
+  private void invokeSetParameters(InterceptorChain chain, List<String> calls) throws SQLException {
+    ParameterHandler handler = (ParameterHandler) chain.pluginAll(new RecordingParameterHandler(calls));
+    handler.setParameters(null);
+  }
+
+  private static class RecordingParameterHandler implements ParameterHandler {
+    private final List<String> calls;
+
+    RecordingParameterHandler(List<String> calls) {
+      this.calls = calls;
+    }
+
+    @Override
+    public Object getParameterObject() {
+      calls.add("target");
+      return "parameter";
+    }
+
+    @Override
+    public void setParameters(PreparedStatement ps) throws SQLException {
+      calls.add("target");
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = ParameterHandler.class, method = "setParameters", args = {PreparedStatement.class})})
+  private static class RecordingInterceptor implements Interceptor {
+    private final String name;
+    private final List<String> calls;
+
+    RecordingInterceptor(String name, List<String> calls) {
+      this.name = name;
+      this.calls = calls;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      calls.add(name);
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = ParameterHandler.class, method = "setParameters", args = {PreparedStatement.class})})
+  private static class FailingInterceptor implements Interceptor {
+    private final Object expectedTarget;
+
+    FailingInterceptor(Object expectedTarget) {
+      this.expectedTarget = expectedTarget;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      assertSame(expectedTarget, invocation.getTarget());
+      throw new SQLException("expected");
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+}
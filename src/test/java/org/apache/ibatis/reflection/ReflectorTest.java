@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.reflection;
 
+import org.apache.ibatis.reflection.invoker.PrimitiveGetter;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -38,6 +40,41 @@ public class ReflectorTest {
     Assert.assertFalse(reflector.hasGetter("class"));
   }
 
+  @Test
+  public void shouldReadAndWritePrimitivesThroughInvokers() throws Exception {
+    Reflector reflector = Reflector.forClass(Counter.class);
+    Counter counter = new Counter();
+    ((PrimitiveSetter) reflector.getSetInvoker("count")).setInt(counter, 42);
+    ((PrimitiveSetter) reflector.getSetInvoker("total")).setLong(counter, 4200L);
+    Assert.assertEquals(42, counter.getCount());
+    Assert.assertEquals(4200L, counter.total);
+    Assert.assertEquals(42, ((PrimitiveGetter) reflector.getGetInvoker("count")).getInt(counter));
+    Assert.assertEquals(4200L, ((PrimitiveGetter) reflector.getGetInvoker("total")).getLong(counter));
+  }
+
+  @Test(expected = ReflectionException.class)
+  public void shouldWrapSetterExceptionsOfPrimitiveInvokers() throws Exception {
+    ((PrimitiveSetter) Reflector.forClass(Counter.class).getSetInvoker("count")).setInt(new Counter(), -1);
+  }
+
+  static class Counter {
+    // set through the setter
+    private int count;
+    // no accessors, set through the field
+    private long total;
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      if (count < 0) {
+        throw new IllegalArgumentException("negative count");
+      }
+      this.count = count;
+    }
+  }
+
   static interface Entity<T> {
     T getId();
     void setId(T id);
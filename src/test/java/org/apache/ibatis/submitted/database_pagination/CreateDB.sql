@@ -0,0 +1,29 @@
+--
+--    Copyright 2009-2014 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table names if exists;
+
+create table names (
+id int,
+name varchar(20)
+);
+
+insert into names (id, name) values(1, 'Fred');
+insert into names (id, name) values(2, 'Wilma');
+insert into names (id, name) values(3, 'Pebbles');
+insert into names (id, name) values(4, 'Barney');
+insert into names (id, name) values(5, 'Betty');
+insert into names (id, name) values(6, 'Bamm Bamm');
@@ -0,0 +1,176 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.database_pagination;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.PageRowBounds;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DatabasePaginationTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private SqlCollector sqlCollector;
+
+  @Before
+  public void setUp() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/database_pagination/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    sqlCollector = new SqlCollector();
+    sqlSessionFactory.getConfiguration().addInterceptor(sqlCollector);
+
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/database_pagination/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldRewriteRowBoundsToLimitOffset() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<String> names = mapper.selectAll(new RowBounds(2, 2));
+      assertEquals(Arrays.asList("Pebbles", "Barney"), names);
+      assertTrue(sqlCollector.getLastSql().endsWith("LIMIT ? OFFSET ?"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldAppendPageParametersAfterStatementParameters() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(Arrays.asList("Barney", "Betty"), mapper.selectByMinId(2, new RowBounds(2, 2)));
+      assertEquals(Arrays.asList("Pebbles", "Betty"), mapper.selectByIds(Arrays.asList(1, 3, 5, 6), new RowBounds(1, 2)));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldCountTotalRows() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      PageRowBounds page = new PageRowBounds(1, 2);
+      assertEquals(Arrays.asList("Pebbles", "Barney"), mapper.selectByMinId(2, page));
+      assertEquals(Long.valueOf(5), page.getTotal());
+
+      page = new PageRowBounds(0, 3);
+      mapper.selectByIds(Arrays.asList(1, 3, 5, 6), page);
+      assertEquals(Long.valueOf(4), page.getTotal());
+
+      page = new PageRowBounds(0, 3, false);
+      mapper.selectAll(page);
+      assertNull(page.getTotal());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotMixUpPagesInLocalCache() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(Arrays.asList("Fred", "Wilma"), mapper.selectAll(new RowBounds(0, 2)));
+      assertEquals(Arrays.asList("Pebbles", "Barney"), mapper.selectAll(new RowBounds(2, 2)));
+      assertEquals(Arrays.asList("Fred", "Wilma"), mapper.selectAll(new RowBounds(0, 2)));
+      assertEquals(6, mapper.selectAll(RowBounds.DEFAULT).size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldPageInMemoryWhenDisabled() {
+    sqlSessionFactory.getConfiguration().setDatabasePagination(false);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(Arrays.asList("Pebbles", "Barney"), mapper.selectAll(new RowBounds(2, 2)));
+      assertEquals("select name from names order by id", sqlCollector.getLastSql().trim());
+      //没开数据库分页时不额外查总行数
+      PageRowBounds page = new PageRowBounds(2, 2);
+      int statements = sqlCollector.getSqls().size();
+      assertEquals(Arrays.asList("Pebbles", "Barney"), mapper.selectByMinId(0, page));
+      assertNull(page.getTotal());
+      assertEquals(statements + 1, sqlCollector.getSqls().size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Intercepts({ @Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class }) })
+  public static class SqlCollector implements Interceptor {
+
+    private final List<String> sqls = new ArrayList<String>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      sqls.add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+    public String getLastSql() {
+      return sqls.get(sqls.size() - 1);
+    }
+
+    public List<String> getSqls() {
+      return sqls;
+    }
+  }
+
+}
@@ -0,0 +1,31 @@
+--
+--    Copyright 2009-2014 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table events if exists;
+
+create table events (
+category int,
+id int,
+name varchar(20)
+);
+
+insert into events (category, id, name) values(1, 1, 'a');
+insert into events (category, id, name) values(1, 2, 'b');
+insert into events (category, id, name) values(1, 5, 'c');
+insert into events (category, id, name) values(2, 1, 'd');
+insert into events (category, id, name) values(2, 3, 'e');
+insert into events (category, id, name) values(3, 2, 'f');
+insert into events (category, id, name) values(3, 4, 'g');
@@ -0,0 +1,187 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.keyset_pagination;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.KeysetIterator;
+import org.apache.ibatis.session.KeysetPage;
+import org.apache.ibatis.session.PageToken;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeysetPaginationTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/keyset_pagination/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/keyset_pagination/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldSeekPastTheLastRowOfThePreviousPage() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      KeysetPage<Event> page = mapper.selectPage(PageToken.first(3));
+      assertEquals(Arrays.asList("a", "b", "c"), names(page.getItems()));
+      assertArrayEquals(new Object[] { 1, 5 }, page.getNextPageToken().getKeyValues());
+
+      page = mapper.selectPage(page.getNextPageToken());
+      assertEquals(Arrays.asList("d", "e", "f"), names(page.getItems()));
+
+      page = mapper.selectPage(page.getNextPageToken());
+      assertEquals(Arrays.asList("g"), names(page.getItems()));
+      assertFalse(page.hasNext());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldSeekBackwardsWhenDescending() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      KeysetPage<Event> page = mapper.selectPage(PageToken.firstDescending(4));
+      assertEquals(Arrays.asList("g", "f", "e", "d"), names(page.getItems()));
+      page = mapper.selectPage(page.getNextPageToken());
+      assertEquals(Arrays.asList("c", "b", "a"), names(page.getItems()));
+      assertNull(page.getNextPageToken());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldKeepStatementParameters() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      KeysetPage<Event> page = mapper.selectPageFromCategory(2, PageToken.first(2));
+      assertEquals(Arrays.asList("d", "e"), names(page.getItems()));
+      page = mapper.selectPageFromCategory(2, page.getNextPageToken());
+      assertEquals(Arrays.asList("f", "g"), names(page.getItems()));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldScanTheWholeTable() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      KeysetIterator<Event> iterator = new KeysetIterator<Event>(sqlSession, "org.apache.ibatis.submitted.keyset_pagination.Mapper.selectPage", null, 2);
+      List<Event> events = new ArrayList<Event>();
+      while (iterator.hasNext()) {
+        events.add(iterator.next());
+      }
+      assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f", "g"), names(events));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldOrderOnlyByTheKeysOutsideTheStatement() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      KeysetPage<Event> page = mapper.selectPageOrderedByName(PageToken.first(3));
+      assertEquals(Arrays.asList("a", "b", "c"), names(page.getItems()));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldKeepTheLocalCacheWhileScanning() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Event event = mapper.selectById(5);
+      KeysetIterator<Event> iterator = new KeysetIterator<Event>(sqlSession, "org.apache.ibatis.submitted.keyset_pagination.Mapper.selectPage", null, 2);
+      while (iterator.hasNext()) {
+        iterator.next();
+      }
+      assertSame(event, mapper.selectById(5));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldHaveNoRowsWithoutPageToken() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      KeysetIterator<Event> iterator = new KeysetIterator<Event>(sqlSession, "org.apache.ibatis.submitted.keyset_pagination.Mapper.selectPage", null, (PageToken) null);
+      assertFalse(iterator.hasNext());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldFailWithoutIdMappings() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).selectNames(PageToken.first(2));
+      fail("Expected keyset pagination to need id mappings");
+    } catch (PersistenceException e) {
+      // expected
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private List<String> names(List<Event> events) {
+    List<String> names = new ArrayList<String>();
+    for (Event event : events) {
+      names.add(event.getName());
+    }
+    return names;
+  }
+
+}
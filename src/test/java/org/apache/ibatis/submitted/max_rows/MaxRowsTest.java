@@ -0,0 +1,143 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.max_rows;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.List;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.MaxRowsExceededBehavior;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MaxRowsTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/max_rows/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/max_rows/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldFailWhenStatementMaxRowsIsExceeded() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.selectCapped();
+      fail("Expected maxRows to be enforced");
+    } catch (PersistenceException e) {
+      // expected
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldTruncateWhenStatementMaxRowsIsExceeded() {
+    sqlSessionFactory.getConfiguration().setMaxRowsExceededBehavior(MaxRowsExceededBehavior.TRUNCATE);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(3, mapper.selectCapped().size());
+      assertEquals(2, mapper.selectCappedByAnnotation().size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldCountNestedResultMapObjectsInsteadOfRows() {
+    sqlSessionFactory.getConfiguration().setMaxRowsExceededBehavior(MaxRowsExceededBehavior.TRUNCATE);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Family> families = mapper.selectFamiliesCapped();
+      assertEquals(1, families.size());
+      assertEquals(3, families.get(0).getMembers().size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldFailWhenNestedResultMapObjectsExceedMaxRows() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.selectFamiliesCapped();
+      fail("Expected maxRows to be enforced");
+    } catch (PersistenceException e) {
+      assertTrue(e.getMessage().contains("objects (maxRows)"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldApplyDefaultMaxRows() {
+    sqlSessionFactory.getConfiguration().setMaxRowsExceededBehavior(MaxRowsExceededBehavior.TRUNCATE);
+    sqlSessionFactory.getConfiguration().setDefaultMaxRows(4);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<String> names = mapper.selectAll();
+      assertEquals(4, names.size());
+      assertEquals("Barney", names.get(3));
+      // statement level maxRows wins
+      assertEquals(3, mapper.selectCapped().size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotFailWhenRowBoundsStaysUnderMaxRows() {
+    sqlSessionFactory.getConfiguration().setDefaultMaxRows(4);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<String> names = mapper.selectAll(new RowBounds(2, 2));
+      assertEquals(2, names.size());
+      assertEquals("Pebbles", names.get(0));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,158 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_result_mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelResultMappingTest {
+
+  private static final int ROWS = 1000;
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_result_mapping/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_result_mapping/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+
+    session = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = session.getMapper(Mapper.class);
+      for (int i = 1; i <= ROWS; i++) {
+        Item item = new Item();
+        item.setId(i);
+        item.setName("item" + i);
+        item.setPrice(new BigDecimal(i).movePointLeft(2));
+        item.setInStock(i % 2 == 0);
+        mapper.insertItem(item);
+      }
+      session.commit();
+    } finally {
+      session.close();
+    }
+  }
+
+  @Test
+  public void shouldMapAllRowsInOrder() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Item> items = sqlSession.getMapper(Mapper.class).selectAll();
+      assertEquals(ROWS, items.size());
+      for (int i = 0; i < ROWS; i++) {
+        Item item = items.get(i);
+        assertEquals(i + 1, item.getId());
+        assertEquals("item" + (i + 1), item.getName());
+        assertEquals(new BigDecimal(i + 1).movePointLeft(2), item.getPrice());
+        assertEquals((i + 1) % 2 == 0, item.isInStock());
+      }
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldApplyExplicitResultMappings() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Item> items = sqlSession.getMapper(Mapper.class).selectWithResultMap();
+      assertEquals(ROWS, items.size());
+      assertEquals("item500", items.get(499).getLabel());
+      assertNull(items.get(499).getName());
+      assertEquals(new BigDecimal("5.00"), items.get(499).getPrice());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldMapToMaps() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Map<String, Object>> rows = sqlSession.getMapper(Mapper.class).selectMaps();
+      assertEquals(ROWS, rows.size());
+      assertEquals("item1000", rows.get(ROWS - 1).get("NAME"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldHonourRowBounds() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Item> items = sqlSession.getMapper(Mapper.class).selectAll(new RowBounds(10, 100));
+      assertEquals(100, items.size());
+      assertEquals(11, items.get(0).getId());
+      assertEquals(110, items.get(99).getId());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldDeliverInOrderAndStopWhenAsked() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      final List<Integer> ids = new ArrayList<Integer>();
+      sqlSession.getMapper(Mapper.class).selectAll(new ResultHandler() {
+        @Override
+        public void handleResult(ResultContext context) {
+          ids.add(((Item) context.getResultObject()).getId());
+          if (ids.size() == 50) {
+            context.stop();
+          }
+        }
+      });
+      assertEquals(50, ids.size());
+      for (int i = 0; i < ids.size(); i++) {
+        assertEquals(Integer.valueOf(i + 1), ids.get(i));
+      }
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ *    Copyright 2009-2012 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.sql.Blob;
+
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class BlobInputStreamTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<InputStream> TYPE_HANDLER = new BlobInputStreamTypeHandler();
+
+  @Mock
+  protected Blob blob;
+
+  @Test
+  public void shouldSetParameter() throws Exception {
+    InputStream in = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+    TYPE_HANDLER.setParameter(ps, 1, in, null);
+    verify(ps).setBinaryStream(1, in);
+  }
+
+  @Test
+  public void shouldGetResultFromResultSet() throws Exception {
+    InputStream in = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+    when(rs.getBlob("column")).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(in);
+    assertSame(in, TYPE_HANDLER.getResult(rs, "column"));
+  }
+
+  @Test
+  public void shouldGetNullResultFromResultSet() throws Exception {
+    when(rs.getBlob(1)).thenReturn(null);
+    when(rs.wasNull()).thenReturn(true);
+    assertNull(TYPE_HANDLER.getResult(rs, 1));
+  }
+
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    InputStream in = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+    when(cs.getBlob(1)).thenReturn(blob);
+    when(cs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(in);
+    assertSame(in, TYPE_HANDLER.getResult(cs, 1));
+  }
+
+}
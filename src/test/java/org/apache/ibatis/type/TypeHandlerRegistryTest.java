@@ -17,9 +17,11 @@ package org.apache.ibatis.type;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.math.RoundingMode;
 import java.net.URI;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
@@ -130,5 +132,35 @@ public class TypeHandlerRegistryTest {
     assertSame(IntegerTypeHandler.class, typeHandlerRegistry.getTypeHandler(Integer.class).getClass());
     typeHandlerRegistry.register(Integer.class, IntegerTypeHandler.class);
   }
-  
+
+  @Test
+  public void shouldCacheResolvedTypeHandlers() {
+    TypeHandler<RoundingMode> enumHandler = typeHandlerRegistry.getTypeHandler(RoundingMode.class, JdbcType.VARCHAR);
+    assertTrue(enumHandler instanceof EnumTypeHandler);
+    assertSame(enumHandler, typeHandlerRegistry.getTypeHandler(RoundingMode.class, JdbcType.VARCHAR));
+    assertNull(typeHandlerRegistry.getTypeHandler(RichType.class));
+    assertNull(typeHandlerRegistry.getTypeHandler(RichType.class, JdbcType.VARCHAR));
+  }
+
+  @Test
+  public void shouldSeeHandlersRegisteredAfterLookup() {
+    assertSame(StringTypeHandler.class, typeHandlerRegistry.getTypeHandler(String.class, JdbcType.ARRAY).getClass());
+    assertNull(typeHandlerRegistry.getTypeHandler(RichType.class));
+    typeHandlerRegistry.register(String.class, JdbcType.ARRAY, new ClobTypeHandler());
+    typeHandlerRegistry.register(RichType.class, ObjectTypeHandler.class);
+    assertSame(ClobTypeHandler.class, typeHandlerRegistry.getTypeHandler(String.class, JdbcType.ARRAY).getClass());
+    assertSame(ObjectTypeHandler.class, typeHandlerRegistry.getTypeHandler(RichType.class).getClass());
+  }
+
+  @Test
+  public void shouldRecognizeBuiltInHandlersOnRepeatedCalls() {
+    TypeHandler<Integer> subclassed = new IntegerTypeHandler() {
+    };
+    for (int i = 0; i < 2; i++) {
+      assertTrue(TypeHandlerRegistry.isBuiltInTypeHandler(typeHandlerRegistry.getTypeHandler(Integer.class)));
+      assertFalse(TypeHandlerRegistry.isBuiltInTypeHandler(subclassed));
+      assertFalse(TypeHandlerRegistry.isBuiltInTypeHandler(null));
+    }
+  }
+
 }